@@ -0,0 +1,229 @@
+package de.impelon.geotools;
+
+import org.bukkit.util.Vector;
+
+/**
+ * <p> Immutable axis-aligned box given by its smallest and largest corner. </p>
+ * <p> Used to cheaply approximate the space an Area or Region covers; the bounds may be infinite. </p>
+ * 
+ * @author Impelon
+ *
+ */
+public final class BoundingBox {
+	
+	public static final BoundingBox INFINITE = new BoundingBox(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+			Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+	
+	private final double minX;
+	private final double minY;
+	private final double minZ;
+	private final double maxX;
+	private final double maxY;
+	private final double maxZ;
+	
+	/**
+	 * <p> Create a BoundingBox from the coordinates of two corners. </p>
+	 */
+	public BoundingBox(double x1, double y1, double z1, double x2, double y2, double z2) {
+		this.minX = Math.min(x1, x2);
+		this.minY = Math.min(y1, y2);
+		this.minZ = Math.min(z1, z2);
+		this.maxX = Math.max(x1, x2);
+		this.maxY = Math.max(y1, y2);
+		this.maxZ = Math.max(z1, z2);
+	}
+	
+	/**
+	 * <p> Create a BoundingBox from two given Vectors (corners). </p>
+	 * 
+	 * @param a determines first corner of the BoundingBox
+	 * @param b determines second corner of the BoundingBox
+	 */
+	public BoundingBox(Vector a, Vector b) {
+		this(a.getX(), a.getY(), a.getZ(), b.getX(), b.getY(), b.getZ());
+	}
+	
+	/**
+	 * <p> Create a BoundingBox covering all Blocks between the given (inclusive) Block-coordinates. </p>
+	 * 
+	 * @return The BoundingBox
+	 */
+	public static BoundingBox ofBlocks(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+		return new BoundingBox(minX, minY, minZ, (double) maxX + 1, (double) maxY + 1, (double) maxZ + 1);
+	}
+	
+	/**
+	 * <p> Returns the smallest x-coordinate of this BoundingBox. </p>
+	 * 
+	 * @return The coordinate
+	 */
+	public double getMinX() {
+		return this.minX;
+	}
+	
+	/**
+	 * <p> Returns the smallest y-coordinate of this BoundingBox. </p>
+	 * 
+	 * @return The coordinate
+	 */
+	public double getMinY() {
+		return this.minY;
+	}
+	
+	/**
+	 * <p> Returns the smallest z-coordinate of this BoundingBox. </p>
+	 * 
+	 * @return The coordinate
+	 */
+	public double getMinZ() {
+		return this.minZ;
+	}
+	
+	/**
+	 * <p> Returns the largest x-coordinate of this BoundingBox. </p>
+	 * 
+	 * @return The coordinate
+	 */
+	public double getMaxX() {
+		return this.maxX;
+	}
+	
+	/**
+	 * <p> Returns the largest y-coordinate of this BoundingBox. </p>
+	 * 
+	 * @return The coordinate
+	 */
+	public double getMaxY() {
+		return this.maxY;
+	}
+	
+	/**
+	 * <p> Returns the largest z-coordinate of this BoundingBox. </p>
+	 * 
+	 * @return The coordinate
+	 */
+	public double getMaxZ() {
+		return this.maxZ;
+	}
+	
+	/**
+	 * <p> Returns the smallest corner of this BoundingBox. </p>
+	 * 
+	 * @return The Vector of the corner
+	 */
+	public Vector getMinimum() {
+		return new Vector(this.minX, this.minY, this.minZ);
+	}
+	
+	/**
+	 * <p> Returns the largest corner of this BoundingBox. </p>
+	 * 
+	 * @return The Vector of the corner
+	 */
+	public Vector getMaximum() {
+		return new Vector(this.maxX, this.maxY, this.maxZ);
+	}
+	
+	/**
+	 * <p> Determines if the given coordinates are within this BoundingBox (bounds inclusive). </p>
+	 * 
+	 * @return Whether this BoundingBox contains the point
+	 */
+	public boolean contains(double x, double y, double z) {
+		return x >= this.minX && x <= this.maxX && y >= this.minY && y <= this.maxY && z >= this.minZ && z <= this.maxZ;
+	}
+	
+	/**
+	 * <p> Determines if a Vector is within this BoundingBox (bounds inclusive). </p>
+	 * 
+	 * @param pos Vector to check
+	 * @return Whether this BoundingBox contains the Vector
+	 */
+	public boolean contains(Vector pos) {
+		return this.contains(pos.getX(), pos.getY(), pos.getZ());
+	}
+	
+	/**
+	 * <p> Determines if another BoundingBox is completely within this BoundingBox. </p>
+	 * 
+	 * @param box BoundingBox to check
+	 * @return Whether this BoundingBox contains the given BoundingBox
+	 */
+	public boolean contains(BoundingBox box) {
+		return box.minX >= this.minX && box.maxX <= this.maxX && box.minY >= this.minY && box.maxY <= this.maxY
+				&& box.minZ >= this.minZ && box.maxZ <= this.maxZ;
+	}
+	
+	/**
+	 * <p> Determines if another BoundingBox overlaps with this BoundingBox (bounds inclusive). </p>
+	 * 
+	 * @param box BoundingBox to check
+	 * @return Whether the two BoundingBoxes overlap
+	 */
+	public boolean overlaps(BoundingBox box) {
+		return box.minX <= this.maxX && box.maxX >= this.minX && box.minY <= this.maxY && box.maxY >= this.minY
+				&& box.minZ <= this.maxZ && box.maxZ >= this.minZ;
+	}
+	
+	/**
+	 * <p> Returns the smallest BoundingBox containing this and the given BoundingBox. </p>
+	 * 
+	 * @param box the other BoundingBox
+	 * @return The union of both BoundingBoxes
+	 */
+	public BoundingBox union(BoundingBox box) {
+		return new BoundingBox(Math.min(this.minX, box.minX), Math.min(this.minY, box.minY), Math.min(this.minZ, box.minZ),
+				Math.max(this.maxX, box.maxX), Math.max(this.maxY, box.maxY), Math.max(this.maxZ, box.maxZ));
+	}
+	
+	/**
+	 * <p> Returns the BoundingBox both this and the given BoundingBox share. </p>
+	 * 
+	 * @param box the other BoundingBox
+	 * @return The intersection of both BoundingBoxes, or null if they do not overlap
+	 */
+	public BoundingBox intersection(BoundingBox box) {
+		if (!this.overlaps(box))
+			return null;
+		return new BoundingBox(Math.max(this.minX, box.minX), Math.max(this.minY, box.minY), Math.max(this.minZ, box.minZ),
+				Math.min(this.maxX, box.maxX), Math.min(this.maxY, box.maxY), Math.min(this.maxZ, box.maxZ));
+	}
+	
+	/**
+	 * <p> Returns the volume of this BoundingBox. </p>
+	 * 
+	 * @return The volume (may be infinite)
+	 */
+	public double getVolume() {
+		return (this.maxX - this.minX) * (this.maxY - this.minY) * (this.maxZ - this.minZ);
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof BoundingBox))
+			return false;
+		BoundingBox box = (BoundingBox) obj;
+		return this.minX == box.minX && this.minY == box.minY && this.minZ == box.minZ
+				&& this.maxX == box.maxX && this.maxY == box.maxY && this.maxZ == box.maxZ;
+	}
+	
+	@Override
+	public int hashCode() {
+		long hash = 7;
+		hash = 31 * hash + Double.doubleToLongBits(this.minX);
+		hash = 31 * hash + Double.doubleToLongBits(this.minY);
+		hash = 31 * hash + Double.doubleToLongBits(this.minZ);
+		hash = 31 * hash + Double.doubleToLongBits(this.maxX);
+		hash = 31 * hash + Double.doubleToLongBits(this.maxY);
+		hash = 31 * hash + Double.doubleToLongBits(this.maxZ);
+		return (int) (hash ^ (hash >>> 32));
+	}
+	
+	@Override
+	public String toString() {
+		return "BoundingBox[" + this.minX + "," + this.minY + "," + this.minZ + " -> " + this.maxX + "," + this.maxY + "," + this.maxZ + "]";
+	}
+
+}
@@ -0,0 +1,179 @@
+package de.impelon.geotools;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import org.bukkit.Chunk;
+import org.bukkit.World;
+
+import de.impelon.geotools.region.IRegion;
+import de.impelon.misc.LongObjectHashMap;
+
+/**
+ * <p> Reverse index from chunks to the Regions containing Blocks within them. </p>
+ * <p> Every Region is registered under the chunks returned by {@linkplain IRegion#getChunks()},
+ * separately for every {@linkplain World}, so finding the Regions touching a chunk
+ * (for example in a {@linkplain org.bukkit.event.world.ChunkLoadEvent} handler) takes a single lookup without boxing the chunk-key. </p>
+ * <p> The chunks of a Region are taken when the Region is added;
+ * mutable Regions have to be added again after they were modified.
+ * This class is not thread-safe and meant to be used from the main thread. </p>
+ * 
+ * @author Impelon
+ * 
+ * @param <R> the type of Regions in this index
+ */
+public class ChunkRegionIndex<R extends IRegion> {
+	
+	protected final HashMap<World, LongObjectHashMap<List<R>>> buckets = new HashMap<World, LongObjectHashMap<List<R>>>();
+	protected final IdentityHashMap<R, Entry> entries = new IdentityHashMap<R, Entry>();
+	
+	/**
+	 * <p> Adds a Region to this index; if it was already added its chunks are updated. </p>
+	 * 
+	 * @param region the Region to add
+	 */
+	public void add(R region) {
+		this.unregister(region);
+		World world = region.getWorld();
+		long[] chunks = region.getChunks().toArray();
+		this.entries.put(region, new Entry(world, chunks));
+		if (chunks.length == 0)
+			return;
+		LongObjectHashMap<List<R>> buckets = this.buckets.get(world);
+		if (buckets == null)
+			this.buckets.put(world, buckets = new LongObjectHashMap<List<R>>());
+		for (long chunk : chunks) {
+			List<R> list = buckets.get(chunk);
+			if (list == null)
+				buckets.put(chunk, list = new ArrayList<R>(2));
+			list.add(region);
+		}
+	}
+	
+	/**
+	 * <p> Removes a Region from this index. </p>
+	 * 
+	 * @param region the Region to remove
+	 * @return Whether this index changed as a result of the call
+	 */
+	public boolean remove(R region) {
+		return this.unregister(region);
+	}
+	
+	/**
+	 * <p> Removes a Region from the buckets of its chunks. </p>
+	 * 
+	 * @return Whether the Region was added before
+	 */
+	protected boolean unregister(R region) {
+		Entry entry = this.entries.remove(region);
+		if (entry == null)
+			return false;
+		LongObjectHashMap<List<R>> buckets = this.buckets.get(entry.world);
+		if (buckets == null)
+			return true;
+		for (long chunk : entry.chunks) {
+			List<R> list = buckets.get(chunk);
+			if (list != null && RegionTracker.removeIdentical(list, region) && list.isEmpty())
+				buckets.remove(chunk);
+		}
+		if (buckets.isEmpty())
+			this.buckets.remove(entry.world);
+		return true;
+	}
+	
+	/**
+	 * <p> Returns the Regions containing Blocks within the given chunk. </p>
+	 * 
+	 * @param chunk the Chunk
+	 * @return An unmodifiable List<R> of Regions
+	 */
+	public List<R> getRegions(Chunk chunk) {
+		return this.getRegions(chunk.getWorld(), chunk.getX(), chunk.getZ());
+	}
+	
+	/**
+	 * <p> Returns the Regions containing Blocks within the chunk at the given chunk-coordinates. </p>
+	 * 
+	 * @param world the World of the chunk
+	 * @param chunkX the x-coordinate of the chunk
+	 * @param chunkZ the z-coordinate of the chunk
+	 * @return An unmodifiable List<R> of Regions
+	 */
+	public List<R> getRegions(World world, int chunkX, int chunkZ) {
+		return this.getRegions(world, PackedPosition.packChunk(chunkX, chunkZ));
+	}
+	
+	/**
+	 * <p> Returns the Regions containing Blocks within the chunk with the given packed chunk-coordinates. </p>
+	 * 
+	 * @see PackedPosition#packChunk(int, int)
+	 * @param world the World of the chunk
+	 * @param chunk the packed chunk-coordinates
+	 * @return An unmodifiable List<R> of Regions
+	 */
+	public List<R> getRegions(World world, long chunk) {
+		LongObjectHashMap<List<R>> buckets = this.buckets.get(world);
+		List<R> list = buckets == null ? null : buckets.get(chunk);
+		return list == null ? Collections.<R>emptyList() : Collections.unmodifiableList(list);
+	}
+	
+	/**
+	 * <p> Determines if any Region contains Blocks within the chunk at the given chunk-coordinates. </p>
+	 * 
+	 * @param world the World of the chunk
+	 * @param chunkX the x-coordinate of the chunk
+	 * @param chunkZ the z-coordinate of the chunk
+	 * @return Whether a Region touches the chunk
+	 */
+	public boolean isCovered(World world, int chunkX, int chunkZ) {
+		LongObjectHashMap<List<R>> buckets = this.buckets.get(world);
+		return buckets != null && buckets.containsKey(PackedPosition.packChunk(chunkX, chunkZ));
+	}
+	
+	/**
+	 * <p> Determines if the given Region was added to this index. </p>
+	 * 
+	 * @param region the Region to check
+	 * @return Whether the Region is in this index
+	 */
+	public boolean contains(R region) {
+		return this.entries.containsKey(region);
+	}
+	
+	/**
+	 * <p> Returns the amount of Regions in this index. </p>
+	 * 
+	 * @return The size
+	 */
+	public int size() {
+		return this.entries.size();
+	}
+	
+	/**
+	 * <p> Removes all Regions from this index. </p>
+	 */
+	public void clear() {
+		this.buckets.clear();
+		this.entries.clear();
+	}
+	
+	/**
+	 * <p> The World and chunks a Region was registered under. </p>
+	 */
+	protected static class Entry {
+		
+		protected final World world;
+		protected final long[] chunks;
+		
+		protected Entry(World world, long[] chunks) {
+			this.world = world;
+			this.chunks = chunks;
+		}
+	
+	}
+
+}
@@ -0,0 +1,34 @@
+package de.impelon.geotools;
+
+import org.bukkit.entity.Player;
+
+import de.impelon.geotools.area.IArea;
+
+/**
+ * <p> Callback receiving the transitions of Players between Areas. </p>
+ * 
+ * @see RegionTracker
+ * 
+ * @author Impelon
+ * 
+ * @param <A> the type of Areas
+ */
+public interface IAreaListener<A extends IArea> {
+	
+	/**
+	 * <p> Called when a Player enters an Area. </p>
+	 * 
+	 * @param player the Player
+	 * @param area the Area the Player is now within
+	 */
+	public abstract void onEnter(Player player, A area);
+	
+	/**
+	 * <p> Called when a Player exits an Area. </p>
+	 * 
+	 * @param player the Player
+	 * @param area the Area the Player is no longer within
+	 */
+	public abstract void onExit(Player player, A area);
+
+}
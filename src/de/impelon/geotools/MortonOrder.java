@@ -0,0 +1,206 @@
+package de.impelon.geotools;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.bukkit.util.Vector;
+
+import de.impelon.geotools.region.IBlockVisitor;
+import de.impelon.geotools.region.IRegion;
+
+/**
+ * <p> Used for ordering Block-Positions along a Z-order curve (Morton-order). </p>
+ * <p> The bits of the coordinates are interleaved into a single primitive long, so sorting by that long
+ * keeps Blocks that are close to each other close together: every 16x16x16 chunk-section,
+ * and every larger power-of-two cube, is visited completely before the next one is entered. </p>
+ * <p> Uses the same ranges as {@linkplain PackedPosition}: the lower 12 bits of all coordinates are interleaved,
+ * the remaining 14 bits of the x- and z-coordinate are interleaved above them.
+ * Coordinates outside of that range will wrap around. </p>
+ * 
+ * @author Impelon
+ *
+ */
+public final class MortonOrder {
+	
+	private static final long HORIZONTAL_MASK = (1L << PackedPosition.HORIZONTAL_BITS) - 1;
+	private static final long VERTICAL_MASK = (1L << PackedPosition.VERTICAL_BITS) - 1;
+	private static final int INTERLEAVED_BITS = 3 * PackedPosition.VERTICAL_BITS;
+	private static final long INTERLEAVED_MASK = (1L << INTERLEAVED_BITS) - 1;
+	
+	private MortonOrder() {}
+	
+	/**
+	 * <p> Encodes the given Block-coordinates into their position along the Z-order curve. </p>
+	 * <p> The keys have to be compared unsigned, see {@linkplain Long#compareUnsigned(long, long)}. </p>
+	 * 
+	 * @param x the x-coordinate
+	 * @param y the y-coordinate
+	 * @param z the z-coordinate
+	 * @return The key
+	 */
+	public static long encode(int x, int y, int z) {
+		long ux = (x - PackedPosition.MIN_HORIZONTAL) & HORIZONTAL_MASK;
+		long uy = (y - PackedPosition.MIN_VERTICAL) & VERTICAL_MASK;
+		long uz = (z - PackedPosition.MIN_HORIZONTAL) & HORIZONTAL_MASK;
+		long low = (spread3(ux & VERTICAL_MASK) << 2) | (spread3(uz & VERTICAL_MASK) << 1) | spread3(uy);
+		long high = (spread2(ux >>> PackedPosition.VERTICAL_BITS) << 1) | spread2(uz >>> PackedPosition.VERTICAL_BITS);
+		return (high << INTERLEAVED_BITS) | low;
+	}
+	
+	/**
+	 * <p> Returns the x-coordinate of a key. </p>
+	 * 
+	 * @param key the key
+	 * @return The x-coordinate
+	 */
+	public static int getX(long key) {
+		long ux = compact3((key & INTERLEAVED_MASK) >>> 2) | (compact2(key >>> (INTERLEAVED_BITS + 1)) << PackedPosition.VERTICAL_BITS);
+		return (int) ux + PackedPosition.MIN_HORIZONTAL;
+	}
+	
+	/**
+	 * <p> Returns the y-coordinate of a key. </p>
+	 * 
+	 * @param key the key
+	 * @return The y-coordinate
+	 */
+	public static int getY(long key) {
+		return (int) compact3(key & INTERLEAVED_MASK) + PackedPosition.MIN_VERTICAL;
+	}
+	
+	/**
+	 * <p> Returns the z-coordinate of a key. </p>
+	 * 
+	 * @param key the key
+	 * @return The z-coordinate
+	 */
+	public static int getZ(long key) {
+		long uz = compact3((key & INTERLEAVED_MASK) >>> 1) | (compact2(key >>> INTERLEAVED_BITS) << PackedPosition.VERTICAL_BITS);
+		return (int) uz + PackedPosition.MIN_HORIZONTAL;
+	}
+	
+	/**
+	 * <p> Creates a new Vector from a key. </p>
+	 * 
+	 * @param key the key
+	 * @return The Vector
+	 */
+	public static Vector toVector(long key) {
+		return new Vector(getX(key), getY(key), getZ(key));
+	}
+	
+	/**
+	 * <p> Returns the keys of all Blocks of the given Region sorted along the Z-order curve. </p>
+	 * <p> Blocks are collected using {@linkplain IRegion#forEachBlock(IBlockVisitor)};
+	 * Positions within the same Block are only contained once. </p>
+	 * 
+	 * @param region the Region
+	 * @return The sorted keys
+	 */
+	public static long[] sort(IRegion region) {
+		final long[][] keys = {new long[16]};
+		final int[] size = {0};
+		region.forEachBlock(new IBlockVisitor() {
+			
+			@Override
+			public void visit(int x, int y, int z) {
+				if (size[0] == keys[0].length)
+					keys[0] = Arrays.copyOf(keys[0], keys[0].length * 2);
+				// flipping the sign-bit lets the signed sort produce the unsigned order
+				keys[0][size[0]++] = encode(x, y, z) ^ Long.MIN_VALUE;
+			}
+		});
+		long[] sorted = keys[0];
+		Arrays.sort(sorted, 0, size[0]);
+		int unique = 0;
+		for (int i = 0; i < size[0]; i++)
+			if (unique == 0 || sorted[unique - 1] != sorted[i])
+				sorted[unique++] = sorted[i];
+		for (int i = 0; i < unique; i++)
+			sorted[i] ^= Long.MIN_VALUE;
+		return Arrays.copyOf(sorted, unique);
+	}
+	
+	/**
+	 * <p> Returns an Iterator over the Block-Positions of the given keys, in the order of the array. </p>
+	 * 
+	 * @see MortonOrder#sort(IRegion)
+	 * @param keys the keys (must not be modified while iterating)
+	 * @return The Iterator<Vector>
+	 */
+	public static Iterator<Vector> iterator(final long[] keys) {
+		Iterator<Vector> iterator = new Iterator<Vector>() {
+			
+			private int index = 0;
+			
+			@Override
+			public boolean hasNext() {
+				return this.index < keys.length;
+			}
+			
+			@Override
+			public Vector next() {
+				if (!this.hasNext())
+					throw new NoSuchElementException();
+				return toVector(keys[this.index++]);
+			}
+		};
+		return iterator;
+	}
+	
+	/**
+	 * <p> Calls the given IBlockVisitor with the Block-coordinates of the given keys, in the order of the array. </p>
+	 * 
+	 * @see MortonOrder#sort(IRegion)
+	 * @param keys the keys
+	 * @param visitor the IBlockVisitor to call
+	 */
+	public static void forEachBlock(long[] keys, IBlockVisitor visitor) {
+		for (long key : keys)
+			visitor.visit(getX(key), getY(key), getZ(key));
+	}
+	
+	/**
+	 * <p> Spreads the lower 12 bits of the given value so that 2 zero-bits follow each bit. </p>
+	 */
+	private static long spread3(long value) {
+		value = (value | (value << 16)) & 0x0000FF0000FFL;
+		value = (value | (value << 8)) & 0x00F00F00F00FL;
+		value = (value | (value << 4)) & 0x0C30C30C30C3L;
+		return (value | (value << 2)) & 0x249249249249L;
+	}
+	
+	/**
+	 * <p> Reverses {@linkplain MortonOrder#spread3(long)}, ignoring all bits not at a multiple of 3. </p>
+	 */
+	private static long compact3(long value) {
+		value &= 0x249249249249L;
+		value = (value | (value >>> 2)) & 0x0C30C30C30C3L;
+		value = (value | (value >>> 4)) & 0x00F00F00F00FL;
+		value = (value | (value >>> 8)) & 0x0000FF0000FFL;
+		return (value | (value >>> 16)) & 0xFFFL;
+	}
+	
+	/**
+	 * <p> Spreads the lower 14 bits of the given value so that a zero-bit follows each bit. </p>
+	 */
+	private static long spread2(long value) {
+		value = (value | (value << 8)) & 0x00FF00FFL;
+		value = (value | (value << 4)) & 0x0F0F0F0FL;
+		value = (value | (value << 2)) & 0x33333333L;
+		return (value | (value << 1)) & 0x55555555L;
+	}
+	
+	/**
+	 * <p> Reverses {@linkplain MortonOrder#spread2(long)}, ignoring all bits at odd positions. </p>
+	 */
+	private static long compact2(long value) {
+		value &= 0x55555555L;
+		value = (value | (value >>> 1)) & 0x33333333L;
+		value = (value | (value >>> 2)) & 0x0F0F0F0FL;
+		value = (value | (value >>> 4)) & 0x00FF00FFL;
+		return (value | (value >>> 8)) & 0xFFFFL;
+	}
+
+}
@@ -0,0 +1,134 @@
+package de.impelon.geotools;
+
+import org.bukkit.Location;
+import org.bukkit.util.Vector;
+
+/**
+ * <p> Used for packing Block-Positions into a single primitive long. </p>
+ * <p> The x- and z-coordinate use 26 bits each, the y-coordinate uses the remaining 12 bits.
+ * Coordinates outside of that range will wrap around. </p>
+ * 
+ * @author Impelon
+ *
+ */
+public final class PackedPosition {
+	
+	public static final int HORIZONTAL_BITS = 26;
+	public static final int VERTICAL_BITS = 12;
+	public static final int MIN_HORIZONTAL = -(1 << (HORIZONTAL_BITS - 1));
+	public static final int MAX_HORIZONTAL = (1 << (HORIZONTAL_BITS - 1)) - 1;
+	public static final int MIN_VERTICAL = -(1 << (VERTICAL_BITS - 1));
+	public static final int MAX_VERTICAL = (1 << (VERTICAL_BITS - 1)) - 1;
+	
+	private static final long HORIZONTAL_MASK = (1L << HORIZONTAL_BITS) - 1;
+	private static final long VERTICAL_MASK = (1L << VERTICAL_BITS) - 1;
+	private static final int X_SHIFT = HORIZONTAL_BITS + VERTICAL_BITS;
+	private static final int Z_SHIFT = VERTICAL_BITS;
+	
+	private PackedPosition() {}
+	
+	/**
+	 * <p> Packs the given Block-coordinates into a long. </p>
+	 * 
+	 * @param x the x-coordinate
+	 * @param y the y-coordinate
+	 * @param z the z-coordinate
+	 * @return The packed position
+	 */
+	public static long pack(int x, int y, int z) {
+		return ((x & HORIZONTAL_MASK) << X_SHIFT) | ((z & HORIZONTAL_MASK) << Z_SHIFT) | (y & VERTICAL_MASK);
+	}
+	
+	/**
+	 * <p> Packs the Block-Position of the given Vector into a long. </p>
+	 * 
+	 * @param pos the Vector to pack (will be floored)
+	 * @return The packed position
+	 */
+	public static long pack(Vector pos) {
+		return pack(pos.getBlockX(), pos.getBlockY(), pos.getBlockZ());
+	}
+	
+	/**
+	 * <p> Packs the Block-Position of the given Location into a long. </p>
+	 * 
+	 * @param pos the Location to pack (will be floored)
+	 * @return The packed position
+	 */
+	public static long pack(Location pos) {
+		return pack(pos.getBlockX(), pos.getBlockY(), pos.getBlockZ());
+	}
+	
+	/**
+	 * <p> Returns the x-coordinate of a packed position. </p>
+	 * 
+	 * @param packed the packed position
+	 * @return The x-coordinate
+	 */
+	public static int getX(long packed) {
+		return (int) (packed >> X_SHIFT);
+	}
+	
+	/**
+	 * <p> Returns the y-coordinate of a packed position. </p>
+	 * 
+	 * @param packed the packed position
+	 * @return The y-coordinate
+	 */
+	public static int getY(long packed) {
+		return (int) (packed << (64 - VERTICAL_BITS) >> (64 - VERTICAL_BITS));
+	}
+	
+	/**
+	 * <p> Returns the z-coordinate of a packed position. </p>
+	 * 
+	 * @param packed the packed position
+	 * @return The z-coordinate
+	 */
+	public static int getZ(long packed) {
+		return (int) (packed << (64 - X_SHIFT) >> (64 - HORIZONTAL_BITS));
+	}
+	
+	/**
+	 * <p> Creates a new Vector from a packed position. </p>
+	 * 
+	 * @param packed the packed position
+	 * @return The Vector
+	 */
+	public static Vector toVector(long packed) {
+		return new Vector(getX(packed), getY(packed), getZ(packed));
+	}
+	
+	/**
+	 * <p> Packs the given chunk-coordinates into a long. </p>
+	 * <p> Sorting these keys orders chunks by their x- and then their z-coordinate. </p>
+	 * 
+	 * @param chunkX the x-coordinate of the chunk
+	 * @param chunkZ the z-coordinate of the chunk
+	 * @return The packed chunk
+	 */
+	public static long packChunk(int chunkX, int chunkZ) {
+		return ((long) chunkX << 32) | ((chunkZ ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+	}
+	
+	/**
+	 * <p> Returns the x-coordinate of a packed chunk. </p>
+	 * 
+	 * @param chunk the packed chunk
+	 * @return The x-coordinate of the chunk
+	 */
+	public static int getChunkX(long chunk) {
+		return (int) (chunk >> 32);
+	}
+	
+	/**
+	 * <p> Returns the z-coordinate of a packed chunk. </p>
+	 * 
+	 * @param chunk the packed chunk
+	 * @return The z-coordinate of the chunk
+	 */
+	public static int getChunkZ(long chunk) {
+		return (int) chunk ^ Integer.MIN_VALUE;
+	}
+
+}
@@ -0,0 +1,540 @@
+package de.impelon.geotools;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.util.Vector;
+
+import de.impelon.geotools.area.IArea;
+import de.impelon.geotools.region.IRegion;
+
+/**
+ * <p> Spatial index used to quickly find the Areas (or Regions) containing a Location. </p>
+ * <p> Keeps one R-tree per {@linkplain World} over the {@linkplain BoundingBox}es of the Areas,
+ * so only Areas whose BoundingBox matches a query have to be checked. </p>
+ * <p> The BoundingBox of an Area is taken when the Area is added;
+ * mutable Regions have to be added again after they were modified. </p>
+ * 
+ * @author Impelon
+ * 
+ * @param <A> the type of Areas in this index
+ */
+public class RegionIndex<A extends IArea> {
+	
+	protected static final int MAX_ENTRIES = 16;
+	protected static final int MIN_ENTRIES = 6;
+	// Infinite bounds are clamped to this when choosing where to put an Area.
+	protected static final double HEURISTIC_LIMIT = 1.0E8;
+	
+	protected final HashMap<World, Node<A>> roots = new HashMap<World, Node<A>>();
+	protected final IdentityHashMap<A, Node<A>> entries = new IdentityHashMap<A, Node<A>>();
+	
+	/**
+	 * <p> Creates a new empty RegionIndex. </p>
+	 */
+	public RegionIndex() {}
+	
+	/**
+	 * <p> Creates a new RegionIndex bulk-loaded with the given Areas. </p>
+	 * 
+	 * @param areas the Areas to add
+	 */
+	public RegionIndex(Collection<? extends A> areas) {
+		this.addAll(areas);
+	}
+	
+	/**
+	 * <p> Adds an Area to this index; if it was already added its BoundingBox is updated. </p>
+	 * 
+	 * @param area the Area to add
+	 */
+	public void add(A area) {
+		this.remove(area);
+		Node<A> entry = new Node<A>(area, area.getBoundingBox());
+		this.entries.put(area, entry);
+		if (entry.box != null)
+			this.insert(entry, area.getWorld());
+	}
+	
+	/**
+	 * <p> Adds all given Areas to this index. </p>
+	 * <p> If many Areas are added at once the R-trees are rebuilt from scratch (Sort-Tile-Recursive bulk-loading),
+	 * which results in better trees than adding them one by one. </p>
+	 * 
+	 * @param areas the Areas to add
+	 */
+	public void addAll(Collection<? extends A> areas) {
+		HashMap<World, List<Node<A>>> added = new HashMap<World, List<Node<A>>>();
+		for (A area : areas) {
+			this.remove(area);
+			Node<A> entry = new Node<A>(area, area.getBoundingBox());
+			this.entries.put(area, entry);
+			if (entry.box == null)
+				continue;
+			List<Node<A>> list = added.get(area.getWorld());
+			if (list == null) {
+				list = new ArrayList<Node<A>>();
+				added.put(area.getWorld(), list);
+			}
+			list.add(entry);
+		}
+		for (Map.Entry<World, List<Node<A>>> world : added.entrySet()) {
+			List<Node<A>> nodes = world.getValue();
+			Node<A> root = this.roots.get(world.getKey());
+			if (root != null && nodes.size() * 4 < root.countEntries()) {
+				for (Node<A> entry : nodes)
+					this.insert(entry, world.getKey());
+				continue;
+			}
+			if (root != null)
+				root.collectEntries(nodes);
+			for (Node<A> entry : nodes)
+				entry.parent = null;
+			this.roots.put(world.getKey(), this.bulkLoad(nodes));
+		}
+	}
+	
+	/**
+	 * <p> Removes an Area from this index. </p>
+	 * 
+	 * @param area the Area to remove
+	 * @return Whether this index changed as a result of the call
+	 */
+	public boolean remove(A area) {
+		Node<A> entry = this.entries.remove(area);
+		if (entry == null)
+			return false;
+		if (entry.parent == null)
+			return true;
+		Node<A> leaf = entry.parent;
+		leaf.children.remove(entry);
+		entry.parent = null;
+		this.condense(leaf, area.getWorld());
+		return true;
+	}
+	
+	/**
+	 * <p> Determines if the given Area was added to this index. </p>
+	 * 
+	 * @param area the Area to check
+	 * @return Whether the Area is in this index
+	 */
+	public boolean contains(A area) {
+		return this.entries.containsKey(area);
+	}
+	
+	/**
+	 * <p> Returns the amount of Areas in this index. </p>
+	 * 
+	 * @return The size
+	 */
+	public int size() {
+		return this.entries.size();
+	}
+	
+	/**
+	 * <p> Removes all Areas from this index. </p>
+	 */
+	public void clear() {
+		this.roots.clear();
+		this.entries.clear();
+	}
+	
+	/**
+	 * <p> Returns all Areas containing the given Location. </p>
+	 * 
+	 * @param pos the Location
+	 * @return The List<A> of Areas
+	 */
+	public List<A> getContaining(Location pos) {
+		ArrayList<A> result = new ArrayList<A>();
+		Node<A> root = this.roots.get(pos.getWorld());
+		if (root != null)
+			root.search(pos.getX(), pos.getY(), pos.getZ(), pos.getX(), pos.getY(), pos.getZ(), result);
+		for (int i = result.size() - 1; i >= 0; i--)
+			if (!result.get(i).getOverlap(pos))
+				result.remove(i);
+		return result;
+	}
+	
+	/**
+	 * <p> Returns all Areas in the given {@linkplain World} containing the given Vector. </p>
+	 * 
+	 * @param world the {@linkplain World}
+	 * @param pos the Vector
+	 * @return The List<A> of Areas
+	 */
+	public List<A> getContaining(World world, Vector pos) {
+		ArrayList<A> result = new ArrayList<A>();
+		Node<A> root = this.roots.get(world);
+		if (root != null)
+			root.search(pos.getX(), pos.getY(), pos.getZ(), pos.getX(), pos.getY(), pos.getZ(), result);
+		for (int i = result.size() - 1; i >= 0; i--)
+			if (!result.get(i).getOverlap(pos))
+				result.remove(i);
+		return result;
+	}
+	
+	/**
+	 * <p> Returns all Areas in the given {@linkplain World} whose BoundingBox overlaps with the given BoundingBox. </p>
+	 * <p> The Areas themselves are not checked. </p>
+	 * 
+	 * @param world the {@linkplain World}
+	 * @param box the BoundingBox
+	 * @return The List<A> of Areas
+	 */
+	public List<A> getIntersecting(World world, BoundingBox box) {
+		ArrayList<A> result = new ArrayList<A>();
+		Node<A> root = this.roots.get(world);
+		if (root != null)
+			root.search(box.getMinX(), box.getMinY(), box.getMinZ(), box.getMaxX(), box.getMaxY(), box.getMaxZ(), result);
+		return result;
+	}
+	
+	/**
+	 * <p> Returns all Areas overlapping with the given Area. </p>
+	 * 
+	 * @param area the Area
+	 * @return The List<A> of Areas
+	 */
+	public List<A> getOverlapping(IArea area) {
+		BoundingBox box = area.getBoundingBox();
+		if (box == null)
+			return new ArrayList<A>();
+		List<A> result = this.getIntersecting(area.getWorld(), box);
+		for (int i = result.size() - 1; i >= 0; i--) {
+			A candidate = result.get(i);
+			boolean overlap;
+			if (candidate instanceof IRegion && area instanceof IRegion)
+				overlap = ((IRegion) candidate).getOverlap((IRegion) area);
+			else
+				overlap = candidate.getOverlap(area);
+			if (!overlap)
+				result.remove(i);
+		}
+		return result;
+	}
+	
+	/**
+	 * <p> Inserts an entry into the R-tree of the given {@linkplain World}. </p>
+	 */
+	protected void insert(Node<A> entry, World world) {
+		Node<A> root = this.roots.get(world);
+		if (root == null) {
+			root = new Node<A>(1);
+			this.roots.put(world, root);
+		}
+		Node<A> node = root;
+		while (node.height > 1)
+			node = node.chooseChild(entry);
+		node.addChild(entry);
+		while (node != null) {
+			if (node.children.size() > MAX_ENTRIES) {
+				Node<A> sibling = node.split();
+				if (node.parent == null) {
+					Node<A> newRoot = new Node<A>(node.height + 1);
+					newRoot.addChild(node);
+					newRoot.addChild(sibling);
+					this.roots.put(world, newRoot);
+				} else
+					node.parent.addChild(sibling);
+			} else
+				node.recalculate();
+			node = node.parent;
+		}
+	}
+	
+	/**
+	 * <p> Repairs the R-tree after an entry was removed from the given leaf. </p>
+	 * <p> Underfull nodes are dissolved and their entries inserted again. </p>
+	 */
+	protected void condense(Node<A> leaf, World world) {
+		ArrayList<Node<A>> orphans = new ArrayList<Node<A>>();
+		Node<A> node = leaf;
+		while (node.parent != null) {
+			Node<A> parent = node.parent;
+			if (node.children.size() < MIN_ENTRIES) {
+				parent.children.remove(node);
+				node.collectEntries(orphans);
+			} else
+				node.recalculate();
+			node = parent;
+		}
+		node.recalculate();
+		while (node.height > 1 && node.children.size() == 1) {
+			node = node.children.get(0);
+			node.parent = null;
+		}
+		if (node.children.isEmpty())
+			this.roots.remove(world);
+		else
+			this.roots.put(world, node);
+		for (Node<A> orphan : orphans) {
+			orphan.parent = null;
+			this.insert(orphan, world);
+		}
+	}
+	
+	/**
+	 * <p> Builds a new R-tree from the given entries using Sort-Tile-Recursive. </p>
+	 * 
+	 * @return The root of the new R-tree
+	 */
+	protected Node<A> bulkLoad(List<Node<A>> entries) {
+		List<Node<A>> level = entries;
+		int height = 1;
+		do {
+			level = this.pack(level, height++);
+		} while (level.size() > 1);
+		return level.get(0);
+	}
+	
+	/**
+	 * <p> Packs the given nodes into parent nodes of the given height, tiling them along x, z and y. </p>
+	 * 
+	 * @return The List of parent nodes
+	 */
+	protected List<Node<A>> pack(List<Node<A>> nodes, int height) {
+		ArrayList<Node<A>> parents = new ArrayList<Node<A>>();
+		if (nodes.isEmpty()) {
+			parents.add(new Node<A>(height));
+			return parents;
+		}
+		int count = nodes.size();
+		int slices = (int) Math.ceil(Math.cbrt(Math.ceil(count / (double) MAX_ENTRIES)));
+		int slabSize = (int) Math.ceil(count / (double) slices);
+		Collections.sort(nodes, Node.byCenter(Axis.X));
+		for (int slab = 0; slab < count; slab += slabSize) {
+			List<Node<A>> slabNodes = nodes.subList(slab, Math.min(count, slab + slabSize));
+			Collections.sort(slabNodes, Node.byCenter(Axis.Z));
+			int runSize = (int) Math.ceil(slabNodes.size() / (double) slices);
+			for (int run = 0; run < slabNodes.size(); run += runSize) {
+				List<Node<A>> runNodes = slabNodes.subList(run, Math.min(slabNodes.size(), run + runSize));
+				Collections.sort(runNodes, Node.byCenter(Axis.Y));
+				for (int i = 0; i < runNodes.size(); i += MAX_ENTRIES) {
+					Node<A> parent = new Node<A>(height);
+					for (Node<A> child : runNodes.subList(i, Math.min(runNodes.size(), i + MAX_ENTRIES)))
+						parent.addChild(child);
+					parent.recalculate();
+					parents.add(parent);
+				}
+			}
+		}
+		return parents;
+	}
+	
+	/**
+	 * <p> Clamps a coordinate for use in heuristics. </p>
+	 */
+	protected static double clamp(double value) {
+		return Math.max(-HEURISTIC_LIMIT, Math.min(HEURISTIC_LIMIT, value));
+	}
+	
+	/**
+	 * <p> Returns the (clamped) volume of the box given by its corners. </p>
+	 */
+	protected static double volume(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+		return (clamp(maxX) - clamp(minX)) * (clamp(maxY) - clamp(minY)) * (clamp(maxZ) - clamp(minZ));
+	}
+	
+	/**
+	 * <p> Node of an R-tree; nodes of height 0 are the entries holding the Areas. </p>
+	 * 
+	 * @param <A> the type of Areas
+	 */
+	protected static class Node<A> {
+		
+		protected double minX, minY, minZ, maxX, maxY, maxZ;
+		protected Node<A> parent = null;
+		protected final ArrayList<Node<A>> children;
+		protected final int height;
+		protected final A area;
+		protected final BoundingBox box;
+		
+		protected Node(int height) {
+			this.height = height;
+			this.children = new ArrayList<Node<A>>(MAX_ENTRIES + 1);
+			this.area = null;
+			this.box = null;
+		}
+		
+		protected Node(A area, BoundingBox box) {
+			this.height = 0;
+			this.children = null;
+			this.area = area;
+			this.box = box;
+			if (box != null) {
+				this.minX = box.getMinX();
+				this.minY = box.getMinY();
+				this.minZ = box.getMinZ();
+				this.maxX = box.getMaxX();
+				this.maxY = box.getMaxY();
+				this.maxZ = box.getMaxZ();
+			}
+		}
+		
+		protected void addChild(Node<A> child) {
+			child.parent = this;
+			this.children.add(child);
+		}
+		
+		protected void recalculate() {
+			this.minX = this.minY = this.minZ = Double.POSITIVE_INFINITY;
+			this.maxX = this.maxY = this.maxZ = Double.NEGATIVE_INFINITY;
+			for (Node<A> child : this.children) {
+				this.minX = Math.min(this.minX, child.minX);
+				this.minY = Math.min(this.minY, child.minY);
+				this.minZ = Math.min(this.minZ, child.minZ);
+				this.maxX = Math.max(this.maxX, child.maxX);
+				this.maxY = Math.max(this.maxY, child.maxY);
+				this.maxZ = Math.max(this.maxZ, child.maxZ);
+			}
+		}
+		
+		protected double volume() {
+			return RegionIndex.volume(this.minX, this.minY, this.minZ, this.maxX, this.maxY, this.maxZ);
+		}
+		
+		protected double volumeWith(Node<A> other) {
+			return RegionIndex.volume(Math.min(this.minX, other.minX), Math.min(this.minY, other.minY), Math.min(this.minZ, other.minZ),
+					Math.max(this.maxX, other.maxX), Math.max(this.maxY, other.maxY), Math.max(this.maxZ, other.maxZ));
+		}
+		
+		protected double center(Axis axis) {
+			switch (axis) {
+			case X:
+				return (clamp(this.minX) + clamp(this.maxX)) / 2;
+			case Y:
+				return (clamp(this.minY) + clamp(this.maxY)) / 2;
+			case Z:
+			default:
+				return (clamp(this.minZ) + clamp(this.maxZ)) / 2;
+			}
+		}
+		
+		protected static <A> Comparator<Node<A>> byCenter(Axis axis) {
+			return new Comparator<Node<A>>() {
+				
+				@Override
+				public int compare(Node<A> a, Node<A> b) {
+					return Double.compare(a.center(axis), b.center(axis));
+				}
+			};
+		}
+		
+		/**
+		 * <p> Chooses the child needing the least enlargement to include the given node. </p>
+		 */
+		protected Node<A> chooseChild(Node<A> node) {
+			Node<A> best = null;
+			double bestEnlargement = Double.POSITIVE_INFINITY;
+			double bestVolume = Double.POSITIVE_INFINITY;
+			for (Node<A> child : this.children) {
+				double volume = child.volume();
+				double enlargement = child.volumeWith(node) - volume;
+				if (enlargement < bestEnlargement || (enlargement == bestEnlargement && volume < bestVolume)) {
+					best = child;
+					bestEnlargement = enlargement;
+					bestVolume = volume;
+				}
+			}
+			return best;
+		}
+		
+		/**
+		 * <p> Splits this overfull node using the quadratic split and returns the new sibling. </p>
+		 */
+		protected Node<A> split() {
+			ArrayList<Node<A>> remaining = new ArrayList<Node<A>>(this.children);
+			this.children.clear();
+			int seedA = 0, seedB = 1;
+			double worst = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < remaining.size(); i++)
+				for (int j = i + 1; j < remaining.size(); j++) {
+					double waste = remaining.get(i).volumeWith(remaining.get(j)) - remaining.get(i).volume() - remaining.get(j).volume();
+					if (waste > worst) {
+						worst = waste;
+						seedA = i;
+						seedB = j;
+					}
+				}
+			Node<A> sibling = new Node<A>(this.height);
+			this.addChild(remaining.get(seedA));
+			sibling.addChild(remaining.get(seedB));
+			remaining.remove(seedB);
+			remaining.remove(seedA);
+			this.recalculate();
+			sibling.recalculate();
+			while (!remaining.isEmpty()) {
+				if (this.children.size() + remaining.size() <= MIN_ENTRIES || sibling.children.size() + remaining.size() <= MIN_ENTRIES) {
+					Node<A> group = this.children.size() + remaining.size() <= MIN_ENTRIES ? this : sibling;
+					for (Node<A> child : remaining)
+						group.addChild(child);
+					group.recalculate();
+					break;
+				}
+				int next = 0;
+				double difference = Double.NEGATIVE_INFINITY;
+				for (int i = 0; i < remaining.size(); i++) {
+					double d = Math.abs((this.volumeWith(remaining.get(i)) - this.volume()) - (sibling.volumeWith(remaining.get(i)) - sibling.volume()));
+					if (d > difference) {
+						difference = d;
+						next = i;
+					}
+				}
+				Node<A> child = remaining.remove(next);
+				double enlargementA = this.volumeWith(child) - this.volume();
+				double enlargementB = sibling.volumeWith(child) - sibling.volume();
+				Node<A> group;
+				if (enlargementA != enlargementB)
+					group = enlargementA < enlargementB ? this : sibling;
+				else if (this.volume() != sibling.volume())
+					group = this.volume() < sibling.volume() ? this : sibling;
+				else
+					group = this.children.size() <= sibling.children.size() ? this : sibling;
+				group.addChild(child);
+				group.recalculate();
+			}
+			return sibling;
+		}
+		
+		protected void search(double minX, double minY, double minZ, double maxX, double maxY, double maxZ, List<A> result) {
+			for (Node<A> child : this.children) {
+				if (child.minX > maxX || child.maxX < minX || child.minY > maxY || child.maxY < minY || child.minZ > maxZ || child.maxZ < minZ)
+					continue;
+				if (child.height == 0)
+					result.add(child.area);
+				else
+					child.search(minX, minY, minZ, maxX, maxY, maxZ, result);
+			}
+		}
+		
+		protected void collectEntries(List<Node<A>> result) {
+			for (Node<A> child : this.children) {
+				if (child.height == 0)
+					result.add(child);
+				else
+					child.collectEntries(result);
+			}
+		}
+		
+		protected int countEntries() {
+			if (this.height == 1)
+				return this.children.size();
+			int count = 0;
+			for (Node<A> child : this.children)
+				count += child.countEntries();
+			return count;
+		}
+	
+	}
+
+}
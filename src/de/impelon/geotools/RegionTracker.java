@@ -0,0 +1,294 @@
+package de.impelon.geotools;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.UUID;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import de.impelon.geotools.area.IArea;
+
+/**
+ * <p> Keeps track of which Areas (or Regions) Players are within and reports when they enter or exit them. </p>
+ * <p> Areas are bucketed by the chunks their {@linkplain BoundingBox} covers, separately for every {@linkplain World},
+ * so an update only checks the Areas of the chunk the Player is in. Areas covering too many chunks
+ * (or having an infinite BoundingBox) are checked on every update of their World instead. </p>
+ * <p> Updates are skipped entirely while a Player stays within the same Block,
+ * so transitions are only detected when a Block-boundary is crossed. </p>
+ * <p> The BoundingBox of an Area is taken when the Area is added;
+ * mutable Regions have to be added again after they were modified.
+ * This class is not thread-safe and meant to be used from the main thread. </p>
+ * 
+ * @author Impelon
+ * 
+ * @param <A> the type of Areas in this tracker
+ */
+public class RegionTracker<A extends IArea> {
+	
+	// Areas covering more chunks than this are not bucketed.
+	protected static final int MAX_BUCKETED_CHUNKS = 1024;
+	
+	protected final IAreaListener<? super A> listener;
+	protected final HashMap<World, HashMap<Long, List<A>>> buckets = new HashMap<World, HashMap<Long, List<A>>>();
+	protected final HashMap<World, List<A>> unbucketed = new HashMap<World, List<A>>();
+	protected final IdentityHashMap<A, int[]> entries = new IdentityHashMap<A, int[]>();
+	protected final HashMap<UUID, TrackedPlayer<A>> players = new HashMap<UUID, TrackedPlayer<A>>();
+	
+	/**
+	 * <p> Creates a new RegionTracker reporting to the given listener. </p>
+	 * 
+	 * @param listener the IAreaListener to report transitions to
+	 */
+	public RegionTracker(IAreaListener<? super A> listener) {
+		this.listener = listener;
+	}
+	
+	/**
+	 * <p> Adds an Area to this tracker; if it was already added its BoundingBox is updated. </p>
+	 * <p> Players already within the Area enter it with their next update crossing a Block-boundary. </p>
+	 * 
+	 * @param area the Area to add
+	 */
+	public void add(A area) {
+		this.unregister(area);
+		BoundingBox box = area.getBoundingBox();
+		int[] chunks = box == null ? null : getChunkRange(box);
+		this.entries.put(area, chunks);
+		if (box == null)
+			return;
+		if (chunks == null) {
+			List<A> list = this.unbucketed.get(area.getWorld());
+			if (list == null)
+				this.unbucketed.put(area.getWorld(), list = new ArrayList<A>());
+			list.add(area);
+			return;
+		}
+		HashMap<Long, List<A>> world = this.buckets.get(area.getWorld());
+		if (world == null)
+			this.buckets.put(area.getWorld(), world = new HashMap<Long, List<A>>());
+		for (int chunkX = chunks[0]; chunkX <= chunks[2]; chunkX++)
+			for (int chunkZ = chunks[1]; chunkZ <= chunks[3]; chunkZ++) {
+				long chunk = PackedPosition.packChunk(chunkX, chunkZ);
+				List<A> list = world.get(chunk);
+				if (list == null)
+					world.put(chunk, list = new ArrayList<A>(2));
+				list.add(area);
+			}
+	}
+	
+	/**
+	 * <p> Removes an Area from this tracker. </p>
+	 * <p> Players within the Area forget about it without exiting it. </p>
+	 * 
+	 * @param area the Area to remove
+	 * @return Whether this tracker changed as a result of the call
+	 */
+	public boolean remove(A area) {
+		if (!this.unregister(area))
+			return false;
+		for (TrackedPlayer<A> player : this.players.values())
+			removeIdentical(player.areas, area);
+		return true;
+	}
+	
+	/**
+	 * <p> Removes an Area from the buckets. </p>
+	 * 
+	 * @return Whether the Area was added before
+	 */
+	protected boolean unregister(A area) {
+		if (!this.entries.containsKey(area))
+			return false;
+		int[] chunks = this.entries.remove(area);
+		if (chunks == null) {
+			List<A> list = this.unbucketed.get(area.getWorld());
+			if (list != null && removeIdentical(list, area) && list.isEmpty())
+				this.unbucketed.remove(area.getWorld());
+			return true;
+		}
+		HashMap<Long, List<A>> world = this.buckets.get(area.getWorld());
+		for (int chunkX = chunks[0]; chunkX <= chunks[2]; chunkX++)
+			for (int chunkZ = chunks[1]; chunkZ <= chunks[3]; chunkZ++) {
+				long chunk = PackedPosition.packChunk(chunkX, chunkZ);
+				List<A> list = world.get(chunk);
+				if (removeIdentical(list, area) && list.isEmpty())
+					world.remove(chunk);
+			}
+		if (world.isEmpty())
+			this.buckets.remove(area.getWorld());
+		return true;
+	}
+	
+	/**
+	 * <p> Determines if the given Area was added to this tracker. </p>
+	 * 
+	 * @param area the Area to check
+	 * @return Whether the Area is in this tracker
+	 */
+	public boolean contains(A area) {
+		return this.entries.containsKey(area);
+	}
+	
+	/**
+	 * <p> Returns the amount of Areas in this tracker. </p>
+	 * 
+	 * @return The size
+	 */
+	public int size() {
+		return this.entries.size();
+	}
+	
+	/**
+	 * <p> Updates the Position of a Player using their current Location. </p>
+	 * 
+	 * @see RegionTracker#update(Player, Location)
+	 * @param player the Player
+	 */
+	public void update(Player player) {
+		this.update(player, player.getLocation());
+	}
+	
+	/**
+	 * <p> Updates the Position of a Player and reports all Areas the Player exited and entered (in that order). </p>
+	 * <p> Does nothing if the Player is still within the same Block as during the last update.
+	 * Meant to be called with the destination of a {@linkplain org.bukkit.event.player.PlayerMoveEvent}. </p>
+	 * 
+	 * @param player the Player
+	 * @param location the new Location of the Player
+	 */
+	public void update(Player player, Location location) {
+		World world = location.getWorld();
+		int x = location.getBlockX(), y = location.getBlockY(), z = location.getBlockZ();
+		TrackedPlayer<A> tracked = this.players.get(player.getUniqueId());
+		if (tracked == null)
+			this.players.put(player.getUniqueId(), tracked = new TrackedPlayer<A>());
+		else if (tracked.world == world && tracked.x == x && tracked.y == y && tracked.z == z)
+			return;
+		tracked.world = world;
+		tracked.x = x;
+		tracked.y = y;
+		tracked.z = z;
+		HashMap<Long, List<A>> buckets = this.buckets.get(world);
+		List<A> bucket = buckets == null ? null : buckets.get(PackedPosition.packChunk(x >> 4, z >> 4));
+		List<A> unbucketed = this.unbucketed.get(world);
+		if (bucket == null && unbucketed == null && tracked.areas.isEmpty())
+			return;
+		ArrayList<A> areas = new ArrayList<A>();
+		if (bucket != null)
+			for (A area : bucket)
+				if (area.getOverlap(location))
+					areas.add(area);
+		if (unbucketed != null)
+			for (A area : unbucketed)
+				if (area.getOverlap(location))
+					areas.add(area);
+		ArrayList<A> previous = tracked.areas;
+		tracked.areas = areas;
+		// the transitions are collected first, since the listener may modify the tracked Areas
+		ArrayList<A> exited = new ArrayList<A>();
+		for (A area : previous)
+			if (!containsIdentical(areas, area))
+				exited.add(area);
+		ArrayList<A> entered = new ArrayList<A>();
+		for (A area : areas)
+			if (!containsIdentical(previous, area))
+				entered.add(area);
+		for (A area : exited)
+			this.listener.onExit(player, area);
+		for (A area : entered)
+			this.listener.onEnter(player, area);
+	}
+	
+	/**
+	 * <p> Stops tracking a Player, for example when they quit, without reporting any transitions. </p>
+	 * 
+	 * @param player the Player
+	 * @return The Areas the Player was last within
+	 */
+	public List<A> remove(Player player) {
+		TrackedPlayer<A> tracked = this.players.remove(player.getUniqueId());
+		return tracked == null ? Collections.<A>emptyList() : tracked.areas;
+	}
+	
+	/**
+	 * <p> Returns the Areas a Player was within during their last update. </p>
+	 * 
+	 * @param player the Player
+	 * @return An unmodifiable List<A> of Areas
+	 */
+	public List<A> getAreas(Player player) {
+		TrackedPlayer<A> tracked = this.players.get(player.getUniqueId());
+		return tracked == null ? Collections.<A>emptyList() : Collections.unmodifiableList(tracked.areas);
+	}
+	
+	/**
+	 * <p> Removes all Areas and Players from this tracker. </p>
+	 */
+	public void clear() {
+		this.buckets.clear();
+		this.unbucketed.clear();
+		this.entries.clear();
+		this.players.clear();
+	}
+	
+	/**
+	 * <p> Returns the range of chunks the given BoundingBox covers. </p>
+	 * <p> The maximum is treated as the exclusive end of the last Block (see {@linkplain BoundingBox#ofBlocks(int, int, int, int, int, int)}),
+	 * so a BoundingBox ending exactly on a chunk-boundary does not cover the next chunk. </p>
+	 * 
+	 * @return The range as {minChunkX, minChunkZ, maxChunkX, maxChunkZ}, or null if it covers too many chunks
+	 */
+	protected static int[] getChunkRange(BoundingBox box) {
+		double minX = Math.floor(box.getMinX() / 16), minZ = Math.floor(box.getMinZ() / 16);
+		double maxX = Math.floor((Math.ceil(box.getMaxX()) - 1) / 16), maxZ = Math.floor((Math.ceil(box.getMaxZ()) - 1) / 16);
+		// a BoundingBox thinner than a Block still covers the chunk of its minimum
+		maxX = Math.max(maxX, minX);
+		maxZ = Math.max(maxZ, minZ);
+		if ((maxX - minX + 1) * (maxZ - minZ + 1) > MAX_BUCKETED_CHUNKS)
+			return null;
+		return new int[] {(int) minX, (int) minZ, (int) maxX, (int) maxZ};
+	}
+	
+	/**
+	 * <p> Determines if the List contains the given Area, comparing by identity. </p>
+	 */
+	protected static <A> boolean containsIdentical(List<A> list, A area) {
+		for (int i = 0; i < list.size(); i++)
+			if (list.get(i) == area)
+				return true;
+		return false;
+	}
+	
+	/**
+	 * <p> Removes the given Area from the List, comparing by identity. </p>
+	 * 
+	 * @return Whether the List changed as a result of the call
+	 */
+	protected static <A> boolean removeIdentical(List<A> list, A area) {
+		for (int i = 0; i < list.size(); i++)
+			if (list.get(i) == area) {
+				list.remove(i);
+				return true;
+			}
+		return false;
+	}
+	
+	/**
+	 * <p> The last known Block and Areas of a Player. </p>
+	 */
+	protected static class TrackedPlayer<A> {
+		
+		protected World world = null;
+		protected int x;
+		protected int y;
+		protected int z;
+		protected ArrayList<A> areas = new ArrayList<A>(0);
+	
+	}
+
+}
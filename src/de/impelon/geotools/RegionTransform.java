@@ -0,0 +1,332 @@
+package de.impelon.geotools;
+
+import org.bukkit.util.Vector;
+
+import de.impelon.geotools.region.CuboidRegion;
+import de.impelon.geotools.region.IRegion;
+import de.impelon.geotools.region.TransformedRegion;
+
+/**
+ * <p> Immutable transform of Positions consisting of quarter-turns around the y-axis, mirroring and an integer translation. </p>
+ * <p> Every such transform maps Block-Positions to Block-Positions and axis-aligned boxes to axis-aligned boxes.
+ * Blocks are transformed by their Block-Position (the corner with the smallest coordinates),
+ * so rotating or mirroring a Region keeps it aligned to Blocks. </p>
+ * <p> Transforms are combined with {@linkplain RegionTransform#then(RegionTransform)};
+ * the fluent methods ({@linkplain RegionTransform#translate(int, int, int)} etc.) apply another transform afterwards. </p>
+ * 
+ * @see TransformedRegion
+ * @author Impelon
+ *
+ */
+public final class RegionTransform {
+	
+	public static final RegionTransform IDENTITY = new RegionTransform(1, 0, 0, 1, 1, 0, 0, 0);
+	
+	// x' = m00 * x + m02 * z + dx, y' = signY * y + dy, z' = m20 * x + m22 * z + dz; exactly one entry per row is not 0
+	private final int m00;
+	private final int m02;
+	private final int m20;
+	private final int m22;
+	private final int signY;
+	private final int dx;
+	private final int dy;
+	private final int dz;
+	
+	private RegionTransform(int m00, int m02, int m20, int m22, int signY, int dx, int dy, int dz) {
+		this.m00 = m00;
+		this.m02 = m02;
+		this.m20 = m20;
+		this.m22 = m22;
+		this.signY = signY;
+		this.dx = dx;
+		this.dy = dy;
+		this.dz = dz;
+	}
+	
+	/**
+	 * <p> Returns a transform moving Positions by the given offset. </p>
+	 * 
+	 * @return The RegionTransform
+	 */
+	public static RegionTransform translation(int dx, int dy, int dz) {
+		return new RegionTransform(1, 0, 0, 1, 1, dx, dy, dz);
+	}
+	
+	/**
+	 * <p> Returns a transform rotating Positions around the y-axis (through the origin) by the given amount of quarter-turns. </p>
+	 * <p> Positive turns are clockwise when looking down, so a quarter-turn maps east (+x) to south (+z). </p>
+	 * 
+	 * @param quarterTurns the amount of quarter-turns; negative values turn counter-clockwise
+	 * @return The RegionTransform
+	 */
+	public static RegionTransform rotation(int quarterTurns) {
+		switch (quarterTurns & 3) {
+		case 1:
+			return new RegionTransform(0, -1, 1, 0, 1, 0, 0, 0);
+		case 2:
+			return new RegionTransform(-1, 0, 0, -1, 1, 0, 0, 0);
+		case 3:
+			return new RegionTransform(0, 1, -1, 0, 1, 0, 0, 0);
+		default:
+			return IDENTITY;
+		}
+	}
+	
+	/**
+	 * <p> Returns a transform negating the given coordinate of Positions (mirroring at the plane through the origin). </p>
+	 * 
+	 * @param axis the axis to mirror along
+	 * @return The RegionTransform
+	 */
+	public static RegionTransform mirror(Axis axis) {
+		switch (axis) {
+		case X:
+			return new RegionTransform(-1, 0, 0, 1, 1, 0, 0, 0);
+		case Y:
+			return new RegionTransform(1, 0, 0, 1, -1, 0, 0, 0);
+		case Z:
+			return new RegionTransform(1, 0, 0, -1, 1, 0, 0, 0);
+		default:
+			return IDENTITY;
+		}
+	}
+	
+	/**
+	 * <p> Returns a transform applying this transform and then the given one. </p>
+	 * 
+	 * @param next the transform to apply afterwards
+	 * @return The combined RegionTransform
+	 */
+	public RegionTransform then(RegionTransform next) {
+		return new RegionTransform(next.m00 * this.m00 + next.m02 * this.m20, next.m00 * this.m02 + next.m02 * this.m22,
+				next.m20 * this.m00 + next.m22 * this.m20, next.m20 * this.m02 + next.m22 * this.m22, next.signY * this.signY,
+				next.transformX(this.dx, this.dz), next.transformY(this.dy), next.transformZ(this.dx, this.dz));
+	}
+	
+	/**
+	 * <p> Returns a transform applying this transform and then moving Positions by the given offset. </p>
+	 * 
+	 * @return The combined RegionTransform
+	 */
+	public RegionTransform translate(int dx, int dy, int dz) {
+		return this.then(translation(dx, dy, dz));
+	}
+	
+	/**
+	 * <p> Returns a transform applying this transform and then rotating Positions around the y-axis. </p>
+	 * 
+	 * @see RegionTransform#rotation(int)
+	 * @param quarterTurns the amount of clockwise quarter-turns
+	 * @return The combined RegionTransform
+	 */
+	public RegionTransform rotate(int quarterTurns) {
+		return this.then(rotation(quarterTurns));
+	}
+	
+	/**
+	 * <p> Returns a transform applying this transform and then mirroring Positions along the given axis. </p>
+	 * 
+	 * @see RegionTransform#mirror(Axis)
+	 * @param axis the axis to mirror along
+	 * @return The combined RegionTransform
+	 */
+	public RegionTransform mirrored(Axis axis) {
+		return this.then(mirror(axis));
+	}
+	
+	/**
+	 * <p> Returns the transform reverting this transform. </p>
+	 * 
+	 * @return The inverse RegionTransform
+	 */
+	public RegionTransform inverse() {
+		// the linear part is orthogonal, so its inverse is its transpose
+		return new RegionTransform(this.m00, this.m20, this.m02, this.m22, this.signY,
+				-(this.m00 * this.dx + this.m20 * this.dz), -this.signY * this.dy, -(this.m02 * this.dx + this.m22 * this.dz));
+	}
+	
+	/**
+	 * <p> Determines if this transform does not change any Position. </p>
+	 * 
+	 * @return Whether this is the identity
+	 */
+	public boolean isIdentity() {
+		return this.isTranslation() && this.dx == 0 && this.dy == 0 && this.dz == 0;
+	}
+	
+	/**
+	 * <p> Determines if this transform only moves Positions, without rotating or mirroring them. </p>
+	 * 
+	 * @return Whether this is a translation
+	 */
+	public boolean isTranslation() {
+		return this.m00 == 1 && this.m22 == 1 && this.signY == 1;
+	}
+	
+	/**
+	 * <p> Returns the axis of the original Position the given axis of the transformed Position is taken from. </p>
+	 * 
+	 * @param axis the axis of the transformed Position
+	 * @return The axis of the original Position
+	 */
+	public Axis getSourceAxis(Axis axis) {
+		switch (axis) {
+		case X:
+			return this.m00 != 0 ? Axis.X : Axis.Z;
+		case Z:
+			return this.m22 != 0 ? Axis.Z : Axis.X;
+		default:
+			return axis;
+		}
+	}
+	
+	/**
+	 * <p> Determines if the given axis of the transformed Position is negated (mirrored). </p>
+	 * 
+	 * @param axis the axis of the transformed Position
+	 * @return Whether the coordinate is negated
+	 */
+	public boolean isNegated(Axis axis) {
+		switch (axis) {
+		case X:
+			return this.m00 + this.m02 < 0;
+		case Y:
+			return this.signY < 0;
+		case Z:
+			return this.m20 + this.m22 < 0;
+		default:
+			return false;
+		}
+	}
+	
+	/**
+	 * <p> Returns the x-coordinate of the transformed Block-Position. </p>
+	 * 
+	 * @return The x-coordinate
+	 */
+	public int transformX(int x, int z) {
+		return this.m00 * x + this.m02 * z + this.dx;
+	}
+	
+	/**
+	 * <p> Returns the y-coordinate of the transformed Block-Position. </p>
+	 * 
+	 * @return The y-coordinate
+	 */
+	public int transformY(int y) {
+		return this.signY * y + this.dy;
+	}
+	
+	/**
+	 * <p> Returns the z-coordinate of the transformed Block-Position. </p>
+	 * 
+	 * @return The z-coordinate
+	 */
+	public int transformZ(int x, int z) {
+		return this.m20 * x + this.m22 * z + this.dz;
+	}
+	
+	/**
+	 * <p> Returns the x-coordinate of the transformed Position. </p>
+	 * <p> Only the coordinate used is multiplied, so infinite coordinates stay well-defined. </p>
+	 * 
+	 * @return The x-coordinate
+	 */
+	public double transformX(double x, double z) {
+		return (this.m00 != 0 ? this.m00 * x : this.m02 * z) + this.dx;
+	}
+	
+	/**
+	 * <p> Returns the y-coordinate of the transformed Position. </p>
+	 * 
+	 * @return The y-coordinate
+	 */
+	public double transformY(double y) {
+		return this.signY * y + this.dy;
+	}
+	
+	/**
+	 * <p> Returns the z-coordinate of the transformed Position. </p>
+	 * <p> Only the coordinate used is multiplied, so infinite coordinates stay well-defined. </p>
+	 * 
+	 * @return The z-coordinate
+	 */
+	public double transformZ(double x, double z) {
+		return (this.m22 != 0 ? this.m22 * z : this.m20 * x) + this.dz;
+	}
+	
+	/**
+	 * <p> Creates a new Vector by transforming the given one. </p>
+	 * 
+	 * @param pos the Vector to transform (is not modified)
+	 * @return The transformed Vector
+	 */
+	public Vector transform(Vector pos) {
+		return new Vector(this.transformX(pos.getX(), pos.getZ()), this.transformY(pos.getY()), this.transformZ(pos.getX(), pos.getZ()));
+	}
+	
+	/**
+	 * <p> Returns the BoundingBox containing the transformed corners of the given BoundingBox. </p>
+	 * 
+	 * @param box the BoundingBox to transform
+	 * @return The transformed BoundingBox, or null if the given one is null
+	 */
+	public BoundingBox transform(BoundingBox box) {
+		if (box == null)
+			return null;
+		return new BoundingBox(this.transformX(box.getMinX(), box.getMinZ()), this.transformY(box.getMinY()), this.transformZ(box.getMinX(), box.getMinZ()),
+				this.transformX(box.getMaxX(), box.getMaxZ()), this.transformY(box.getMaxY()), this.transformZ(box.getMaxX(), box.getMaxZ()));
+	}
+	
+	/**
+	 * <p> Returns the given Region transformed by this transform, without copying its Positions. </p>
+	 * <p> CuboidRegions stay CuboidRegions; transforms of a {@linkplain TransformedRegion} are combined;
+	 * other Regions are wrapped in a TransformedRegion. The identity returns the Region itself. </p>
+	 * 
+	 * @param region the Region to transform
+	 * @return The transformed Region
+	 */
+	public IRegion transform(IRegion region) {
+		if (this.isIdentity())
+			return region;
+		if (region instanceof CuboidRegion) {
+			CuboidRegion cuboid = (CuboidRegion) region;
+			return new CuboidRegion(this.transform(cuboid.getStartPosition()), this.transform(cuboid.getEndPosition()), cuboid.getWorld());
+		}
+		if (region instanceof TransformedRegion) {
+			TransformedRegion transformed = (TransformedRegion) region;
+			return transformed.getTransform().then(this).transform(transformed.getSource());
+		}
+		return new TransformedRegion(region, this);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (!(o instanceof RegionTransform))
+			return false;
+		RegionTransform other = (RegionTransform) o;
+		return this.m00 == other.m00 && this.m02 == other.m02 && this.m20 == other.m20 && this.m22 == other.m22
+				&& this.signY == other.signY && this.dx == other.dx && this.dy == other.dy && this.dz == other.dz;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		int hash = this.m00;
+		hash = 31 * hash + this.m02;
+		hash = 31 * hash + this.m20;
+		hash = 31 * hash + this.m22;
+		hash = 31 * hash + this.signY;
+		hash = 31 * hash + this.dx;
+		hash = 31 * hash + this.dy;
+		return 31 * hash + this.dz;
+	}
+
+}
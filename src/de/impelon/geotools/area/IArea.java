@@ -1,10 +1,13 @@
 package de.impelon.geotools.area;
 
+import java.util.Arrays;
+
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.util.Vector;
 
 import de.impelon.geotools.Axis;
+import de.impelon.geotools.BoundingBox;
 
 /**
  * <p> Interface that specifies the methods of any Implementation of IArea. </p>
@@ -77,4 +80,71 @@ public interface IArea {
 	 */
 	public abstract boolean getOverlap(IArea area);
 	
+	/**
+	 * <p> Determines for many Positions at once if they are within this Area. </p>
+	 * <p> Bit i of the result (bit {@code i & 63} of {@code result[i >> 6]}) is set if the i-th Position is within this Area;
+	 * the remaining bits of the last used word are cleared. The Positions are assumed to be in the World of this Area. </p>
+	 * <p> By default {@linkplain IArea#getOverlap(Vector)} is called with a single reused Vector. </p>
+	 * 
+	 * @param xs the x-coordinates of the Positions
+	 * @param ys the y-coordinates of the Positions
+	 * @param zs the z-coordinates of the Positions
+	 * @param result the bitmask to fill; needs at least {@code (xs.length + 63) / 64} words
+	 * @return The amount of Positions within this Area
+	 * @throws IllegalArgumentException if the arrays differ in length or the result is too small
+	 */
+	public default int getOverlaps(double[] xs, double[] ys, double[] zs, long[] result) throws IllegalArgumentException {
+		if (ys.length != xs.length || zs.length != xs.length)
+			throw new IllegalArgumentException("Cannot check coordinate-arrays of different length");
+		if (result.length < (xs.length + 63) >>> 6)
+			throw new IllegalArgumentException("Cannot store " + xs.length + " results in " + result.length + " words");
+		Arrays.fill(result, 0, (xs.length + 63) >>> 6, 0);
+		Vector v = new Vector();
+		int overlaps = 0;
+		for (int i = 0; i < xs.length; i++)
+			if (this.getOverlap(v.setX(xs[i]).setY(ys[i]).setZ(zs[i]))) {
+				result[i >>> 6] |= 1L << i;
+				overlaps++;
+			}
+		return overlaps;
+	}
+	
+	/**
+	 * <p> Determines for many Positions at once if they are within this Area. </p>
+	 * <p> Same as {@linkplain IArea#getOverlaps(double[], double[], double[], long[])},
+	 * but takes the coordinates interleaved as {x, y, z, x, y, z, ...}. </p>
+	 * 
+	 * @param positions the coordinates of the Positions
+	 * @param result the bitmask to fill; needs at least {@code (positions.length / 3 + 63) / 64} words
+	 * @return The amount of Positions within this Area
+	 * @throws IllegalArgumentException if the length of positions is not a multiple of 3 or the result is too small
+	 */
+	public default int getOverlaps(double[] positions, long[] result) throws IllegalArgumentException {
+		if (positions.length % 3 != 0)
+			throw new IllegalArgumentException("Cannot check coordinates not given as triples");
+		int count = positions.length / 3;
+		if (result.length < (count + 63) >>> 6)
+			throw new IllegalArgumentException("Cannot store " + count + " results in " + result.length + " words");
+		Arrays.fill(result, 0, (count + 63) >>> 6, 0);
+		Vector v = new Vector();
+		int overlaps = 0;
+		for (int i = 0; i < count; i++)
+			if (this.getOverlap(v.setX(positions[3 * i]).setY(positions[3 * i + 1]).setZ(positions[3 * i + 2]))) {
+				result[i >>> 6] |= 1L << i;
+				overlaps++;
+			}
+		return overlaps;
+	}
+	
+	/**
+	 * <p> Returns a BoundingBox containing everything this Area overlaps with. </p>
+	 * <p> The BoundingBox may be larger than the Area itself; by default it is infinite.
+	 * Areas that cannot overlap with anything (like empty Regions) return null instead. </p>
+	 * 
+	 * @return The BoundingBox, or null if this Area is empty
+	 */
+	public default BoundingBox getBoundingBox() {
+		return BoundingBox.INFINITE;
+	}
+	
 }
@@ -5,6 +5,7 @@ import org.bukkit.World;
 import org.bukkit.util.Vector;
 
 import de.impelon.geotools.Axis;
+import de.impelon.geotools.BoundingBox;
 
 /**
  * <p> Implementation of IArea for a rectangular area. </p>
@@ -130,6 +131,26 @@ public class RectangularArea implements IArea {
 				(pos.getZ() <= this.endPos.getZ() && pos.getZ() >= this.startPos.getZ());
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p> Compares the coordinates directly without creating any objects; the y-coordinates are ignored. </p>
+	 */
+	@Override
+	public int getOverlaps(double[] xs, double[] ys, double[] zs, long[] result) throws IllegalArgumentException {
+		return getOverlaps(xs, ys, zs, result, this.startPos.getX(), Double.NEGATIVE_INFINITY, this.startPos.getZ(),
+				this.endPos.getX(), Double.POSITIVE_INFINITY, this.endPos.getZ());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Compares the coordinates directly without creating any objects; the y-coordinates are ignored. </p>
+	 */
+	@Override
+	public int getOverlaps(double[] positions, long[] result) throws IllegalArgumentException {
+		return getOverlaps(positions, result, this.startPos.getX(), Double.NEGATIVE_INFINITY, this.startPos.getZ(),
+				this.endPos.getX(), Double.POSITIVE_INFINITY, this.endPos.getZ());
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -146,6 +167,16 @@ public class RectangularArea implements IArea {
 		return false;
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 * <p> The BoundingBox is infinite along the y-axis. </p>
+	 */
+	@Override
+	public BoundingBox getBoundingBox() {
+		return new BoundingBox(this.startPos.getX(), Double.NEGATIVE_INFINITY, this.startPos.getZ(),
+				this.endPos.getX(), Double.POSITIVE_INFINITY, this.endPos.getZ());
+	}
+	
 	/**
 	 * <p> Returns a the smaller corner of this RectangularArea. </p>
 	 * 
@@ -175,5 +206,64 @@ public class RectangularArea implements IArea {
 				&& (this.getOverlap(area.getStartPosition()) || this.getOverlap(area.getEndPosition()) || 
 						area.getOverlap(this.startPos) || area.getOverlap(this.endPos));
 	}
+	
+	/**
+	 * <p> Fills the bitmask for the Positions within the given (inclusive) bounds. </p>
+	 * <p> Builds each word of the result in a local variable without branching on the comparisons. </p>
+	 * 
+	 * @see IArea#getOverlaps(double[], double[], double[], long[])
+	 * @return The amount of Positions within the bounds
+	 * @throws IllegalArgumentException if the arrays differ in length or the result is too small
+	 */
+	protected static int getOverlaps(double[] xs, double[] ys, double[] zs, long[] result,
+			double minX, double minY, double minZ, double maxX, double maxY, double maxZ) throws IllegalArgumentException {
+		int count = xs.length;
+		if (ys.length != count || zs.length != count)
+			throw new IllegalArgumentException("Cannot check coordinate-arrays of different length");
+		if (result.length < (count + 63) >>> 6)
+			throw new IllegalArgumentException("Cannot store " + count + " results in " + result.length + " words");
+		int overlaps = 0;
+		for (int start = 0; start < count; start += 64) {
+			int end = Math.min(start + 64, count);
+			long word = 0;
+			for (int i = start; i < end; i++) {
+				double x = xs[i], y = ys[i], z = zs[i];
+				boolean inside = x >= minX & x <= maxX & y >= minY & y <= maxY & z >= minZ & z <= maxZ;
+				word |= (inside ? 1L : 0L) << i;
+			}
+			result[start >>> 6] = word;
+			overlaps += Long.bitCount(word);
+		}
+		return overlaps;
+	}
+	
+	/**
+	 * <p> Fills the bitmask for the interleaved Positions within the given (inclusive) bounds. </p>
+	 * 
+	 * @see IArea#getOverlaps(double[], long[])
+	 * @return The amount of Positions within the bounds
+	 * @throws IllegalArgumentException if the length of positions is not a multiple of 3 or the result is too small
+	 */
+	protected static int getOverlaps(double[] positions, long[] result,
+			double minX, double minY, double minZ, double maxX, double maxY, double maxZ) throws IllegalArgumentException {
+		if (positions.length % 3 != 0)
+			throw new IllegalArgumentException("Cannot check coordinates not given as triples");
+		int count = positions.length / 3;
+		if (result.length < (count + 63) >>> 6)
+			throw new IllegalArgumentException("Cannot store " + count + " results in " + result.length + " words");
+		int overlaps = 0;
+		for (int start = 0; start < count; start += 64) {
+			int end = Math.min(start + 64, count);
+			long word = 0;
+			for (int i = start, j = 3 * start; i < end; i++, j += 3) {
+				double x = positions[j], y = positions[j + 1], z = positions[j + 2];
+				boolean inside = x >= minX & x <= maxX & y >= minY & y <= maxY & z >= minZ & z <= maxZ;
+				word |= (inside ? 1L : 0L) << i;
+			}
+			result[start >>> 6] = word;
+			overlaps += Long.bitCount(word);
+		}
+		return overlaps;
+	}
 
 }
@@ -0,0 +1,21 @@
+package de.impelon.geotools.edit;
+
+import org.bukkit.block.Block;
+
+/**
+ * <p> Operation applied to single Blocks, for example by a {@linkplain RegionEditTask}. </p>
+ * 
+ * @author Impelon
+ *
+ */
+@FunctionalInterface
+public interface IBlockOperation {
+	
+	/**
+	 * <p> Applies this operation to the given Block. </p>
+	 * 
+	 * @param block the Block to edit
+	 */
+	public abstract void apply(Block block);
+
+}
@@ -0,0 +1,186 @@
+package de.impelon.geotools.edit;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+
+import de.impelon.geotools.region.IBlockVisitor;
+import de.impelon.geotools.region.IChunkVisitor;
+import de.impelon.geotools.region.IRegion;
+
+/**
+ * <p> Counts how many Blocks of each type a Region contains. </p>
+ * <p> The Region is split by chunk and a {@linkplain ChunkSnapshot} of every chunk is taken on the calling thread,
+ * which has to be the main server-thread. The Blocks are then counted in parallel on the given Executor,
+ * so the server-thread only has to copy the chunks. </p>
+ * <p> Counts are stored by {@linkplain Material}; Blocks outside of the World's height are not counted.
+ * This class is immutable. </p>
+ * 
+ * @author Impelon
+ *
+ */
+public class RegionCensus {
+	
+	protected static final Material[] MATERIALS = Material.values();
+	
+	protected final long[] counts;
+	protected final long total;
+	
+	/**
+	 * <p> Create a RegionCensus from the counts per Material. </p>
+	 * 
+	 * @param counts the amount of Blocks per ordinal of their Material (is not copied)
+	 */
+	protected RegionCensus(long[] counts) {
+		long total = 0;
+		for (long count : counts)
+			total += count;
+		this.counts = counts;
+		this.total = total;
+	}
+	
+	/**
+	 * <p> Takes a census of the given Region, counting in as many tasks as there are available processors. </p>
+	 * 
+	 * @see RegionCensus#take(IRegion, Executor, int)
+	 * @param region the Region to count the Blocks of
+	 * @param executor the Executor to count on
+	 * @return The CompletableFuture<RegionCensus> completed once all Blocks have been counted
+	 */
+	public static CompletableFuture<RegionCensus> take(IRegion region, Executor executor) {
+		return take(region, executor, Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * <p> Takes a census of the given Region. </p>
+	 * <p> Has to be called on the main server-thread, which takes the ChunkSnapshots (loading the chunks if necessary).
+	 * The chunks are split into at most the given amount of tasks, each counting into its own histogram;
+	 * the histograms are summed once all tasks are done. Later changes to the world are not reflected.
+	 * Blocks below 0 or above the maximum height of the World are skipped. </p>
+	 * 
+	 * @param region the Region to count the Blocks of
+	 * @param executor the Executor to count on
+	 * @param parallelism the maximum amount of tasks
+	 * @return The CompletableFuture<RegionCensus> completed once all Blocks have been counted
+	 * @throws IllegalArgumentException if the parallelism is not positive
+	 */
+	public static CompletableFuture<RegionCensus> take(IRegion region, Executor executor, int parallelism) throws IllegalArgumentException {
+		if (parallelism <= 0)
+			throw new IllegalArgumentException("Cannot take a census with a parallelism of " + parallelism);
+		final World world = region.getWorld();
+		final int height = world.getMaxHeight();
+		final List<ChunkSnapshot> snapshots = new ArrayList<ChunkSnapshot>();
+		final List<IRegion> parts = new ArrayList<IRegion>();
+		region.forEachChunk(new IChunkVisitor() {
+			
+			@Override
+			public void visit(int chunkX, int chunkZ, IRegion part) {
+				snapshots.add(world.getChunkAt(chunkX, chunkZ).getChunkSnapshot(false, false, false));
+				parts.add(part);
+			}
+		});
+		int tasks = Math.min(parallelism, snapshots.size());
+		final CompletableFuture<?>[] histograms = new CompletableFuture<?>[tasks];
+		for (int i = 0; i < tasks; i++) {
+			final int from = (int) ((long) snapshots.size() * i / tasks), to = (int) ((long) snapshots.size() * (i + 1) / tasks);
+			histograms[i] = CompletableFuture.supplyAsync(new Supplier<long[]>() {
+				
+				@Override
+				public long[] get() {
+					return count(snapshots.subList(from, to), parts.subList(from, to), height);
+				}
+			}, executor);
+		}
+		return CompletableFuture.allOf(histograms).thenApply(new Function<Void, RegionCensus>() {
+			
+			@Override
+			public RegionCensus apply(Void v) {
+				long[] counts = new long[MATERIALS.length];
+				for (CompletableFuture<?> histogram : histograms) {
+					long[] partial = (long[]) histogram.join();
+					for (int i = 0; i < counts.length; i++)
+						counts[i] += partial[i];
+				}
+				return new RegionCensus(counts);
+			}
+		});
+	}
+	
+	/**
+	 * <p> Counts the Blocks of the given parts of a Region by Material. </p>
+	 * 
+	 * @param snapshots the ChunkSnapshots of the chunks
+	 * @param parts the parts of the Region within the chunk at the same index
+	 * @param height the maximum height of the World; Blocks outside of it are skipped
+	 * @return The amount of Blocks per ordinal of their Material
+	 */
+	protected static long[] count(List<ChunkSnapshot> snapshots, List<IRegion> parts, final int height) {
+		final long[] counts = new long[MATERIALS.length];
+		for (int i = 0; i < snapshots.size(); i++) {
+			final ChunkSnapshot snapshot = snapshots.get(i);
+			parts.get(i).forEachBlock(new IBlockVisitor() {
+				
+				@Override
+				public void visit(int x, int y, int z) {
+					if (y >= 0 && y < height)
+						counts[snapshot.getBlockType(x & 0xF, y, z & 0xF).ordinal()]++;
+				}
+			});
+		}
+		return counts;
+	}
+	
+	/**
+	 * <p> Returns the amount of Blocks of the given Material. </p>
+	 * 
+	 * @param material the Material
+	 * @return The amount of Blocks
+	 */
+	public long getCount(Material material) {
+		return this.counts[material.ordinal()];
+	}
+	
+	/**
+	 * <p> Returns the amount of Blocks counted in total. </p>
+	 * 
+	 * @return The amount of Blocks
+	 */
+	public long getTotal() {
+		return this.total;
+	}
+	
+	/**
+	 * <p> Returns the Materials of which at least one Block was counted, in the order they are declared. </p>
+	 * 
+	 * @return The List<Material> of Materials
+	 */
+	public List<Material> getMaterials() {
+		List<Material> materials = new ArrayList<Material>();
+		for (int i = 0; i < this.counts.length; i++)
+			if (this.counts[i] != 0)
+				materials.add(MATERIALS[i]);
+		return materials;
+	}
+	
+	/**
+	 * <p> Returns the amount of Blocks per Material, leaving out Materials of which no Block was counted. </p>
+	 * 
+	 * @return The EnumMap<Material, Long> of counts
+	 */
+	public EnumMap<Material, Long> getCounts() {
+		EnumMap<Material, Long> counts = new EnumMap<Material, Long>(Material.class);
+		for (int i = 0; i < this.counts.length; i++)
+			if (this.counts[i] != 0)
+				counts.put(MATERIALS[i], this.counts[i]);
+		return counts;
+	}
+
+}
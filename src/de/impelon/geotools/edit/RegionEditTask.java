@@ -0,0 +1,205 @@
+package de.impelon.geotools.edit;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import de.impelon.geotools.region.IBlockVisitor;
+import de.impelon.geotools.region.IRegion;
+
+/**
+ * <p> Applies an {@linkplain IBlockOperation} to every Block of a Region, spread over multiple server-ticks. </p>
+ * <p> Each tick, Blocks are edited until the given budget of nanoseconds is used up;
+ * at least one Block is edited per tick. The Blocks are edited chunk by chunk,
+ * so every chunk only needs to be loaded once. </p>
+ * <p> Progress can be queried from any thread; completion is reported through a {@linkplain CompletableFuture}
+ * which is completed with the amount of edited Blocks. Cancelling the future stops the task. </p>
+ * 
+ * @author Impelon
+ *
+ */
+public class RegionEditTask extends BukkitRunnable {
+	
+	protected final World world;
+	protected final IBlockOperation operation;
+	protected final long budget;
+	protected final long[] blocks;
+	protected final CompletableFuture<Long> future = new CompletableFuture<Long>();
+	protected volatile int position = 0;
+	
+	/**
+	 * <p> Create a RegionEditTask for the given Region. </p>
+	 * <p> The Blocks of the Region are collected and sorted by chunk immediately,
+	 * so later modifications of the Region are not reflected. </p>
+	 * 
+	 * @param region the Region to edit
+	 * @param operation the operation to apply to every Block
+	 * @param budget the time in nanoseconds that may be spent editing per tick
+	 * @throws IllegalArgumentException if the budget is not positive
+	 */
+	public RegionEditTask(IRegion region, IBlockOperation operation, long budget) throws IllegalArgumentException {
+		if (budget <= 0)
+			throw new IllegalArgumentException("The budget per tick has to be positive");
+		this.world = region.getWorld();
+		this.operation = operation;
+		this.budget = budget;
+		this.blocks = collectChunkOrdered(region);
+	}
+	
+	/**
+	 * <p> Schedules this task to run every tick, starting with the next one. </p>
+	 * <p> Does not schedule anything if the task was cancelled already. </p>
+	 * 
+	 * @param plugin the Plugin scheduling the task
+	 * @return The CompletableFuture<Long> completed when all Blocks have been edited
+	 */
+	public CompletableFuture<Long> start(Plugin plugin) {
+		if (!this.future.isDone())
+			this.runTaskTimer(plugin, 1, 1);
+		return this.future;
+	}
+	
+	/**
+	 * <p> Edits Blocks until the budget of this tick is used up or all Blocks have been edited. </p>
+	 */
+	@Override
+	public void run() {
+		if (this.future.isDone()) {
+			super.cancel();
+			return;
+		}
+		long start = System.nanoTime();
+		int position = this.position;
+		try {
+			while (position < this.blocks.length) {
+				long block = this.blocks[position++];
+				this.operation.apply(this.world.getBlockAt(getX(block), getY(block), getZ(block)));
+				if (System.nanoTime() - start >= this.budget)
+					break;
+			}
+		} catch (RuntimeException e) {
+			this.position = position;
+			super.cancel();
+			this.future.completeExceptionally(e);
+			return;
+		}
+		this.position = position;
+		if (position >= this.blocks.length) {
+			super.cancel();
+			this.future.complete((long) position);
+		}
+	}
+	
+	/**
+	 * <p> Stops this task and cancels its future. </p>
+	 * <p> If this task was not started yet, only the future is cancelled. </p>
+	 */
+	@Override
+	public synchronized void cancel() {
+		this.future.cancel(false);
+		try {
+			super.cancel();
+		} catch (IllegalStateException e) {
+			// not scheduled yet, so there is nothing to stop
+		}
+	}
+	
+	/**
+	 * <p> Returns the future completed with the amount of edited Blocks once all Blocks have been edited. </p>
+	 * 
+	 * @return The CompletableFuture<Long>
+	 */
+	public CompletableFuture<Long> getFuture() {
+		return this.future;
+	}
+	
+	/**
+	 * <p> Returns the amount of Blocks edited so far. </p>
+	 * 
+	 * @return The amount of edited Blocks
+	 */
+	public int getEditedBlocks() {
+		return this.position;
+	}
+	
+	/**
+	 * <p> Returns the amount of Blocks this task edits in total. </p>
+	 * 
+	 * @return The amount of Blocks
+	 */
+	public int getTotalBlocks() {
+		return this.blocks.length;
+	}
+	
+	/**
+	 * <p> Returns the fraction of Blocks edited so far. </p>
+	 * 
+	 * @return The progress between 0 and 1
+	 */
+	public double getProgress() {
+		return this.blocks.length == 0 ? 1 : (double) this.position / this.blocks.length;
+	}
+	
+	/**
+	 * <p> Collects the Blocks of the given Region, sorted so Blocks of the same chunk are consecutive. </p>
+	 * 
+	 * @param region the Region
+	 * @return The Blocks in chunk-order, each Block appearing once
+	 */
+	protected static long[] collectChunkOrdered(IRegion region) {
+		final long[][] blocks = {new long[16]};
+		final int[] size = {0};
+		region.forEachBlock(new IBlockVisitor() {
+			
+			@Override
+			public void visit(int x, int y, int z) {
+				if (size[0] == blocks[0].length)
+					blocks[0] = Arrays.copyOf(blocks[0], blocks[0].length * 2);
+				blocks[0][size[0]++] = toChunkOrder(x, y, z);
+			}
+		});
+		long[] sorted = blocks[0];
+		Arrays.sort(sorted, 0, size[0]);
+		int unique = 0;
+		for (int i = 0; i < size[0]; i++)
+			if (unique == 0 || sorted[unique - 1] != sorted[i])
+				sorted[unique++] = sorted[i];
+		return Arrays.copyOf(sorted, unique);
+	}
+	
+	/**
+	 * <p> Packs the given Block-coordinates into a long, whose natural order groups Blocks by chunk. </p>
+	 * <p> Bits 63 to 42 hold the chunk's x-coordinate, bits 41 to 20 the chunk's z-coordinate,
+	 * bits 19 to 8 the y-coordinate and the lowest bits the coordinates within the chunk. </p>
+	 * 
+	 * @return The packed Block
+	 */
+	protected static long toChunkOrder(int x, int y, int z) {
+		return ((long) (x >> 4) << 42) | (((long) (z >> 4) & 0x3FFFFFL) << 20) | (((long) y & 0xFFFL) << 8) | ((z & 0xF) << 4) | (x & 0xF);
+	}
+	
+	/**
+	 * @see RegionEditTask#toChunkOrder(int, int, int)
+	 */
+	protected static int getX(long block) {
+		return (int) (block >> 42) << 4 | (int) (block & 0xF);
+	}
+	
+	/**
+	 * @see RegionEditTask#toChunkOrder(int, int, int)
+	 */
+	protected static int getY(long block) {
+		return (int) (block << 44 >> 52);
+	}
+	
+	/**
+	 * @see RegionEditTask#toChunkOrder(int, int, int)
+	 */
+	protected static int getZ(long block) {
+		return (int) (block << 22 >> 42) << 4 | (int) ((block >> 4) & 0xF);
+	}
+
+}
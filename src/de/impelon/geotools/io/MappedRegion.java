@@ -0,0 +1,371 @@
+package de.impelon.geotools.io;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.util.Vector;
+
+import de.impelon.geotools.Axis;
+import de.impelon.geotools.BoundingBox;
+import de.impelon.geotools.PackedPosition;
+import de.impelon.geotools.RegionFormat;
+import de.impelon.geotools.area.IArea;
+import de.impelon.geotools.region.IBlockVisitor;
+import de.impelon.geotools.region.IRegion;
+import de.impelon.geotools.region.PositionRegion;
+
+/**
+ * <p> Implementation of IRegion reading its Blocks directly from a buffer written by the {@linkplain RegionSerializer}. </p>
+ * <p> Nothing but the header is deserialized; {@linkplain MappedRegion#getOverlap(Vector)} looks up the chunk
+ * of runs that may contain the Position in the index and only decodes that chunk.
+ * Volume, surface area and bounds are stored in the header and available immediately. </p>
+ * <p> The Region is immutable and may be used from multiple threads. </p>
+ * 
+ * @see RegionSerializer#read(java.nio.file.Path, World)
+ * 
+ * @author Impelon
+ *
+ */
+public class MappedRegion implements IRegion {
+	
+	protected static final int INDEX_START = 48;
+	protected static final int INDEX_ENTRY_SIZE = 12;
+	
+	protected final World world;
+	protected final ByteBuffer buffer;
+	protected final long volume;
+	protected final long columns;
+	protected final int minX, minY, minZ, maxX, maxY, maxZ;
+	protected final int runs;
+	protected final int chunks;
+	protected final int dataStart;
+	
+	/**
+	 * <p> Create a MappedRegion from the given buffer, which has to begin with the Blocks written by
+	 * {@linkplain RegionSerializer#writeBlocks(java.io.DataOutputStream, IRegion)}. </p>
+	 * 
+	 * @param world the World of the Region
+	 * @param buffer the buffer to read from; must not be modified afterwards
+	 */
+	protected MappedRegion(World world, ByteBuffer buffer) {
+		this.world = world;
+		this.buffer = buffer;
+		this.volume = buffer.getLong(0);
+		this.columns = buffer.getLong(8);
+		this.minX = buffer.getInt(16);
+		this.minY = buffer.getInt(20);
+		this.minZ = buffer.getInt(24);
+		this.maxX = buffer.getInt(28);
+		this.maxY = buffer.getInt(32);
+		this.maxZ = buffer.getInt(36);
+		this.runs = buffer.getInt(40);
+		this.chunks = buffer.getInt(44);
+		this.dataStart = INDEX_START + this.chunks * INDEX_ENTRY_SIZE + 4;
+	}
+	
+	/**
+	 * <p> Returns the key of the first Block of the given chunk of runs. </p>
+	 */
+	protected long getChunkStart(int chunk) {
+		return this.buffer.getLong(INDEX_START + chunk * INDEX_ENTRY_SIZE);
+	}
+	
+	/**
+	 * <p> Returns the position of the data of the given chunk of runs within the buffer. </p>
+	 */
+	protected int getChunkPosition(int chunk) {
+		return this.dataStart + this.buffer.getInt(INDEX_START + chunk * INDEX_ENTRY_SIZE + 8);
+	}
+	
+	/**
+	 * <p> Reads a variable-length integer at the position given by the cursor and advances the cursor. </p>
+	 */
+	protected long readVarLong(int[] cursor) {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = this.buffer.get(cursor[0]++);
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		return value;
+	}
+	
+	/**
+	 * <p> Determines if the Block at the given coordinates is within this Region. </p>
+	 * 
+	 * @return Whether this Region contains the Block
+	 */
+	public boolean contains(int x, int y, int z) {
+		if (this.runs == 0 || x < this.minX || x > this.maxX || y < this.minY || y > this.maxY || z < this.minZ || z > this.maxZ)
+			return false;
+		long key = PackedPosition.pack(x, y, z) ^ RegionSerializer.ORDER_BITS;
+		int low = 0, high = this.chunks - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (Long.compareUnsigned(this.getChunkStart(middle), key) <= 0)
+				low = middle;
+			else
+				high = middle - 1;
+		}
+		long start = this.getChunkStart(low);
+		int[] cursor = {this.getChunkPosition(low)};
+		int amount = Math.min(RegionSerializer.RUNS_PER_CHUNK, this.runs - low * RegionSerializer.RUNS_PER_CHUNK);
+		for (int i = 0; i < amount; i++) {
+			if (i > 0)
+				start += this.readVarLong(cursor);
+			if (Long.compareUnsigned(key, start) < 0)
+				return false;
+			start += this.readVarLong(cursor) + 1;
+			if (Long.compareUnsigned(key, start) < 0)
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public World getWorld() {
+		return this.world;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getLength(Axis axis) {
+		return Math.max(this.getBlockLength(axis) - 1, 0);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getBlockLength(Axis axis) {
+		if (this.volume == 0)
+			return 0;
+		switch (axis) {
+		case X:
+			return (long) this.maxX - this.minX + 1;
+		case Y:
+			return (long) this.maxY - this.minY + 1;
+		case Z:
+			return (long) this.maxZ - this.minZ + 1;
+		default:
+			return 0;
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getSurfaceArea() {
+		return this.columns;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getBlockSurfaceArea() {
+		return this.columns;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getVolume() {
+		return this.volume;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getBlockVolume() {
+		return this.volume;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public BoundingBox getBoundingBox() {
+		if (this.volume == 0)
+			return null;
+		return BoundingBox.ofBlocks(this.minX, this.minY, this.minZ, this.maxX, this.maxY, this.maxZ);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(Location pos) {
+		return pos.getWorld() == this.getWorld() && this.getOverlap(pos.toVector());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(Vector pos) {
+		return this.contains(pos.getBlockX(), pos.getBlockY(), pos.getBlockZ());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(IArea area) {
+		if (area.getWorld() != this.getWorld() || this.volume == 0)
+			return false;
+		BoundingBox box = area.getBoundingBox();
+		if (box == null || !box.overlaps(this.getBoundingBox()))
+			return false;
+		for (Iterator<Vector> iterator = this.iterator(); iterator.hasNext();)
+			if (area.getOverlap(iterator.next()))
+				return true;
+		return false;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(IRegion region) {
+		if (region.getWorld() != this.getWorld() || this.volume == 0)
+			return false;
+		BoundingBox box = region.getBoundingBox();
+		if (box == null || !box.overlaps(this.getBoundingBox()))
+			return false;
+		for (Iterator<Vector> iterator = this.iterator(); iterator.hasNext();)
+			if (region.getOverlap(iterator.next()))
+				return true;
+		return false;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> The modified Region is a packed PositionRegion containing a copy of the Blocks. </p>
+	 */
+	@Override
+	public IRegion getModifiedRegion(RegionFormat format) {
+		PositionRegion region = new PositionRegion(this, true);
+		if (format == RegionFormat.FULL || format == RegionFormat.FLOORED)
+			return region;
+		return region.getModifiedRegion(format);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Blocks are visited sorted by their x-, z- and y-coordinate. </p>
+	 */
+	@Override
+	public void forEachBlock(IBlockVisitor visitor) {
+		int[] cursor = {this.dataStart};
+		long key = 0;
+		for (int run = 0; run < this.runs; run++) {
+			if (run % RegionSerializer.RUNS_PER_CHUNK == 0)
+				key = this.getChunkStart(run / RegionSerializer.RUNS_PER_CHUNK);
+			else
+				key += this.readVarLong(cursor);
+			long end = key + this.readVarLong(cursor) + 1;
+			for (; key != end; key++) {
+				long packed = key ^ RegionSerializer.ORDER_BITS;
+				visitor.visit(PackedPosition.getX(packed), PackedPosition.getY(packed), PackedPosition.getZ(packed));
+			}
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Blocks are returned sorted by their x-, z- and y-coordinate. </p>
+	 */
+	@Override
+	public Iterator<Vector> iterator() {
+		Iterator<Vector> iterator = new Iterator<Vector>() {
+			
+			private final int[] cursor = {dataStart};
+			private int run = 0;
+			private long key = 0;
+			private long remaining = 0;
+			
+			@Override
+			public boolean hasNext() {
+				return this.remaining > 0 || this.run < runs;
+			}
+			
+			@Override
+			public Vector next() {
+				if (!this.hasNext())
+					throw new NoSuchElementException();
+				if (this.remaining == 0) {
+					if (this.run % RegionSerializer.RUNS_PER_CHUNK == 0)
+						this.key = getChunkStart(this.run / RegionSerializer.RUNS_PER_CHUNK);
+					else
+						this.key += readVarLong(this.cursor);
+					this.remaining = readVarLong(this.cursor) + 1;
+					this.run++;
+				}
+				long packed = this.key++ ^ RegionSerializer.ORDER_BITS;
+				this.remaining--;
+				return PackedPosition.toVector(packed);
+			}
+		};
+		return iterator;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<Location> getLocationIterator() {
+		Iterator<Vector> vectoriterator = this.iterator();
+		Iterator<Location> iterator = new Iterator<Location>() {
+			
+			@Override
+			public boolean hasNext() {
+				return vectoriterator.hasNext();
+			}
+			
+			@Override
+			public Location next() {
+				return vectoriterator.next().toLocation(getWorld());
+			}
+		};
+		return iterator;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<Vector> getVectors() {
+		ArrayList<Vector> vectors = new ArrayList<Vector>((int) this.volume);
+		for (Iterator<Vector> iterator = this.iterator(); iterator.hasNext();)
+			vectors.add(iterator.next());
+		return vectors;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<Location> getLocations() {
+		ArrayList<Location> locations = new ArrayList<Location>((int) this.volume);
+		for (Iterator<Location> iterator = this.getLocationIterator(); iterator.hasNext();)
+			locations.add(iterator.next());
+		return locations;
+	}
+
+}
@@ -0,0 +1,320 @@
+package de.impelon.geotools.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.UUID;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.util.Vector;
+
+import de.impelon.geotools.PackedPosition;
+import de.impelon.geotools.region.CuboidRegion;
+import de.impelon.geotools.region.IBlockVisitor;
+import de.impelon.geotools.region.IRegion;
+import de.impelon.geotools.region.PositionRegion;
+import de.impelon.geotools.region.SectionedRegion;
+
+/**
+ * <p> Used for writing Regions to and reading Regions from a compact, versioned binary format. </p>
+ * <p> Every file starts with a header consisting of {@linkplain RegionSerializer#MAGIC}, the format version,
+ * the type of the stored Region and the UUID of its World. The rest depends on the type:
+ * <ul>
+ * <li> {@linkplain RegionSerializer#TYPE_CUBOID}: the two corners as six doubles. </li>
+ * <li> {@linkplain RegionSerializer#TYPE_BLOCKS}: the Blocks as runs of vertically adjacent Blocks,
+ * sorted and delta-encoded using variable-length integers. Runs are grouped into chunks of
+ * {@linkplain RegionSerializer#RUNS_PER_CHUNK}; an index of the first Block of every chunk allows random access. </li>
+ * <li> {@linkplain RegionSerializer#TYPE_VECTORS}: Positions not aligned to Blocks as three doubles each. </li>
+ * </ul>
+ * Files with Blocks can be read through a {@linkplain MappedRegion}, which answers queries directly from the file. </p>
+ * 
+ * @author Impelon
+ *
+ */
+public final class RegionSerializer {
+	
+	public static final int MAGIC = 0x49524547;
+	public static final byte VERSION = 1;
+	public static final byte TYPE_CUBOID = 0;
+	public static final byte TYPE_BLOCKS = 1;
+	public static final byte TYPE_VECTORS = 2;
+	public static final int RUNS_PER_CHUNK = 64;
+	
+	/**
+	 * <p> Bits flipped in a packed position to make its unsigned order sort by x, then z, then y. </p>
+	 */
+	protected static final long ORDER_BITS = Long.MIN_VALUE | (1L << (PackedPosition.VERTICAL_BITS + PackedPosition.HORIZONTAL_BITS - 1))
+			| (1L << (PackedPosition.VERTICAL_BITS - 1));
+	protected static final int HEADER_SIZE = 4 + 1 + 1 + 16;
+	
+	private RegionSerializer() {}
+	
+	/**
+	 * <p> Writes the given Region to the given OutputStream. </p>
+	 * <p> CuboidRegions are stored by their corners, Regions consisting of whole Blocks as runs of Blocks
+	 * and all others by their Positions. </p>
+	 * 
+	 * @param region the Region to write
+	 * @param output the OutputStream to write to (will not be closed)
+	 * @throws IOException if an I/O error occurs
+	 * @throws IllegalArgumentException if the Region has more Positions than can be stored
+	 */
+	public static void write(IRegion region, OutputStream output) throws IOException, IllegalArgumentException {
+		DataOutputStream out = new DataOutputStream(output);
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+		if (region instanceof CuboidRegion) {
+			out.writeByte(TYPE_CUBOID);
+			writeWorld(out, region.getWorld());
+			CuboidRegion cuboid = (CuboidRegion) region;
+			Vector start = cuboid.getStartPosition(), end = cuboid.getEndPosition();
+			out.writeDouble(start.getX());
+			out.writeDouble(start.getY());
+			out.writeDouble(start.getZ());
+			out.writeDouble(end.getX());
+			out.writeDouble(end.getY());
+			out.writeDouble(end.getZ());
+		} else if (isBlockAligned(region)) {
+			out.writeByte(TYPE_BLOCKS);
+			writeWorld(out, region.getWorld());
+			writeBlocks(out, region);
+		} else {
+			out.writeByte(TYPE_VECTORS);
+			writeWorld(out, region.getWorld());
+			writeVectors(out, region);
+		}
+		out.flush();
+	}
+	
+	/**
+	 * <p> Writes the given Region to the given file, replacing it if it exists. </p>
+	 * 
+	 * @see RegionSerializer#write(IRegion, OutputStream)
+	 * @param region the Region to write
+	 * @param file the file to write to
+	 * @throws IOException if an I/O error occurs
+	 * @throws IllegalArgumentException if the Region has more Positions than can be stored
+	 */
+	public static void write(IRegion region, Path file) throws IOException, IllegalArgumentException {
+		try (OutputStream output = Files.newOutputStream(file)) {
+			write(region, output);
+		}
+	}
+	
+	/**
+	 * <p> Reads a Region from the given ByteBuffer, starting at its position. </p>
+	 * <p> Blocks are not deserialized, but read from the buffer whenever they are needed,
+	 * so the buffer must not be modified afterwards. </p>
+	 * 
+	 * @param buffer the ByteBuffer to read from
+	 * @param world the World of the Region, or null to use the World stored in the buffer
+	 * @return A CuboidRegion, a {@linkplain MappedRegion} or a PositionRegion, depending on what was written
+	 * @throws IOException if the buffer does not contain a supported Region
+	 */
+	public static IRegion read(ByteBuffer buffer, World world) throws IOException {
+		if (buffer.remaining() < HEADER_SIZE || buffer.getInt(buffer.position()) != MAGIC)
+			throw new IOException("Not a region file");
+		byte version = buffer.get(buffer.position() + 4);
+		if (version != VERSION)
+			throw new IOException("Unsupported region format version " + version);
+		byte type = buffer.get(buffer.position() + 5);
+		if (world == null) {
+			UUID uid = new UUID(buffer.getLong(buffer.position() + 6), buffer.getLong(buffer.position() + 14));
+			if (uid.getMostSignificantBits() != 0 || uid.getLeastSignificantBits() != 0)
+				world = Bukkit.getWorld(uid);
+		}
+		ByteBuffer content = buffer.duplicate();
+		content.position(buffer.position() + HEADER_SIZE);
+		content = content.slice();
+		switch (type) {
+		case TYPE_CUBOID:
+			return new CuboidRegion(new Vector(content.getDouble(0), content.getDouble(8), content.getDouble(16)),
+					new Vector(content.getDouble(24), content.getDouble(32), content.getDouble(40)), world);
+		case TYPE_BLOCKS:
+			return new MappedRegion(world, content);
+		case TYPE_VECTORS:
+			int amount = content.getInt(0);
+			HashSet<Vector> vectors = new HashSet<Vector>(amount * 4 / 3 + 1);
+			for (int i = 0, pos = 4; i < amount; i++, pos += 24)
+				vectors.add(new Vector(content.getDouble(pos), content.getDouble(pos + 8), content.getDouble(pos + 16)));
+			return new PositionRegion(world, vectors);
+		default:
+			throw new IOException("Unknown region type " + type);
+		}
+	}
+	
+	/**
+	 * <p> Reads a Region from the given file by memory-mapping it. </p>
+	 * 
+	 * @see RegionSerializer#read(ByteBuffer, World)
+	 * @param file the file to read from
+	 * @param world the World of the Region, or null to use the World stored in the file
+	 * @return A CuboidRegion, a {@linkplain MappedRegion} or a PositionRegion, depending on what was written
+	 * @throws IOException if an I/O error occurs or the file does not contain a supported Region
+	 */
+	public static IRegion read(Path file, World world) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), world);
+		}
+	}
+	
+	/**
+	 * <p> Determines if the given Region only contains Positions aligned to Blocks. </p>
+	 * 
+	 * @param region the Region to check
+	 * @return Whether all Positions are whole numbers
+	 */
+	protected static boolean isBlockAligned(IRegion region) {
+		if (region instanceof SectionedRegion || region instanceof MappedRegion)
+			return true;
+		if (region instanceof PositionRegion && ((PositionRegion) region).isPacked())
+			return true;
+		for (Iterator<Vector> iterator = region.iterator(); iterator.hasNext();) {
+			Vector v = iterator.next();
+			if (v.getX() != v.getBlockX() || v.getY() != v.getBlockY() || v.getZ() != v.getBlockZ())
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * <p> Writes the UUID of the given World, or zeros if there is none. </p>
+	 */
+	protected static void writeWorld(DataOutputStream out, World world) throws IOException {
+		out.writeLong(world == null ? 0 : world.getUID().getMostSignificantBits());
+		out.writeLong(world == null ? 0 : world.getUID().getLeastSignificantBits());
+	}
+	
+	/**
+	 * <p> Writes the Positions of the given Region as three doubles each, preceded by their amount (int). </p>
+	 * <p> The Positions are buffered while they are counted, since the volume of a Region need not match the amount of its Positions. </p>
+	 * 
+	 * @throws IllegalArgumentException if the Region has more than {@linkplain Integer#MAX_VALUE} Positions
+	 */
+	protected static void writeVectors(DataOutputStream out, IRegion region) throws IOException, IllegalArgumentException {
+		if (region.getVolume() > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Cannot write a Region with more than " + Integer.MAX_VALUE + " Positions");
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		DataOutputStream dataout = new DataOutputStream(data);
+		int amount = 0;
+		for (Iterator<Vector> iterator = region.iterator(); iterator.hasNext(); amount++) {
+			if (amount == Integer.MAX_VALUE)
+				throw new IllegalArgumentException("Cannot write a Region with more than " + Integer.MAX_VALUE + " Positions");
+			Vector v = iterator.next();
+			dataout.writeDouble(v.getX());
+			dataout.writeDouble(v.getY());
+			dataout.writeDouble(v.getZ());
+		}
+		out.writeInt(amount);
+		data.writeTo(out);
+	}
+	
+	/**
+	 * <p> Writes the Blocks of the given Region as indexed runs. </p>
+	 * <p> Layout: volume (long), surface area (long), bounds (6 ints), amount of runs (int), amount of chunks (int),
+	 * the index with the first Block (long) and data-offset (int) of every chunk, the length of the data (int)
+	 * and the data itself. Within a chunk every run is stored as the distance from the end of the previous run
+	 * (omitted for the first run) followed by its length minus one, both as variable-length integers. </p>
+	 */
+	protected static void writeBlocks(DataOutputStream out, IRegion region) throws IOException {
+		long[] keys = collectOrdered(region);
+		int[] bounds = {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+		long columns = 0;
+		for (int i = 0; i < keys.length; i++) {
+			long packed = keys[i] ^ ORDER_BITS;
+			int x = PackedPosition.getX(packed), y = PackedPosition.getY(packed), z = PackedPosition.getZ(packed);
+			bounds[0] = Math.min(bounds[0], x);
+			bounds[1] = Math.min(bounds[1], y);
+			bounds[2] = Math.min(bounds[2], z);
+			bounds[3] = Math.max(bounds[3], x);
+			bounds[4] = Math.max(bounds[4], y);
+			bounds[5] = Math.max(bounds[5], z);
+			if (i == 0 || (keys[i] >>> PackedPosition.VERTICAL_BITS) != (keys[i - 1] >>> PackedPosition.VERTICAL_BITS))
+				columns++;
+		}
+		
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		ByteArrayOutputStream index = new ByteArrayOutputStream();
+		DataOutputStream indexout = new DataOutputStream(index);
+		int runs = 0;
+		long previousEnd = 0;
+		for (int i = 0; i < keys.length;) {
+			long start = keys[i];
+			int length = 1;
+			// a run ends before the y-coordinate would overflow into the z-coordinate
+			while (i + length < keys.length && keys[i + length] == start + length && ((start + length) & ((1L << PackedPosition.VERTICAL_BITS) - 1)) != 0)
+				length++;
+			if (runs % RUNS_PER_CHUNK == 0) {
+				indexout.writeLong(start);
+				indexout.writeInt(data.size());
+			} else
+				writeVarLong(data, start - previousEnd);
+			writeVarLong(data, length - 1);
+			previousEnd = start + length;
+			runs++;
+			i += length;
+		}
+		
+		out.writeLong(keys.length);
+		out.writeLong(columns);
+		for (int i = 0; i < bounds.length; i++)
+			out.writeInt(keys.length == 0 ? 0 : bounds[i]);
+		out.writeInt(runs);
+		out.writeInt((runs + RUNS_PER_CHUNK - 1) / RUNS_PER_CHUNK);
+		index.writeTo(out);
+		out.writeInt(data.size());
+		data.writeTo(out);
+	}
+	
+	/**
+	 * <p> Collects the Blocks of the given Region as order-preserving keys, sorted and without duplicates. </p>
+	 * 
+	 * @param region the Region
+	 * @return The sorted keys
+	 */
+	protected static long[] collectOrdered(IRegion region) {
+		final long[][] keys = {new long[16]};
+		final int[] size = {0};
+		region.forEachBlock(new IBlockVisitor() {
+			
+			@Override
+			public void visit(int x, int y, int z) {
+				if (size[0] == keys[0].length)
+					keys[0] = Arrays.copyOf(keys[0], keys[0].length * 2);
+				// flipping the sign-bit lets the signed sort produce the unsigned order
+				keys[0][size[0]++] = PackedPosition.pack(x, y, z) ^ ORDER_BITS ^ Long.MIN_VALUE;
+			}
+		});
+		long[] sorted = keys[0];
+		Arrays.sort(sorted, 0, size[0]);
+		int unique = 0;
+		for (int i = 0; i < size[0]; i++)
+			if (unique == 0 || sorted[unique - 1] != sorted[i])
+				sorted[unique++] = sorted[i];
+		for (int i = 0; i < unique; i++)
+			sorted[i] ^= Long.MIN_VALUE;
+		return Arrays.copyOf(sorted, unique);
+	}
+	
+	/**
+	 * <p> Writes the given non-negative value using 7 bits per byte, least significant first. </p>
+	 */
+	protected static void writeVarLong(ByteArrayOutputStream out, long value) {
+		while ((value & ~0x7FL) != 0) {
+			out.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+
+}
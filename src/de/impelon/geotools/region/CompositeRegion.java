@@ -0,0 +1,411 @@
+package de.impelon.geotools.region;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.util.Vector;
+
+import de.impelon.geotools.Axis;
+import de.impelon.geotools.BoundingBox;
+import de.impelon.geotools.RegionFormat;
+import de.impelon.geotools.area.IArea;
+import de.impelon.misc.LongHashSet;
+
+/**
+ * <p> Base for Regions composed of other Regions without copying their Positions. </p>
+ * <p> The BoundingBoxes of the composed Regions are cached and used to skip their overlap-checks
+ * wherever possible. All cached results are calculated again once the modification count changes,
+ * so modifications of the composed Regions are picked up automatically. </p>
+ * 
+ * @see UnionRegion
+ * @see IntersectionRegion
+ * @see DifferenceRegion
+ * 
+ * @author Impelon
+ *
+ */
+public abstract class CompositeRegion implements IVersionedRegion {
+	
+	protected final World world;
+	protected final IRegion[] regions;
+	protected BoundingBox[] boxes = null;
+	protected BoundingBox boundingBox = null;
+	protected boolean boundingBoxCached = false;
+	protected int[] bounds = null;
+	protected Long blockSurfaceArea = null;
+	protected Long blockVolume = null;
+	protected long cachedModifications = -1;
+	
+	/**
+	 * <p> Create a CompositeRegion from the given Regions. </p>
+	 * 
+	 * @param regions the Regions to compose
+	 * @throws IllegalArgumentException if no Regions are given or they are not in the same World
+	 */
+	public CompositeRegion(IRegion... regions) throws IllegalArgumentException {
+		if (regions.length == 0)
+			throw new IllegalArgumentException("At least one Region has to be given");
+		this.world = regions[0].getWorld();
+		for (IRegion region : regions)
+			if (region.getWorld() != this.world)
+				throw new IllegalArgumentException("All Regions have to be in the same World");
+		this.regions = regions.clone();
+	}
+	
+	/**
+	 * <p> Returns the Regions this CompositeRegion is composed of. </p>
+	 * 
+	 * @return The List<IRegion>
+	 */
+	public List<IRegion> getRegions() {
+		ArrayList<IRegion> regions = new ArrayList<IRegion>(this.regions.length);
+		for (IRegion region : this.regions)
+			regions.add(region);
+		return regions;
+	}
+	
+	/**
+	 * <p> Clears all cached results if the modification count changed since they were calculated. </p>
+	 */
+	protected void validateCache() {
+		long modifications = this.getModificationCount();
+		if (modifications == this.cachedModifications)
+			return;
+		this.boxes = null;
+		this.boundingBox = null;
+		this.boundingBoxCached = false;
+		this.bounds = null;
+		this.blockSurfaceArea = null;
+		this.blockVolume = null;
+		this.cachedModifications = modifications;
+	}
+	
+	/**
+	 * <p> Returns the cached BoundingBox of the composed Region at the given index. </p>
+	 * 
+	 * @param index index of the composed Region
+	 * @return The BoundingBox, or null if that Region is empty
+	 */
+	protected BoundingBox getBoundingBox(int index) {
+		this.validateCache();
+		if (this.boxes == null) {
+			this.boxes = new BoundingBox[this.regions.length];
+			for (int i = 0; i < this.regions.length; i++)
+				this.boxes[i] = this.regions[i].getBoundingBox();
+		}
+		return this.boxes[index];
+	}
+	
+	/**
+	 * <p> Determines if the composed Region at the given index contains the given Position,
+	 * checking its BoundingBox first. </p>
+	 * 
+	 * @param index index of the composed Region
+	 * @param pos Position to check
+	 * @return Whether that Region overlaps with the Position
+	 */
+	protected boolean getOverlap(int index, Vector pos) {
+		BoundingBox box = this.getBoundingBox(index);
+		return box != null && box.contains(pos) && this.regions[index].getOverlap(pos);
+	}
+	
+	/**
+	 * <p> Calculates a BoundingBox containing everything this Region overlaps with. </p>
+	 * 
+	 * @see CompositeRegion#getBoundingBox()
+	 * @return The BoundingBox, or null if this Region is certainly empty
+	 */
+	protected abstract BoundingBox calculateBoundingBox();
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> The BoundingBox is derived from those of the composed Regions and may be larger than this Region.
+	 * The result is cached. </p>
+	 * 
+	 * @return The BoundingBox, or null if this Region is certainly empty
+	 */
+	@Override
+	public BoundingBox getBoundingBox() {
+		this.validateCache();
+		if (!this.boundingBoxCached) {
+			this.boundingBox = this.calculateBoundingBox();
+			this.boundingBoxCached = true;
+		}
+		return this.boundingBox;
+	}
+	
+	/**
+	 * <p> Determines if the given Position is within this Region, assuming it is within the BoundingBox. </p>
+	 * 
+	 * @param pos Position to check
+	 * @return Whether this Region overlaps with the Position
+	 */
+	protected abstract boolean contains(Vector pos);
+	
+	/**
+	 * <p> Calculates the bounds, the amount of Blocks and the amount of columns of this Region in a single pass. </p>
+	 * <p> Blocks are counted once for every Position within them. </p>
+	 */
+	protected void calculateStatistics() {
+		final int[] bounds = {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+		final long[] volume = {0};
+		final LongHashSet columns = new LongHashSet();
+		this.forEachBlock(new IBlockVisitor() {
+			
+			@Override
+			public void visit(int x, int y, int z) {
+				bounds[0] = Math.min(bounds[0], x);
+				bounds[1] = Math.min(bounds[1], y);
+				bounds[2] = Math.min(bounds[2], z);
+				bounds[3] = Math.max(bounds[3], x);
+				bounds[4] = Math.max(bounds[4], y);
+				bounds[5] = Math.max(bounds[5], z);
+				volume[0]++;
+				columns.add(((long) x << 32) | (z & 0xFFFFFFFFL));
+			}
+		});
+		this.bounds = volume[0] == 0 ? new int[0] : bounds;
+		this.blockVolume = volume[0];
+		this.blockSurfaceArea = (long) columns.size();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> The sum of the modification counts of all composed Regions implementing IVersionedRegion. </p>
+	 */
+	@Override
+	public long getModificationCount() {
+		long modifications = 0;
+		for (IRegion region : this.regions)
+			if (region instanceof IVersionedRegion)
+				modifications += ((IVersionedRegion) region).getModificationCount();
+		return modifications;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public World getWorld() {
+		return this.world;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> The result is cached. </p>
+	 */
+	@Override
+	public double getLength(Axis axis) {
+		return Math.max(this.getBlockLength(axis) - 1, 0);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> The result is cached. </p>
+	 */
+	@Override
+	public long getBlockLength(Axis axis) {
+		this.validateCache();
+		if (this.bounds == null)
+			this.calculateStatistics();
+		if (this.bounds.length == 0)
+			return 0;
+		switch (axis) {
+		case X:
+			return (long) this.bounds[3] - this.bounds[0] + 1;
+		case Y:
+			return (long) this.bounds[4] - this.bounds[1] + 1;
+		case Z:
+			return (long) this.bounds[5] - this.bounds[2] + 1;
+		default:
+			return 0;
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> The result is cached. </p>
+	 */
+	@Override
+	public double getSurfaceArea() {
+		return this.getBlockSurfaceArea();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> The result is cached. </p>
+	 */
+	@Override
+	public long getBlockSurfaceArea() {
+		this.validateCache();
+		if (this.blockSurfaceArea == null)
+			this.calculateStatistics();
+		return this.blockSurfaceArea;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getVolume() {
+		return this.getBlockVolume();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> The result is cached. </p>
+	 */
+	@Override
+	public long getBlockVolume() {
+		this.validateCache();
+		if (this.blockVolume == null)
+			this.calculateStatistics();
+		return this.blockVolume;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(Location pos) {
+		return pos.getWorld() == this.getWorld() && this.getOverlap(pos.toVector());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(Vector pos) {
+		BoundingBox box = this.getBoundingBox();
+		return box != null && box.contains(pos) && this.contains(pos);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(IArea area) {
+		if (area.getWorld() != this.getWorld())
+			return false;
+		BoundingBox box = this.getBoundingBox();
+		BoundingBox other = area.getBoundingBox();
+		if (box == null || other == null || !box.overlaps(other))
+			return false;
+		for (Iterator<Vector> iterator = this.iterator(); iterator.hasNext();)
+			if (area.getOverlap(iterator.next()))
+				return true;
+		return false;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(IRegion region) {
+		if (region.getWorld() != this.getWorld())
+			return false;
+		BoundingBox box = this.getBoundingBox();
+		BoundingBox other = region.getBoundingBox();
+		if (box == null || other == null || !box.overlaps(other))
+			return false;
+		for (Iterator<Vector> iterator = this.iterator(); iterator.hasNext();)
+			if (region.getOverlap(iterator.next()))
+				return true;
+		return false;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> The modified Region is a PositionRegion containing a copy of the Positions. </p>
+	 */
+	@Override
+	public IRegion getModifiedRegion(RegionFormat format) {
+		PositionRegion region = new PositionRegion(this);
+		if (format == RegionFormat.FULL)
+			return region;
+		return region.getModifiedRegion(format);
+	}
+	
+	/**
+	 * <p> Returns an Iterator over those Positions of the given Iterator that match the given filter. </p>
+	 * 
+	 * @param source the Iterator to filter
+	 * @param filter a predicate which returns true for elements to be returned
+	 * @return The Iterator<Vector>
+	 */
+	protected static Iterator<Vector> filter(Iterator<Vector> source, Predicate<Vector> filter) {
+		Iterator<Vector> iterator = new Iterator<Vector>() {
+			
+			private Vector next = null;
+			
+			@Override
+			public boolean hasNext() {
+				while (this.next == null && source.hasNext()) {
+					Vector v = source.next();
+					if (filter.test(v))
+						this.next = v;
+				}
+				return this.next != null;
+			}
+			
+			@Override
+			public Vector next() {
+				if (!this.hasNext())
+					throw new NoSuchElementException();
+				Vector v = this.next;
+				this.next = null;
+				return v;
+			}
+		};
+		return iterator;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<Location> getLocationIterator() {
+		Iterator<Vector> vectoriterator = this.iterator();
+		Iterator<Location> iterator = new Iterator<Location>() {
+			
+			@Override
+			public boolean hasNext() {
+				return vectoriterator.hasNext();
+			}
+			
+			@Override
+			public Location next() {
+				return vectoriterator.next().toLocation(getWorld());
+			}
+		};
+		return iterator;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<Vector> getVectors() {
+		ArrayList<Vector> vectors = new ArrayList<Vector>();
+		for (Iterator<Vector> iterator = this.iterator(); iterator.hasNext();)
+			vectors.add(iterator.next());
+		return vectors;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<Location> getLocations() {
+		ArrayList<Location> locations = new ArrayList<Location>();
+		for (Iterator<Location> iterator = this.getLocationIterator(); iterator.hasNext();)
+			locations.add(iterator.next());
+		return locations;
+	}
+
+}
@@ -0,0 +1,790 @@
+package de.impelon.geotools.region;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.util.Vector;
+
+import de.impelon.geotools.Axis;
+import de.impelon.geotools.BoundingBox;
+import de.impelon.geotools.PackedPosition;
+import de.impelon.geotools.RegionFormat;
+import de.impelon.geotools.area.IArea;
+import de.impelon.misc.LongHashSet;
+
+/**
+ * <p> Thread-safe implementation of IRegion for a free-style region of Block-Positions. </p>
+ * <p> The packed Block-Positions (see {@linkplain PackedPosition}) are distributed over several stripes,
+ * each a {@linkplain LongHashSet} guarded by its own read-write-lock, so threads modifying different stripes do not block each other.
+ * Bulk operations sort their Positions by stripe first and lock every stripe only once. </p>
+ * <p> Overlap-checks read one stripe at a time under its read-lock, reusing the current snapshot if there is one.
+ * All other methods (statistics, iteration, modified Regions) use a {@linkplain FrozenRegion} taken while all stripes are locked,
+ * so they are consistent even while other threads modify this Region. The snapshot is cached until the next modification. </p>
+ * 
+ * @see PositionRegion
+ * @author Impelon
+ *
+ */
+public class ConcurrentPositionRegion implements IVersionedRegion {
+	
+	protected static final int MIN_STRIPES = 16;
+	protected static final int MAX_STRIPES = 1 << 12;
+	
+	protected final World world;
+	protected final LongHashSet[] stripes;
+	protected final ReentrantReadWriteLock[] locks;
+	protected final int shift;
+	protected final AtomicLong modifications = new AtomicLong();
+	protected volatile Snapshot snapshot = null;
+	protected volatile RegionJournal journal = null;
+	
+	/**
+	 * <p> Create an empty ConcurrentPositionRegion with enough stripes for the available processors. </p>
+	 */
+	public ConcurrentPositionRegion(World world) {
+		this(world, 4 * Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * <p> Create an empty ConcurrentPositionRegion. </p>
+	 * 
+	 * @param concurrencyLevel the estimated amount of threads modifying this Region at once
+	 */
+	public ConcurrentPositionRegion(World world, int concurrencyLevel) {
+		int stripes = MIN_STRIPES;
+		while (stripes < concurrencyLevel && stripes < MAX_STRIPES)
+			stripes <<= 1;
+		this.world = world;
+		this.stripes = new LongHashSet[stripes];
+		this.locks = new ReentrantReadWriteLock[stripes];
+		for (int i = 0; i < stripes; i++) {
+			this.stripes[i] = new LongHashSet();
+			this.locks[i] = new ReentrantReadWriteLock();
+		}
+		this.shift = Long.numberOfLeadingZeros(stripes) + 1;
+	}
+	
+	/**
+	 * <p> Create a ConcurrentPositionRegion from the Blocks of another Region. </p>
+	 * 
+	 * @param region Region to create the ConcurrentPositionRegion from
+	 */
+	public ConcurrentPositionRegion(IRegion region) {
+		this(region.getWorld());
+		this.add(region);
+	}
+	
+	/**
+	 * <p> Returns the stripe the given packed Block-Position belongs to. </p>
+	 * <p> Uses another multiplier than {@linkplain LongHashSet} to not correlate with the slots inside the stripe. </p>
+	 * 
+	 * @return The index of the stripe
+	 */
+	protected int getStripe(long packed) {
+		return (int) ((packed * 0xC2B2AE3D27D4EB4FL) >>> this.shift);
+	}
+	
+	/**
+	 * <p> Adds the Block at the given coordinates to this Region. </p>
+	 * 
+	 * @return Whether this Region changed as a result of the call
+	 */
+	public boolean add(int x, int y, int z) {
+		return this.addPacked(PackedPosition.pack(x, y, z));
+	}
+	
+	/**
+	 * <p> Adds the Block containing the given Vector to this Region. </p>
+	 * 
+	 * @param v Vector to add
+	 * @return Whether this Region changed as a result of the call
+	 */
+	public boolean add(Vector v) {
+		return this.addPacked(PackedPosition.pack(v));
+	}
+	
+	/**
+	 * <p> Removes the Block at the given coordinates from this Region. </p>
+	 * 
+	 * @return Whether this Region changed as a result of the call
+	 */
+	public boolean remove(int x, int y, int z) {
+		return this.removePacked(PackedPosition.pack(x, y, z));
+	}
+	
+	/**
+	 * <p> Removes the Block containing the given Vector from this Region. </p>
+	 * 
+	 * @param v Vector to remove
+	 * @return Whether this Region changed as a result of the call
+	 */
+	public boolean remove(Vector v) {
+		return this.removePacked(PackedPosition.pack(v));
+	}
+	
+	/**
+	 * <p> Determines if the Block at the given coordinates is within this Region. </p>
+	 * 
+	 * @return Whether this Region contains the Block
+	 */
+	public boolean contains(int x, int y, int z) {
+		return this.containsPacked(PackedPosition.pack(x, y, z));
+	}
+	
+	/**
+	 * <p> Returns the RegionJournal recording the changes of this Region. </p>
+	 * 
+	 * @return The RegionJournal, or null if changes are not recorded
+	 */
+	public RegionJournal getJournal() {
+		return this.journal;
+	}
+	
+	/**
+	 * <p> Sets the RegionJournal recording the changes of this Region. </p>
+	 * <p> Changes are recorded while the stripe is locked, so the journal orders the changes of every Block correctly. </p>
+	 * 
+	 * @param journal the RegionJournal, or null to stop recording changes
+	 */
+	public void setJournal(RegionJournal journal) {
+		this.journal = journal;
+	}
+	
+	/**
+	 * <p> Returns the changes of this Region since the given version of its RegionJournal. </p>
+	 * 
+	 * @see RegionJournal#changesSince(long)
+	 * @param version the version the consumer last synchronized
+	 * @return The RegionDelta up to the current version
+	 * @throws IllegalStateException if changes are not recorded
+	 */
+	public RegionDelta changesSince(long version) throws IllegalStateException {
+		RegionJournal journal = this.journal;
+		if (journal == null)
+			throw new IllegalStateException("Cannot return changes of a ConcurrentPositionRegion without journal");
+		return journal.changesSince(version);
+	}
+	
+	/**
+	 * <p> Records a change in the RegionJournal, if there is one. </p>
+	 */
+	protected void record(long packed, boolean added) {
+		RegionJournal journal = this.journal;
+		if (journal != null)
+			journal.record(packed, added);
+	}
+	
+	/**
+	 * <p> Adds a packed Block-Position to this Region. </p>
+	 */
+	protected boolean addPacked(long packed) {
+		int stripe = this.getStripe(packed);
+		ReentrantReadWriteLock.WriteLock lock = this.locks[stripe].writeLock();
+		lock.lock();
+		try {
+			if (!this.stripes[stripe].add(packed))
+				return false;
+			this.modifications.incrementAndGet();
+			this.record(packed, true);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * <p> Removes a packed Block-Position from this Region. </p>
+	 */
+	protected boolean removePacked(long packed) {
+		int stripe = this.getStripe(packed);
+		ReentrantReadWriteLock.WriteLock lock = this.locks[stripe].writeLock();
+		lock.lock();
+		try {
+			if (!this.stripes[stripe].remove(packed))
+				return false;
+			this.modifications.incrementAndGet();
+			this.record(packed, false);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * <p> Determines if this Region contains a packed Block-Position. </p>
+	 */
+	protected boolean containsPacked(long packed) {
+		int stripe = this.getStripe(packed);
+		ReentrantReadWriteLock.ReadLock lock = this.locks[stripe].readLock();
+		lock.lock();
+		try {
+			return this.stripes[stripe].contains(packed);
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * <p> Returns the cached snapshot if this Region was not modified since it was taken. </p>
+	 * 
+	 * @return The FrozenRegion, or null if there is no current snapshot
+	 */
+	protected FrozenRegion getCurrentSnapshot() {
+		Snapshot snapshot = this.snapshot;
+		return snapshot != null && snapshot.version == this.modifications.get() ? snapshot.region : null;
+	}
+	
+	/**
+	 * <p> Determines for many packed Block-Positions if they are within this Region, locking every stripe only once. </p>
+	 * <p> The Positions are grouped by stripe using a counting sort; bit i of the result is set if the i-th Position is contained. </p>
+	 * 
+	 * @return The amount of Positions within this Region
+	 */
+	protected int containsPacked(long[] packed, long[] result) {
+		Arrays.fill(result, 0, (packed.length + 63) >>> 6, 0);
+		int[] offsets = new int[this.stripes.length + 1];
+		for (int i = 0; i < packed.length; i++)
+			offsets[this.getStripe(packed[i]) + 1]++;
+		for (int i = 1; i < offsets.length; i++)
+			offsets[i] += offsets[i - 1];
+		int[] sorted = new int[packed.length];
+		int[] next = Arrays.copyOf(offsets, this.stripes.length);
+		for (int i = 0; i < packed.length; i++)
+			sorted[next[this.getStripe(packed[i])]++] = i;
+		int overlaps = 0;
+		for (int stripe = 0; stripe < this.stripes.length; stripe++) {
+			if (offsets[stripe] == offsets[stripe + 1])
+				continue;
+			ReentrantReadWriteLock.ReadLock lock = this.locks[stripe].readLock();
+			lock.lock();
+			try {
+				for (int i = offsets[stripe]; i < offsets[stripe + 1]; i++) {
+					int index = sorted[i];
+					if (this.stripes[stripe].contains(packed[index])) {
+						result[index >>> 6] |= 1L << index;
+						overlaps++;
+					}
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+		return overlaps;
+	}
+	
+	/**
+	 * <p> Determines if any Block of this Region is within the given Area, locking one stripe at a time. </p>
+	 * <p> The Area is called while the stripe is locked and must not modify this Region. </p>
+	 * 
+	 * @param area the Area to check
+	 * @return Whether any Block is within the Area
+	 */
+	protected boolean anyWithin(IArea area) {
+		BoundingBox box = area.getBoundingBox();
+		if (box == null)
+			return false;
+		Vector v = new Vector();
+		for (int stripe = 0; stripe < this.stripes.length; stripe++) {
+			ReentrantReadWriteLock.ReadLock lock = this.locks[stripe].readLock();
+			lock.lock();
+			try {
+				for (PrimitiveIterator.OfLong iterator = this.stripes[stripe].iterator(); iterator.hasNext();) {
+					long packed = iterator.nextLong();
+					v.setX(PackedPosition.getX(packed)).setY(PackedPosition.getY(packed)).setZ(PackedPosition.getZ(packed));
+					if (box.contains(v) && area.getOverlap(v))
+						return true;
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * <p> Adds or removes the first given amount of packed Block-Positions, locking every stripe only once. </p>
+	 * <p> The Positions are reordered by stripe using a counting sort. </p>
+	 * 
+	 * @return Whether this Region changed as a result of the call
+	 */
+	protected boolean modifyPacked(long[] packed, int size, boolean add) {
+		int[] offsets = new int[this.stripes.length + 1];
+		for (int i = 0; i < size; i++)
+			offsets[this.getStripe(packed[i]) + 1]++;
+		for (int i = 1; i < offsets.length; i++)
+			offsets[i] += offsets[i - 1];
+		long[] sorted = new long[size];
+		int[] next = Arrays.copyOf(offsets, this.stripes.length);
+		for (int i = 0; i < size; i++)
+			sorted[next[this.getStripe(packed[i])]++] = packed[i];
+		boolean changed = false;
+		for (int stripe = 0; stripe < this.stripes.length; stripe++) {
+			if (offsets[stripe] == offsets[stripe + 1])
+				continue;
+			ReentrantReadWriteLock.WriteLock lock = this.locks[stripe].writeLock();
+			lock.lock();
+			try {
+				boolean modified = false;
+				for (int i = offsets[stripe]; i < offsets[stripe + 1]; i++)
+					if (add ? this.stripes[stripe].add(sorted[i]) : this.stripes[stripe].remove(sorted[i])) {
+						this.record(sorted[i], add);
+						modified = true;
+					}
+				if (modified) {
+					this.modifications.incrementAndGet();
+					changed = true;
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+		return changed;
+	}
+	
+	/**
+	 * <p> Packs the given Vectors. </p>
+	 * 
+	 * @return The packed Block-Positions
+	 */
+	protected static long[] toPackedPositions(Collection<Vector> vectors) {
+		long[] packed = new long[vectors.size()];
+		int i = 0;
+		for (Vector v : vectors)
+			packed[i++] = PackedPosition.pack(v);
+		return packed;
+	}
+	
+	/**
+	 * <p> Packs all Blocks of the given Region. </p>
+	 * 
+	 * @return The packed Block-Positions, followed by unused slots; the amount of Blocks is stored in size[0]
+	 */
+	protected static long[] toPackedPositions(IRegion region, final int[] size) {
+		final long[][] packed = {new long[16]};
+		region.forEachBlock(new IBlockVisitor() {
+			
+			@Override
+			public void visit(int x, int y, int z) {
+				if (size[0] == packed[0].length)
+					packed[0] = Arrays.copyOf(packed[0], packed[0].length * 2);
+				packed[0][size[0]++] = PackedPosition.pack(x, y, z);
+			}
+		});
+		return packed[0];
+	}
+	
+	/**
+	 * <p> Adds the Blocks containing the given Vectors to this Region. </p>
+	 * 
+	 * @param vectors Vectors to add
+	 * @return Whether this Region changed as a result of the call
+	 */
+	public boolean addAll(Collection<Vector> vectors) {
+		long[] packed = toPackedPositions(vectors);
+		return this.modifyPacked(packed, packed.length, true);
+	}
+	
+	/**
+	 * <p> Removes the Blocks containing the given Vectors from this Region. </p>
+	 * 
+	 * @param vectors Vectors to remove
+	 * @return Whether this Region changed as a result of the call
+	 */
+	public boolean removeAll(Collection<Vector> vectors) {
+		long[] packed = toPackedPositions(vectors);
+		return this.modifyPacked(packed, packed.length, false);
+	}
+	
+	/**
+	 * <p> Adds all Blocks of the given Region to this Region. </p>
+	 * 
+	 * @param region add Blocks of that Region
+	 * @return Whether this Region changed as a result of the call
+	 */
+	public boolean add(IRegion region) {
+		int[] size = {0};
+		long[] packed = toPackedPositions(region, size);
+		return this.modifyPacked(packed, size[0], true);
+	}
+	
+	/**
+	 * <p> Removes all Blocks of the given Region from this Region. </p>
+	 * 
+	 * @param region remove Blocks of that Region
+	 * @return Whether this Region changed as a result of the call
+	 */
+	public boolean remove(IRegion region) {
+		int[] size = {0};
+		long[] packed = toPackedPositions(region, size);
+		return this.modifyPacked(packed, size[0], false);
+	}
+	
+	/**
+	 * <p> Removes all Blocks satisfying the given Predicate, locking one stripe at a time. </p>
+	 * <p> The Predicate is called while the stripe is locked and must not access this Region. </p>
+	 * 
+	 * @param filter the Predicate
+	 * @return Whether this Region changed as a result of the call
+	 */
+	public boolean removeIf(final Predicate<? super Vector> filter) {
+		LongPredicate predicate = new LongPredicate() {
+			
+			@Override
+			public boolean test(long packed) {
+				if (!filter.test(PackedPosition.toVector(packed)))
+					return false;
+				record(packed, false);
+				return true;
+			}
+		};
+		boolean changed = false;
+		for (int stripe = 0; stripe < this.stripes.length; stripe++) {
+			ReentrantReadWriteLock.WriteLock lock = this.locks[stripe].writeLock();
+			lock.lock();
+			try {
+				if (this.stripes[stripe].removeIf(predicate)) {
+					this.modifications.incrementAndGet();
+					changed = true;
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+		return changed;
+	}
+	
+	/**
+	 * <p> Removes all Blocks not within the given Region. </p>
+	 * 
+	 * @see ConcurrentPositionRegion#removeIf(Predicate)
+	 * @param region retain Blocks of that Region
+	 * @return Whether this Region changed as a result of the call
+	 */
+	public boolean retainIntersecting(final IRegion region) {
+		return this.removeIf(new Predicate<Vector>() {
+			
+			@Override
+			public boolean test(Vector v) {
+				return !region.getOverlap(v);
+			}
+		});
+	}
+	
+	/**
+	 * <p> Removes all Blocks from this Region. </p>
+	 */
+	public void clear() {
+		for (int stripe = 0; stripe < this.stripes.length; stripe++) {
+			ReentrantReadWriteLock.WriteLock lock = this.locks[stripe].writeLock();
+			lock.lock();
+			try {
+				if (!this.stripes[stripe].isEmpty()) {
+					if (this.journal != null)
+						this.stripes[stripe].forEach(new LongConsumer() {
+							
+							@Override
+							public void accept(long packed) {
+								record(packed, false);
+							}
+						});
+					this.stripes[stripe].clear();
+					this.modifications.incrementAndGet();
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+	
+	/**
+	 * <p> Locks all stripes for reading, in ascending order. </p>
+	 */
+	protected void lockAll() {
+		for (ReentrantReadWriteLock lock : this.locks)
+			lock.readLock().lock();
+	}
+	
+	/**
+	 * <p> Unlocks all stripes locked by {@linkplain ConcurrentPositionRegion#lockAll()}. </p>
+	 */
+	protected void unlockAll() {
+		for (int i = this.locks.length - 1; i >= 0; i--)
+			this.locks[i].readLock().unlock();
+	}
+	
+	/**
+	 * <p> Returns the amount of Blocks in this Region, counted while all stripes are locked. </p>
+	 * 
+	 * @return The amount of Blocks
+	 */
+	public int size() {
+		this.lockAll();
+		try {
+			int size = 0;
+			for (LongHashSet stripe : this.stripes)
+				size += stripe.size();
+			return size;
+		} finally {
+			this.unlockAll();
+		}
+	}
+	
+	/**
+	 * <p> Returns an immutable snapshot of this Region. </p>
+	 * <p> All stripes are locked while the Blocks are copied, so the snapshot corresponds to a single point in time.
+	 * The snapshot is cached until this Region is modified. </p>
+	 * 
+	 * @return The FrozenRegion
+	 */
+	public FrozenRegion freeze() {
+		FrozenRegion current = this.getCurrentSnapshot();
+		if (current != null)
+			return current;
+		long version;
+		LongHashSet positions;
+		this.lockAll();
+		try {
+			version = this.modifications.get();
+			int size = 0;
+			for (LongHashSet stripe : this.stripes)
+				size += stripe.size();
+			positions = new LongHashSet(size);
+			for (LongHashSet stripe : this.stripes)
+				positions.addAll(stripe);
+		} finally {
+			this.unlockAll();
+		}
+		Snapshot snapshot = new Snapshot(version, new FrozenRegion(this.getWorld(), new PackedPositionSet(positions)));
+		this.snapshot = snapshot;
+		return snapshot.region;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getModificationCount() {
+		return this.modifications.get();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public World getWorld() {
+		return this.world;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getLength(Axis axis) {
+		return this.freeze().getLength(axis);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getBlockLength(Axis axis) {
+		return this.freeze().getBlockLength(axis);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public BoundingBox getBoundingBox() {
+		return this.freeze().getBoundingBox();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getSurfaceArea() {
+		return this.freeze().getSurfaceArea();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getBlockSurfaceArea() {
+		return this.freeze().getBlockSurfaceArea();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getVolume() {
+		return this.size();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getBlockVolume() {
+		return this.size();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(Location pos) {
+		return pos.getWorld() == this.getWorld() && this.getOverlap(pos.toVector());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Only locks the stripe of the Block containing the Vector. </p>
+	 */
+	@Override
+	public boolean getOverlap(Vector pos) {
+		return this.containsPacked(PackedPosition.pack(pos));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Checks the current snapshot if there is one, otherwise reads one stripe at a time. </p>
+	 */
+	@Override
+	public boolean getOverlap(IArea area) {
+		if (area.getWorld() != this.getWorld())
+			return false;
+		FrozenRegion snapshot = this.getCurrentSnapshot();
+		return snapshot != null ? snapshot.getOverlap(area) : this.anyWithin(area);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Checks the current snapshot if there is one, otherwise reads one stripe at a time. </p>
+	 */
+	@Override
+	public boolean getOverlap(IRegion region) {
+		return this.getOverlap((IArea) region);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Every stripe is locked once; Positions in different stripes may be checked at different points in time. </p>
+	 */
+	@Override
+	public int getOverlaps(double[] xs, double[] ys, double[] zs, long[] result) throws IllegalArgumentException {
+		if (ys.length != xs.length || zs.length != xs.length)
+			throw new IllegalArgumentException("Cannot check coordinate-arrays of different length");
+		if (result.length < (xs.length + 63) >>> 6)
+			throw new IllegalArgumentException("Cannot store " + xs.length + " results in " + result.length + " words");
+		long[] packed = new long[xs.length];
+		for (int i = 0; i < xs.length; i++)
+			packed[i] = PackedPosition.pack((int) Math.floor(xs[i]), (int) Math.floor(ys[i]), (int) Math.floor(zs[i]));
+		return this.containsPacked(packed, result);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Every stripe is locked once; Positions in different stripes may be checked at different points in time. </p>
+	 */
+	@Override
+	public int getOverlaps(double[] positions, long[] result) throws IllegalArgumentException {
+		if (positions.length % 3 != 0)
+			throw new IllegalArgumentException("Cannot check coordinates not given as triples");
+		int count = positions.length / 3;
+		if (result.length < (count + 63) >>> 6)
+			throw new IllegalArgumentException("Cannot store " + count + " results in " + result.length + " words");
+		long[] packed = new long[count];
+		for (int i = 0; i < count; i++)
+			packed[i] = PackedPosition.pack((int) Math.floor(positions[3 * i]), (int) Math.floor(positions[3 * i + 1]),
+					(int) Math.floor(positions[3 * i + 2]));
+		return this.containsPacked(packed, result);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public IRegion getModifiedRegion(RegionFormat format) {
+		return this.freeze().getModifiedRegion(format);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Iterates over a snapshot; the Iterator does not support removing Positions. </p>
+	 */
+	@Override
+	public Iterator<Vector> iterator() {
+		return this.freeze().iterator();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Visits the Blocks of a snapshot. </p>
+	 */
+	@Override
+	public void forEachBlock(IBlockVisitor visitor) {
+		this.freeze().forEachBlock(visitor);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Spliterator<Vector> spliterator() {
+		return this.freeze().spliterator();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<Location> getLocationIterator() {
+		return this.freeze().getLocationIterator();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<Vector> getVectors() {
+		return this.freeze().getVectors();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<Location> getLocations() {
+		return this.freeze().getLocations();
+	}
+	
+	/**
+	 * <p> A snapshot together with the amount of modifications it reflects. </p>
+	 */
+	protected static class Snapshot {
+		
+		protected final long version;
+		protected final FrozenRegion region;
+		
+		protected Snapshot(long version, FrozenRegion region) {
+			this.version = version;
+			this.region = region;
+		}
+	
+	}
+
+}
@@ -0,0 +1,370 @@
+package de.impelon.geotools.region;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Predicate;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.util.Vector;
+
+import de.impelon.geotools.Axis;
+import de.impelon.geotools.BoundingBox;
+import de.impelon.geotools.RegionFormat;
+import de.impelon.geotools.area.IArea;
+import de.impelon.misc.LongHashSet;
+
+/**
+ * <p> Mutable Region that can be read from any thread without locking, by copying its Positions on every modification. </p>
+ * <p> The current state is an immutable {@linkplain FrozenRegion}: reading methods use it directly,
+ * modifying methods copy it into a PositionRegion, apply the modification and publish a new snapshot.
+ * Iterators therefore never fail and always see the state from when they were created. </p>
+ * <p> Modifications are synchronized with each other and copy all Positions, so they are expensive;
+ * several changes should be applied at once using {@linkplain CopyOnWriteRegion#modify(Predicate)}.
+ * Use {@linkplain CopyOnWriteRegion#snapshot()} to read multiple values from the same state. </p>
+ * 
+ * @author Impelon
+ *
+ */
+public class CopyOnWriteRegion implements IVersionedRegion {
+	
+	protected volatile FrozenRegion snapshot;
+	protected volatile long modifications = 0;
+	
+	/**
+	 * <p> Create an empty CopyOnWriteRegion. </p>
+	 * 
+	 * @param packed If true the Positions will be stored as packed Block-Positions (aka. floored)
+	 */
+	public CopyOnWriteRegion(World world, boolean packed) {
+		this.snapshot = new FrozenRegion(world, packed ? new PackedPositionSet() : new HashSet<Vector>());
+	}
+	
+	/**
+	 * <p> Create a CopyOnWriteRegion from a snapshot of another Region. </p>
+	 * 
+	 * @see FrozenRegion#FrozenRegion(IRegion)
+	 * @param region Region to create the CopyOnWriteRegion from
+	 */
+	public CopyOnWriteRegion(IRegion region) {
+		this.snapshot = region instanceof FrozenRegion ? (FrozenRegion) region : new FrozenRegion(region);
+	}
+	
+	/**
+	 * <p> Returns the current state of this Region. </p>
+	 * <p> The snapshot is not affected by later modifications. </p>
+	 * 
+	 * @return The FrozenRegion
+	 */
+	public FrozenRegion snapshot() {
+		return this.snapshot;
+	}
+	
+	/**
+	 * <p> Applies a modification to a mutable copy of this Region and publishes the result. </p>
+	 * <p> The modification returns whether it changed the given PositionRegion; only then a new snapshot is published.
+	 * It must not keep a reference to the PositionRegion. </p>
+	 * 
+	 * @param modification the modification to apply
+	 * @return Whether this Region changed as a result of the call
+	 */
+	public synchronized boolean modify(Predicate<? super PositionRegion> modification) {
+		FrozenRegion current = this.snapshot;
+		PositionRegion copy = current.toPositionRegion();
+		if (!modification.test(copy))
+			return false;
+		this.snapshot = new FrozenRegion(current.getWorld(), copy.positions);
+		this.modifications++;
+		return true;
+	}
+	
+	/**
+	 * <p> Adds a Vector to this Region. </p>
+	 * <p> Nothing is copied if the Vector is already contained. </p>
+	 * 
+	 * @see PositionRegion#add(Vector)
+	 * @param v Vector to add
+	 * @return Whether this Region changed as a result of the call
+	 */
+	public synchronized boolean add(final Vector v) {
+		if (this.snapshot.getOverlap(v))
+			return false;
+		return this.modify(new Predicate<PositionRegion>() {
+			
+			@Override
+			public boolean test(PositionRegion region) {
+				return region.add(v.clone());
+			}
+		});
+	}
+	
+	/**
+	 * <p> Removes a Vector from this Region. </p>
+	 * <p> Nothing is copied if the Vector is not contained. </p>
+	 * 
+	 * @see PositionRegion#remove(Vector)
+	 * @param v Vector to remove
+	 * @return Whether this Region changed as a result of the call
+	 */
+	public synchronized boolean remove(final Vector v) {
+		if (!this.snapshot.getOverlap(v))
+			return false;
+		return this.modify(new Predicate<PositionRegion>() {
+			
+			@Override
+			public boolean test(PositionRegion region) {
+				return region.remove(v);
+			}
+		});
+	}
+	
+	/**
+	 * <p> Adds all Positions of the given Region to this Region. </p>
+	 * 
+	 * @see PositionRegion#add(IRegion)
+	 * @param region add Positions of that Region
+	 * @return Whether this Region changed as a result of the call
+	 */
+	public boolean add(final IRegion region) {
+		return this.modify(new Predicate<PositionRegion>() {
+			
+			@Override
+			public boolean test(PositionRegion copy) {
+				return copy.add(region);
+			}
+		});
+	}
+	
+	/**
+	 * <p> Removes all Positions of the given Region from this Region. </p>
+	 * 
+	 * @see PositionRegion#remove(IRegion)
+	 * @param region remove Positions of that Region
+	 * @return Whether this Region changed as a result of the call
+	 */
+	public boolean remove(final IRegion region) {
+		return this.modify(new Predicate<PositionRegion>() {
+			
+			@Override
+			public boolean test(PositionRegion copy) {
+				return copy.remove(region);
+			}
+		});
+	}
+	
+	/**
+	 * <p> Removes all Positions not within the given Region from this Region. </p>
+	 * 
+	 * @see PositionRegion#retainIntersecting(IRegion)
+	 * @param region retain Positions of that Region
+	 * @return Whether this Region changed as a result of the call
+	 */
+	public boolean retainIntersecting(final IRegion region) {
+		return this.modify(new Predicate<PositionRegion>() {
+			
+			@Override
+			public boolean test(PositionRegion copy) {
+				return copy.retainIntersecting(region);
+			}
+		});
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Incremented after a new snapshot was published. </p>
+	 */
+	@Override
+	public long getModificationCount() {
+		return this.modifications;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public World getWorld() {
+		return this.snapshot.getWorld();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getLength(Axis axis) {
+		return this.snapshot.getLength(axis);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getBlockLength(Axis axis) {
+		return this.snapshot.getBlockLength(axis);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public BoundingBox getBoundingBox() {
+		return this.snapshot.getBoundingBox();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getSurfaceArea() {
+		return this.snapshot.getSurfaceArea();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getBlockSurfaceArea() {
+		return this.snapshot.getBlockSurfaceArea();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getVolume() {
+		return this.snapshot.getVolume();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getBlockVolume() {
+		return this.snapshot.getBlockVolume();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(Location pos) {
+		return this.snapshot.getOverlap(pos);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(Vector pos) {
+		return this.snapshot.getOverlap(pos);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(IArea area) {
+		return this.snapshot.getOverlap(area);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(IRegion region) {
+		return this.snapshot.getOverlap(region);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> All Positions are checked against the same snapshot. </p>
+	 */
+	@Override
+	public int getOverlaps(double[] xs, double[] ys, double[] zs, long[] result) throws IllegalArgumentException {
+		return this.snapshot.getOverlaps(xs, ys, zs, result);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> All Positions are checked against the same snapshot. </p>
+	 */
+	@Override
+	public int getOverlaps(double[] positions, long[] result) throws IllegalArgumentException {
+		return this.snapshot.getOverlaps(positions, result);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public IRegion getModifiedRegion(RegionFormat format) {
+		return this.snapshot.getModifiedRegion(format);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Iterates over the current snapshot; the Iterator does not support removing Positions. </p>
+	 */
+	@Override
+	public Iterator<Vector> iterator() {
+		return this.snapshot.iterator();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void forEachBlock(IBlockVisitor visitor) {
+		this.snapshot.forEachBlock(visitor);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void forEachChunk(IChunkVisitor visitor) {
+		this.snapshot.forEachChunk(visitor);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public LongHashSet getChunks() {
+		return this.snapshot.getChunks();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Spliterator<Vector> spliterator() {
+		return this.snapshot.spliterator();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<Location> getLocationIterator() {
+		return this.snapshot.getLocationIterator();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<Vector> getVectors() {
+		return this.snapshot.getVectors();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<Location> getLocations() {
+		return this.snapshot.getLocations();
+	}
+
+}
@@ -0,0 +1,383 @@
+package de.impelon.geotools.region;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.util.Vector;
+
+import de.impelon.geotools.Axis;
+import de.impelon.geotools.BoundingBox;
+import de.impelon.geotools.RegionFormat;
+import de.impelon.geotools.area.IArea;
+
+/**
+ * <p> Implementation of IRegion for the outline of a {@linkplain CuboidRegion}. </p>
+ * <p> Represents either the {@linkplain RegionFormat#HOLLOW} shell or the {@linkplain RegionFormat#WIREFRAME} edges
+ * of the CuboidRegion without storing any Positions; everything is computed from the corners. </p>
+ * <p> A Block belongs to the shell if at least one of its coordinates lies on the bounds of the CuboidRegion,
+ * and to the edges if at least two of them do. </p>
+ * 
+ * @author Impelon
+ *
+ */
+public class CuboidOutlineRegion implements IVersionedRegion {
+	
+	protected final CuboidRegion cuboid;
+	protected final RegionFormat format;
+	protected final int required;
+	protected final int minX, minY, minZ, maxX, maxY, maxZ;
+	
+	/**
+	 * <p> Create a CuboidOutlineRegion of the given CuboidRegion. </p>
+	 * 
+	 * @param cuboid the CuboidRegion
+	 * @param format either {@linkplain RegionFormat#HOLLOW} or {@linkplain RegionFormat#WIREFRAME}
+	 * @throws IllegalArgumentException if the format is neither HOLLOW nor WIREFRAME
+	 */
+	public CuboidOutlineRegion(CuboidRegion cuboid, RegionFormat format) throws IllegalArgumentException {
+		switch (format) {
+		case HOLLOW:
+			this.required = 1;
+			break;
+		case WIREFRAME:
+			this.required = 2;
+			break;
+		default:
+			throw new IllegalArgumentException("A CuboidOutlineRegion can only be HOLLOW or WIREFRAME");
+		}
+		this.cuboid = cuboid;
+		this.format = format;
+		this.minX = cuboid.getStartPosition().getBlockX();
+		this.minY = cuboid.getStartPosition().getBlockY();
+		this.minZ = cuboid.getStartPosition().getBlockZ();
+		this.maxX = cuboid.getEndPosition().getBlockX();
+		this.maxY = cuboid.getEndPosition().getBlockY();
+		this.maxZ = cuboid.getEndPosition().getBlockZ();
+	}
+	
+	/**
+	 * <p> Returns the CuboidRegion this is the outline of. </p>
+	 * 
+	 * @return The CuboidRegion
+	 */
+	public CuboidRegion getCuboid() {
+		return this.cuboid;
+	}
+	
+	/**
+	 * <p> Returns the format of this outline. </p>
+	 * 
+	 * @return Either {@linkplain RegionFormat#HOLLOW} or {@linkplain RegionFormat#WIREFRAME}
+	 */
+	public RegionFormat getFormat() {
+		return this.format;
+	}
+	
+	/**
+	 * <p> Returns on how many axes the given Block-coordinates lie on the bounds of the CuboidRegion. </p>
+	 * 
+	 * @return The amount of axes (0 to 3)
+	 */
+	protected int countBounds(int x, int y, int z) {
+		return (x == this.minX || x == this.maxX ? 1 : 0) + this.countBounds(y, z);
+	}
+	
+	/**
+	 * <p> Returns on how many of the y- and z-axis the given row of Blocks lies on the bounds of the CuboidRegion. </p>
+	 * 
+	 * @return The amount of axes (0 to 2)
+	 */
+	protected int countBounds(int y, int z) {
+		return (y == this.minY || y == this.maxY ? 1 : 0) + (z == this.minZ || z == this.maxZ ? 1 : 0);
+	}
+	
+	/**
+	 * <p> Determines if the Block at the given coordinates is within this Region. </p>
+	 * 
+	 * @return Whether this Region contains the Block
+	 */
+	public boolean contains(int x, int y, int z) {
+		return x >= this.minX && x <= this.maxX && y >= this.minY && y <= this.maxY && z >= this.minZ && z <= this.maxZ
+				&& this.countBounds(x, y, z) >= this.required;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> CuboidOutlineRegions are immutable, so this is always 0. </p>
+	 */
+	@Override
+	public long getModificationCount() {
+		return 0;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public World getWorld() {
+		return this.cuboid.getWorld();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getLength(Axis axis) {
+		return this.cuboid.getLength(axis);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getBlockLength(Axis axis) {
+		return this.cuboid.getBlockLength(axis);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getSurfaceArea() {
+		return this.getBlockSurfaceArea();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> The shell covers every column of the CuboidRegion, the edges only those on the bounds. </p>
+	 */
+	@Override
+	public long getBlockSurfaceArea() {
+		long x = this.getBlockLength(Axis.X), z = this.getBlockLength(Axis.Z);
+		if (this.required == 1)
+			return x * z;
+		return x * z - Math.max(x - 2, 0) * Math.max(z - 2, 0);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(Location pos) {
+		return pos.getWorld() == this.getWorld() && this.getOverlap(pos.toVector());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(Vector pos) {
+		return this.cuboid.getOverlap(pos) && this.countBounds(pos.getBlockX(), pos.getBlockY(), pos.getBlockZ()) >= this.required;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(IArea area) {
+		if (area.getWorld() != this.getWorld())
+			return false;
+		for (Iterator<Vector> iterator = this.iterator(); iterator.hasNext();)
+			if (area.getOverlap(iterator.next()))
+				return true;
+		return false;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(IRegion region) {
+		if (region.getWorld() != this.getWorld())
+			return false;
+		BoundingBox box = region.getBoundingBox();
+		if (box == null || !box.overlaps(this.getBoundingBox()))
+			return false;
+		for (Iterator<Vector> iterator = this.iterator(); iterator.hasNext();)
+			if (region.getOverlap(iterator.next()))
+				return true;
+		return false;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public BoundingBox getBoundingBox() {
+		return this.cuboid.getBoundingBox();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getVolume() {
+		return this.getBlockVolume();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Counts the Blocks by how many of their coordinates lie on the bounds,
+	 * which only depends on the amount of Blocks on each axis. </p>
+	 */
+	@Override
+	public long getBlockVolume() {
+		long[] counts = {1, 0, 0, 0};
+		for (Axis axis : Axis.values()) {
+			long length = this.getBlockLength(axis);
+			long bounds = Math.min(length, 2), inner = length - bounds;
+			for (int i = 3; i >= 0; i--)
+				counts[i] = counts[i] * inner + (i > 0 ? counts[i - 1] * bounds : 0);
+		}
+		long volume = 0;
+		for (int i = this.required; i <= 3; i++)
+			volume += counts[i];
+		return volume;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public IRegion getModifiedRegion(RegionFormat format) {
+		switch (format) {
+		case FULL:
+			return new CuboidOutlineRegion(this.cuboid, this.format);
+		case FLOORED:
+			return new CuboidOutlineRegion((CuboidRegion) this.cuboid.getModifiedRegion(RegionFormat.FLOORED), this.format);
+		default:
+			return new PositionRegion(this).getModifiedRegion(format);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void forEachBlock(IBlockVisitor visitor) {
+		for (int z = this.minZ; z <= this.maxZ; z++)
+			for (int y = this.minY; y <= this.maxY; y++) {
+				int bounds = this.countBounds(y, z);
+				if (bounds >= this.required) {
+					for (int x = this.minX; x <= this.maxX; x++)
+						visitor.visit(x, y, z);
+				} else if (bounds + 1 >= this.required) {
+					visitor.visit(this.minX, y, z);
+					if (this.maxX != this.minX)
+						visitor.visit(this.maxX, y, z);
+				}
+			}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Returns the same Vectors as iterating over the CuboidRegion would, skipping those not on the outline. </p>
+	 */
+	@Override
+	public Iterator<Vector> iterator() {
+		Iterator<Vector> iterator = new Iterator<Vector>() {
+			
+			private final Vector start = cuboid.getStartPosition();
+			private final Vector direction = cuboid.getIterationStep();
+			private final int xLength = maxX - minX + 1;
+			private int x = 0;
+			private int y = 0;
+			private int z = 0;
+			private int step = 1;
+			private boolean ready = false;
+			
+			// Moves to the next row containing Blocks of the outline; step is the distance between Blocks in that row.
+			private boolean findRow() {
+				while (this.z <= maxZ - minZ) {
+					if (this.y > maxY - minY) {
+						this.y = 0;
+						this.z++;
+						continue;
+					}
+					int bounds = countBounds(minY + this.y, minZ + this.z);
+					if (bounds >= required) {
+						this.step = 1;
+						return true;
+					}
+					if (bounds + 1 >= required) {
+						this.step = Math.max(this.xLength - 1, 1);
+						return true;
+					}
+					this.y++;
+				}
+				return false;
+			}
+			
+			@Override
+			public boolean hasNext() {
+				if (!this.ready)
+					this.ready = this.findRow();
+				return this.ready;
+			}
+			
+			@Override
+			public Vector next() {
+				if (!this.hasNext())
+					throw new NoSuchElementException();
+				Vector vector = new Vector(this.start.getX() + this.x * this.direction.getX(), this.start.getY() + this.y * this.direction.getY(),
+						this.start.getZ() + this.z * this.direction.getZ());
+				this.x += this.step;
+				if (this.x >= this.xLength) {
+					this.x = 0;
+					this.y++;
+					this.ready = false;
+				}
+				return vector;
+			}
+		};
+		return iterator;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<Location> getLocationIterator() {
+		Iterator<Vector> vectoriterator = this.iterator();
+		Iterator<Location> iterator = new Iterator<Location>() {
+			
+			@Override
+			public boolean hasNext() {
+				return vectoriterator.hasNext();
+			}
+			
+			@Override
+			public Location next() {
+				return vectoriterator.next().toLocation(getWorld());
+			}
+		};
+		return iterator;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<Vector> getVectors() {
+		ArrayList<Vector> vectors = new ArrayList<Vector>((int) this.getBlockVolume());
+		for (Iterator<Vector> iterator = this.iterator(); iterator.hasNext();)
+			vectors.add(iterator.next());
+		return vectors;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<Location> getLocations() {
+		ArrayList<Location> locations = new ArrayList<Location>((int) this.getBlockVolume());
+		for (Iterator<Location> iterator = this.getLocationIterator(); iterator.hasNext();)
+			locations.add(iterator.next());
+		return locations;
+	}
+
+}
@@ -1,9 +1,9 @@
 package de.impelon.geotools.region;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
 import java.util.function.Consumer;
 
 import org.bukkit.Location;
@@ -11,8 +11,11 @@ import org.bukkit.World;
 import org.bukkit.util.Vector;
 
 import de.impelon.geotools.Axis;
+import de.impelon.geotools.BoundingBox;
+import de.impelon.geotools.PackedPosition;
 import de.impelon.geotools.RegionFormat;
 import de.impelon.geotools.area.RectangularArea;
+import de.impelon.misc.LongHashSet;
 
 /**
  * <p> Implementation of IRegion for a cuboid region. </p>
@@ -20,7 +23,7 @@ import de.impelon.geotools.area.RectangularArea;
  * @author Impelon
  *
  */
-public class CuboidRegion extends RectangularArea implements IRegion {
+public class CuboidRegion extends RectangularArea implements IVersionedRegion {
 	
 	/**
 	 * <p> Create a CuboidRegion from two given corner-{@linkplain Locations}. </p>
@@ -71,6 +74,15 @@ public class CuboidRegion extends RectangularArea implements IRegion {
 		super(start, end, world);
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 * <p> CuboidRegions are immutable, so this is always 0. </p>
+	 */
+	@Override
+	public long getModificationCount() {
+		return 0;
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -113,6 +125,26 @@ public class CuboidRegion extends RectangularArea implements IRegion {
 				(pos.getZ() <= this.endPos.getZ() && pos.getZ() >= this.startPos.getZ());
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 * <p> Compares the coordinates directly without creating any objects. </p>
+	 */
+	@Override
+	public int getOverlaps(double[] xs, double[] ys, double[] zs, long[] result) throws IllegalArgumentException {
+		return getOverlaps(xs, ys, zs, result, this.startPos.getX(), this.startPos.getY(), this.startPos.getZ(),
+				this.endPos.getX(), this.endPos.getY(), this.endPos.getZ());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Compares the coordinates directly without creating any objects. </p>
+	 */
+	@Override
+	public int getOverlaps(double[] positions, long[] result) throws IllegalArgumentException {
+		return getOverlaps(positions, result, this.startPos.getX(), this.startPos.getY(), this.startPos.getZ(),
+				this.endPos.getX(), this.endPos.getY(), this.endPos.getZ());
+	}
+	
 	
 	/**
 	 * {@inheritDoc}
@@ -141,6 +173,14 @@ public class CuboidRegion extends RectangularArea implements IRegion {
 						region.getOverlap(this.startPos) || region.getOverlap(this.endPos));
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public BoundingBox getBoundingBox() {
+		return new BoundingBox(this.startPos, this.endPos);
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -164,25 +204,8 @@ public class CuboidRegion extends RectangularArea implements IRegion {
 	public IRegion getModifiedRegion(RegionFormat format) {
 		switch (format) {
 		case HOLLOW:
-			PositionRegion region = new PositionRegion(this);
-			region.remove(this.getModifiedRegion(RegionFormat.ENCLOSED));
-			return region;
 		case WIREFRAME:
-			HashSet<Vector> set = new HashSet<Vector>();
-			iterator().forEachRemaining(new Consumer<Vector>() {
-
-				@Override
-				public void accept(Vector v) {
-					if (((v.getBlockX() == getStartPosition().getBlockX() || v.getBlockX() == getEndPosition().getBlockX()) &&
-						(v.getBlockY() == getStartPosition().getBlockY() || v.getBlockY() == getEndPosition().getBlockY())) ||
-						((v.getBlockX() == getStartPosition().getBlockX() || v.getBlockX() == getEndPosition().getBlockX()) &&
-						(v.getBlockZ() == getStartPosition().getBlockZ() || v.getBlockZ() == getEndPosition().getBlockZ())) ||
-						((v.getBlockY() == getStartPosition().getBlockY() || v.getBlockY() == getEndPosition().getBlockY()) &&
-						(v.getBlockZ() == getStartPosition().getBlockZ() || v.getBlockZ() == getEndPosition().getBlockZ())))
-						set.add(v);
-				}
-			});
-			return new PositionRegion(this.getWorld(), set);
+			return new CuboidOutlineRegion(this, format);
 		case FLOORED:
 			return new CuboidRegion(this.getStartPosition().toLocation(this.getWorld()), this.getEndPosition().toLocation(this.getWorld()), true);
 		case ENCLOSED:
@@ -205,28 +228,164 @@ public class CuboidRegion extends RectangularArea implements IRegion {
 			private long x = 0;
 			private long y = 0;
 			private long z = 0;
-			private final Vector direction = endPos.clone().subtract(startPos).divide(new Vector(Math.max(getBlockLength(Axis.X) - 1, 1), Math.max(getBlockLength(Axis.Y) - 1, 1), Math.max(getBlockLength(Axis.Z) - 1, 1)));
+			private final long xLength = getBlockLength(Axis.X);
+			private final long yLength = getBlockLength(Axis.Y);
+			private final long zLength = getBlockLength(Axis.Z);
+			private final Vector direction = getIterationStep();
 
 			@Override
 			public boolean hasNext() {
-				return this.z < getBlockLength(Axis.Z);
+				return this.z < this.zLength;
 			}
 
 			@Override
 			public Vector next() {
-				Vector vector = startPos.clone().add(new Vector(x, y, z).multiply(direction));
-				x = (x + 1) % getBlockLength(Axis.X);
-				if (x == 0) {
-					y = (y + 1) % getBlockLength(Axis.Y);
-					if (y == 0)
+				Vector vector = new Vector(startPos.getX() + x * direction.getX(), startPos.getY() + y * direction.getY(), startPos.getZ() + z * direction.getZ());
+				if (++x == this.xLength) {
+					x = 0;
+					if (++y == this.yLength) {
+						y = 0;
 						z++;
-				}	
+					}
+				}
 				return vector;
 			}
 		};
 		return iterator;
 	}
 	
+	/**
+	 * <p> Returns the distance between two consecutive Vectors on each axis when iterating. </p>
+	 * 
+	 * @return The Vector of the distances
+	 */
+	protected Vector getIterationStep() {
+		return this.endPos.clone().subtract(this.startPos).divide(new Vector(Math.max(this.getBlockLength(Axis.X) - 1, 1),
+				Math.max(this.getBlockLength(Axis.Y) - 1, 1), Math.max(this.getBlockLength(Axis.Z) - 1, 1)));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Splits exactly by ranges of the index of each Vector in iteration-order. </p>
+	 */
+	@Override
+	public Spliterator<Vector> spliterator() {
+		return new BlockSpliterator(0, this.getBlockVolume());
+	}
+	
+	/**
+	 * <p> Spliterator over a range of Vectors in iteration-order. </p>
+	 */
+	protected class BlockSpliterator implements Spliterator<Vector> {
+		
+		protected long index;
+		protected final long end;
+		protected final long xLength = getBlockLength(Axis.X);
+		protected final long yLength = getBlockLength(Axis.Y);
+		protected final Vector direction = getIterationStep();
+		
+		protected BlockSpliterator(long index, long end) {
+			this.index = index;
+			this.end = end;
+		}
+		
+		protected Vector getVector(long x, long y, long z) {
+			return new Vector(startPos.getX() + x * this.direction.getX(), startPos.getY() + y * this.direction.getY(), startPos.getZ() + z * this.direction.getZ());
+		}
+		
+		@Override
+		public boolean tryAdvance(Consumer<? super Vector> action) {
+			if (this.index >= this.end)
+				return false;
+			long row = this.index / this.xLength;
+			action.accept(this.getVector(this.index % this.xLength, row % this.yLength, row / this.yLength));
+			this.index++;
+			return true;
+		}
+		
+		@Override
+		public void forEachRemaining(Consumer<? super Vector> action) {
+			if (this.index >= this.end)
+				return;
+			long row = this.index / this.xLength;
+			long x = this.index % this.xLength, y = row % this.yLength, z = row / this.yLength;
+			for (; this.index < this.end; this.index++) {
+				action.accept(this.getVector(x, y, z));
+				if (++x == this.xLength) {
+					x = 0;
+					if (++y == this.yLength) {
+						y = 0;
+						z++;
+					}
+				}
+			}
+		}
+		
+		@Override
+		public Spliterator<Vector> trySplit() {
+			long middle = (this.index + this.end) >>> 1;
+			if (middle <= this.index)
+				return null;
+			BlockSpliterator prefix = new BlockSpliterator(this.index, middle);
+			this.index = middle;
+			return prefix;
+		}
+		
+		@Override
+		public long estimateSize() {
+			return this.end - this.index;
+		}
+		
+		@Override
+		public int characteristics() {
+			return Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SIZED | Spliterator.SUBSIZED
+					| Spliterator.NONNULL | Spliterator.IMMUTABLE;
+		}
+	
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void forEachBlock(IBlockVisitor visitor) {
+		int minX = this.startPos.getBlockX(), minY = this.startPos.getBlockY(), minZ = this.startPos.getBlockZ();
+		int maxX = this.endPos.getBlockX(), maxY = this.endPos.getBlockY(), maxZ = this.endPos.getBlockZ();
+		for (int z = minZ; z <= maxZ; z++)
+			for (int y = minY; y <= maxY; y++)
+				for (int x = minX; x <= maxX; x++)
+					visitor.visit(x, y, z);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> The parts are computed directly as floored CuboidRegions clipped to each chunk. </p>
+	 */
+	@Override
+	public void forEachChunk(IChunkVisitor visitor) {
+		int minX = this.startPos.getBlockX(), minY = this.startPos.getBlockY(), minZ = this.startPos.getBlockZ();
+		int maxX = this.endPos.getBlockX(), maxY = this.endPos.getBlockY(), maxZ = this.endPos.getBlockZ();
+		for (int chunkX = minX >> 4; chunkX <= maxX >> 4; chunkX++)
+			for (int chunkZ = minZ >> 4; chunkZ <= maxZ >> 4; chunkZ++)
+				visitor.visit(chunkX, chunkZ, new CuboidRegion(new Vector(Math.max(minX, chunkX << 4), minY, Math.max(minZ, chunkZ << 4)),
+						new Vector(Math.min(maxX, (chunkX << 4) + 15), maxY, Math.min(maxZ, (chunkZ << 4) + 15)), this.getWorld()));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> The chunks are computed directly from the range of chunks between the corners. </p>
+	 */
+	@Override
+	public LongHashSet getChunks() {
+		int minChunkX = this.startPos.getBlockX() >> 4, minChunkZ = this.startPos.getBlockZ() >> 4;
+		int maxChunkX = this.endPos.getBlockX() >> 4, maxChunkZ = this.endPos.getBlockZ() >> 4;
+		LongHashSet chunks = new LongHashSet((int) Math.min(1 << 16, (long) (maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1)));
+		for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++)
+			for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++)
+				chunks.add(PackedPosition.packChunk(chunkX, chunkZ));
+		return chunks;
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
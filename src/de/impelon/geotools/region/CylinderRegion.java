@@ -0,0 +1,130 @@
+package de.impelon.geotools.region;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.util.Vector;
+
+/**
+ * <p> Implementation of IRegion for an upright cylindrical region. </p>
+ * 
+ * @see ScanlineRegion
+ * 
+ * @author Impelon
+ *
+ */
+public class CylinderRegion extends ScanlineRegion {
+	
+	protected final Vector base;
+	protected final double radius;
+	protected final double height;
+	
+	/**
+	 * <p> Create a CylinderRegion from the center-{@linkplain Location} of its bottom, its radius and its height. </p>
+	 * 
+	 * @param base the center of the bottom of the CylinderRegion
+	 * @param radius the radius
+	 * @param height the height
+	 * @throws IllegalArgumentException if the radius is not positive or the height is negative
+	 */
+	public CylinderRegion(Location base, double radius, double height) throws IllegalArgumentException {
+		this(base.toVector(), radius, height, base.getWorld());
+	}
+	
+	/**
+	 * <p> Create a CylinderRegion from the center of its bottom, its radius, its height and a {@linkplain World}. </p>
+	 * 
+	 * @param base the center of the bottom of the CylinderRegion
+	 * @param radius the radius
+	 * @param height the height
+	 * @param world the {@linkplain World} this CylinderRegion is in
+	 * @throws IllegalArgumentException if the radius is not positive or the height is negative
+	 */
+	public CylinderRegion(Vector base, double radius, double height, World world) throws IllegalArgumentException {
+		super(world);
+		if (!(radius > 0))
+			throw new IllegalArgumentException("Cannot create an Region with a radius that is not positive");
+		if (!(height >= 0))
+			throw new IllegalArgumentException("Cannot create an Region with a negative height");
+		this.base = base.clone();
+		this.radius = radius;
+		this.height = height;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(double x, double y, double z) {
+		double dx = x - this.base.getX(), dz = z - this.base.getZ();
+		return y >= this.base.getY() && y <= this.base.getY() + this.height && dx * dx + dz * dz <= this.radius * this.radius;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected double[] getExtent() {
+		return new double[] {this.base.getX() - this.radius, this.base.getY(), this.base.getZ() - this.radius,
+				this.base.getX() + this.radius, this.base.getY() + this.height, this.base.getZ() + this.radius};
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected boolean getSpan(int y, int z, int[] span) {
+		if (y < this.base.getY() || y > this.base.getY() + this.height)
+			return false;
+		double dz = z - this.base.getZ();
+		double remaining = this.radius * this.radius - dz * dz;
+		if (remaining < 0)
+			return false;
+		double half = Math.sqrt(remaining);
+		return this.fitSpan(y, z, this.base.getX() - half, this.base.getX() + half, span);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> This is the area of the circle covered when looking from above. </p>
+	 */
+	@Override
+	public double getSurfaceArea() {
+		return Math.PI * this.radius * this.radius;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getVolume() {
+		return this.getSurfaceArea() * this.height;
+	}
+	
+	/**
+	 * <p> Returns the center of the bottom of this CylinderRegion. </p>
+	 * 
+	 * @return A copy of the center
+	 */
+	public Vector getBase() {
+		return this.base.clone();
+	}
+	
+	/**
+	 * <p> Returns the radius of this CylinderRegion. </p>
+	 * 
+	 * @return The radius
+	 */
+	public double getRadius() {
+		return this.radius;
+	}
+	
+	/**
+	 * <p> Returns the height of this CylinderRegion. </p>
+	 * 
+	 * @return The height
+	 */
+	public double getHeight() {
+		return this.height;
+	}
+	
+}
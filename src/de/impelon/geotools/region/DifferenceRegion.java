@@ -0,0 +1,85 @@
+package de.impelon.geotools.region;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.function.Predicate;
+
+import org.bukkit.util.Vector;
+
+import de.impelon.geotools.BoundingBox;
+
+/**
+ * <p> Implementation of IRegion for the difference of Regions. </p>
+ * <p> Contains every Position that is within the first Region but none of the others. </p>
+ * 
+ * @author Impelon
+ *
+ */
+public class DifferenceRegion extends CompositeRegion {
+	
+	/**
+	 * <p> Create a DifferenceRegion removing the given Regions from another Region. </p>
+	 * 
+	 * @param region the Region to remove from
+	 * @param removed the Regions to remove
+	 * @throws IllegalArgumentException if the Regions are not in the same World
+	 */
+	public DifferenceRegion(IRegion region, IRegion... removed) throws IllegalArgumentException {
+		super(prepend(region, removed));
+	}
+	
+	/**
+	 * <p> Returns an array beginning with the given Region followed by the other given Regions. </p>
+	 * 
+	 * @return The IRegion[]
+	 */
+	protected static IRegion[] prepend(IRegion region, IRegion... regions) {
+		IRegion[] array = new IRegion[regions.length + 1];
+		array[0] = region;
+		System.arraycopy(regions, 0, array, 1, regions.length);
+		return array;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Uses the BoundingBox of the first Region. </p>
+	 */
+	@Override
+	protected BoundingBox calculateBoundingBox() {
+		return this.getBoundingBox(0);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected boolean contains(Vector pos) {
+		if (!this.regions[0].getOverlap(pos))
+			return false;
+		for (int i = 1; i < this.regions.length; i++)
+			if (this.getOverlap(i, pos))
+				return false;
+		return true;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Iterates over the first Region, skipping Positions that are within any of the others. </p>
+	 */
+	@Override
+	public Iterator<Vector> iterator() {
+		if (this.getBoundingBox() == null)
+			return Collections.emptyIterator();
+		return filter(this.regions[0].iterator(), new Predicate<Vector>() {
+			
+			@Override
+			public boolean test(Vector v) {
+				for (int i = 1; i < regions.length; i++)
+					if (getOverlap(i, v))
+						return false;
+				return true;
+			}
+		});
+	}
+
+}
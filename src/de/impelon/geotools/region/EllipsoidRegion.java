@@ -0,0 +1,119 @@
+package de.impelon.geotools.region;
+
+import org.bukkit.World;
+import org.bukkit.util.Vector;
+
+import de.impelon.geotools.Axis;
+
+/**
+ * <p> Implementation of IRegion for an ellipsoid region, whose axes are aligned with the coordinate-axes. </p>
+ * 
+ * @see ScanlineRegion
+ * 
+ * @author Impelon
+ *
+ */
+public class EllipsoidRegion extends ScanlineRegion {
+	
+	protected final Vector center;
+	protected final double radiusX;
+	protected final double radiusY;
+	protected final double radiusZ;
+	
+	/**
+	 * <p> Create an EllipsoidRegion from its center, its radii and a {@linkplain World}. </p>
+	 * 
+	 * @param center the center of the EllipsoidRegion
+	 * @param radiusX the radius along the x-axis
+	 * @param radiusY the radius along the y-axis
+	 * @param radiusZ the radius along the z-axis
+	 * @param world the {@linkplain World} this EllipsoidRegion is in
+	 * @throws IllegalArgumentException if any radius is not positive
+	 */
+	public EllipsoidRegion(Vector center, double radiusX, double radiusY, double radiusZ, World world) throws IllegalArgumentException {
+		super(world);
+		if (!(radiusX > 0 && radiusY > 0 && radiusZ > 0))
+			throw new IllegalArgumentException("Cannot create an Region with a radius that is not positive");
+		this.center = center.clone();
+		this.radiusX = radiusX;
+		this.radiusY = radiusY;
+		this.radiusZ = radiusZ;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(double x, double y, double z) {
+		double dx = (x - this.center.getX()) / this.radiusX, dy = (y - this.center.getY()) / this.radiusY, dz = (z - this.center.getZ()) / this.radiusZ;
+		return dx * dx + dy * dy + dz * dz <= 1;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected double[] getExtent() {
+		return new double[] {this.center.getX() - this.radiusX, this.center.getY() - this.radiusY, this.center.getZ() - this.radiusZ,
+				this.center.getX() + this.radiusX, this.center.getY() + this.radiusY, this.center.getZ() + this.radiusZ};
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected boolean getSpan(int y, int z, int[] span) {
+		double dy = (y - this.center.getY()) / this.radiusY, dz = (z - this.center.getZ()) / this.radiusZ;
+		double remaining = 1 - dy * dy - dz * dz;
+		if (remaining < 0)
+			return false;
+		double half = this.radiusX * Math.sqrt(remaining);
+		return this.fitSpan(y, z, this.center.getX() - half, this.center.getX() + half, span);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> This is the area of the ellipse covered when looking from above. </p>
+	 */
+	@Override
+	public double getSurfaceArea() {
+		return Math.PI * this.radiusX * this.radiusZ;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getVolume() {
+		return 4.0 / 3.0 * Math.PI * this.radiusX * this.radiusY * this.radiusZ;
+	}
+	
+	/**
+	 * <p> Returns the center of this EllipsoidRegion. </p>
+	 * 
+	 * @return A copy of the center
+	 */
+	public Vector getCenter() {
+		return this.center.clone();
+	}
+	
+	/**
+	 * <p> Returns the radius of this EllipsoidRegion along the given axis. </p>
+	 * 
+	 * @param axis the axis
+	 * @return The radius
+	 */
+	public double getRadius(Axis axis) {
+		switch (axis) {
+		case X:
+			return this.radiusX;
+		case Y:
+			return this.radiusY;
+		case Z:
+			return this.radiusZ;
+		default:
+			return 0;
+		}
+	}
+	
+}
@@ -0,0 +1,403 @@
+package de.impelon.geotools.region;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.util.NumberConversions;
+import org.bukkit.util.Vector;
+
+import de.impelon.geotools.Axis;
+import de.impelon.geotools.BoundingBox;
+import de.impelon.geotools.RegionFormat;
+import de.impelon.geotools.area.IArea;
+import de.impelon.misc.LongHashSet;
+
+/**
+ * <p> Immutable snapshot of the Positions of a Region. </p>
+ * <p> The Positions are copied once when the snapshot is created and never modified afterwards;
+ * all statistics (lengths, volume, surface area, BoundingBox) are calculated eagerly and stored in final fields.
+ * A FrozenRegion can therefore be shared with and read from any thread without synchronization. </p>
+ * <p> Regions that are not PositionRegions are stored as packed Block-Positions.
+ * The Vectors returned by this Region are never the stored ones, so modifying them has no effect. </p>
+ * 
+ * @see PositionRegion#freeze()
+ * @see CopyOnWriteRegion
+ * @author Impelon
+ *
+ */
+public class FrozenRegion implements IVersionedRegion {
+	
+	protected final World world;
+	protected final Set<Vector> positions;
+	protected final double minX;
+	protected final double minY;
+	protected final double minZ;
+	protected final double maxX;
+	protected final double maxY;
+	protected final double maxZ;
+	protected final double surfaceArea;
+	protected final long blockSurfaceArea;
+	protected final long blockVolume;
+	protected final boolean blockAligned;
+	protected final BoundingBox boundingBox;
+	protected volatile LongHashSet chunks = null;
+	
+	/**
+	 * <p> Create a FrozenRegion from a snapshot of another Region. </p>
+	 * <p> PositionRegions keep their storage (packed or not), other Regions are stored as packed Block-Positions.
+	 * Has to be called from the thread modifying the given Region. </p>
+	 * 
+	 * @param region Region to create the snapshot of
+	 */
+	public FrozenRegion(IRegion region) {
+		this(region.getWorld(), copyPositions(region));
+	}
+	
+	/**
+	 * <p> Create a FrozenRegion taking ownership of the given Set of Vectors. </p>
+	 * <p> The Set (and the Vectors within it) must not be modified or shared afterwards. </p>
+	 * 
+	 * @param positions a Set with all Vectors this Region should contain
+	 */
+	protected FrozenRegion(World world, Set<Vector> positions) {
+		this.world = world;
+		this.positions = positions;
+		PositionRegion statistics = new PositionRegion(world, positions);
+		this.blockAligned = statistics.isBlockAligned();
+		this.surfaceArea = statistics.getSurfaceArea();
+		this.blockSurfaceArea = statistics.getBlockSurfaceArea();
+		this.blockVolume = statistics.getBlockVolume();
+		this.boundingBox = statistics.getBoundingBox();
+		if (positions.isEmpty()) {
+			this.minX = this.minY = this.minZ = 0;
+			this.maxX = this.maxY = this.maxZ = 0;
+		} else {
+			this.minX = statistics.minimum.getX();
+			this.minY = statistics.minimum.getY();
+			this.minZ = statistics.minimum.getZ();
+			this.maxX = statistics.maximum.getX();
+			this.maxY = statistics.maximum.getY();
+			this.maxZ = statistics.maximum.getZ();
+		}
+	}
+	
+	/**
+	 * <p> Copies the Positions of a Region, cloning all Vectors that are not packed. </p>
+	 * 
+	 * @return The Set<Vector>
+	 */
+	protected static Set<Vector> copyPositions(IRegion region) {
+		if (region instanceof FrozenRegion)
+			return ((FrozenRegion) region).copyPositionSet();
+		if (!(region instanceof PositionRegion))
+			return new PackedPositionSet(region);
+		PositionRegion positions = (PositionRegion) region;
+		if (positions.isPacked())
+			return positions.copyPositionSet();
+		HashSet<Vector> copy = new HashSet<Vector>((int) (positions.positions.size() / 0.75f) + 1);
+		for (Vector v : positions.positions)
+			copy.add(v.clone());
+		return copy;
+	}
+	
+	/**
+	 * <p> Determines if this FrozenRegion stores its Positions as packed Block-Positions. </p>
+	 * 
+	 * @return Whether this Region is packed
+	 */
+	public boolean isPacked() {
+		return this.positions instanceof PackedPositionSet;
+	}
+	
+	/**
+	 * <p> Determines if all Positions of this FrozenRegion are Block-Positions (have integer coordinates). </p>
+	 * 
+	 * @return Whether this Region is aligned to Blocks
+	 */
+	public boolean isBlockAligned() {
+		return this.blockAligned;
+	}
+	
+	/**
+	 * <p> Creates a mutable copy of the Positions using the same storage as this FrozenRegion. </p>
+	 * 
+	 * @return The Set<Vector>
+	 */
+	protected Set<Vector> copyPositionSet() {
+		if (this.isPacked())
+			return new PackedPositionSet(this.positions);
+		HashSet<Vector> copy = new HashSet<Vector>((int) (this.positions.size() / 0.75f) + 1);
+		for (Vector v : this.positions)
+			copy.add(v.clone());
+		return copy;
+	}
+	
+	/**
+	 * <p> Returns a new mutable PositionRegion containing the Positions of this FrozenRegion. </p>
+	 * 
+	 * @return The PositionRegion
+	 */
+	public PositionRegion toPositionRegion() {
+		return new PositionRegion(this.getWorld(), this.copyPositionSet());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> FrozenRegions are immutable, so this is always 0. </p>
+	 */
+	@Override
+	public long getModificationCount() {
+		return 0;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public World getWorld() {
+		return this.world;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getLength(Axis axis) {
+		switch (axis) {
+		case X:
+			return this.maxX - this.minX;
+		case Y:
+			return this.maxY - this.minY;
+		case Z:
+			return this.maxZ - this.minZ;
+		default:
+			return 0;
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getBlockLength(Axis axis) {
+		return NumberConversions.ceil(this.getLength(axis));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public BoundingBox getBoundingBox() {
+		return this.boundingBox;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getSurfaceArea() {
+		return this.surfaceArea;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getBlockSurfaceArea() {
+		return this.blockSurfaceArea;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getVolume() {
+		return this.positions.size();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getBlockVolume() {
+		return this.blockVolume;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(Location pos) {
+		return pos.getWorld() == this.getWorld() && this.getOverlap(pos.toVector());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(Vector pos) {
+		return this.positions.contains(pos);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(IArea area) {
+		if (area.getWorld() != this.getWorld())
+			return false;
+		for (Iterator<Vector> iterator = this.iterator(); iterator.hasNext();)
+			if (area.getOverlap(iterator.next()))
+				return true;
+		return false;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(IRegion region) {
+		if (region.getWorld() != this.getWorld())
+			return false;
+		for (Iterator<Vector> iterator = this.iterator(); iterator.hasNext();)
+			if (region.getOverlap(iterator.next()))
+				return true;
+		return false;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> The modified Region is a new mutable PositionRegion, calculated as by {@linkplain PositionRegion#getModifiedRegion(RegionFormat)}. </p>
+	 */
+	@Override
+	public IRegion getModifiedRegion(RegionFormat format) {
+		// packed Positions are copied by value, so the shared Set can be read directly
+		if (this.isPacked())
+			return new PositionRegion(this.getWorld(), this.positions).getModifiedRegion(format);
+		PositionRegion copy = this.toPositionRegion();
+		return format == RegionFormat.FULL ? copy : copy.getModifiedRegion(format);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> The Iterator does not support removing Positions. </p>
+	 */
+	@Override
+	public Iterator<Vector> iterator() {
+		final Iterator<Vector> positioniterator = this.positions.iterator();
+		if (this.isPacked())
+			return new Iterator<Vector>() {
+				
+				@Override
+				public boolean hasNext() {
+					return positioniterator.hasNext();
+				}
+				
+				@Override
+				public Vector next() {
+					return positioniterator.next();
+				}
+			};
+		Iterator<Vector> iterator = new Iterator<Vector>() {
+			
+			@Override
+			public boolean hasNext() {
+				return positioniterator.hasNext();
+			}
+			
+			@Override
+			public Vector next() {
+				return positioniterator.next().clone();
+			}
+		};
+		return iterator;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> If this Region is not packed, a Block is visited once for every Position within it. </p>
+	 */
+	@Override
+	public void forEachBlock(IBlockVisitor visitor) {
+		if (this.isPacked())
+			((PackedPositionSet) this.positions).forEachBlock(visitor);
+		else
+			for (Vector v : this.positions)
+				visitor.visit(v.getBlockX(), v.getBlockY(), v.getBlockZ());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> The chunks are calculated once, when first requested; a copy is returned. </p>
+	 */
+	@Override
+	public LongHashSet getChunks() {
+		LongHashSet chunks = this.chunks;
+		if (chunks == null)
+			this.chunks = chunks = IVersionedRegion.super.getChunks();
+		return new LongHashSet(chunks);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> If this Region is packed, splits by segments of the table backing the Positions. </p>
+	 */
+	@Override
+	public Spliterator<Vector> spliterator() {
+		if (this.isPacked())
+			return this.positions.spliterator();
+		return Spliterators.spliterator(this.iterator(), this.positions.size(),
+				Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<Location> getLocationIterator() {
+		final Iterator<Vector> vectoriterator = this.iterator();
+		Iterator<Location> iterator = new Iterator<Location>() {
+			
+			@Override
+			public boolean hasNext() {
+				return vectoriterator.hasNext();
+			}
+			
+			@Override
+			public Location next() {
+				return vectoriterator.next().toLocation(getWorld());
+			}
+		};
+		return iterator;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<Vector> getVectors() {
+		ArrayList<Vector> vectors = new ArrayList<Vector>(this.positions.size());
+		for (Iterator<Vector> iterator = this.iterator(); iterator.hasNext();)
+			vectors.add(iterator.next());
+		return vectors;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<Location> getLocations() {
+		ArrayList<Location> locations = new ArrayList<Location>(this.positions.size());
+		for (Iterator<Location> iterator = this.getLocationIterator(); iterator.hasNext();)
+			locations.add(iterator.next());
+		return locations;
+	}
+
+}
@@ -0,0 +1,23 @@
+package de.impelon.geotools.region;
+
+/**
+ * <p> Callback receiving the Block-coordinates of the Blocks within a Region. </p>
+ * 
+ * @see IRegion#forEachBlock(IBlockVisitor)
+ * 
+ * @author Impelon
+ *
+ */
+@FunctionalInterface
+public interface IBlockVisitor {
+	
+	/**
+	 * <p> Called for a Block within the visited Region. </p>
+	 * 
+	 * @param x the x-coordinate of the Block
+	 * @param y the y-coordinate of the Block
+	 * @param z the z-coordinate of the Block
+	 */
+	public abstract void visit(int x, int y, int z);
+
+}
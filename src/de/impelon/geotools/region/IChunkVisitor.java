@@ -0,0 +1,23 @@
+package de.impelon.geotools.region;
+
+/**
+ * <p> Callback receiving the parts of a Region within each chunk. </p>
+ * 
+ * @see IRegion#forEachChunk(IChunkVisitor)
+ * 
+ * @author Impelon
+ *
+ */
+@FunctionalInterface
+public interface IChunkVisitor {
+	
+	/**
+	 * <p> Called for a chunk containing Blocks of the visited Region. </p>
+	 * 
+	 * @param chunkX the x-coordinate of the chunk
+	 * @param chunkZ the z-coordinate of the chunk
+	 * @param region a Region containing exactly the Blocks of the visited Region within the chunk
+	 */
+	public abstract void visit(int chunkX, int chunkZ, IRegion region);
+
+}
@@ -1,13 +1,22 @@
 package de.impelon.geotools.region;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.bukkit.Location;
 import org.bukkit.util.Vector;
 
+import de.impelon.geotools.BoundingBox;
+import de.impelon.geotools.MortonOrder;
+import de.impelon.geotools.PackedPosition;
 import de.impelon.geotools.RegionFormat;
 import de.impelon.geotools.area.IArea;
+import de.impelon.misc.LongHashSet;
 
 /**
  * <p> Interface that specifies the methods of any Implementation of IRegion. </p>
@@ -62,6 +71,96 @@ public abstract interface IRegion extends IArea, Iterable<Vector> {
 	 */
 	public abstract List<Location> getLocations();
 	
+	/**
+	 * <p> Calls the given IBlockVisitor with the Block-coordinates of every Block within this Region. </p>
+	 * <p> Implementations do not create objects per Block, which makes this preferable
+	 * to iterating for bulk-operations on large Regions. </p>
+	 * 
+	 * @param visitor the IBlockVisitor to call
+	 */
+	public default void forEachBlock(IBlockVisitor visitor) {
+		for (Iterator<Vector> iterator = this.iterator(); iterator.hasNext();) {
+			Vector v = iterator.next();
+			visitor.visit(v.getBlockX(), v.getBlockY(), v.getBlockZ());
+		}
+	}
+	
+	/**
+	 * <p> Calls the given IChunkVisitor once for every chunk containing Blocks of this Region,
+	 * together with the part of this Region within that chunk. </p>
+	 * <p> Lets consumers fetch every {@linkplain org.bukkit.Chunk} or {@linkplain org.bukkit.ChunkSnapshot} once,
+	 * instead of looking it up for every Block. Chunks are visited sorted by their x- and then their z-coordinate. </p>
+	 * <p> By default all Blocks are bucketed by chunk first; the parts are packed PositionRegions. </p>
+	 * 
+	 * @param visitor the IChunkVisitor to call
+	 */
+	public default void forEachChunk(IChunkVisitor visitor) {
+		final HashMap<Long, LongHashSet> chunks = new HashMap<Long, LongHashSet>();
+		this.forEachBlock(new IBlockVisitor() {
+			
+			private long chunk;
+			private LongHashSet blocks = null;
+			
+			@Override
+			public void visit(int x, int y, int z) {
+				long chunk = PackedPosition.packChunk(x >> 4, z >> 4);
+				if (this.blocks == null || chunk != this.chunk) {
+					this.chunk = chunk;
+					this.blocks = chunks.get(chunk);
+					if (this.blocks == null)
+						chunks.put(chunk, this.blocks = new LongHashSet());
+				}
+				this.blocks.add(PackedPosition.pack(x, y, z));
+			}
+		});
+		List<Long> keys = new ArrayList<Long>(chunks.keySet());
+		Collections.sort(keys);
+		for (Long chunk : keys)
+			visitor.visit(PackedPosition.getChunkX(chunk), PackedPosition.getChunkZ(chunk),
+					new PositionRegion(this.getWorld(), new PackedPositionSet(chunks.remove(chunk))));
+	}
+	
+	/**
+	 * <p> Returns the chunks containing Blocks of this Region as packed chunk-coordinates,
+	 * see {@linkplain PackedPosition#packChunk(int, int)}. </p>
+	 * <p> Lets consumers check which Regions a chunk touches when it is loaded or unloaded, see {@linkplain de.impelon.geotools.ChunkRegionIndex}.
+	 * By default all Blocks are visited; the returned set is newly created and may be modified. </p>
+	 * 
+	 * @return The LongHashSet of packed chunk-coordinates
+	 */
+	public default LongHashSet getChunks() {
+		final LongHashSet chunks = new LongHashSet();
+		this.forEachBlock(new IBlockVisitor() {
+			
+			private long chunk;
+			private boolean visited = false;
+			
+			@Override
+			public void visit(int x, int y, int z) {
+				long chunk = PackedPosition.packChunk(x >> 4, z >> 4);
+				if (!this.visited || chunk != this.chunk) {
+					this.chunk = chunk;
+					this.visited = true;
+					chunks.add(chunk);
+				}
+			}
+		});
+		return chunks;
+	}
+	
+	/**
+	 * <p> Returns an Iterator over the Blocks within this Region in Morton-order (Z-order). </p>
+	 * <p> Blocks close to each other are returned close to each other, so consumers accessing the World
+	 * stay within the same chunk for long stretches. All Blocks are collected and sorted first,
+	 * which needs one long per Block. </p>
+	 * 
+	 * @see MortonOrder
+	 * @return The Iterator<Vector>
+	 */
+	public default Iterator<Vector> getMortonIterator() {
+		return MortonOrder.iterator(MortonOrder.sort(this));
+	}
+	
 	/**
 	 * <p> Determines if another Region is within this Region. </p>
 	 * 
@@ -69,5 +168,50 @@ public abstract interface IRegion extends IArea, Iterable<Vector> {
 	 * @return Whether this Region overlaps with the given Region
 	 */
 	public abstract boolean getOverlap(IRegion region);
+	
+	/**
+	 * <p> Returns a sequential Stream over the Vectors within this Region. </p>
+	 * 
+	 * @return The Stream<Vector>
+	 */
+	public default Stream<Vector> stream() {
+		return StreamSupport.stream(this.spliterator(), false);
+	}
+	
+	/**
+	 * <p> Returns a parallel Stream over the Vectors within this Region. </p>
+	 * <p> How well the work is spread depends on how the {@linkplain IRegion#spliterator()} of the Region splits. </p>
+	 * 
+	 * @return The Stream<Vector>
+	 */
+	public default Stream<Vector> parallelStream() {
+		return StreamSupport.stream(this.spliterator(), true);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> By default this covers all Blocks of this Region, which requires iterating over it. </p>
+	 * 
+	 * @return The BoundingBox, or null if this Region is empty
+	 */
+	@Override
+	public default BoundingBox getBoundingBox() {
+		Iterator<Vector> iterator = this.iterator();
+		if (!iterator.hasNext())
+			return null;
+		Vector v = iterator.next();
+		int minX = v.getBlockX(), minY = v.getBlockY(), minZ = v.getBlockZ();
+		int maxX = minX, maxY = minY, maxZ = minZ;
+		while (iterator.hasNext()) {
+			v = iterator.next();
+			minX = Math.min(minX, v.getBlockX());
+			minY = Math.min(minY, v.getBlockY());
+			minZ = Math.min(minZ, v.getBlockZ());
+			maxX = Math.max(maxX, v.getBlockX());
+			maxY = Math.max(maxY, v.getBlockY());
+			maxZ = Math.max(maxZ, v.getBlockZ());
+		}
+		return BoundingBox.ofBlocks(minX, minY, minZ, maxX, maxY, maxZ);
+	}
 
 }
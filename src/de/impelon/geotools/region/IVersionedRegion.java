@@ -0,0 +1,24 @@
+package de.impelon.geotools.region;
+
+/**
+ * <p> Interface for Regions that count their modifications. </p>
+ * <p> Used to detect if results derived from a Region (for example its modified Regions) are outdated.
+ * Immutable Regions may always return the same value. </p>
+ * 
+ * @see ModifiedRegionCache
+ * 
+ * @author Impelon
+ *
+ */
+public abstract interface IVersionedRegion extends IRegion {
+	
+	/**
+	 * <p> Returns the amount of modifications of this Region. </p>
+	 * <p> The value changes whenever the Positions of this Region (may) have changed;
+	 * it is incremented after the modification is visible. </p>
+	 * 
+	 * @return The modification count
+	 */
+	public abstract long getModificationCount();
+
+}
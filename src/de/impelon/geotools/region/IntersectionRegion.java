@@ -0,0 +1,97 @@
+package de.impelon.geotools.region;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.function.Predicate;
+
+import org.bukkit.util.Vector;
+
+import de.impelon.geotools.BoundingBox;
+
+/**
+ * <p> Implementation of IRegion for the intersection of other Regions. </p>
+ * <p> Contains every Position that is within all of the Regions. </p>
+ * 
+ * @author Impelon
+ *
+ */
+public class IntersectionRegion extends CompositeRegion {
+	
+	/**
+	 * <p> Create an IntersectionRegion of the given Regions. </p>
+	 * 
+	 * @param regions the Regions to intersect
+	 * @throws IllegalArgumentException if no Regions are given or they are not in the same World
+	 */
+	public IntersectionRegion(IRegion... regions) throws IllegalArgumentException {
+		super(regions);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Intersects the BoundingBoxes of all Regions. </p>
+	 */
+	@Override
+	protected BoundingBox calculateBoundingBox() {
+		BoundingBox box = this.getBoundingBox(0);
+		for (int i = 1; i < this.regions.length && box != null; i++) {
+			BoundingBox other = this.getBoundingBox(i);
+			box = other == null ? null : box.intersection(other);
+		}
+		return box;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected boolean contains(Vector pos) {
+		for (int i = 0; i < this.regions.length; i++)
+			if (!this.getOverlap(i, pos))
+				return false;
+		return true;
+	}
+	
+	/**
+	 * <p> Returns the index of the Region with the least Blocks. </p>
+	 * 
+	 * @return The index of the smallest Region
+	 */
+	protected int getSmallestIndex() {
+		int smallest = 0;
+		long volume = Long.MAX_VALUE;
+		for (int i = 0; i < this.regions.length; i++) {
+			long other = this.regions[i].getBlockVolume();
+			if (other < volume) {
+				smallest = i;
+				volume = other;
+			}
+		}
+		return smallest;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Only iterates over the smallest Region, returning those Positions that are within all others. </p>
+	 */
+	@Override
+	public Iterator<Vector> iterator() {
+		final BoundingBox box = this.getBoundingBox();
+		if (box == null)
+			return Collections.emptyIterator();
+		final int smallest = this.getSmallestIndex();
+		return filter(this.regions[smallest].iterator(), new Predicate<Vector>() {
+			
+			@Override
+			public boolean test(Vector v) {
+				if (!box.contains(v))
+					return false;
+				for (int i = 0; i < regions.length; i++)
+					if (i != smallest && !getOverlap(i, v))
+						return false;
+				return true;
+			}
+		});
+	}
+
+}
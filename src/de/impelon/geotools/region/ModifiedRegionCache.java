@@ -0,0 +1,363 @@
+package de.impelon.geotools.region;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import de.impelon.geotools.RegionFormat;
+
+/**
+ * <p> Bounded cache for the results of {@linkplain IRegion#getModifiedRegion(RegionFormat)}. </p>
+ * <p> Results are cached per Region (compared by identity) and RegionFormat, together with the
+ * {@linkplain IVersionedRegion#getModificationCount() modification count} they were calculated at;
+ * a result is only reused while that count did not change. Regions not implementing IVersionedRegion are never cached. </p>
+ * <p> The memory used by the cached results is estimated from the way they store their Blocks; once it exceeds the budget,
+ * the least recently used results are evicted. Regions are only weakly referenced by this cache:
+ * results of Regions that were garbage-collected are dropped on the next access,
+ * and results still referencing the Region itself (like the full form of a ScanlineRegion) are returned without caching them. </p>
+ * <p> Mutable results are frozen ({@linkplain FrozenRegion}, {@linkplain SpanRegion#freeze()} or {@linkplain SectionedRegion#freeze()}),
+ * so cached results can be shared between callers (and threads) safely. This class is thread-safe. </p>
+ * 
+ * @author Impelon
+ *
+ */
+public class ModifiedRegionCache {
+	
+	// Estimated bytes per packed Block-Position (LongHashSet at 75% load) and per stored Vector (HashSet-entry and Vector).
+	protected static final long PACKED_POSITION_SIZE = 16;
+	protected static final long VECTOR_POSITION_SIZE = 96;
+	// Estimated bytes per row or section of a SpanRegion or SectionedRegion (HashMap-entry, boxed key and array-header).
+	protected static final long ROW_SIZE = 64;
+	// Estimated bytes of the fields of a Region and of the cache-entry referencing it.
+	protected static final long REGION_SIZE = 64;
+	protected static final long ENTRY_SIZE = 96;
+	
+	protected final long budget;
+	protected final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+	protected final ReferenceQueue<IRegion> queue = new ReferenceQueue<IRegion>();
+	protected long usage = 0;
+	protected long hits = 0;
+	protected long misses = 0;
+	protected long evictions = 0;
+	
+	/**
+	 * <p> Creates a new empty ModifiedRegionCache. </p>
+	 * 
+	 * @param budget the estimated amount of bytes the cached results may use
+	 * @throws IllegalArgumentException if the budget is not positive
+	 */
+	public ModifiedRegionCache(long budget) throws IllegalArgumentException {
+		if (budget <= 0)
+			throw new IllegalArgumentException("Cannot create a cache with a budget of " + budget + " bytes");
+		this.budget = budget;
+	}
+	
+	/**
+	 * <p> Returns a modified version of the given Region, reusing a cached result if it is still up to date. </p>
+	 * 
+	 * @see IRegion#getModifiedRegion(RegionFormat)
+	 * @param region the Region to modify
+	 * @param format Format of the modified region
+	 * @return The modified Region (must not be modified)
+	 */
+	public IRegion getModifiedRegion(IRegion region, RegionFormat format) {
+		if (!(region instanceof IVersionedRegion)) {
+			synchronized (this) {
+				this.misses++;
+			}
+			return region.getModifiedRegion(format);
+		}
+		long version = ((IVersionedRegion) region).getModificationCount();
+		Key key = new Key(region, format, null);
+		synchronized (this) {
+			this.expungeStaleEntries();
+			Entry entry = this.entries.get(key);
+			if (entry != null && entry.version == version) {
+				this.hits++;
+				return entry.region;
+			}
+			this.misses++;
+		}
+		IRegion modified = toImmutable(region.getModifiedRegion(format), region);
+		// caching a result referencing the Region would keep it from being garbage-collected
+		if (references(modified, region))
+			return modified;
+		long size = ENTRY_SIZE + estimateSize(modified);
+		synchronized (this) {
+			this.expungeStaleEntries();
+			Entry previous = this.entries.remove(key);
+			if (previous != null)
+				this.usage -= previous.size;
+			if (size <= this.budget) {
+				this.entries.put(new Key(region, format, this.queue), new Entry(version, modified, size));
+				this.usage += size;
+				this.evict();
+			}
+		}
+		return modified;
+	}
+	
+	/**
+	 * <p> Returns a result that can be shared safely, freezing Regions that can be modified. </p>
+	 * <p> Results that are newly created PositionRegions are frozen without copying them,
+	 * SpanRegions and SectionedRegions are frozen keeping their compact storage
+	 * and the original Regions of TransformedRegions are frozen and transformed again.
+	 * Outlines of the given Region are created again from a copy of it. </p>
+	 * 
+	 * @param modified the modified Region
+	 * @param region the Region it was calculated from
+	 * @return The immutable Region
+	 */
+	protected static IRegion toImmutable(IRegion modified, IRegion region) {
+		if (modified instanceof TransformedRegion) {
+			TransformedRegion transformed = (TransformedRegion) modified;
+			IRegion source = toImmutable(transformed.getSource(), region);
+			return source == transformed.getSource() ? modified : new TransformedRegion(source, transformed.getTransform());
+		}
+		if (modified instanceof CuboidOutlineRegion && ((CuboidOutlineRegion) modified).getCuboid() == region) {
+			CuboidRegion cuboid = (CuboidRegion) region;
+			return new CuboidOutlineRegion(new CuboidRegion(cuboid.getStartPosition(), cuboid.getEndPosition(), cuboid.getWorld()),
+					((CuboidOutlineRegion) modified).getFormat());
+		}
+		if (modified instanceof PositionRegion && modified != region)
+			return new FrozenRegion(modified.getWorld(), ((PositionRegion) modified).positions);
+		if (modified instanceof SpanRegion)
+			return ((SpanRegion) modified).isFrozen() ? modified : ((SpanRegion) modified).freeze();
+		if (modified instanceof SectionedRegion)
+			return ((SectionedRegion) modified).isFrozen() ? modified : ((SectionedRegion) modified).freeze();
+		if (modified instanceof CopyOnWriteRegion)
+			return ((CopyOnWriteRegion) modified).snapshot();
+		if (modified instanceof ConcurrentPositionRegion)
+			return ((ConcurrentPositionRegion) modified).freeze();
+		if (modified instanceof PositionRegion)
+			return new FrozenRegion(modified);
+		return modified;
+	}
+	
+	/**
+	 * <p> Determines if the given result references the Region it was calculated from. </p>
+	 * <p> Views of other Regions (TransformedRegions, CuboidOutlineRegions and CompositeRegions) are followed. </p>
+	 * 
+	 * @param modified the modified Region
+	 * @param region the Region it was calculated from
+	 * @return Whether the result is or references the Region
+	 */
+	protected static boolean references(IRegion modified, IRegion region) {
+		if (modified == region)
+			return true;
+		if (modified instanceof TransformedRegion)
+			return references(((TransformedRegion) modified).getSource(), region);
+		if (modified instanceof CuboidOutlineRegion)
+			return ((CuboidOutlineRegion) modified).getCuboid() == region;
+		if (modified instanceof CompositeRegion)
+			for (IRegion operand : ((CompositeRegion) modified).regions)
+				if (references(operand, region))
+					return true;
+		return false;
+	}
+	
+	/**
+	 * <p> Estimates the amount of bytes a cached result uses, depending on how it stores its Blocks. </p>
+	 * <p> Regions described by their shape (CuboidRegions and ScanlineRegions) have a fixed size;
+	 * Regions of unknown type are assumed to store every Block as a packed Block-Position. </p>
+	 * 
+	 * @param region the cached result
+	 * @return The estimated size in bytes
+	 */
+	protected static long estimateSize(IRegion region) {
+		if (region instanceof FrozenRegion) {
+			FrozenRegion frozen = (FrozenRegion) region;
+			return REGION_SIZE + frozen.positions.size() * (frozen.isPacked() ? PACKED_POSITION_SIZE : VECTOR_POSITION_SIZE);
+		}
+		if (region instanceof SpanRegion) {
+			long size = REGION_SIZE;
+			for (int[] spans : ((SpanRegion) region).rows.values())
+				size += ROW_SIZE + 4L * spans.length;
+			return size;
+		}
+		if (region instanceof SectionedRegion)
+			return REGION_SIZE + ((SectionedRegion) region).sections.size() * (ROW_SIZE + 8L * SectionedRegion.WORDS);
+		if (region instanceof TransformedRegion)
+			return REGION_SIZE + estimateSize(((TransformedRegion) region).getSource());
+		if (region instanceof CuboidRegion || region instanceof CuboidOutlineRegion || region instanceof ScanlineRegion)
+			return REGION_SIZE;
+		return REGION_SIZE + region.getBlockVolume() * PACKED_POSITION_SIZE;
+	}
+	
+	/**
+	 * <p> Removes the results of all Regions that were garbage-collected. </p>
+	 * <p> Has to be called while holding the lock of this cache. </p>
+	 */
+	protected void expungeStaleEntries() {
+		for (Reference<? extends IRegion> reference; (reference = this.queue.poll()) != null;) {
+			Entry entry = this.entries.remove(reference);
+			if (entry != null)
+				this.usage -= entry.size;
+		}
+	}
+	
+	/**
+	 * <p> Evicts the least recently used results until the memory usage is within the budget. </p>
+	 * <p> Has to be called while holding the lock of this cache. </p>
+	 */
+	protected void evict() {
+		for (Iterator<Entry> iterator = this.entries.values().iterator(); this.usage > this.budget && iterator.hasNext();) {
+			Entry entry = iterator.next();
+			iterator.remove();
+			this.usage -= entry.size;
+			this.evictions++;
+		}
+	}
+	
+	/**
+	 * <p> Removes all cached results of the given Region. </p>
+	 * 
+	 * @param region the Region
+	 */
+	public synchronized void invalidate(IRegion region) {
+		this.expungeStaleEntries();
+		for (RegionFormat format : RegionFormat.values()) {
+			Entry entry = this.entries.remove(new Key(region, format, null));
+			if (entry != null)
+				this.usage -= entry.size;
+		}
+	}
+	
+	/**
+	 * <p> Removes all cached results. </p>
+	 */
+	public synchronized void clear() {
+		this.expungeStaleEntries();
+		this.entries.clear();
+		this.usage = 0;
+	}
+	
+	/**
+	 * <p> Returns the amount of cached results. </p>
+	 * 
+	 * @return The size
+	 */
+	public synchronized int size() {
+		this.expungeStaleEntries();
+		return this.entries.size();
+	}
+	
+	/**
+	 * <p> Returns the estimated amount of bytes the cached results may use. </p>
+	 * 
+	 * @return The budget
+	 */
+	public long getMemoryBudget() {
+		return this.budget;
+	}
+	
+	/**
+	 * <p> Returns the estimated amount of bytes the cached results use. </p>
+	 * 
+	 * @return The usage
+	 */
+	public synchronized long getMemoryUsage() {
+		this.expungeStaleEntries();
+		return this.usage;
+	}
+	
+	/**
+	 * <p> Returns how often a cached result was reused. </p>
+	 * 
+	 * @return The amount of hits
+	 */
+	public synchronized long getHits() {
+		return this.hits;
+	}
+	
+	/**
+	 * <p> Returns how often a result had to be calculated. </p>
+	 * 
+	 * @return The amount of misses
+	 */
+	public synchronized long getMisses() {
+		return this.misses;
+	}
+	
+	/**
+	 * <p> Returns how often a result was evicted to stay within the budget. </p>
+	 * 
+	 * @return The amount of evictions
+	 */
+	public synchronized long getEvictions() {
+		return this.evictions;
+	}
+	
+	/**
+	 * <p> Returns the share of requests answered with a cached result. </p>
+	 * 
+	 * @return The hit-ratio between 0 and 1, or 0 if there were no requests
+	 */
+	public synchronized double getHitRatio() {
+		long requests = this.hits + this.misses;
+		return requests == 0 ? 0 : (double) this.hits / requests;
+	}
+	
+	/**
+	 * <p> Resets the amount of hits, misses and evictions. </p>
+	 */
+	public synchronized void resetStatistics() {
+		this.hits = 0;
+		this.misses = 0;
+		this.evictions = 0;
+	}
+	
+	/**
+	 * <p> Key of a cached result, referencing the Region weakly and comparing it by identity. </p>
+	 * <p> Keys stored in the cache are enqueued once their Region was garbage-collected;
+	 * a cleared Key is only equal to itself. </p>
+	 */
+	protected static class Key extends WeakReference<IRegion> {
+		
+		protected final RegionFormat format;
+		protected final int hash;
+		
+		protected Key(IRegion region, RegionFormat format, ReferenceQueue<IRegion> queue) {
+			super(region, queue);
+			this.format = format;
+			this.hash = 31 * System.identityHashCode(region) + format.hashCode();
+		}
+		
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if (this == o)
+				return true;
+			if (!(o instanceof Key))
+				return false;
+			Key other = (Key) o;
+			IRegion region = this.get();
+			return region != null && region == other.get() && this.format == other.format;
+		}
+	
+	}
+	
+	/**
+	 * <p> A cached result together with the modification count it was calculated at. </p>
+	 */
+	protected static class Entry {
+		
+		protected final long version;
+		protected final IRegion region;
+		protected final long size;
+		
+		protected Entry(long version, IRegion region, long size) {
+			this.version = version;
+			this.region = region;
+			this.size = size;
+		}
+	
+	}
+
+}
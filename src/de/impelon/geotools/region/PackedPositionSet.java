@@ -0,0 +1,232 @@
+package de.impelon.geotools.region;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+import org.bukkit.util.Vector;
+
+import de.impelon.geotools.PackedPosition;
+import de.impelon.misc.LongHashSet;
+
+/**
+ * <p> Set of Block-Positions stored as primitive longs (see {@linkplain PackedPosition}). </p>
+ * <p> Vectors are floored when added or checked and only created when iterating. </p>
+ * 
+ * @author Impelon
+ *
+ */
+public class PackedPositionSet extends AbstractSet<Vector> {
+	
+	protected final LongHashSet positions;
+	
+	/**
+	 * <p> Creates a new empty PackedPositionSet. </p>
+	 */
+	public PackedPositionSet() {
+		this.positions = new LongHashSet();
+	}
+	
+	/**
+	 * <p> Creates a new PackedPositionSet containing the Block-Positions of the given Vectors. </p>
+	 * 
+	 * @param vectors the Vectors this set should contain
+	 */
+	public PackedPositionSet(Iterable<? extends Vector> vectors) {
+		if (vectors instanceof PackedPositionSet)
+			this.positions = new LongHashSet(((PackedPositionSet) vectors).positions);
+		else if (vectors instanceof IRegion) {
+			this.positions = new LongHashSet();
+			((IRegion) vectors).forEachBlock(new IBlockVisitor() {
+				
+				@Override
+				public void visit(int x, int y, int z) {
+					positions.add(PackedPosition.pack(x, y, z));
+				}
+			});
+		} else {
+			this.positions = vectors instanceof Collection ? new LongHashSet(((Collection<?>) vectors).size()) : new LongHashSet();
+			for (Vector v : vectors)
+				this.positions.add(PackedPosition.pack(v));
+		}
+	}
+	
+	/**
+	 * <p> Creates a new PackedPositionSet backed by the given LongHashSet of packed positions. </p>
+	 * 
+	 * @param positions the packed positions
+	 */
+	public PackedPositionSet(LongHashSet positions) {
+		this.positions = positions;
+	}
+	
+	/**
+	 * <p> Returns the LongHashSet of packed positions backing this set. </p>
+	 * 
+	 * @return The LongHashSet
+	 */
+	public LongHashSet getPackedPositions() {
+		return this.positions;
+	}
+	
+	/**
+	 * <p> Calls the given IBlockVisitor with the Block-coordinates of every Block in this set. </p>
+	 * 
+	 * @param visitor the IBlockVisitor to call
+	 */
+	public void forEachBlock(IBlockVisitor visitor) {
+		this.positions.forEach(new LongConsumer() {
+			
+			@Override
+			public void accept(long packed) {
+				visitor.visit(PackedPosition.getX(packed), PackedPosition.getY(packed), PackedPosition.getZ(packed));
+			}
+		});
+	}
+	
+	@Override
+	public boolean add(Vector v) {
+		return this.positions.add(PackedPosition.pack(v));
+	}
+	
+	@Override
+	public boolean contains(Object o) {
+		return o instanceof Vector && this.positions.contains(PackedPosition.pack((Vector) o));
+	}
+	
+	@Override
+	public boolean remove(Object o) {
+		return o instanceof Vector && this.positions.remove(PackedPosition.pack((Vector) o));
+	}
+	
+	@Override
+	public boolean addAll(Collection<? extends Vector> c) {
+		if (c instanceof PackedPositionSet)
+			return this.positions.addAll(((PackedPositionSet) c).positions);
+		return super.addAll(c);
+	}
+	
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		return this.positions.removeAll(toPackedPositions(c));
+	}
+	
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		return this.positions.retainAll(toPackedPositions(c));
+	}
+	
+	@Override
+	public void clear() {
+		this.positions.clear();
+	}
+	
+	@Override
+	public int size() {
+		return this.positions.size();
+	}
+	
+	@Override
+	public Iterator<Vector> iterator() {
+		PrimitiveIterator.OfLong packediterator = this.positions.iterator();
+		Iterator<Vector> iterator = new Iterator<Vector>() {
+			
+			@Override
+			public boolean hasNext() {
+				return packediterator.hasNext();
+			}
+			
+			@Override
+			public Vector next() {
+				return PackedPosition.toVector(packediterator.nextLong());
+			}
+			
+			@Override
+			public void remove() {
+				packediterator.remove();
+			}
+		};
+		return iterator;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Splits by segments of the table of packed positions. </p>
+	 */
+	@Override
+	public Spliterator<Vector> spliterator() {
+		return new VectorSpliterator(this.positions.spliterator());
+	}
+	
+	/**
+	 * <p> Spliterator creating Vectors from a Spliterator over packed positions. </p>
+	 */
+	protected static class VectorSpliterator implements Spliterator<Vector> {
+		
+		protected final Spliterator.OfLong packed;
+		
+		protected VectorSpliterator(Spliterator.OfLong packed) {
+			this.packed = packed;
+		}
+		
+		@Override
+		public boolean tryAdvance(Consumer<? super Vector> action) {
+			return this.packed.tryAdvance(new LongConsumer() {
+				
+				@Override
+				public void accept(long value) {
+					action.accept(PackedPosition.toVector(value));
+				}
+			});
+		}
+		
+		@Override
+		public void forEachRemaining(Consumer<? super Vector> action) {
+			this.packed.forEachRemaining(new LongConsumer() {
+				
+				@Override
+				public void accept(long value) {
+					action.accept(PackedPosition.toVector(value));
+				}
+			});
+		}
+		
+		@Override
+		public Spliterator<Vector> trySplit() {
+			Spliterator.OfLong prefix = this.packed.trySplit();
+			return prefix == null ? null : new VectorSpliterator(prefix);
+		}
+		
+		@Override
+		public long estimateSize() {
+			return this.packed.estimateSize();
+		}
+		
+		@Override
+		public int characteristics() {
+			return this.packed.characteristics();
+		}
+	
+	}
+	
+	/**
+	 * <p> Converts a Collection to a LongHashSet of the packed positions of all Vectors it contains. </p>
+	 * 
+	 * @param collection the Collection to convert
+	 * @return The LongHashSet
+	 */
+	protected static LongHashSet toPackedPositions(Collection<?> collection) {
+		if (collection instanceof PackedPositionSet)
+			return ((PackedPositionSet) collection).positions;
+		LongHashSet set = new LongHashSet(collection.size());
+		for (Object object : collection)
+			if (object instanceof Vector)
+				set.add(PackedPosition.pack((Vector) object));
+		return set;
+	}
+
+}
@@ -0,0 +1,164 @@
+package de.impelon.geotools.region;
+
+import de.impelon.misc.LongBloomFilter;
+
+/**
+ * <p> Bloom-filter in front of the Positions of a {@linkplain PositionRegion},
+ * rejecting most Positions that are not within the Region without looking them up. </p>
+ * <p> Added Positions are inserted immediately; removed Positions stay in the filter (only causing false positives)
+ * until so many were removed or added that the filter is rebuilt. </p>
+ * <p> Counts how many lookups were rejected by the filter and how many passed it although the Position was not contained.
+ * Like PositionRegion, this class is not thread-safe. </p>
+ * 
+ * @see PositionRegion#setPrefilterEnabled(boolean)
+ * @author Impelon
+ *
+ */
+public class PositionPrefilter {
+	
+	protected LongBloomFilter filter;
+	protected int stale = 0;
+	protected long queries = 0;
+	protected long rejections = 0;
+	protected long falsePositives = 0;
+	
+	/**
+	 * <p> Creates a new empty PositionPrefilter. </p>
+	 * 
+	 * @param expected the expected amount of Positions
+	 */
+	protected PositionPrefilter(int expected) {
+		this.filter = new LongBloomFilter(expected);
+	}
+	
+	/**
+	 * <p> Replaces the filter by an empty one with room for the given amount of Positions. </p>
+	 * 
+	 * @param expected the expected amount of Positions
+	 */
+	protected void reset(int expected) {
+		this.filter = new LongBloomFilter(expected);
+		this.stale = 0;
+	}
+	
+	/**
+	 * <p> Inserts the key of an added Position. </p>
+	 */
+	protected void add(long key) {
+		this.filter.add(key);
+	}
+	
+	/**
+	 * <p> Notes that a Position was removed and determines if the filter should be rebuilt. </p>
+	 * 
+	 * @return Whether at least half of the filter's capacity is taken by removed Positions
+	 */
+	protected boolean removed() {
+		return ++this.stale > this.filter.getCapacity() >> 1;
+	}
+	
+	/**
+	 * <p> Determines if the filter is too small for the given amount of Positions and should be rebuilt. </p>
+	 * 
+	 * @param size the amount of Positions
+	 * @return Whether the filter is full
+	 */
+	protected boolean isFull(int size) {
+		return size > this.filter.getCapacity();
+	}
+	
+	/**
+	 * <p> Checks the key of a Position and counts the lookup. </p>
+	 * 
+	 * @param key the key of the Position
+	 * @return False if the Position is definitely not contained, true if it might be
+	 */
+	protected boolean mightContain(long key) {
+		this.queries++;
+		if (this.filter.mightContain(key))
+			return true;
+		this.rejections++;
+		return false;
+	}
+	
+	/**
+	 * <p> Counts a lookup that passed the filter although the Position was not contained. </p>
+	 */
+	protected void falsePositive() {
+		this.falsePositives++;
+	}
+	
+	/**
+	 * <p> Returns the amount of Positions the filter is currently sized for. </p>
+	 * 
+	 * @return The capacity
+	 */
+	public int getCapacity() {
+		return this.filter.getCapacity();
+	}
+	
+	/**
+	 * <p> Returns the amount of bits the filter uses. </p>
+	 * 
+	 * @return The amount of bits
+	 */
+	public long getBitCount() {
+		return this.filter.getBitCount();
+	}
+	
+	/**
+	 * <p> Returns the amount of lookups checked by this prefilter. </p>
+	 * 
+	 * @return The amount of lookups
+	 */
+	public long getQueries() {
+		return this.queries;
+	}
+	
+	/**
+	 * <p> Returns the amount of lookups rejected without looking the Position up. </p>
+	 * 
+	 * @return The amount of rejections
+	 */
+	public long getRejections() {
+		return this.rejections;
+	}
+	
+	/**
+	 * <p> Returns the amount of lookups that passed the filter although the Position was not contained. </p>
+	 * 
+	 * @return The amount of false positives
+	 */
+	public long getFalsePositives() {
+		return this.falsePositives;
+	}
+	
+	/**
+	 * <p> Returns the share of lookups rejected without looking the Position up. </p>
+	 * 
+	 * @return The rejection-ratio between 0 and 1, or 0 if there were no lookups
+	 */
+	public double getRejectionRatio() {
+		return this.queries == 0 ? 0 : (double) this.rejections / this.queries;
+	}
+	
+	/**
+	 * <p> Returns the share of lookups of Positions not contained that passed the filter anyway. </p>
+	 * 
+	 * @return The false-positive-ratio between 0 and 1, or 0 if there were no such lookups
+	 */
+	public double getFalsePositiveRatio() {
+		long negatives = this.rejections + this.falsePositives;
+		return negatives == 0 ? 0 : (double) this.falsePositives / negatives;
+	}
+	
+	/**
+	 * <p> Resets the amount of lookups, rejections and false positives. </p>
+	 */
+	public void resetStatistics() {
+		this.queries = 0;
+		this.rejections = 0;
+		this.falsePositives = 0;
+	}
+
+}
@@ -2,38 +2,55 @@ package de.impelon.geotools.region;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
 import java.util.function.Predicate;
 
 import org.bukkit.Location;
 import org.bukkit.World;
-import org.bukkit.util.BlockVector;
 import org.bukkit.util.NumberConversions;
 import org.bukkit.util.Vector;
 
 import de.impelon.geotools.Axis;
+import de.impelon.geotools.BoundingBox;
+import de.impelon.geotools.PackedPosition;
 import de.impelon.geotools.RegionFormat;
 import de.impelon.geotools.area.IArea;
+import de.impelon.misc.LongHashSet;
+import de.impelon.misc.LongIntHashMap;
 
 /**
  * <p> Implementation of IRegion for a free-style region. </p>
- * <p> Currently uses a {@linkplain HashSet} to store Positions (as {@linkplain Vector}). </p>
+ * <p> Uses a {@linkplain HashSet} to store Positions (as {@linkplain Vector}) or, if packed,
+ * a {@linkplain PackedPositionSet} to store Block-Positions as primitive longs. </p>
  * 
  * @author Impelon
  *
  */
-public class PositionRegion implements IRegion {
+public class PositionRegion implements IVersionedRegion {
+	
+	// The Bloom-filter never holds room for less Positions than this.
+	protected static final int MIN_PREFILTER_CAPACITY = 64;
 	
 	protected final World world;
-	protected final HashSet<Vector> positions;
-	protected Double xLength = null;
-	protected Double yLength = null;
-	protected Double zLength = null;
+	protected final Set<Vector> positions;
+	protected Vector minimum = null;
+	protected Vector maximum = null;
+	protected LongIntHashMap columns = null;
+	protected LongIntHashMap chunks = null;
+	protected long unaligned = 0;
 	protected Double surfaceArea = null;
-	protected Long blockSurfaceArea = null;
 	protected Long blockVolume = null;
+	protected RegionJournal journal = null;
+	protected PositionPrefilter prefilter = null;
+	protected long modifications = 0;
 	
 	/**
 	 * <p> Create a PositionRegion from another Region. </p>
@@ -44,6 +61,16 @@ public class PositionRegion implements IRegion {
 		this(region.getWorld(), region.getVectors());
 	}
 	
+	/**
+	 * <p> Create a PositionRegion from another Region. </p>
+	 * 
+	 * @param region Region to create the PositionRegion from
+	 * @param packed If true the Positions will be stored as packed Block-Positions (aka. floored)
+	 */
+	public PositionRegion(IRegion region, boolean packed) {
+		this(region.getWorld(), packed ? new PackedPositionSet(region) : new HashSet<Vector>(region.getVectors()));
+	}
+	
 	/**
 	 * <p> Create a PositionRegion from a Collection of Locations. </p>
 	 * 
@@ -62,12 +89,40 @@ public class PositionRegion implements IRegion {
 		this(world, new HashSet<Vector>(positions));
 	}
 	
+	/**
+	 * <p> Create a PositionRegion from a Collection of Vectors. </p>
+	 * 
+	 * @param positions a Collection with all Vectors this Region should contain
+	 * @param packed If true the Positions will be stored as packed Block-Positions (aka. floored)
+	 */
+	public PositionRegion(World world, Collection<Vector> positions, boolean packed) {
+		this(world, packed ? new PackedPositionSet(positions) : new HashSet<Vector>(positions));
+	}
+	
 	/**
 	 * <p> Create a PositionRegion from a HashSet of Vectors. </p>
 	 * 
 	 * @param positions a HashSet with all Vectors this Region should contain
 	 */
 	public PositionRegion(World world, HashSet<Vector> positions) {
+		this(world, (Set<Vector>) positions);
+	}
+	
+	/**
+	 * <p> Create a PositionRegion from a PackedPositionSet. </p>
+	 * 
+	 * @param positions a PackedPositionSet with all Block-Positions this Region should contain
+	 */
+	public PositionRegion(World world, PackedPositionSet positions) {
+		this(world, (Set<Vector>) positions);
+	}
+	
+	/**
+	 * <p> Create a PositionRegion using the given Set of Vectors as storage. </p>
+	 * 
+	 * @param positions a Set with all Vectors this Region should contain
+	 */
+	protected PositionRegion(World world, Set<Vector> positions) {
 		this.world = world;
 		if (positions == null)
 			this.positions = new HashSet<Vector>();
@@ -77,24 +132,36 @@ public class PositionRegion implements IRegion {
 	
 	/**
 	 * <p> Adds all Vectors of the given Region to this PositionRegion. </p>
+	 * <p> Other Regions than PositionRegions are iterated without copying their Positions first. </p>
 	 * 
 	 * @see PositionRegion#addAll(Collection)
 	 * @param region add Positions of that Region
 	 * @return Whether this Region changed as a result of the call
 	 */
 	public boolean add(IRegion region) {
-		return this.addAll(region.getVectors());
+		if (region instanceof PositionRegion)
+			return this.addAll(this.toPositionCollection(region));
+		boolean changed = false;
+		for (Iterator<Vector> iterator = region.iterator(); iterator.hasNext();)
+			changed |= this.add(iterator.next());
+		return changed;
 	}
 	
 	/**
 	 * <p> Removes all Vectors of the given Region from this PositionRegion. </p>
+	 * <p> Other Regions than PositionRegions are iterated without copying their Positions first. </p>
 	 * 
 	 * @see PositionRegion#removeAll(Collection)
 	 * @param region remove Positions of that Region
 	 * @return Whether this Region changed as a result of the call
 	 */
 	public boolean remove(IRegion region) {
-		return this.removeAll(region.getVectors());
+		if (region instanceof PositionRegion)
+			return this.removeAll(this.toPositionCollection(region));
+		boolean changed = false;
+		for (Iterator<Vector> iterator = region.iterator(); iterator.hasNext();)
+			changed |= this.remove(iterator.next());
+		return changed;
 	}
 	
 	/**
@@ -105,7 +172,43 @@ public class PositionRegion implements IRegion {
 	 * @return Whether this Region changed as a result of the call
 	 */
 	public boolean retainIntersecting(IRegion region) {
-		return this.retainAll(region.getVectors());
+		return this.retainAll(this.toPositionCollection(region));
+	}
+	
+	/**
+	 * <p> Adds the given Vector to this PositionRegion. </p>
+	 * 
+	 * @see Collection#add(Object)
+	 * @param v Vector to be added
+	 * @return Whether this Region changed as a result of the call
+	 */
+	public boolean add(Vector v) {
+		if (!this.positions.add(v))
+			return false;
+		if (this.isPacked())
+			this.added(v.getBlockX(), v.getBlockY(), v.getBlockZ());
+		else
+			this.added(v.getX(), v.getY(), v.getZ());
+		if (this.prefilter != null)
+			this.prefilter.add(this.getPrefilterKey(v));
+		return true;
+	}
+	
+	/**
+	 * <p> Removes the given Vector from this PositionRegion. </p>
+	 * 
+	 * @see Collection#remove(Object)
+	 * @param v Vector to be removed
+	 * @return Whether this Region changed as a result of the call
+	 */
+	public boolean remove(Vector v) {
+		if (!this.positions.remove(v))
+			return false;
+		if (this.isPacked())
+			this.removed(v.getBlockX(), v.getBlockY(), v.getBlockZ());
+		else
+			this.removed(v.getX(), v.getY(), v.getZ());
+		return true;
 	}
 	
 	/**
@@ -116,8 +219,27 @@ public class PositionRegion implements IRegion {
 	 * @return Whether this Region changed as a result of the call
 	 */
 	public boolean addAll(Collection<Vector> vectors) {
-		this.invalidate();
-		return this.positions.addAll(vectors);
+		if (this.isPacked() && vectors instanceof PackedPositionSet) {
+			final LongHashSet positions = ((PackedPositionSet) this.positions).getPackedPositions();
+			final boolean[] changed = {false};
+			((PackedPositionSet) vectors).getPackedPositions().forEach(new LongConsumer() {
+				
+				@Override
+				public void accept(long packed) {
+					if (positions.add(packed)) {
+						added(PackedPosition.getX(packed), PackedPosition.getY(packed), PackedPosition.getZ(packed));
+						if (prefilter != null)
+							prefilter.add(packed);
+						changed[0] = true;
+					}
+				}
+			});
+			return changed[0];
+		}
+		boolean changed = false;
+		for (Vector v : vectors)
+			changed |= this.add(v);
+		return changed;
 	}
 	
 	/**
@@ -128,8 +250,30 @@ public class PositionRegion implements IRegion {
 	 * @return Whether this Region changed as a result of the call
 	 */
 	public boolean removeAll(Collection<Vector> vectors) {
-		this.invalidate();
-		return this.positions.removeAll(vectors);
+		if (this.isPacked()) {
+			final LongHashSet removed = PackedPositionSet.toPackedPositions(vectors);
+			return this.removePackedIf(new LongPredicate() {
+				
+				@Override
+				public boolean test(long packed) {
+					return removed.contains(packed);
+				}
+			});
+		}
+		if (vectors.size() < this.positions.size()) {
+			boolean changed = false;
+			for (Vector v : vectors)
+				changed |= this.remove(v);
+			return changed;
+		}
+		final Collection<Vector> removed = vectors instanceof Set ? vectors : new HashSet<Vector>(vectors);
+		return this.removeIf(new Predicate<Vector>() {
+			
+			@Override
+			public boolean test(Vector v) {
+				return removed.contains(v);
+			}
+		});
 	}
 	
 	/**
@@ -140,8 +284,24 @@ public class PositionRegion implements IRegion {
 	 * @return Whether this Region changed as a result of the call
 	 */
 	public boolean removeIf(Predicate<? super Vector> filter) {
-		this.invalidate();
-		return this.positions.removeIf(filter);
+		if (this.isPacked())
+			return this.removePackedIf(new LongPredicate() {
+				
+				@Override
+				public boolean test(long packed) {
+					return filter.test(PackedPosition.toVector(packed));
+				}
+			});
+		return this.positions.removeIf(new Predicate<Vector>() {
+			
+			@Override
+			public boolean test(Vector v) {
+				if (!filter.test(v))
+					return false;
+				removed(v.getX(), v.getY(), v.getZ());
+				return true;
+			}
+		});
 	}
 	
 	/**
@@ -152,20 +312,300 @@ public class PositionRegion implements IRegion {
 	 * @return Whether this Region changed as a result of the call
 	 */
 	public boolean retainAll(Collection<Vector> vectors) {
-		this.invalidate();
-		return this.positions.retainAll(vectors);
+		if (this.isPacked()) {
+			final LongHashSet retained = PackedPositionSet.toPackedPositions(vectors);
+			return this.removePackedIf(new LongPredicate() {
+				
+				@Override
+				public boolean test(long packed) {
+					return !retained.contains(packed);
+				}
+			});
+		}
+		final Collection<Vector> retained = vectors instanceof Set ? vectors : new HashSet<Vector>(vectors);
+		return this.removeIf(new Predicate<Vector>() {
+			
+			@Override
+			public boolean test(Vector v) {
+				return !retained.contains(v);
+			}
+		});
+	}
+	
+	/**
+	 * <p> Removes all packed Block-Positions that match the given filter, if this PositionRegion is packed. </p>
+	 * 
+	 * @param filter a predicate which returns true for packed Block-Positions to be removed
+	 * @return Whether this Region changed as a result of the call
+	 */
+	protected boolean removePackedIf(LongPredicate filter) {
+		return ((PackedPositionSet) this.positions).getPackedPositions().removeIf(new LongPredicate() {
+			
+			@Override
+			public boolean test(long packed) {
+				if (!filter.test(packed))
+					return false;
+				removed(PackedPosition.getX(packed), PackedPosition.getY(packed), PackedPosition.getZ(packed));
+				return true;
+			}
+		});
+	}
+	
+	/**
+	 * <p> Returns the Vectors of the given Region as a Collection suitable for bulk-operations on this PositionRegion. </p>
+	 * <p> The positions of other PositionRegions are used directly, so no copy is made. </p>
+	 * 
+	 * @param region the Region
+	 * @return The Collection<Vector>
+	 */
+	protected Collection<Vector> toPositionCollection(IRegion region) {
+		if (region instanceof PositionRegion)
+			return ((PositionRegion) region).positions;
+		if (this.isPacked())
+			return new PackedPositionSet(region);
+		return region.getVectors();
+	}
+	
+	/**
+	 * <p> Determines if this PositionRegion stores its Positions as packed Block-Positions. </p>
+	 * 
+	 * @see PackedPositionSet
+	 * @return Whether this Region is packed
+	 */
+	public boolean isPacked() {
+		return this.positions instanceof PackedPositionSet;
+	}
+	
+	/**
+	 * <p> Determines if all Positions of this PositionRegion are Block-Positions (have integer coordinates). </p>
+	 * <p> Packed Regions are always aligned; otherwise the result is cached. </p>
+	 * 
+	 * @return Whether this Region is aligned to Blocks
+	 */
+	public boolean isBlockAligned() {
+		if (this.isPacked())
+			return true;
+		if (this.columns == null)
+			this.calculateStatistics();
+		return this.unaligned == 0;
+	}
+	
+	/**
+	 * <p> Returns an immutable snapshot of this PositionRegion. </p>
+	 * <p> The Positions are copied and all statistics are calculated eagerly,
+	 * so the snapshot can be read from other threads while this Region is modified further. </p>
+	 * 
+	 * @see FrozenRegion
+	 * @return The FrozenRegion
+	 */
+	public FrozenRegion freeze() {
+		return new FrozenRegion(this);
+	}
+	
+	/**
+	 * <p> Creates a new empty Set using the same storage as this PositionRegion. </p>
+	 * 
+	 * @return The Set<Vector>
+	 */
+	protected Set<Vector> createPositionSet() {
+		return this.isPacked() ? new PackedPositionSet() : new HashSet<Vector>();
+	}
+	
+	/**
+	 * <p> Creates a copy of the Positions using the same storage as this PositionRegion. </p>
+	 * 
+	 * @return The Set<Vector>
+	 */
+	protected Set<Vector> copyPositionSet() {
+		return this.isPacked() ? new PackedPositionSet(this.positions) : new HashSet<Vector>(this.positions);
 	}
 	
 	/**
 	 * <p> Invalidates all cached results. </p>
+	 * <p> The results are kept up to date when modifying this PositionRegion,
+	 * so this only has to be called if the stored Vectors themselves were modified. </p>
 	 */
 	public void invalidate() {
-		this.xLength = null;
-		this.yLength = null;
-		this.zLength = null;
+		this.minimum = null;
+		this.maximum = null;
+		this.columns = null;
+		this.chunks = null;
+		this.surfaceArea = null;
+		this.blockVolume = null;
+		this.modifications++;
+		if (this.journal != null)
+			this.journal.reset();
+		if (this.prefilter != null)
+			this.rebuildPrefilter();
+	}
+	
+	/**
+	 * <p> Returns the RegionJournal recording the changes of this PositionRegion. </p>
+	 * 
+	 * @return The RegionJournal, or null if changes are not recorded
+	 */
+	public RegionJournal getJournal() {
+		return this.journal;
+	}
+	
+	/**
+	 * <p> Sets the RegionJournal recording the changes of this PositionRegion. </p>
+	 * <p> Changes of Positions not aligned to Blocks cannot be recorded and reset the journal. </p>
+	 * 
+	 * @param journal the RegionJournal, or null to stop recording changes
+	 */
+	public void setJournal(RegionJournal journal) {
+		this.journal = journal;
+	}
+	
+	/**
+	 * <p> Returns the changes of this PositionRegion since the given version of its RegionJournal. </p>
+	 * 
+	 * @see RegionJournal#changesSince(long)
+	 * @param version the version the consumer last synchronized
+	 * @return The RegionDelta up to the current version
+	 * @throws IllegalStateException if changes are not recorded
+	 */
+	public RegionDelta changesSince(long version) throws IllegalStateException {
+		if (this.journal == null)
+			throw new IllegalStateException("Cannot return changes of a PositionRegion without journal");
+		return this.journal.changesSince(version);
+	}
+	
+	/**
+	 * <p> Returns the Bloom-filter rejecting lookups of Positions not within this PositionRegion. </p>
+	 * 
+	 * @return The PositionPrefilter, or null if lookups are not prefiltered
+	 */
+	public PositionPrefilter getPrefilter() {
+		return this.prefilter;
+	}
+	
+	/**
+	 * <p> Enables or disables the Bloom-filter in front of {@linkplain PositionRegion#getOverlap(Vector)}. </p>
+	 * <p> Worthwhile for large Regions that are mostly checked for Positions not within them:
+	 * such lookups are rejected without hashing a Vector or probing the stored Positions.
+	 * The filter needs about 12 bits for every Position and is kept up to date when modifying this Region;
+	 * it is rebuilt once it is full or half of it is taken by removed Positions. </p>
+	 * <p> While enabled, lookups update the statistics of the filter, so they should not be done concurrently. </p>
+	 * 
+	 * @param enabled whether to prefilter lookups
+	 */
+	public void setPrefilterEnabled(boolean enabled) {
+		if (!enabled)
+			this.prefilter = null;
+		else if (this.prefilter == null) {
+			this.prefilter = new PositionPrefilter(MIN_PREFILTER_CAPACITY);
+			this.rebuildPrefilter();
+		}
+	}
+	
+	/**
+	 * <p> Replaces the Bloom-filter by one containing exactly the current Positions, leaving room for as many more. </p>
+	 */
+	protected void rebuildPrefilter() {
+		final PositionPrefilter prefilter = this.prefilter;
+		prefilter.reset(Math.max(MIN_PREFILTER_CAPACITY, this.positions.size() * 2));
+		if (this.isPacked())
+			((PackedPositionSet) this.positions).getPackedPositions().forEach(new LongConsumer() {
+				
+				@Override
+				public void accept(long packed) {
+					prefilter.add(packed);
+				}
+			});
+		else
+			for (Vector v : this.positions)
+				prefilter.add(this.getPrefilterKey(v));
+	}
+	
+	/**
+	 * <p> Returns the key of the given Position within the Bloom-filter. </p>
+	 * <p> Packed Regions use the packed Block-Position, others the hash-code of the Vector,
+	 * so a Position found in the stored Positions always has the same key. </p>
+	 * 
+	 * @return The key
+	 */
+	protected long getPrefilterKey(Vector v) {
+		return this.isPacked() ? PackedPosition.pack(v) : v.hashCode();
+	}
+	
+	/**
+	 * <p> Records a change in the RegionJournal, if there is one. </p>
+	 */
+	protected void record(double x, double y, double z, boolean added) {
+		if (this.journal == null)
+			return;
+		if (isAligned(x, y, z))
+			this.journal.record(PackedPosition.pack((int) x, (int) y, (int) z), added);
+		else
+			this.journal.reset();
+	}
+	
+	/**
+	 * <p> Updates the cached results after the given Position was added. </p>
+	 * <p> The bounds are extended and the column and chunk of the Position are counted. </p>
+	 */
+	protected void added(double x, double y, double z) {
+		if (this.positions.size() == 1) {
+			this.minimum = new Vector(x, y, z);
+			this.maximum = new Vector(x, y, z);
+		} else if (this.minimum != null) {
+			this.minimum.setX(Math.min(this.minimum.getX(), x)).setY(Math.min(this.minimum.getY(), y)).setZ(Math.min(this.minimum.getZ(), z));
+			this.maximum.setX(Math.max(this.maximum.getX(), x)).setY(Math.max(this.maximum.getY(), y)).setZ(Math.max(this.maximum.getZ(), z));
+		}
+		if (this.columns != null) {
+			this.columns.addTo(getColumn(x, z), 1);
+			if (!isAligned(x, y, z))
+				this.unaligned++;
+		}
+		if (this.chunks != null)
+			this.chunks.addTo(getChunk(x, z), 1);
 		this.surfaceArea = null;
-		this.blockSurfaceArea = null;
 		this.blockVolume = null;
+		this.modifications++;
+		this.record(x, y, z, true);
+		if (this.prefilter != null && this.prefilter.isFull(this.positions.size()))
+			this.rebuildPrefilter();
+	}
+	
+	/**
+	 * <p> Updates the cached results after the given Position was removed. </p>
+	 * <p> The bounds are only recalculated (lazily) if the Position lay on them. </p>
+	 */
+	protected void removed(double x, double y, double z) {
+		if (this.minimum != null && (x <= this.minimum.getX() || y <= this.minimum.getY() || z <= this.minimum.getZ() ||
+				x >= this.maximum.getX() || y >= this.maximum.getY() || z >= this.maximum.getZ())) {
+			this.minimum = null;
+			this.maximum = null;
+		}
+		if (this.columns != null) {
+			long column = getColumn(x, z);
+			if (this.columns.addTo(column, -1) <= 0)
+				this.columns.remove(column);
+			if (!isAligned(x, y, z))
+				this.unaligned--;
+		}
+		if (this.chunks != null) {
+			long chunk = getChunk(x, z);
+			if (this.chunks.addTo(chunk, -1) <= 0)
+				this.chunks.remove(chunk);
+		}
+		this.surfaceArea = null;
+		this.blockVolume = null;
+		this.modifications++;
+		this.record(x, y, z, false);
+		if (this.prefilter != null && this.prefilter.removed())
+			this.rebuildPrefilter();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Incremented with every added or removed Position and by {@linkplain PositionRegion#invalidate()}. </p>
+	 */
+	@Override
+	public long getModificationCount() {
+		return this.modifications;
 	}
 	
 	/**
@@ -177,54 +617,77 @@ public class PositionRegion implements IRegion {
 	}
 	
 	/**
-	 * <p> Calculates the length of this Area on the given axis. </p>
+	 * <p> Calculates the bounds of this Region in a single pass. </p>
 	 * 
 	 * @see PositionRegion#getLength(Axis)
-	 * @return The length of the area on that axis
 	 */
-	protected double calculateLength(Axis axis) {
+	protected void calculateBounds() {
 		if (this.positions.isEmpty())
-			return 0;
-		Vector smallest = this.positions.iterator().next();
-		Vector largest = smallest;
-		for (Vector v : this.positions) {
-			smallest = Vector.getMinimum(smallest, v);
-			largest = Vector.getMaximum(largest, v);
+			return;
+		Iterator<Vector> iterator = this.positions.iterator();
+		this.minimum = iterator.next().clone();
+		this.maximum = this.minimum.clone();
+		while (iterator.hasNext()) {
+			Vector v = iterator.next();
+			this.minimum.setX(Math.min(this.minimum.getX(), v.getX())).setY(Math.min(this.minimum.getY(), v.getY())).setZ(Math.min(this.minimum.getZ(), v.getZ()));
+			this.maximum.setX(Math.max(this.maximum.getX(), v.getX())).setY(Math.max(this.maximum.getY(), v.getY())).setZ(Math.max(this.maximum.getZ(), v.getZ()));
 		}
-		switch (axis) {
-		case X:
-			this.xLength = largest.getX() - smallest.getX();
-			return this.xLength;
-		case Y:
-			this.yLength = largest.getY() - smallest.getY();
-			return this.yLength;
-		case Z:
-			this.zLength = largest.getZ() - smallest.getZ();
-			return this.zLength;
-		default:
-			return 0;
+	}
+	
+	/**
+	 * <p> Calculates the bounds, the columns and the amount of Positions not aligned to Blocks in a single pass. </p>
+	 * 
+	 * @see PositionRegion#getBlockSurfaceArea()
+	 */
+	protected void calculateStatistics() {
+		this.calculateBounds();
+		this.columns = new LongIntHashMap();
+		this.unaligned = 0;
+		for (Vector v : this.positions) {
+			this.columns.addTo(getColumn(v.getX(), v.getZ()), 1);
+			if (!isAligned(v.getX(), v.getY(), v.getZ()))
+				this.unaligned++;
 		}
 	}
 	
+	/**
+	 * <p> Counts the Positions within each chunk. </p>
+	 * 
+	 * @see PositionRegion#getChunks()
+	 */
+	protected void calculateChunks() {
+		final LongIntHashMap chunks = new LongIntHashMap();
+		if (this.isPacked())
+			((PackedPositionSet) this.positions).getPackedPositions().forEach(new LongConsumer() {
+				
+				@Override
+				public void accept(long packed) {
+					chunks.addTo(PackedPosition.packChunk(PackedPosition.getX(packed) >> 4, PackedPosition.getZ(packed) >> 4), 1);
+				}
+			});
+		else
+			for (Vector v : this.positions)
+				chunks.addTo(getChunk(v.getX(), v.getZ()), 1);
+		this.chunks = chunks;
+	}
+	
 	/**
 	 * {@inheritDoc}
-	 * <p> The result is cached. </p>
+	 * <p> The bounds are kept up to date when adding Positions. </p>
 	 */
 	@Override
 	public double getLength(Axis axis) {
+		if (this.positions.isEmpty())
+			return 0;
+		if (this.minimum == null)
+			this.calculateBounds();
 		switch (axis) {
 		case X:
-			if (this.xLength == null)
-				this.calculateLength(Axis.X);
-			return this.xLength;
+			return this.maximum.getX() - this.minimum.getX();
 		case Y:
-			if (this.yLength == null)
-				this.calculateLength(Axis.Y);
-			return this.yLength;
+			return this.maximum.getY() - this.minimum.getY();
 		case Z:
-			if (this.zLength == null)
-				this.calculateLength(Axis.Z);
-			return this.zLength;
+			return this.maximum.getZ() - this.minimum.getZ();
 		default:
 			return 0;
 		}
@@ -232,13 +695,27 @@ public class PositionRegion implements IRegion {
 	
 	/**
 	 * {@inheritDoc}
-	 * <p> The result is cached. </p>
+	 * <p> The bounds are kept up to date when adding Positions. </p>
 	 */
 	@Override
 	public long getBlockLength(Axis axis) {
 		return NumberConversions.ceil(this.getLength(axis));
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 * <p> The BoundingBox covers all Blocks between the bounds of this Region. </p>
+	 */
+	@Override
+	public BoundingBox getBoundingBox() {
+		if (this.positions.isEmpty())
+			return null;
+		if (this.minimum == null)
+			this.calculateBounds();
+		return BoundingBox.ofBlocks(this.minimum.getBlockX(), this.minimum.getBlockY(), this.minimum.getBlockZ(),
+				this.maximum.getBlockX(), this.maximum.getBlockY(), this.maximum.getBlockZ());
+	}
+	
 	/**
 	 * <p> Calculates the surface area of this Area. </p>
 	 * 
@@ -247,46 +724,39 @@ public class PositionRegion implements IRegion {
 	 */
 	protected double calculateSurfaceArea() {
 		HashSet<Vector> uniques = new HashSet<Vector>();
-		for (Iterator<Vector> iterator = this.iterator(); iterator.hasNext();)
-			uniques.add(iterator.next().setY(0));
+		for (Iterator<Vector> iterator = this.positions.iterator(); iterator.hasNext();) {
+			Vector v = iterator.next();
+			uniques.add(new Vector(v.getX(), 0, v.getZ()));
+		}
 		this.surfaceArea = (double) uniques.size();
 		return this.surfaceArea;
 	}
 	
 	/**
 	 * {@inheritDoc}
-	 * <p> The result is cached. </p>
+	 * <p> If all Positions are aligned to Blocks, the columns are kept up to date when modifying this Region.
+	 * Otherwise the result is cached. </p>
 	 */
 	@Override
 	public double getSurfaceArea() {
+		if (this.columns == null)
+			this.calculateStatistics();
+		if (this.unaligned == 0)
+			return this.columns.size();
 		if (this.surfaceArea == null)
 			this.calculateSurfaceArea();
 		return this.surfaceArea;
 	}
 	
-	/**
-	 * <p> Calculates the amount of Blocks contained in this Area. </p>
-	 * 
-	 * @see PositionRegion#getBlockSurfaceArea()
-	 * @return The surface area
-	 */
-	protected double calculateBlockSurfaceArea() {
-		HashSet<BlockVector> uniques = new HashSet<BlockVector>();
-		for (Iterator<Vector> iterator = this.iterator(); iterator.hasNext();)
-			uniques.add(iterator.next().setY(0).toBlockVector());
-		this.blockSurfaceArea = (long) uniques.size();
-		return this.blockSurfaceArea;
-	}
-	
 	/**
 	 * {@inheritDoc}
-	 * <p> The result is cached. </p>
+	 * <p> The columns are kept up to date when modifying this Region. </p>
 	 */
 	@Override
 	public long getBlockSurfaceArea() {
-		if (this.blockSurfaceArea == null)
-			this.calculateBlockSurfaceArea();
-		return this.blockSurfaceArea;
+		if (this.columns == null)
+			this.calculateStatistics();
+		return this.columns.size();
 	}
 	
 	/**
@@ -299,10 +769,18 @@ public class PositionRegion implements IRegion {
 	
 	/**
 	 * {@inheritDoc}
+	 * <p> If enabled, the Bloom-filter is checked first; see {@linkplain PositionRegion#setPrefilterEnabled(boolean)}. </p>
 	 */
 	@Override
 	public boolean getOverlap(Vector pos) {
-		return this.positions.contains(pos);
+		if (this.prefilter == null)
+			return this.positions.contains(pos);
+		if (!this.prefilter.mightContain(this.getPrefilterKey(pos)))
+			return false;
+		if (this.positions.contains(pos))
+			return true;
+		this.prefilter.falsePositive();
+		return false;
 	}
 	
 	/**
@@ -341,21 +819,28 @@ public class PositionRegion implements IRegion {
 	
 	/**
 	 * <p> Calculates the amount of Blocks this Region contains. </p>
+	 * <p> Counts the distinct packed Block-Positions instead of creating a floored copy of this Region. </p>
 	 * 
 	 * @see PositionRegion#getBlockVolume()
 	 * @return The volume
 	 */
 	protected long calculateBlockVolume() {
-		this.blockVolume = (long) this.getModifiedRegion(RegionFormat.FLOORED).getVolume();
+		LongHashSet blocks = new LongHashSet(this.positions.size());
+		for (Vector v : this.positions)
+			blocks.add(PackedPosition.pack(v.getBlockX(), v.getBlockY(), v.getBlockZ()));
+		this.blockVolume = (long) blocks.size();
 		return this.blockVolume;
 	}
 	
 	/**
 	 * {@inheritDoc}
-	 * <p> The result is cached. </p>
+	 * <p> If this Region is packed or all Positions are aligned to Blocks, this is the amount of Positions.
+	 * Otherwise the result is cached. </p>
 	 */
 	@Override
 	public long getBlockVolume() {
+		if (this.isBlockAligned())
+			return this.positions.size();
 		if (this.blockVolume == null)
 			this.calculateBlockVolume();
 		return this.blockVolume;
@@ -363,22 +848,29 @@ public class PositionRegion implements IRegion {
 	
 	/**
 	 * {@inheritDoc}
+	 * <p> If this Region is aligned to Blocks, the modified Region is computed via a {@linkplain SectionedRegion}.
+	 * The result uses the same storage as this Region (packed or not). </p>
 	 */
 	@Override
 	public IRegion getModifiedRegion(RegionFormat format) {
+		// Block-aligned Positions are modified as dense bitsets, using shifts on whole words.
+		if (format != RegionFormat.FULL && format != RegionFormat.FLOORED && this.isBlockAligned())
+			return ((SectionedRegion) new SectionedRegion(this).getModifiedRegion(format)).toPositionRegion(this.isPacked());
 		switch (format) {
 		case ENCLOSED:
-			HashSet<Vector> enclosed = new HashSet<Vector>();
-			for (Iterator<Vector> iterator = this.iterator(); iterator.hasNext();) {
-				Vector help = iterator.next();
-				Vector v = help.clone();
-				if (this.getOverlap(v.setX(help.getX() + 1)) && this.getOverlap(v.setX(help.getX() - 1)) &&
-					this.getOverlap(v.setY(help.getY() + 1)) && this.getOverlap(v.setY(help.getY() - 1)) &&
-					this.getOverlap(v.setZ(help.getZ() + 1)) && this.getOverlap(v.setZ(help.getZ() - 1)))
-					enclosed.add(help);
+			Set<Vector> enclosed = this.createPositionSet();
+			Vector neighbour = new Vector();
+			for (Vector v : this.positions) {
+				double x = v.getX(), y = v.getY(), z = v.getZ();
+				if (this.getOverlap(neighbour.setX(x + 1).setY(y).setZ(z)) && this.getOverlap(neighbour.setX(x - 1)) &&
+					this.getOverlap(neighbour.setX(x).setY(y + 1)) && this.getOverlap(neighbour.setY(y - 1)) &&
+					this.getOverlap(neighbour.setY(y).setZ(z + 1)) && this.getOverlap(neighbour.setZ(z - 1)))
+					enclosed.add(v.clone());
 			}
 			return new PositionRegion(this.getWorld(), enclosed);
 		case FLOORED:
+			if (this.isPacked())
+				return new PositionRegion(this.getWorld(), this.copyPositionSet());
 			HashSet<Vector> floored = new HashSet<Vector>();
 			for (Iterator<Vector> iterator = this.iterator(); iterator.hasNext();) {
 				Vector v = iterator.next();
@@ -386,31 +878,30 @@ public class PositionRegion implements IRegion {
 			}
 			return new PositionRegion(this.getWorld(), floored);
 		case SURROUNDING:
-			HashSet<Vector> surrounding = new HashSet<Vector>();
-			for (Iterator<Vector> iterator = this.iterator(); iterator.hasNext();) {
-				Vector help = iterator.next();
-				Vector v = help.clone();
-				surrounding.add(v);
-				surrounding.add(v.setX(help.getX() + 1));
-				surrounding.add(v.setX(help.getX() - 1));
-				surrounding.add(v.setY(help.getY() + 1));
-				surrounding.add(v.setY(help.getY() - 1));
-				surrounding.add(v.setZ(help.getZ() + 1));
-				surrounding.add(v.setZ(help.getZ() - 1));
+			Set<Vector> surrounding = this.createPositionSet();
+			for (Vector v : this.positions) {
+				double x = v.getX(), y = v.getY(), z = v.getZ();
+				surrounding.add(v.clone());
+				surrounding.add(new Vector(x + 1, y, z));
+				surrounding.add(new Vector(x - 1, y, z));
+				surrounding.add(new Vector(x, y + 1, z));
+				surrounding.add(new Vector(x, y - 1, z));
+				surrounding.add(new Vector(x, y, z + 1));
+				surrounding.add(new Vector(x, y, z - 1));
 			}
 			return new PositionRegion(this.getWorld(), surrounding);
 		case WIREFRAME:
-			PositionRegion wireframe = new PositionRegion(this.getWorld(), this.positions);
+			PositionRegion wireframe = new PositionRegion(this.getWorld(), this.copyPositionSet());
 			IRegion inside = this.getModifiedRegion(RegionFormat.ENCLOSED).getModifiedRegion(RegionFormat.SURROUNDING);
 			wireframe.remove(inside);
 			return wireframe;
 		case HOLLOW:
-			PositionRegion hollow = new PositionRegion(this.getWorld(), this.positions);
+			PositionRegion hollow = new PositionRegion(this.getWorld(), this.copyPositionSet());
 			hollow.remove(this.getModifiedRegion(RegionFormat.ENCLOSED));
 			return hollow;
 		case FULL:
 		default:
-			return new PositionRegion(this.getWorld(), this.positions);
+			return new PositionRegion(this.getWorld(), this.copyPositionSet());
 		}
 	}
 	
@@ -419,7 +910,108 @@ public class PositionRegion implements IRegion {
 	 */
 	@Override
 	public Iterator<Vector> iterator() {
-		return this.positions.iterator();
+		Iterator<Vector> positioniterator = this.positions.iterator();
+		Iterator<Vector> iterator = new Iterator<Vector>() {
+			
+			private Vector last = null;
+			
+			@Override
+			public boolean hasNext() {
+				return positioniterator.hasNext();
+			}
+			
+			@Override
+			public Vector next() {
+				this.last = positioniterator.next();
+				return this.last;
+			}
+			
+			@Override
+			public void remove() {
+				positioniterator.remove();
+				removed(this.last.getX(), this.last.getY(), this.last.getZ());
+			}
+		};
+		return iterator;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> If this Region is not packed, a Block is visited once for every Position within it. </p>
+	 */
+	@Override
+	public void forEachBlock(IBlockVisitor visitor) {
+		if (this.isPacked())
+			((PackedPositionSet) this.positions).forEachBlock(visitor);
+		else
+			for (Vector v : this.positions)
+				visitor.visit(v.getBlockX(), v.getBlockY(), v.getBlockZ());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> The Positions are bucketed by chunk without converting them;
+	 * each part is a PositionRegion stored the same way as this Region (packed or not). </p>
+	 */
+	@Override
+	public void forEachChunk(IChunkVisitor visitor) {
+		List<Long> keys;
+		if (this.isPacked()) {
+			final HashMap<Long, LongHashSet> chunks = new HashMap<Long, LongHashSet>();
+			((PackedPositionSet) this.positions).getPackedPositions().forEach(new LongConsumer() {
+				
+				@Override
+				public void accept(long packed) {
+					long chunk = PackedPosition.packChunk(PackedPosition.getX(packed) >> 4, PackedPosition.getZ(packed) >> 4);
+					LongHashSet blocks = chunks.get(chunk);
+					if (blocks == null)
+						chunks.put(chunk, blocks = new LongHashSet());
+					blocks.add(packed);
+				}
+			});
+			keys = new ArrayList<Long>(chunks.keySet());
+			Collections.sort(keys);
+			for (Long chunk : keys)
+				visitor.visit(PackedPosition.getChunkX(chunk), PackedPosition.getChunkZ(chunk),
+						new PositionRegion(this.getWorld(), new PackedPositionSet(chunks.remove(chunk))));
+		} else {
+			HashMap<Long, HashSet<Vector>> chunks = new HashMap<Long, HashSet<Vector>>();
+			for (Vector v : this.positions) {
+				long chunk = PackedPosition.packChunk(v.getBlockX() >> 4, v.getBlockZ() >> 4);
+				HashSet<Vector> positions = chunks.get(chunk);
+				if (positions == null)
+					chunks.put(chunk, positions = new HashSet<Vector>());
+				positions.add(v);
+			}
+			keys = new ArrayList<Long>(chunks.keySet());
+			Collections.sort(keys);
+			for (Long chunk : keys)
+				visitor.visit(PackedPosition.getChunkX(chunk), PackedPosition.getChunkZ(chunk),
+						new PositionRegion(this.getWorld(), chunks.remove(chunk)));
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> The amount of Positions per chunk is counted once and kept up to date when modifying this Region. </p>
+	 */
+	@Override
+	public LongHashSet getChunks() {
+		if (this.chunks == null)
+			this.calculateChunks();
+		LongHashSet chunks = new LongHashSet(this.chunks.size());
+		for (long chunk : this.chunks.keys())
+			chunks.add(chunk);
+		return chunks;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Splits by segments of the table backing the Positions. </p>
+	 */
+	@Override
+	public Spliterator<Vector> spliterator() {
+		return this.positions.spliterator();
 	}
 	
 	/**
@@ -465,6 +1057,34 @@ public class PositionRegion implements IRegion {
 		return locations;
 	}
 	
+	/**
+	 * <p> Returns the key of the column of Blocks containing the given Position. </p>
+	 * 
+	 * @return The key of the column
+	 */
+	protected static long getColumn(double x, double z) {
+		return ((long) NumberConversions.floor(x) << 32) | (NumberConversions.floor(z) & 0xFFFFFFFFL);
+	}
+	
+	/**
+	 * <p> Returns the packed coordinates of the chunk containing the given Position. </p>
+	 * 
+	 * @see PackedPosition#packChunk(int, int)
+	 * @return The packed chunk-coordinates
+	 */
+	protected static long getChunk(double x, double z) {
+		return PackedPosition.packChunk(NumberConversions.floor(x) >> 4, NumberConversions.floor(z) >> 4);
+	}
+	
+	/**
+	 * <p> Determines if the given Position is aligned to the corner of a Block. </p>
+	 * 
+	 * @return Whether all coordinates are whole numbers
+	 */
+	protected static boolean isAligned(double x, double y, double z) {
+		return x == Math.floor(x) && y == Math.floor(y) && z == Math.floor(z);
+	}
+	
 	/**
 	 * <p> Converts a Collection of Locations to a HashSet of Vectors. </p>
 	 * 
@@ -0,0 +1,120 @@
+package de.impelon.geotools.region;
+
+import de.impelon.geotools.PackedPosition;
+
+/**
+ * <p> Immutable set of changes of a Region between two versions, as returned by {@linkplain RegionJournal#changesSince(long)}. </p>
+ * <p> Contains the Block-Positions (packed, see {@linkplain PackedPosition}) that were added and removed in total;
+ * if the changes were no longer available, {@linkplain RegionDelta#isResyncRequired()} is true
+ * and the consumer has to transfer the whole Region instead. </p>
+ * 
+ * @author Impelon
+ *
+ */
+public class RegionDelta {
+	
+	protected static final long[] EMPTY = new long[0];
+	
+	protected final long fromVersion;
+	protected final long toVersion;
+	protected final long[] added;
+	protected final long[] removed;
+	protected final boolean resync;
+	
+	/**
+	 * <p> Creates a RegionDelta signalling that the changes between the given versions are not available. </p>
+	 */
+	protected RegionDelta(long fromVersion, long toVersion) {
+		this.fromVersion = fromVersion;
+		this.toVersion = toVersion;
+		this.added = EMPTY;
+		this.removed = EMPTY;
+		this.resync = true;
+	}
+	
+	/**
+	 * <p> Creates a RegionDelta from the given packed Block-Positions, taking ownership of the arrays. </p>
+	 */
+	protected RegionDelta(long fromVersion, long toVersion, long[] added, long[] removed) {
+		this.fromVersion = fromVersion;
+		this.toVersion = toVersion;
+		this.added = added;
+		this.removed = removed;
+		this.resync = false;
+	}
+	
+	/**
+	 * <p> Returns the version these changes start at. </p>
+	 * 
+	 * @return The version
+	 */
+	public long getFromVersion() {
+		return this.fromVersion;
+	}
+	
+	/**
+	 * <p> Returns the version these changes lead to; the consumer is synchronized up to it after applying them. </p>
+	 * 
+	 * @return The version
+	 */
+	public long getToVersion() {
+		return this.toVersion;
+	}
+	
+	/**
+	 * <p> Determines if the changes were no longer available, so the whole Region has to be resynchronized. </p>
+	 * 
+	 * @return Whether a resynchronization is required
+	 */
+	public boolean isResyncRequired() {
+		return this.resync;
+	}
+	
+	/**
+	 * <p> Determines if the Region did not change in total. </p>
+	 * 
+	 * @return Whether there are no changes
+	 */
+	public boolean isEmpty() {
+		return !this.resync && this.added.length == 0 && this.removed.length == 0;
+	}
+	
+	/**
+	 * <p> Returns the packed Block-Positions that were added. </p>
+	 * 
+	 * @return The packed Block-Positions (must not be modified)
+	 */
+	public long[] getAdded() {
+		return this.added;
+	}
+	
+	/**
+	 * <p> Returns the packed Block-Positions that were removed. </p>
+	 * 
+	 * @return The packed Block-Positions (must not be modified)
+	 */
+	public long[] getRemoved() {
+		return this.removed;
+	}
+	
+	/**
+	 * <p> Calls the given IBlockVisitor with the coordinates of every added Block. </p>
+	 * 
+	 * @param visitor the IBlockVisitor to call
+	 */
+	public void forEachAdded(IBlockVisitor visitor) {
+		for (long packed : this.added)
+			visitor.visit(PackedPosition.getX(packed), PackedPosition.getY(packed), PackedPosition.getZ(packed));
+	}
+	
+	/**
+	 * <p> Calls the given IBlockVisitor with the coordinates of every removed Block. </p>
+	 * 
+	 * @param visitor the IBlockVisitor to call
+	 */
+	public void forEachRemoved(IBlockVisitor visitor) {
+		for (long packed : this.removed)
+			visitor.visit(PackedPosition.getX(packed), PackedPosition.getY(packed), PackedPosition.getZ(packed));
+	}
+
+}
@@ -0,0 +1,152 @@
+package de.impelon.geotools.region;
+
+import de.impelon.geotools.PackedPosition;
+import de.impelon.misc.LongIntHashMap;
+
+/**
+ * <p> Bounded journal of the Block-Positions added to and removed from a mutable Region. </p>
+ * <p> Every recorded change increments the version by one; the last changes (up to the capacity)
+ * are kept in a ring-buffer of packed Block-Positions (see {@linkplain PackedPosition}).
+ * Consumers remember the version they last synchronized and request the changes since then,
+ * see {@linkplain RegionJournal#changesSince(long)}. </p>
+ * <p> If changes could not be recorded (for example because Positions not aligned to Blocks were modified)
+ * the journal is reset, so all consumers have to resynchronize. </p>
+ * <p> This class is thread-safe. </p>
+ * 
+ * @author Impelon
+ *
+ */
+public class RegionJournal {
+	
+	protected final long[] positions;
+	protected final boolean[] additions;
+	protected long version = 0;
+	protected long oldest = 0;
+	
+	/**
+	 * <p> Creates a new empty RegionJournal. </p>
+	 * 
+	 * @param capacity the maximum amount of changes to keep
+	 * @throws IllegalArgumentException if the capacity is not positive
+	 */
+	public RegionJournal(int capacity) throws IllegalArgumentException {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("Cannot create a journal with a capacity of " + capacity);
+		this.positions = new long[capacity];
+		this.additions = new boolean[capacity];
+	}
+	
+	/**
+	 * <p> Returns the maximum amount of changes this journal keeps. </p>
+	 * 
+	 * @return The capacity
+	 */
+	public int getCapacity() {
+		return this.positions.length;
+	}
+	
+	/**
+	 * <p> Returns the current version, which is the amount of changes recorded so far (including resets). </p>
+	 * 
+	 * @return The version
+	 */
+	public synchronized long getVersion() {
+		return this.version;
+	}
+	
+	/**
+	 * <p> Returns the oldest version changes can still be requested since. </p>
+	 * 
+	 * @return The version
+	 */
+	public synchronized long getOldestVersion() {
+		return this.oldest;
+	}
+	
+	/**
+	 * <p> Records that the Block at the given coordinates was added. </p>
+	 */
+	public void added(int x, int y, int z) {
+		this.record(PackedPosition.pack(x, y, z), true);
+	}
+	
+	/**
+	 * <p> Records that the Block at the given coordinates was removed. </p>
+	 */
+	public void removed(int x, int y, int z) {
+		this.record(PackedPosition.pack(x, y, z), false);
+	}
+	
+	/**
+	 * <p> Records a change of a packed Block-Position, discarding the oldest change if the journal is full. </p>
+	 * 
+	 * @param packed the packed Block-Position
+	 * @param added whether the Block was added or removed
+	 */
+	public synchronized void record(long packed, boolean added) {
+		int index = (int) (this.version % this.positions.length);
+		this.positions[index] = packed;
+		this.additions[index] = added;
+		this.version++;
+		if (this.version - this.oldest > this.positions.length)
+			this.oldest++;
+	}
+	
+	/**
+	 * <p> Discards all recorded changes and increments the version, so every consumer has to resynchronize. </p>
+	 * <p> Has to be called whenever the Region changed in a way that could not be recorded. </p>
+	 */
+	public synchronized void reset() {
+		this.version++;
+		this.oldest = this.version;
+	}
+	
+	/**
+	 * <p> Returns the net changes since the given version. </p>
+	 * <p> Changes cancelling each other out (a Block added and removed again) are omitted.
+	 * If the changes are no longer available, the returned RegionDelta requires a resynchronization. </p>
+	 * 
+	 * @param version the version the consumer last synchronized
+	 * @return The RegionDelta up to the current version
+	 * @throws IllegalArgumentException if the version is newer than the current one
+	 */
+	public synchronized RegionDelta changesSince(long version) throws IllegalArgumentException {
+		if (version > this.version)
+			throw new IllegalArgumentException("Cannot return changes since future version " + version + " (current: " + this.version + ")");
+		if (version < this.oldest)
+			return new RegionDelta(version, this.version);
+		// bit 2 marks a present entry, bit 1 the first and bit 0 the last change being an addition
+		LongIntHashMap changes = new LongIntHashMap((int) (this.version - version));
+		for (long v = version; v < this.version; v++) {
+			int index = (int) (v % this.positions.length);
+			int change = changes.get(this.positions[index]);
+			int last = this.additions[index] ? 1 : 0;
+			changes.put(this.positions[index], change == 0 ? 4 | (last << 1) | last : (change & ~1) | last);
+		}
+		long[] keys = changes.keys();
+		int additions = 0, removals = 0;
+		for (long packed : keys) {
+			int change = changes.get(packed);
+			if ((change >> 1 & 1) != (change & 1))
+				continue;
+			if ((change & 1) != 0)
+				additions++;
+			else
+				removals++;
+		}
+		long[] added = new long[additions];
+		long[] removed = new long[removals];
+		additions = removals = 0;
+		for (long packed : keys) {
+			int change = changes.get(packed);
+			if ((change >> 1 & 1) != (change & 1))
+				continue;
+			if ((change & 1) != 0)
+				added[additions++] = packed;
+			else
+				removed[removals++] = packed;
+		}
+		return new RegionDelta(version, this.version, added, removed);
+	}
+
+}
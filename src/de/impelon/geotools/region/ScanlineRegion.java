@@ -0,0 +1,552 @@
+package de.impelon.geotools.region;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.util.Vector;
+
+import de.impelon.geotools.Axis;
+import de.impelon.geotools.BoundingBox;
+import de.impelon.geotools.RegionFormat;
+import de.impelon.geotools.area.IArea;
+
+/**
+ * <p> Abstract implementation of IRegion for analytic shapes, whose Blocks form a single run along the x-axis in every row. </p>
+ * <p> Implementations only define whether a Position is within the shape and the run of each row (y- and z-coordinate);
+ * iteration, Block-statistics and modified regions are computed row by row from these runs.
+ * A Block belongs to the Region if its Block-Position (its smallest corner) is within the shape. </p>
+ * <p> Regions of this type are immutable. Their Block-statistics are calculated once, when first requested,
+ * and published through volatile fields, so the Regions can be shared between threads. </p>
+ * 
+ * @author Impelon
+ *
+ */
+public abstract class ScanlineRegion implements IVersionedRegion {
+	
+	/**
+	 * <p> Cached bounds of Regions that contain no Blocks. </p>
+	 */
+	protected static final int[] NO_BOUNDS = new int[0];
+	
+	protected final World world;
+	protected volatile int[] bounds = null;
+	protected volatile Long blockSurfaceArea = null;
+	protected volatile Long blockVolume = null;
+	
+	/**
+	 * <p> Create a ScanlineRegion in the given {@linkplain World}. </p>
+	 * 
+	 * @param world the {@linkplain World} this Region is in
+	 */
+	protected ScanlineRegion(World world) {
+		this.world = world;
+	}
+	
+	/**
+	 * <p> Determines if the given Position is within the shape of this Region. </p>
+	 * 
+	 * @return Whether this Region contains the Position
+	 */
+	public abstract boolean contains(double x, double y, double z);
+	
+	/**
+	 * <p> Returns the extent of the shape of this Region. </p>
+	 * 
+	 * @return The extent as {minX, minY, minZ, maxX, maxY, maxZ}
+	 */
+	protected abstract double[] getExtent();
+	
+	/**
+	 * <p> Determines the run of Blocks of this Region in the row with the given y- and z-coordinate. </p>
+	 * 
+	 * @param span array receiving the first and last x-coordinate of the run
+	 * @return Whether the row contains any Blocks
+	 */
+	protected abstract boolean getSpan(int y, int z, int[] span);
+	
+	/**
+	 * <p> Determines the run of Blocks of a row from the approximate (real) bounds of the shape in that row. </p>
+	 * <p> The run is corrected using {@linkplain ScanlineRegion#contains(double, double, double)},
+	 * so rounding errors can not make it disagree with that method. </p>
+	 * 
+	 * @param start the smallest x-coordinate within the shape
+	 * @param end the largest x-coordinate within the shape
+	 * @param span array receiving the first and last x-coordinate of the run
+	 * @return Whether the row contains any Blocks
+	 */
+	protected boolean fitSpan(int y, int z, double start, double end, int[] span) {
+		int first = (int) Math.ceil(start), last = (int) Math.floor(end);
+		while (this.contains(first - 1, y, z))
+			first--;
+		while (first <= last && !this.contains(first, y, z))
+			first++;
+		while (this.contains(last + 1, y, z))
+			last++;
+		while (last >= first && !this.contains(last, y, z))
+			last--;
+		if (first > last)
+			return false;
+		span[0] = first;
+		span[1] = last;
+		return true;
+	}
+	
+	/**
+	 * <p> Returns the range of rows that may contain Blocks. </p>
+	 * 
+	 * @return The range as {minY, minZ, maxY, maxZ}
+	 */
+	protected int[] getRowRange() {
+		double[] extent = this.getExtent();
+		return new int[] {(int) Math.floor(extent[1]), (int) Math.floor(extent[2]), (int) Math.ceil(extent[4]), (int) Math.ceil(extent[5])};
+	}
+	
+	/**
+	 * <p> Returns the run of Blocks of the row with the given y- and z-coordinate. </p>
+	 * 
+	 * @return The run as {start, end}, or an empty array if the row contains no Blocks
+	 */
+	protected int[] getSpans(int y, int z) {
+		int[] span = new int[2];
+		return this.getSpan(y, z, span) ? span : SpanRegion.EMPTY_ROW;
+	}
+	
+	/**
+	 * <p> Determines if the Block at the given coordinates is within this Region. </p>
+	 * 
+	 * @return Whether this Region contains the Block
+	 */
+	public boolean contains(int x, int y, int z) {
+		return this.contains((double) x, (double) y, (double) z);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> ScanlineRegions are immutable, so this is always 0. </p>
+	 */
+	@Override
+	public long getModificationCount() {
+		return 0;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public World getWorld() {
+		return this.world;
+	}
+	
+	/**
+	 * <p> Calculates the smallest and largest Block-coordinates of this Region. </p>
+	 * 
+	 * @return The bounds as {minX, minY, minZ, maxX, maxY, maxZ}, or null if this Region contains no Blocks
+	 */
+	protected int[] calculateBounds() {
+		int[] bounds = {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+		int[] rows = this.getRowRange();
+		int[] span = new int[2];
+		for (int z = rows[1]; z <= rows[3]; z++)
+			for (int y = rows[0]; y <= rows[2]; y++)
+				if (this.getSpan(y, z, span)) {
+					bounds[0] = Math.min(bounds[0], span[0]);
+					bounds[1] = Math.min(bounds[1], y);
+					bounds[2] = Math.min(bounds[2], z);
+					bounds[3] = Math.max(bounds[3], span[1]);
+					bounds[4] = Math.max(bounds[4], y);
+					bounds[5] = Math.max(bounds[5], z);
+				}
+		if (bounds[0] > bounds[3]) {
+			this.bounds = NO_BOUNDS;
+			return null;
+		}
+		// only published once fully built
+		this.bounds = bounds;
+		return bounds;
+	}
+	
+	/**
+	 * <p> Returns the smallest and largest Block-coordinates of this Region. </p>
+	 * <p> The result is cached. </p>
+	 * 
+	 * @return The bounds as {minX, minY, minZ, maxX, maxY, maxZ}, or null if this Region contains no Blocks
+	 */
+	protected int[] getBounds() {
+		int[] bounds = this.bounds;
+		if (bounds == null)
+			return this.calculateBounds();
+		return bounds == NO_BOUNDS ? null : bounds;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getLength(Axis axis) {
+		double[] extent = this.getExtent();
+		switch (axis) {
+		case X:
+			return extent[3] - extent[0];
+		case Y:
+			return extent[4] - extent[1];
+		case Z:
+			return extent[5] - extent[2];
+		default:
+			return 0;
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> The result is cached. </p>
+	 */
+	@Override
+	public long getBlockLength(Axis axis) {
+		int[] bounds = this.getBounds();
+		if (bounds == null)
+			return 0;
+		switch (axis) {
+		case X:
+			return (long) bounds[3] - bounds[0] + 1;
+		case Y:
+			return (long) bounds[4] - bounds[1] + 1;
+		case Z:
+			return (long) bounds[5] - bounds[2] + 1;
+		default:
+			return 0;
+		}
+	}
+	
+	/**
+	 * <p> Calculates the amount of columns of Blocks in this Area. </p>
+	 * <p> The runs of all rows with the same z-coordinate are merged; their total length is the amount of columns. </p>
+	 * 
+	 * @see ScanlineRegion#getBlockSurfaceArea()
+	 * @return The surface area
+	 */
+	protected long calculateBlockSurfaceArea() {
+		int[] rows = this.getRowRange();
+		long area = 0;
+		for (int z = rows[1]; z <= rows[3]; z++) {
+			int[] columns = SpanRegion.EMPTY_ROW;
+			for (int y = rows[0]; y <= rows[2]; y++)
+				columns = SpanRegion.union(columns, this.getSpans(y, z));
+			area += SpanRegion.length(columns);
+		}
+		this.blockSurfaceArea = area;
+		return area;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> The result is cached. </p>
+	 */
+	@Override
+	public long getBlockSurfaceArea() {
+		Long area = this.blockSurfaceArea;
+		if (area == null)
+			return this.calculateBlockSurfaceArea();
+		return area;
+	}
+	
+	/**
+	 * <p> Calculates the amount of Blocks this Region contains by summing up the length of all runs. </p>
+	 * 
+	 * @see ScanlineRegion#getBlockVolume()
+	 * @return The volume
+	 */
+	protected long calculateBlockVolume() {
+		int[] rows = this.getRowRange();
+		int[] span = new int[2];
+		long volume = 0;
+		for (int z = rows[1]; z <= rows[3]; z++)
+			for (int y = rows[0]; y <= rows[2]; y++)
+				if (this.getSpan(y, z, span))
+					volume += (long) span[1] - span[0] + 1;
+		this.blockVolume = volume;
+		return volume;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> The result is cached. </p>
+	 */
+	@Override
+	public long getBlockVolume() {
+		Long volume = this.blockVolume;
+		if (volume == null)
+			return this.calculateBlockVolume();
+		return volume;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(Location pos) {
+		return pos.getWorld() == this.getWorld() && this.getOverlap(pos.toVector());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(Vector pos) {
+		return this.contains(pos.getX(), pos.getY(), pos.getZ());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(IArea area) {
+		if (area.getWorld() != this.getWorld())
+			return false;
+		BoundingBox box = area.getBoundingBox();
+		if (box == null || !box.overlaps(this.getBoundingBox()))
+			return false;
+		for (Iterator<Vector> iterator = this.iterator(); iterator.hasNext();)
+			if (area.getOverlap(iterator.next()))
+				return true;
+		return false;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(IRegion region) {
+		if (region.getWorld() != this.getWorld())
+			return false;
+		BoundingBox box = region.getBoundingBox();
+		if (box == null || !box.overlaps(this.getBoundingBox()))
+			return false;
+		for (Iterator<Vector> iterator = region.iterator(); iterator.hasNext();)
+			if (this.getOverlap(iterator.next()))
+				return true;
+		return false;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Covers both the shape and all of its Blocks. </p>
+	 */
+	@Override
+	public BoundingBox getBoundingBox() {
+		double[] extent = this.getExtent();
+		BoundingBox box = new BoundingBox(extent[0], extent[1], extent[2], extent[3], extent[4], extent[5]);
+		int[] bounds = this.getBounds();
+		if (bounds == null)
+			return box;
+		return box.union(BoundingBox.ofBlocks(bounds[0], bounds[1], bounds[2], bounds[3], bounds[4], bounds[5]));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> All formats other than FULL and FLOORED are computed row by row from the runs of this Region
+	 * and returned as a {@linkplain SpanRegion}; FULL and FLOORED return this Region itself. </p>
+	 */
+	@Override
+	public IRegion getModifiedRegion(RegionFormat format) {
+		switch (format) {
+		case ENCLOSED:
+			return this.getEnclosedRegion();
+		case SURROUNDING:
+			return this.getSurroundingRegion();
+		case HOLLOW:
+			SpanRegion hollow = this.toSpanRegion();
+			hollow.remove(this.getEnclosedRegion());
+			return hollow;
+		case WIREFRAME:
+			SpanRegion wireframe = this.toSpanRegion();
+			wireframe.remove(this.getEnclosedRegion().dilate());
+			return wireframe;
+		case FLOORED:
+		case FULL:
+		default:
+			return this;
+		}
+	}
+	
+	/**
+	 * <p> Returns a SpanRegion containing the Blocks of this Region. </p>
+	 * 
+	 * @return The SpanRegion
+	 */
+	public SpanRegion toSpanRegion() {
+		SpanRegion region = new SpanRegion(this.getWorld());
+		int[] rows = this.getRowRange();
+		for (int z = rows[1]; z <= rows[3]; z++)
+			for (int y = rows[0]; y <= rows[2]; y++) {
+				int[] span = this.getSpans(y, z);
+				if (span.length > 0)
+					region.rows.put(SpanRegion.getRowKey(y, z), span);
+			}
+		return region;
+	}
+	
+	/**
+	 * <p> Computes the Blocks of this Region whose 6 neighbours are all within this Region
+	 * (see {@linkplain RegionFormat#ENCLOSED}). </p>
+	 * <p> The run of a row is shortened by one Block on both ends and intersected with the runs of the 4 neighbouring rows. </p>
+	 * 
+	 * @return The SpanRegion
+	 */
+	protected SpanRegion getEnclosedRegion() {
+		SpanRegion region = new SpanRegion(this.getWorld());
+		int[] rows = this.getRowRange();
+		int[] span = new int[2], neighbour = new int[2];
+		for (int z = rows[1]; z <= rows[3]; z++)
+			for (int y = rows[0]; y <= rows[2]; y++) {
+				if (!this.getSpan(y, z, span))
+					continue;
+				int start = span[0] + 1, end = span[1] - 1;
+				for (int i = 0; i < 4 && start <= end; i++) {
+					if (!this.getSpan(i == 0 ? y + 1 : i == 1 ? y - 1 : y, i == 2 ? z + 1 : i == 3 ? z - 1 : z, neighbour)) {
+						start = end + 1;
+						break;
+					}
+					start = Math.max(start, neighbour[0]);
+					end = Math.min(end, neighbour[1]);
+				}
+				if (start <= end)
+					region.rows.put(SpanRegion.getRowKey(y, z), new int[] {start, end});
+			}
+		return region;
+	}
+	
+	/**
+	 * <p> Computes the Blocks of this Region and all Blocks next to them (see {@linkplain RegionFormat#SURROUNDING}). </p>
+	 * <p> The run of a row is lengthened by one Block on both ends and merged with the runs of the 4 neighbouring rows. </p>
+	 * 
+	 * @return The SpanRegion
+	 */
+	protected SpanRegion getSurroundingRegion() {
+		SpanRegion region = new SpanRegion(this.getWorld());
+		int[] rows = this.getRowRange();
+		for (int z = rows[1] - 1; z <= rows[3] + 1; z++)
+			for (int y = rows[0] - 1; y <= rows[2] + 1; y++) {
+				int[] spans = SpanRegion.grow(this.getSpans(y, z), 1);
+				spans = SpanRegion.union(spans, this.getSpans(y + 1, z));
+				spans = SpanRegion.union(spans, this.getSpans(y - 1, z));
+				spans = SpanRegion.union(spans, this.getSpans(y, z + 1));
+				spans = SpanRegion.union(spans, this.getSpans(y, z - 1));
+				if (spans.length > 0)
+					region.rows.put(SpanRegion.getRowKey(y, z), spans);
+			}
+		return region;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Blocks are returned row by row (sorted by their z-, y- and x-coordinate), like a {@linkplain CuboidRegion}. </p>
+	 */
+	@Override
+	public Iterator<Vector> iterator() {
+		final int[] rows = this.getRowRange();
+		Iterator<Vector> iterator = new Iterator<Vector>() {
+			
+			private final int[] span = new int[2];
+			private int y = rows[0] - 1;
+			private int z = rows[1];
+			private long x = 0;
+			private long end = -1;
+			
+			@Override
+			public boolean hasNext() {
+				while (this.x > this.end) {
+					if (++this.y > rows[2]) {
+						this.y = rows[0];
+						if (++this.z > rows[3])
+							return false;
+					}
+					if (getSpan(this.y, this.z, this.span)) {
+						this.x = this.span[0];
+						this.end = this.span[1];
+					}
+				}
+				return true;
+			}
+			
+			@Override
+			public Vector next() {
+				if (!this.hasNext())
+					throw new NoSuchElementException();
+				return new Vector(this.x++, this.y, this.z);
+			}
+		};
+		return iterator;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Spliterator<Vector> spliterator() {
+		return Spliterators.spliterator(this.iterator(), this.getBlockVolume(), Spliterator.DISTINCT | Spliterator.NONNULL);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void forEachBlock(IBlockVisitor visitor) {
+		int[] rows = this.getRowRange();
+		int[] span = new int[2];
+		for (int z = rows[1]; z <= rows[3]; z++)
+			for (int y = rows[0]; y <= rows[2]; y++)
+				if (this.getSpan(y, z, span))
+					for (int x = span[0]; x <= span[1]; x++)
+						visitor.visit(x, y, z);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<Location> getLocationIterator() {
+		Iterator<Vector> vectoriterator = this.iterator();
+		Iterator<Location> iterator = new Iterator<Location>() {
+			
+			@Override
+			public boolean hasNext() {
+				return vectoriterator.hasNext();
+			}
+			
+			@Override
+			public Location next() {
+				return vectoriterator.next().toLocation(getWorld());
+			}
+		};
+		return iterator;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<Vector> getVectors() {
+		ArrayList<Vector> vectors = new ArrayList<Vector>((int) this.getBlockVolume());
+		for (Iterator<Vector> iterator = this.iterator(); iterator.hasNext();)
+			vectors.add(iterator.next());
+		return vectors;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<Location> getLocations() {
+		ArrayList<Location> locations = new ArrayList<Location>((int) this.getBlockVolume());
+		for (Iterator<Location> iterator = this.getLocationIterator(); iterator.hasNext();)
+			locations.add(iterator.next());
+		return locations;
+	}
+
+}
@@ -0,0 +1,957 @@
+package de.impelon.geotools.region;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.util.Vector;
+
+import de.impelon.geotools.Axis;
+import de.impelon.geotools.BoundingBox;
+import de.impelon.geotools.PackedPosition;
+import de.impelon.geotools.RegionFormat;
+import de.impelon.geotools.area.IArea;
+import de.impelon.misc.LongHashSet;
+
+/**
+ * <p> Implementation of IRegion for a free-style region. </p>
+ * <p> Stores Block-Positions as one bitset of 4096 bits per 16x16x16 chunk-section,
+ * so dense regions only need a single bit per Block. Positions are therefore always floored. </p>
+ * <p> Set-operations and modified regions are computed on whole longs, 64 Blocks at a time. </p>
+ * 
+ * @author Impelon
+ *
+ */
+public class SectionedRegion implements IVersionedRegion {
+	
+	public static final int SECTION_SIZE = 16;
+	protected static final int WORDS = 64;
+	protected static final long[] EMPTY_SECTION = new long[WORDS];
+	// Bits of all Blocks with a local x-coordinate of 0 or 15 within a word (one row of 16 Blocks per 16 bits).
+	protected static final long ROW_START = 0x0001000100010001L;
+	protected static final long ROW_END = 0x8000800080008000L;
+	
+	protected final World world;
+	protected final HashMap<Long, long[]> sections;
+	protected int[] bounds = null;
+	protected Long blockSurfaceArea = null;
+	protected Long blockVolume = null;
+	protected long modifications = 0;
+	protected boolean frozen = false;
+	
+	/**
+	 * <p> Create an empty SectionedRegion in the given {@linkplain World}. </p>
+	 * 
+	 * @param world the {@linkplain World} this SectionedRegion is in
+	 */
+	public SectionedRegion(World world) {
+		this.world = world;
+		this.sections = new HashMap<Long, long[]>();
+	}
+	
+	/**
+	 * <p> Create a SectionedRegion from another Region. </p>
+	 * 
+	 * @param region Region to create the SectionedRegion from
+	 */
+	public SectionedRegion(IRegion region) {
+		this(region.getWorld());
+		this.add(region);
+	}
+	
+	/**
+	 * <p> Create a SectionedRegion from a Collection of Vectors. </p>
+	 * 
+	 * @param positions a Collection with all Vectors this Region should contain
+	 */
+	public SectionedRegion(World world, Collection<Vector> positions) {
+		this(world);
+		for (Vector v : positions)
+			this.add(v.getBlockX(), v.getBlockY(), v.getBlockZ());
+	}
+	
+	/**
+	 * <p> Returns the key of the section containing the given Block-coordinates. </p>
+	 * 
+	 * @return The packed section-coordinates
+	 */
+	protected static long getSectionKey(int x, int y, int z) {
+		return PackedPosition.pack(x >> 4, y >> 4, z >> 4);
+	}
+	
+	/**
+	 * <p> Returns the index of the given Block-coordinates within its section. </p>
+	 * <p> Each word holds 4 rows along the x-axis; words are ordered by z and then y. </p>
+	 * 
+	 * @return The index of the bit
+	 */
+	protected static int getIndex(int x, int y, int z) {
+		return ((y & 15) << 8) | ((z & 15) << 4) | (x & 15);
+	}
+	
+	/**
+	 * <p> Returns the words of the section with the given key, creating it if needed. </p>
+	 * 
+	 * @return The words of the section
+	 */
+	protected long[] getOrCreateSection(long key) {
+		long[] words = this.sections.get(key);
+		if (words == null) {
+			words = new long[WORDS];
+			this.sections.put(key, words);
+		}
+		return words;
+	}
+	
+	/**
+	 * <p> Returns the words of the section with the given key, or an empty section if there is none. </p>
+	 * 
+	 * @return The words of the section (must not be modified)
+	 */
+	protected long[] getSection(long key) {
+		long[] words = this.sections.get(key);
+		return words == null ? EMPTY_SECTION : words;
+	}
+	
+	/**
+	 * <p> Determines if all bits of a section are cleared. </p>
+	 * 
+	 * @return Whether the section is empty
+	 */
+	protected static boolean isEmpty(long[] words) {
+		for (long word : words)
+			if (word != 0)
+				return false;
+		return true;
+	}
+	
+	/**
+	 * <p> Adds the Block at the given coordinates to this SectionedRegion. </p>
+	 * 
+	 * @return Whether this Region changed as a result of the call
+	 */
+	public boolean add(int x, int y, int z) {
+		this.checkModifiable();
+		long[] words = this.getOrCreateSection(getSectionKey(x, y, z));
+		int index = getIndex(x, y, z);
+		long bit = 1L << index;
+		if ((words[index >> 6] & bit) != 0)
+			return false;
+		words[index >> 6] |= bit;
+		this.invalidate();
+		return true;
+	}
+	
+	/**
+	 * <p> Removes the Block at the given coordinates from this SectionedRegion. </p>
+	 * 
+	 * @return Whether this Region changed as a result of the call
+	 */
+	public boolean remove(int x, int y, int z) {
+		this.checkModifiable();
+		long key = getSectionKey(x, y, z);
+		long[] words = this.sections.get(key);
+		if (words == null)
+			return false;
+		int index = getIndex(x, y, z);
+		long bit = 1L << index;
+		if ((words[index >> 6] & bit) == 0)
+			return false;
+		words[index >> 6] &= ~bit;
+		if (isEmpty(words))
+			this.sections.remove(key);
+		this.invalidate();
+		return true;
+	}
+	
+	/**
+	 * <p> Determines if the Block at the given coordinates is within this Region. </p>
+	 * 
+	 * @return Whether this Region contains the Block
+	 */
+	public boolean contains(int x, int y, int z) {
+		long[] words = this.sections.get(getSectionKey(x, y, z));
+		if (words == null)
+			return false;
+		int index = getIndex(x, y, z);
+		return (words[index >> 6] & (1L << index)) != 0;
+	}
+	
+	/**
+	 * <p> Adds all Blocks within the given (inclusive) Block-coordinates to this SectionedRegion. </p>
+	 * 
+	 * @return Whether this Region changed as a result of the call
+	 */
+	public boolean fill(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+		this.checkModifiable();
+		boolean changed = false;
+		for (int sy = minY >> 4; sy <= maxY >> 4; sy++)
+			for (int sz = minZ >> 4; sz <= maxZ >> 4; sz++)
+				for (int sx = minX >> 4; sx <= maxX >> 4; sx++) {
+					long[] words = this.getOrCreateSection(PackedPosition.pack(sx, sy, sz));
+					int x0 = Math.max(minX, sx << 4) & 15, x1 = Math.min(maxX, (sx << 4) + 15) & 15;
+					long row = ((1L << (x1 - x0 + 1)) - 1) << x0;
+					for (int y = Math.max(minY, sy << 4) & 15, y1 = Math.min(maxY, (sy << 4) + 15) & 15; y <= y1; y++)
+						for (int z = Math.max(minZ, sz << 4) & 15, z1 = Math.min(maxZ, (sz << 4) + 15) & 15; z <= z1; z++) {
+							int word = (y << 2) | (z >> 2);
+							long mask = row << ((z & 3) << 4);
+							changed |= (words[word] & mask) != mask;
+							words[word] |= mask;
+						}
+				}
+		if (changed)
+			this.invalidate();
+		return changed;
+	}
+	
+	/**
+	 * <p> Adds all Blocks of the given Region to this SectionedRegion (union). </p>
+	 * 
+	 * @param region add Positions of that Region
+	 * @return Whether this Region changed as a result of the call
+	 */
+	public boolean add(IRegion region) {
+		this.checkModifiable();
+		boolean changed = false;
+		if (region instanceof SectionedRegion) {
+			for (Map.Entry<Long, long[]> entry : ((SectionedRegion) region).sections.entrySet()) {
+				long[] words = this.getOrCreateSection(entry.getKey());
+				long[] other = entry.getValue();
+				for (int i = 0; i < WORDS; i++) {
+					long word = words[i] | other[i];
+					changed |= word != words[i];
+					words[i] = word;
+				}
+			}
+		} else if (region instanceof CuboidRegion) {
+			CuboidRegion cuboid = (CuboidRegion) region;
+			return this.fill(cuboid.getStartPosition().getBlockX(), cuboid.getStartPosition().getBlockY(), cuboid.getStartPosition().getBlockZ(),
+					cuboid.getEndPosition().getBlockX(), cuboid.getEndPosition().getBlockY(), cuboid.getEndPosition().getBlockZ());
+		} else {
+			long volume = this.getBlockVolume();
+			region.forEachBlock(new IBlockVisitor() {
+				
+				@Override
+				public void visit(int x, int y, int z) {
+					long[] words = getOrCreateSection(getSectionKey(x, y, z));
+					int index = getIndex(x, y, z);
+					words[index >> 6] |= 1L << index;
+				}
+			});
+			this.invalidate();
+			return this.getBlockVolume() != volume;
+		}
+		if (changed)
+			this.invalidate();
+		return changed;
+	}
+	
+	/**
+	 * <p> Removes all Blocks of the given Region from this SectionedRegion (difference). </p>
+	 * 
+	 * @param region remove Positions of that Region
+	 * @return Whether this Region changed as a result of the call
+	 */
+	public boolean remove(IRegion region) {
+		this.checkModifiable();
+		SectionedRegion other = toSectionedRegion(region);
+		boolean changed = false;
+		for (Iterator<Map.Entry<Long, long[]>> iterator = this.sections.entrySet().iterator(); iterator.hasNext();) {
+			Map.Entry<Long, long[]> entry = iterator.next();
+			long[] words = entry.getValue();
+			long[] removed = other.getSection(entry.getKey());
+			for (int i = 0; i < WORDS; i++) {
+				long word = words[i] & ~removed[i];
+				changed |= word != words[i];
+				words[i] = word;
+			}
+			if (isEmpty(words))
+				iterator.remove();
+		}
+		if (changed)
+			this.invalidate();
+		return changed;
+	}
+	
+	/**
+	 * <p> Only keeps those Blocks that intersect from the two regions (intersection). </p>
+	 * 
+	 * @param region Region to intersect with
+	 * @return Whether this Region changed as a result of the call
+	 */
+	public boolean retainIntersecting(IRegion region) {
+		this.checkModifiable();
+		SectionedRegion other = toSectionedRegion(region);
+		boolean changed = false;
+		for (Iterator<Map.Entry<Long, long[]>> iterator = this.sections.entrySet().iterator(); iterator.hasNext();) {
+			Map.Entry<Long, long[]> entry = iterator.next();
+			long[] words = entry.getValue();
+			long[] retained = other.getSection(entry.getKey());
+			for (int i = 0; i < WORDS; i++) {
+				long word = words[i] & retained[i];
+				changed |= word != words[i];
+				words[i] = word;
+			}
+			if (isEmpty(words))
+				iterator.remove();
+		}
+		if (changed)
+			this.invalidate();
+		return changed;
+	}
+	
+	/**
+	 * <p> Invalidates all cached results. </p>
+	 * 
+	 * @throws UnsupportedOperationException if this Region is frozen
+	 */
+	public void invalidate() throws UnsupportedOperationException {
+		this.checkModifiable();
+		this.bounds = null;
+		this.blockSurfaceArea = null;
+		this.blockVolume = null;
+		this.modifications++;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Incremented by {@linkplain SectionedRegion#invalidate()}, which every modification calls. </p>
+	 */
+	@Override
+	public long getModificationCount() {
+		return this.modifications;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public World getWorld() {
+		return this.world;
+	}
+	
+	/**
+	 * <p> Calculates the smallest and largest Block-coordinates of this Region. </p>
+	 * 
+	 * @return The bounds as {minX, minY, minZ, maxX, maxY, maxZ}
+	 */
+	protected int[] calculateBounds() {
+		int[] bounds = {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+		for (Map.Entry<Long, long[]> entry : this.sections.entrySet()) {
+			long key = entry.getKey();
+			long[] words = entry.getValue();
+			int xMask = 0, yMask = 0, zMask = 0;
+			for (int i = 0; i < WORDS; i++) {
+				long word = words[i];
+				if (word == 0)
+					continue;
+				yMask |= 1 << (i >> 2);
+				for (int lane = 0; lane < 4; lane++) {
+					int row = (int) (word >>> (lane << 4)) & 0xFFFF;
+					if (row != 0) {
+						zMask |= 1 << (((i & 3) << 2) | lane);
+						xMask |= row;
+					}
+				}
+			}
+			int x = PackedPosition.getX(key) << 4, y = PackedPosition.getY(key) << 4, z = PackedPosition.getZ(key) << 4;
+			bounds[0] = Math.min(bounds[0], x + Integer.numberOfTrailingZeros(xMask));
+			bounds[1] = Math.min(bounds[1], y + Integer.numberOfTrailingZeros(yMask));
+			bounds[2] = Math.min(bounds[2], z + Integer.numberOfTrailingZeros(zMask));
+			bounds[3] = Math.max(bounds[3], x + 31 - Integer.numberOfLeadingZeros(xMask));
+			bounds[4] = Math.max(bounds[4], y + 31 - Integer.numberOfLeadingZeros(yMask));
+			bounds[5] = Math.max(bounds[5], z + 31 - Integer.numberOfLeadingZeros(zMask));
+		}
+		this.bounds = bounds;
+		return bounds;
+	}
+	
+	/**
+	 * <p> Returns the smallest and largest Block-coordinates of this Region. </p>
+	 * <p> The result is cached. </p>
+	 * 
+	 * @return The bounds as {minX, minY, minZ, maxX, maxY, maxZ}
+	 */
+	protected int[] getBounds() {
+		if (this.bounds == null)
+			this.calculateBounds();
+		return this.bounds;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> The result is cached. </p>
+	 */
+	@Override
+	public double getLength(Axis axis) {
+		long blocks = this.getBlockLength(axis);
+		return blocks == 0 ? 0 : blocks - 1;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> The result is cached. </p>
+	 */
+	@Override
+	public long getBlockLength(Axis axis) {
+		if (this.sections.isEmpty())
+			return 0;
+		int[] bounds = this.getBounds();
+		switch (axis) {
+		case X:
+			return (long) bounds[3] - bounds[0] + 1;
+		case Y:
+			return (long) bounds[4] - bounds[1] + 1;
+		case Z:
+			return (long) bounds[5] - bounds[2] + 1;
+		default:
+			return 0;
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> The result is cached. </p>
+	 */
+	@Override
+	public double getSurfaceArea() {
+		return this.getBlockSurfaceArea();
+	}
+	
+	/**
+	 * <p> Calculates the amount of Blocks contained in this Area. </p>
+	 * <p> Every section-column is flattened by OR-ing its layers of 256 bits together. </p>
+	 * 
+	 * @see SectionedRegion#getBlockSurfaceArea()
+	 * @return The surface area
+	 */
+	protected long calculateBlockSurfaceArea() {
+		HashMap<Long, long[]> columns = new HashMap<Long, long[]>();
+		for (Map.Entry<Long, long[]> entry : this.sections.entrySet()) {
+			long key = PackedPosition.pack(PackedPosition.getX(entry.getKey()), 0, PackedPosition.getZ(entry.getKey()));
+			long[] column = columns.get(key);
+			if (column == null) {
+				column = new long[4];
+				columns.put(key, column);
+			}
+			long[] words = entry.getValue();
+			for (int i = 0; i < WORDS; i++)
+				column[i & 3] |= words[i];
+		}
+		long area = 0;
+		for (long[] column : columns.values())
+			for (long word : column)
+				area += Long.bitCount(word);
+		this.blockSurfaceArea = area;
+		return area;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> The result is cached. </p>
+	 */
+	@Override
+	public long getBlockSurfaceArea() {
+		if (this.blockSurfaceArea == null)
+			this.calculateBlockSurfaceArea();
+		return this.blockSurfaceArea;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(Location pos) {
+		return pos.getWorld() == this.getWorld() && this.contains(pos.getBlockX(), pos.getBlockY(), pos.getBlockZ());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(Vector pos) {
+		return this.contains(pos.getBlockX(), pos.getBlockY(), pos.getBlockZ());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(IArea area) {
+		if (area instanceof IRegion)
+			return this.getOverlap((IRegion) area);
+		if (area.getWorld() != this.getWorld())
+			return false;
+		for (Iterator<Vector> iterator = this.iterator(); iterator.hasNext();)
+			if (area.getOverlap(iterator.next()))
+				return true;
+		return false;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(IRegion region) {
+		if (region.getWorld() != this.getWorld())
+			return false;
+		if (region instanceof SectionedRegion) {
+			SectionedRegion other = (SectionedRegion) region;
+			for (Map.Entry<Long, long[]> entry : this.sections.entrySet()) {
+				long[] words = entry.getValue();
+				long[] others = other.getSection(entry.getKey());
+				for (int i = 0; i < WORDS; i++)
+					if ((words[i] & others[i]) != 0)
+						return true;
+			}
+			return false;
+		}
+		for (Iterator<Vector> iterator = this.iterator(); iterator.hasNext();)
+			if (region.getOverlap(iterator.next()))
+				return true;
+		return false;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public BoundingBox getBoundingBox() {
+		if (this.sections.isEmpty())
+			return null;
+		int[] bounds = this.getBounds();
+		return BoundingBox.ofBlocks(bounds[0], bounds[1], bounds[2], bounds[3], bounds[4], bounds[5]);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getVolume() {
+		return this.getBlockVolume();
+	}
+	
+	/**
+	 * <p> Calculates the amount of Blocks this Region contains. </p>
+	 * 
+	 * @see SectionedRegion#getBlockVolume()
+	 * @return The volume
+	 */
+	protected long calculateBlockVolume() {
+		long volume = 0;
+		for (long[] words : this.sections.values())
+			for (long word : words)
+				volume += Long.bitCount(word);
+		this.blockVolume = volume;
+		return volume;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> The result is cached. </p>
+	 */
+	@Override
+	public long getBlockVolume() {
+		if (this.blockVolume == null)
+			this.calculateBlockVolume();
+		return this.blockVolume;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public IRegion getModifiedRegion(RegionFormat format) {
+		switch (format) {
+		case ENCLOSED:
+			return this.morph(false);
+		case SURROUNDING:
+			return this.morph(true);
+		case WIREFRAME:
+			SectionedRegion wireframe = this.copy();
+			wireframe.remove(this.morph(false).morph(true));
+			return wireframe;
+		case HOLLOW:
+			SectionedRegion hollow = this.copy();
+			hollow.remove(this.morph(false));
+			return hollow;
+		case FLOORED:
+		case FULL:
+		default:
+			return this.copy();
+		}
+	}
+	
+	/**
+	 * <p> Returns a copy of this SectionedRegion. </p>
+	 * 
+	 * @return The copy
+	 */
+	public SectionedRegion copy() {
+		SectionedRegion region = new SectionedRegion(this.getWorld());
+		for (Map.Entry<Long, long[]> entry : this.sections.entrySet())
+			region.sections.put(entry.getKey(), entry.getValue().clone());
+		return region;
+	}
+	
+	/**
+	 * <p> Returns an immutable copy of this SectionedRegion. </p>
+	 * <p> All statistics of the copy are calculated eagerly, so once published safely it can be read from any thread;
+	 * modifying it throws an UnsupportedOperationException. Unlike a {@linkplain FrozenRegion} the copy stays compact. </p>
+	 * 
+	 * @return The frozen SectionedRegion
+	 */
+	public SectionedRegion freeze() {
+		SectionedRegion region = this.copy();
+		region.getBounds();
+		region.getBlockSurfaceArea();
+		region.getBlockVolume();
+		region.frozen = true;
+		return region;
+	}
+	
+	/**
+	 * <p> Determines if this SectionedRegion was created by {@linkplain SectionedRegion#freeze()} and cannot be modified. </p>
+	 * 
+	 * @return Whether this Region is frozen
+	 */
+	public boolean isFrozen() {
+		return this.frozen;
+	}
+	
+	/**
+	 * <p> Makes sure this SectionedRegion is not frozen before it is modified. </p>
+	 * 
+	 * @throws UnsupportedOperationException if this Region is frozen
+	 */
+	protected void checkModifiable() throws UnsupportedOperationException {
+		if (this.frozen)
+			throw new UnsupportedOperationException("Cannot modify a frozen SectionedRegion");
+	}
+	
+	/**
+	 * <p> Erodes or dilates this Region by one Block along all 6 directions. </p>
+	 * <p> For every word the words holding the neighbours in each direction are shifted into place,
+	 * then combined with AND (erode, see {@linkplain RegionFormat#ENCLOSED})
+	 * or OR (dilate, see {@linkplain RegionFormat#SURROUNDING}). </p>
+	 * 
+	 * @param dilate If true dilates, otherwise erodes
+	 * @return The resulting SectionedRegion
+	 */
+	protected SectionedRegion morph(boolean dilate) {
+		SectionedRegion result = new SectionedRegion(this.getWorld());
+		Collection<Long> keys = this.sections.keySet();
+		if (dilate) {
+			HashSet<Long> neighbours = new HashSet<Long>(keys);
+			for (long key : keys) {
+				int sx = PackedPosition.getX(key), sy = PackedPosition.getY(key), sz = PackedPosition.getZ(key);
+				neighbours.add(PackedPosition.pack(sx + 1, sy, sz));
+				neighbours.add(PackedPosition.pack(sx - 1, sy, sz));
+				neighbours.add(PackedPosition.pack(sx, sy + 1, sz));
+				neighbours.add(PackedPosition.pack(sx, sy - 1, sz));
+				neighbours.add(PackedPosition.pack(sx, sy, sz + 1));
+				neighbours.add(PackedPosition.pack(sx, sy, sz - 1));
+			}
+			keys = neighbours;
+		}
+		for (long key : keys) {
+			int sx = PackedPosition.getX(key), sy = PackedPosition.getY(key), sz = PackedPosition.getZ(key);
+			long[] center = this.getSection(key);
+			long[] east = this.getSection(PackedPosition.pack(sx + 1, sy, sz));
+			long[] west = this.getSection(PackedPosition.pack(sx - 1, sy, sz));
+			long[] up = this.getSection(PackedPosition.pack(sx, sy + 1, sz));
+			long[] down = this.getSection(PackedPosition.pack(sx, sy - 1, sz));
+			long[] south = this.getSection(PackedPosition.pack(sx, sy, sz + 1));
+			long[] north = this.getSection(PackedPosition.pack(sx, sy, sz - 1));
+			long[] words = new long[WORDS];
+			boolean empty = true;
+			for (int i = 0; i < WORDS; i++) {
+				long word = center[i];
+				long px = ((word >>> 1) & ~ROW_END) | ((east[i] << 15) & ROW_END);
+				long nx = ((word << 1) & ~ROW_START) | ((west[i] >>> 15) & ROW_START);
+				long pz = (word >>> 16) | (((i & 3) == 3 ? south[i - 3] : center[i + 1]) << 48);
+				long nz = (word << 16) | (((i & 3) == 0 ? north[i + 3] : center[i - 1]) >>> 48);
+				long py = i < WORDS - 4 ? center[i + 4] : up[i - (WORDS - 4)];
+				long ny = i >= 4 ? center[i - 4] : down[i + (WORDS - 4)];
+				words[i] = dilate ? word | px | nx | pz | nz | py | ny : word & px & nx & pz & nz & py & ny;
+				empty &= words[i] == 0;
+			}
+			if (!empty)
+				result.sections.put(key, words);
+		}
+		return result;
+	}
+	
+	/**
+	 * <p> Returns the smallest CuboidRegion containing all Blocks of this Region. </p>
+	 * 
+	 * @see SectionedRegion#isCuboid()
+	 * @return The CuboidRegion
+	 * @throws IllegalStateException if this Region is empty
+	 */
+	public CuboidRegion toCuboidRegion() throws IllegalStateException {
+		if (this.sections.isEmpty())
+			throw new IllegalStateException("Cannot create a CuboidRegion from an empty Region");
+		int[] bounds = this.getBounds();
+		return new CuboidRegion(new Vector(bounds[0], bounds[1], bounds[2]), new Vector(bounds[3], bounds[4], bounds[5]), this.getWorld());
+	}
+	
+	/**
+	 * <p> Determines if this Region is exactly a (non-empty) cuboid. </p>
+	 * 
+	 * @see SectionedRegion#toCuboidRegion()
+	 * @return Whether this Region is a cuboid
+	 */
+	public boolean isCuboid() {
+		return !this.sections.isEmpty() && this.getBlockVolume() ==
+				this.getBlockLength(Axis.X) * this.getBlockLength(Axis.Y) * this.getBlockLength(Axis.Z);
+	}
+	
+	/**
+	 * <p> Creates a PositionRegion containing all Blocks of this Region. </p>
+	 * 
+	 * @param packed If true the PositionRegion will store packed Block-Positions
+	 * @return The PositionRegion
+	 */
+	public PositionRegion toPositionRegion(boolean packed) {
+		if (!packed) {
+			final HashSet<Vector> vectors = new HashSet<Vector>((int) Math.min(this.getBlockVolume() * 4 / 3 + 1, Integer.MAX_VALUE));
+			this.forEachBlock(new IBlockVisitor() {
+				
+				@Override
+				public void visit(int x, int y, int z) {
+					vectors.add(new Vector(x, y, z));
+				}
+			});
+			return new PositionRegion(this.getWorld(), vectors);
+		}
+		LongHashSet positions = new LongHashSet((int) this.getBlockVolume());
+		this.forEachBlock(new IBlockVisitor() {
+			
+			@Override
+			public void visit(int x, int y, int z) {
+				positions.add(PackedPosition.pack(x, y, z));
+			}
+		});
+		return new PositionRegion(this.getWorld(), new PackedPositionSet(positions));
+	}
+	
+	/**
+	 * <p> Returns the given Region as a SectionedRegion, converting it if needed. </p>
+	 * 
+	 * @param region the Region
+	 * @return The SectionedRegion
+	 */
+	protected static SectionedRegion toSectionedRegion(IRegion region) {
+		if (region instanceof SectionedRegion)
+			return (SectionedRegion) region;
+		return new SectionedRegion(region);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Blocks are returned section by section. </p>
+	 */
+	@Override
+	public Iterator<Vector> iterator() {
+		Iterator<Map.Entry<Long, long[]>> sectioniterator = this.sections.entrySet().iterator();
+		Iterator<Vector> iterator = new Iterator<Vector>() {
+			
+			private long[] words = null;
+			private int word;
+			private long current = 0;
+			private int x, y, z;
+			
+			@Override
+			public boolean hasNext() {
+				while (this.current == 0) {
+					if (this.words != null && ++this.word < WORDS) {
+						this.current = this.words[this.word];
+						continue;
+					}
+					if (!sectioniterator.hasNext())
+						return false;
+					Map.Entry<Long, long[]> entry = sectioniterator.next();
+					long key = entry.getKey();
+					this.x = PackedPosition.getX(key) << 4;
+					this.y = PackedPosition.getY(key) << 4;
+					this.z = PackedPosition.getZ(key) << 4;
+					this.words = entry.getValue();
+					this.word = 0;
+					this.current = this.words[0];
+				}
+				return true;
+			}
+			
+			@Override
+			public Vector next() {
+				if (!this.hasNext())
+					throw new NoSuchElementException();
+				int index = (this.word << 6) | Long.numberOfTrailingZeros(this.current);
+				this.current &= this.current - 1;
+				return new Vector(this.x + (index & 15), this.y + (index >> 8), this.z + ((index >> 4) & 15));
+			}
+		};
+		return iterator;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Splits by ranges of sections. </p>
+	 */
+	@Override
+	public Spliterator<Vector> spliterator() {
+		long[] keys = new long[this.sections.size()];
+		long[][] words = new long[keys.length][];
+		int i = 0;
+		for (Map.Entry<Long, long[]> entry : this.sections.entrySet()) {
+			keys[i] = entry.getKey();
+			words[i++] = entry.getValue();
+		}
+		return new SectionSpliterator(keys, words, 0, keys.length, this.getBlockVolume(), true);
+	}
+	
+	/**
+	 * <p> Spliterator over a range of sections. </p>
+	 */
+	protected static class SectionSpliterator implements Spliterator<Vector> {
+		
+		protected final long[] keys;
+		protected final long[][] words;
+		protected int section;
+		protected final int end;
+		protected int word = 0;
+		protected long current;
+		protected long estimate;
+		protected boolean exact;
+		
+		protected SectionSpliterator(long[] keys, long[][] words, int section, int end, long estimate, boolean exact) {
+			this.keys = keys;
+			this.words = words;
+			this.section = section;
+			this.end = end;
+			this.current = section < end ? words[section][0] : 0;
+			this.estimate = estimate;
+			this.exact = exact;
+		}
+		
+		@Override
+		public boolean tryAdvance(Consumer<? super Vector> action) {
+			if (this.section >= this.end)
+				return false;
+			while (this.current == 0) {
+				if (++this.word == WORDS) {
+					if (++this.section >= this.end)
+						return false;
+					this.word = 0;
+				}
+				this.current = this.words[this.section][this.word];
+			}
+			long key = this.keys[this.section];
+			int index = (this.word << 6) | Long.numberOfTrailingZeros(this.current);
+			this.current &= this.current - 1;
+			action.accept(new Vector((PackedPosition.getX(key) << 4) + (index & 15), (PackedPosition.getY(key) << 4) + (index >> 8),
+					(PackedPosition.getZ(key) << 4) + ((index >> 4) & 15)));
+			return true;
+		}
+		
+		@Override
+		public Spliterator<Vector> trySplit() {
+			int remaining = this.end - this.section - 1;
+			if (remaining < 2)
+				return null;
+			int middle = this.end - remaining / 2;
+			long estimate = this.estimate * (remaining / 2) / (remaining + 1);
+			SectionSpliterator prefix = new SectionSpliterator(this.keys, this.words, this.section, middle, this.estimate - estimate, false);
+			prefix.word = this.word;
+			prefix.current = this.current;
+			this.section = middle;
+			this.word = 0;
+			this.current = this.words[middle][0];
+			this.estimate = estimate;
+			this.exact = false;
+			return prefix;
+		}
+		
+		@Override
+		public long estimateSize() {
+			return this.estimate;
+		}
+		
+		@Override
+		public int characteristics() {
+			return Spliterator.DISTINCT | Spliterator.NONNULL | (this.exact ? Spliterator.SIZED : 0);
+		}
+	
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void forEachBlock(IBlockVisitor visitor) {
+		for (Map.Entry<Long, long[]> entry : this.sections.entrySet()) {
+			long key = entry.getKey();
+			int x = PackedPosition.getX(key) << 4, y = PackedPosition.getY(key) << 4, z = PackedPosition.getZ(key) << 4;
+			long[] words = entry.getValue();
+			for (int i = 0; i < WORDS; i++)
+				for (long word = words[i]; word != 0; word &= word - 1) {
+					int index = (i << 6) | Long.numberOfTrailingZeros(word);
+					visitor.visit(x + (index & 15), y + (index >> 8), z + ((index >> 4) & 15));
+				}
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<Location> getLocationIterator() {
+		Iterator<Vector> vectoriterator = this.iterator();
+		Iterator<Location> iterator = new Iterator<Location>() {
+			
+			@Override
+			public boolean hasNext() {
+				return vectoriterator.hasNext();
+			}
+			
+			@Override
+			public Location next() {
+				return vectoriterator.next().toLocation(getWorld());
+			}
+		};
+		return iterator;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<Vector> getVectors() {
+		ArrayList<Vector> vectors = new ArrayList<Vector>((int) this.getBlockVolume());
+		for (Iterator<Vector> iterator = this.iterator(); iterator.hasNext();)
+				vectors.add(iterator.next());
+		return vectors;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<Location> getLocations() {
+		ArrayList<Location> locations = new ArrayList<Location>((int) this.getBlockVolume());
+		for (Iterator<Location> iterator = this.getLocationIterator(); iterator.hasNext();)
+			locations.add(iterator.next());
+		return locations;
+	}
+
+}
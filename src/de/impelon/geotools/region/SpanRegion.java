@@ -0,0 +1,950 @@
+package de.impelon.geotools.region;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.util.Vector;
+
+import de.impelon.geotools.Axis;
+import de.impelon.geotools.BoundingBox;
+import de.impelon.geotools.PackedPosition;
+import de.impelon.geotools.RegionFormat;
+import de.impelon.geotools.area.IArea;
+
+/**
+ * <p> Implementation of IRegion for a free-style region made of runs of Blocks along the x-axis. </p>
+ * <p> Stores a sorted list of inclusive [start, end] x-intervals for every row (y- and z-coordinate),
+ * so long walls, roads or floors only need two ints per run. Positions are therefore always floored. </p>
+ * <p> Membership is a binary search within a row; set-operations and modified regions are computed
+ * by merging intervals. </p>
+ * <p> Rows are keyed by their packed coordinates, so y- and z-coordinates are limited to the range of {@linkplain PackedPosition};
+ * adding or removing Blocks outside of it throws an IllegalArgumentException instead of wrapping around.
+ * When whole Regions are added, removed or intersected, their x-coordinates are limited to that range as well. </p>
+ * 
+ * @author Impelon
+ *
+ */
+public class SpanRegion implements IVersionedRegion {
+	
+	protected static final int[] EMPTY_ROW = new int[0];
+	protected static final long HORIZONTAL_MASK = (1L << PackedPosition.HORIZONTAL_BITS) - 1;
+	
+	protected final World world;
+	protected final HashMap<Long, int[]> rows;
+	protected int[] bounds = null;
+	protected Long blockSurfaceArea = null;
+	protected Long blockVolume = null;
+	protected long modifications = 0;
+	protected boolean frozen = false;
+	
+	/**
+	 * <p> Create an empty SpanRegion in the given {@linkplain World}. </p>
+	 * 
+	 * @param world the {@linkplain World} this SpanRegion is in
+	 */
+	public SpanRegion(World world) {
+		this.world = world;
+		this.rows = new HashMap<Long, int[]>();
+	}
+	
+	/**
+	 * <p> Create a SpanRegion from another Region. </p>
+	 * 
+	 * @param region Region to create the SpanRegion from
+	 * @throws IllegalArgumentException if a Block is outside of the range of {@linkplain PackedPosition}
+	 */
+	public SpanRegion(IRegion region) throws IllegalArgumentException {
+		this(region.getWorld());
+		this.add(region);
+	}
+	
+	/**
+	 * <p> Create a SpanRegion from a Collection of Vectors. </p>
+	 * 
+	 * @param positions a Collection with all Vectors this Region should contain
+	 * @throws IllegalArgumentException if a Vector is outside of the range of {@linkplain PackedPosition}
+	 */
+	public SpanRegion(World world, Collection<Vector> positions) throws IllegalArgumentException {
+		this(world);
+		for (Vector v : positions)
+			this.add(v.getBlockX(), v.getBlockY(), v.getBlockZ());
+	}
+	
+	/**
+	 * <p> Returns the key of the row with the given y- and z-coordinate. </p>
+	 * <p> Coordinates outside of the range of {@linkplain PackedPosition} wrap around, so they have to be checked first. </p>
+	 * 
+	 * @return The packed row-coordinates
+	 */
+	protected static long getRowKey(int y, int z) {
+		return PackedPosition.pack(0, y, z);
+	}
+	
+	/**
+	 * <p> Determines if a row with the given y- and z-coordinate can be stored. </p>
+	 * 
+	 * @return Whether the coordinates are within the range of {@linkplain PackedPosition}
+	 */
+	protected static boolean isInRange(int y, int z) {
+		return y >= PackedPosition.MIN_VERTICAL && y <= PackedPosition.MAX_VERTICAL
+				&& z >= PackedPosition.MIN_HORIZONTAL && z <= PackedPosition.MAX_HORIZONTAL;
+	}
+	
+	/**
+	 * <p> Makes sure a row with the given y- and z-coordinate can be stored. </p>
+	 * 
+	 * @throws IllegalArgumentException if the coordinates are outside of the range of {@linkplain PackedPosition}
+	 */
+	protected static void checkRange(int y, int z) throws IllegalArgumentException {
+		if (!isInRange(y, z))
+			throw new IllegalArgumentException("Cannot store Blocks at y=" + y + ", z=" + z + " outside of the range of PackedPosition");
+	}
+	
+	/**
+	 * <p> Returns the runs of the row with the given key, or an empty row if there is none. </p>
+	 * 
+	 * @return The runs as {start, end, start, end, ...} (must not be modified)
+	 */
+	protected int[] getRow(long key) {
+		int[] spans = this.rows.get(key);
+		return spans == null ? EMPTY_ROW : spans;
+	}
+	
+	/**
+	 * <p> Replaces the row with the given key, removing it if it is empty. </p>
+	 * 
+	 * @return Whether the row changed
+	 */
+	protected boolean setRow(long key, int[] spans) {
+		int[] previous = spans.length == 0 ? this.rows.remove(key) : this.rows.put(key, spans);
+		return !Arrays.equals(previous == null ? EMPTY_ROW : previous, spans);
+	}
+	
+	/**
+	 * <p> Returns the runs of the row with the given y- and z-coordinate, or an empty row if there is none. </p>
+	 * 
+	 * @return The runs as {start, end, start, end, ...} (must not be modified)
+	 */
+	protected int[] getRow(int y, int z) {
+		return isInRange(y, z) ? this.getRow(getRowKey(y, z)) : EMPTY_ROW;
+	}
+	
+	/**
+	 * <p> Returns the runs of the row with the given y- and z-coordinate. </p>
+	 * 
+	 * @return A copy of the runs as {start, end, start, end, ...}
+	 */
+	public int[] getSpans(int y, int z) {
+		return this.getRow(y, z).clone();
+	}
+	
+	/**
+	 * <p> Adds the Block at the given coordinates to this SpanRegion. </p>
+	 * 
+	 * @return Whether this Region changed as a result of the call
+	 * @throws IllegalArgumentException if the y- or z-coordinate is outside of the range of {@linkplain PackedPosition}
+	 */
+	public boolean add(int x, int y, int z) throws IllegalArgumentException {
+		return this.add(x, x, y, z);
+	}
+	
+	/**
+	 * <p> Adds all Blocks from start to end (inclusive) along the x-axis of the given row to this SpanRegion. </p>
+	 * 
+	 * @return Whether this Region changed as a result of the call
+	 * @throws IllegalArgumentException if the y- or z-coordinate is outside of the range of {@linkplain PackedPosition}
+	 */
+	public boolean add(int start, int end, int y, int z) throws IllegalArgumentException {
+		this.checkModifiable();
+		checkRange(y, z);
+		long key = getRowKey(y, z);
+		if (start > end || this.setRow(key, union(this.getRow(key), new int[] {start, end})) == false)
+			return false;
+		this.invalidate();
+		return true;
+	}
+	
+	/**
+	 * <p> Removes the Block at the given coordinates from this SpanRegion. </p>
+	 * 
+	 * @return Whether this Region changed as a result of the call
+	 * @throws IllegalArgumentException if the y- or z-coordinate is outside of the range of {@linkplain PackedPosition}
+	 */
+	public boolean remove(int x, int y, int z) throws IllegalArgumentException {
+		return this.remove(x, x, y, z);
+	}
+	
+	/**
+	 * <p> Removes all Blocks from start to end (inclusive) along the x-axis of the given row from this SpanRegion. </p>
+	 * 
+	 * @return Whether this Region changed as a result of the call
+	 * @throws IllegalArgumentException if the y- or z-coordinate is outside of the range of {@linkplain PackedPosition}
+	 */
+	public boolean remove(int start, int end, int y, int z) throws IllegalArgumentException {
+		this.checkModifiable();
+		checkRange(y, z);
+		long key = getRowKey(y, z);
+		if (start > end || !this.rows.containsKey(key) || !this.setRow(key, subtract(this.getRow(key), new int[] {start, end})))
+			return false;
+		this.invalidate();
+		return true;
+	}
+	
+	/**
+	 * <p> Determines if the Block at the given coordinates is within this Region. </p>
+	 * 
+	 * @return Whether this Region contains the Block
+	 */
+	public boolean contains(int x, int y, int z) {
+		return find(this.getRow(y, z), x) >= 0;
+	}
+	
+	/**
+	 * <p> Adds all Blocks within the given (inclusive) Block-coordinates to this SpanRegion. </p>
+	 * 
+	 * @return Whether this Region changed as a result of the call
+	 * @throws IllegalArgumentException if the y- or z-coordinates are outside of the range of {@linkplain PackedPosition}
+	 */
+	public boolean fill(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) throws IllegalArgumentException {
+		this.checkModifiable();
+		if (minX > maxX || minY > maxY || minZ > maxZ)
+			return false;
+		checkRange(minY, minZ);
+		checkRange(maxY, maxZ);
+		int[] span = {minX, maxX};
+		boolean changed = false;
+		for (int z = minZ; z <= maxZ; z++)
+			for (int y = minY; y <= maxY; y++) {
+				long key = getRowKey(y, z);
+				changed |= this.setRow(key, union(this.getRow(key), span));
+			}
+		if (changed)
+			this.invalidate();
+		return changed;
+	}
+	
+	/**
+	 * <p> Adds all Blocks of the given Region to this SpanRegion (union). </p>
+	 * 
+	 * @param region add Positions of that Region
+	 * @return Whether this Region changed as a result of the call
+	 * @throws IllegalArgumentException if a Block is outside of the range of {@linkplain PackedPosition}
+	 */
+	public boolean add(IRegion region) throws IllegalArgumentException {
+		this.checkModifiable();
+		if (region instanceof CuboidRegion) {
+			CuboidRegion cuboid = (CuboidRegion) region;
+			return this.fill(cuboid.getStartPosition().getBlockX(), cuboid.getStartPosition().getBlockY(), cuboid.getStartPosition().getBlockZ(),
+					cuboid.getEndPosition().getBlockX(), cuboid.getEndPosition().getBlockY(), cuboid.getEndPosition().getBlockZ());
+		}
+		SpanRegion other = toSpanRegion(region);
+		boolean changed = false;
+		if (this.rows.isEmpty()) {
+			for (Map.Entry<Long, int[]> entry : other.rows.entrySet())
+				this.rows.put(entry.getKey(), entry.getValue());
+			changed = !other.rows.isEmpty();
+		} else
+			for (Map.Entry<Long, int[]> entry : other.rows.entrySet())
+				changed |= this.setRow(entry.getKey(), union(this.getRow(entry.getKey()), entry.getValue()));
+		if (changed)
+			this.invalidate();
+		return changed;
+	}
+	
+	/**
+	 * <p> Removes all Blocks of the given Region from this SpanRegion (difference). </p>
+	 * 
+	 * @param region remove Positions of that Region
+	 * @return Whether this Region changed as a result of the call
+	 * @throws IllegalArgumentException if a Block is outside of the range of {@linkplain PackedPosition}
+	 */
+	public boolean remove(IRegion region) throws IllegalArgumentException {
+		this.checkModifiable();
+		SpanRegion other = toSpanRegion(region);
+		boolean changed = false;
+		for (Long key : new ArrayList<Long>(this.rows.keySet())) {
+			int[] removed = other.rows.get(key);
+			if (removed != null)
+				changed |= this.setRow(key, subtract(this.rows.get(key), removed));
+		}
+		if (changed)
+			this.invalidate();
+		return changed;
+	}
+	
+	/**
+	 * <p> Only keeps those Blocks that intersect from the two regions (intersection). </p>
+	 * 
+	 * @param region Region to intersect with
+	 * @return Whether this Region changed as a result of the call
+	 * @throws IllegalArgumentException if a Block is outside of the range of {@linkplain PackedPosition}
+	 */
+	public boolean retainIntersecting(IRegion region) throws IllegalArgumentException {
+		this.checkModifiable();
+		SpanRegion other = toSpanRegion(region);
+		boolean changed = false;
+		for (Long key : new ArrayList<Long>(this.rows.keySet()))
+			changed |= this.setRow(key, intersect(this.rows.get(key), other.getRow(key)));
+		if (changed)
+			this.invalidate();
+		return changed;
+	}
+	
+	/**
+	 * <p> Invalidates all cached results. </p>
+	 * 
+	 * @throws UnsupportedOperationException if this Region is frozen
+	 */
+	public void invalidate() throws UnsupportedOperationException {
+		this.checkModifiable();
+		this.bounds = null;
+		this.blockSurfaceArea = null;
+		this.blockVolume = null;
+		this.modifications++;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Incremented by {@linkplain SpanRegion#invalidate()}, which every modification calls. </p>
+	 */
+	@Override
+	public long getModificationCount() {
+		return this.modifications;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public World getWorld() {
+		return this.world;
+	}
+	
+	/**
+	 * <p> Calculates the smallest and largest Block-coordinates of this Region. </p>
+	 * 
+	 * @return The bounds as {minX, minY, minZ, maxX, maxY, maxZ}
+	 */
+	protected int[] calculateBounds() {
+		int[] bounds = {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+		for (Map.Entry<Long, int[]> entry : this.rows.entrySet()) {
+			long key = entry.getKey();
+			int[] spans = entry.getValue();
+			bounds[0] = Math.min(bounds[0], spans[0]);
+			bounds[1] = Math.min(bounds[1], PackedPosition.getY(key));
+			bounds[2] = Math.min(bounds[2], PackedPosition.getZ(key));
+			bounds[3] = Math.max(bounds[3], spans[spans.length - 1]);
+			bounds[4] = Math.max(bounds[4], PackedPosition.getY(key));
+			bounds[5] = Math.max(bounds[5], PackedPosition.getZ(key));
+		}
+		this.bounds = bounds;
+		return this.bounds;
+	}
+	
+	/**
+	 * <p> Returns the smallest and largest Block-coordinates of this Region. </p>
+	 * <p> The result is cached. </p>
+	 * 
+	 * @return The bounds as {minX, minY, minZ, maxX, maxY, maxZ}
+	 */
+	protected int[] getBounds() {
+		if (this.bounds == null)
+			this.calculateBounds();
+		return this.bounds;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> The result is cached. </p>
+	 */
+	@Override
+	public double getLength(Axis axis) {
+		return Math.max(this.getBlockLength(axis) - 1, 0);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> The result is cached. </p>
+	 */
+	@Override
+	public long getBlockLength(Axis axis) {
+		if (this.rows.isEmpty())
+			return 0;
+		int[] bounds = this.getBounds();
+		switch (axis) {
+		case X:
+			return (long) bounds[3] - bounds[0] + 1;
+		case Y:
+			return (long) bounds[4] - bounds[1] + 1;
+		case Z:
+			return (long) bounds[5] - bounds[2] + 1;
+		default:
+			return 0;
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> The result is cached. </p>
+	 */
+	@Override
+	public double getSurfaceArea() {
+		return this.getBlockSurfaceArea();
+	}
+	
+	/**
+	 * <p> Calculates the amount of columns of Blocks in this Area. </p>
+	 * <p> The runs of all rows with the same z-coordinate are merged; their total length is the amount of columns. </p>
+	 * 
+	 * @see SpanRegion#getBlockSurfaceArea()
+	 * @return The surface area
+	 */
+	protected long calculateBlockSurfaceArea() {
+		HashMap<Integer, int[]> columns = new HashMap<Integer, int[]>();
+		for (Map.Entry<Long, int[]> entry : this.rows.entrySet()) {
+			int z = PackedPosition.getZ(entry.getKey());
+			int[] spans = columns.get(z);
+			columns.put(z, spans == null ? entry.getValue() : union(spans, entry.getValue()));
+		}
+		long area = 0;
+		for (int[] spans : columns.values())
+			area += length(spans);
+		this.blockSurfaceArea = area;
+		return this.blockSurfaceArea;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> The result is cached. </p>
+	 */
+	@Override
+	public long getBlockSurfaceArea() {
+		if (this.blockSurfaceArea == null)
+			this.calculateBlockSurfaceArea();
+		return this.blockSurfaceArea;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(Location pos) {
+		return pos.getWorld() == this.getWorld() && this.getOverlap(pos.toVector());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(Vector pos) {
+		return this.contains(pos.getBlockX(), pos.getBlockY(), pos.getBlockZ());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(IArea area) {
+		if (area.getWorld() != this.getWorld() || this.rows.isEmpty())
+			return false;
+		BoundingBox box = area.getBoundingBox();
+		if (box == null || !box.overlaps(this.getBoundingBox()))
+			return false;
+		for (Iterator<Vector> iterator = this.iterator(); iterator.hasNext();)
+			if (area.getOverlap(iterator.next()))
+				return true;
+		return false;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(IRegion region) {
+		if (region.getWorld() != this.getWorld() || this.rows.isEmpty())
+			return false;
+		if (region instanceof SpanRegion) {
+			SpanRegion other = (SpanRegion) region;
+			for (Map.Entry<Long, int[]> entry : this.rows.entrySet())
+				if (intersect(entry.getValue(), other.getRow(entry.getKey())).length > 0)
+					return true;
+			return false;
+		}
+		BoundingBox box = region.getBoundingBox();
+		if (box == null || !box.overlaps(this.getBoundingBox()))
+			return false;
+		for (Iterator<Vector> iterator = this.iterator(); iterator.hasNext();)
+			if (region.getOverlap(iterator.next()))
+				return true;
+		return false;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public BoundingBox getBoundingBox() {
+		if (this.rows.isEmpty())
+			return null;
+		int[] bounds = this.getBounds();
+		return BoundingBox.ofBlocks(bounds[0], bounds[1], bounds[2], bounds[3], bounds[4], bounds[5]);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getVolume() {
+		return this.getBlockVolume();
+	}
+	
+	/**
+	 * <p> Calculates the amount of Blocks this Region contains. </p>
+	 * 
+	 * @see SpanRegion#getBlockVolume()
+	 * @return The volume
+	 */
+	protected long calculateBlockVolume() {
+		long volume = 0;
+		for (int[] spans : this.rows.values())
+			volume += length(spans);
+		this.blockVolume = volume;
+		return this.blockVolume;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> The result is cached. </p>
+	 */
+	@Override
+	public long getBlockVolume() {
+		if (this.blockVolume == null)
+			this.calculateBlockVolume();
+		return this.blockVolume;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public IRegion getModifiedRegion(RegionFormat format) {
+		switch (format) {
+		case ENCLOSED:
+			return this.erode();
+		case SURROUNDING:
+			return this.dilate();
+		case WIREFRAME:
+			SpanRegion wireframe = this.copy();
+			wireframe.remove(this.erode().dilate());
+			return wireframe;
+		case HOLLOW:
+			SpanRegion hollow = this.copy();
+			hollow.remove(this.erode());
+			return hollow;
+		case FLOORED:
+		case FULL:
+		default:
+			return this.copy();
+		}
+	}
+	
+	/**
+	 * <p> Returns a copy of this SpanRegion. </p>
+	 * 
+	 * @return The copy
+	 */
+	public SpanRegion copy() {
+		SpanRegion region = new SpanRegion(this.getWorld());
+		// rows are never modified in place, so they can be shared
+		region.rows.putAll(this.rows);
+		return region;
+	}
+	
+	/**
+	 * <p> Returns an immutable copy of this SpanRegion. </p>
+	 * <p> All statistics of the copy are calculated eagerly, so once published safely it can be read from any thread;
+	 * modifying it throws an UnsupportedOperationException. Unlike a {@linkplain FrozenRegion} the copy stays compact. </p>
+	 * 
+	 * @return The frozen SpanRegion
+	 */
+	public SpanRegion freeze() {
+		SpanRegion region = this.copy();
+		region.getBounds();
+		region.getBlockSurfaceArea();
+		region.getBlockVolume();
+		region.frozen = true;
+		return region;
+	}
+	
+	/**
+	 * <p> Determines if this SpanRegion was created by {@linkplain SpanRegion#freeze()} and cannot be modified. </p>
+	 * 
+	 * @return Whether this Region is frozen
+	 */
+	public boolean isFrozen() {
+		return this.frozen;
+	}
+	
+	/**
+	 * <p> Makes sure this SpanRegion is not frozen before it is modified. </p>
+	 * 
+	 * @throws UnsupportedOperationException if this Region is frozen
+	 */
+	protected void checkModifiable() throws UnsupportedOperationException {
+		if (this.frozen)
+			throw new UnsupportedOperationException("Cannot modify a frozen SpanRegion");
+	}
+	
+	/**
+	 * <p> Erodes this Region by one Block along all 6 directions (see {@linkplain RegionFormat#ENCLOSED}). </p>
+	 * <p> Every run is shortened by one Block on both ends and intersected with the 4 neighbouring rows. </p>
+	 * 
+	 * @return The resulting SpanRegion
+	 */
+	protected SpanRegion erode() {
+		SpanRegion result = new SpanRegion(this.getWorld());
+		for (Map.Entry<Long, int[]> entry : this.rows.entrySet()) {
+			long key = entry.getKey();
+			int y = PackedPosition.getY(key), z = PackedPosition.getZ(key);
+			int[] spans = grow(entry.getValue(), -1);
+			spans = intersect(spans, this.getRow(y + 1, z));
+			spans = intersect(spans, this.getRow(y - 1, z));
+			spans = intersect(spans, this.getRow(y, z + 1));
+			spans = intersect(spans, this.getRow(y, z - 1));
+			if (spans.length > 0)
+				result.rows.put(key, spans);
+		}
+		return result;
+	}
+	
+	/**
+	 * <p> Dilates this Region by one Block along all 6 directions (see {@linkplain RegionFormat#SURROUNDING}). </p>
+	 * <p> Every run is lengthened by one Block on both ends and copied into the 4 neighbouring rows;
+	 * neighbouring rows outside of the range of {@linkplain PackedPosition} are left out. </p>
+	 * 
+	 * @return The resulting SpanRegion
+	 */
+	protected SpanRegion dilate() {
+		SpanRegion result = new SpanRegion(this.getWorld());
+		for (Map.Entry<Long, int[]> entry : this.rows.entrySet()) {
+			long key = entry.getKey();
+			int y = PackedPosition.getY(key), z = PackedPosition.getZ(key);
+			int[] spans = entry.getValue();
+			result.setRow(key, union(result.getRow(key), grow(spans, 1)));
+			for (int[] neighbour : new int[][] {{y + 1, z}, {y - 1, z}, {y, z + 1}, {y, z - 1}})
+				if (isInRange(neighbour[0], neighbour[1])) {
+					long row = getRowKey(neighbour[0], neighbour[1]);
+					result.setRow(row, union(result.getRow(row), spans));
+				}
+		}
+		return result;
+	}
+	
+	/**
+	 * <p> Returns the given Region as a SpanRegion, converting it if needed. </p>
+	 * <p> Blocks of other Regions are collected and sorted by row first, so every run is only created once. </p>
+	 * 
+	 * @param region the Region
+	 * @return The SpanRegion
+	 * @throws IllegalArgumentException if a Block is outside of the range of {@linkplain PackedPosition}
+	 */
+	protected static SpanRegion toSpanRegion(IRegion region) throws IllegalArgumentException {
+		if (region instanceof SpanRegion)
+			return (SpanRegion) region;
+		SpanRegion result = new SpanRegion(region.getWorld());
+		if (region instanceof CuboidRegion) {
+			result.add(region);
+			return result;
+		}
+		final long[][] blocks = {new long[16]};
+		final int[] size = {0};
+		region.forEachBlock(new IBlockVisitor() {
+			
+			@Override
+			public void visit(int x, int y, int z) {
+				checkRange(y, z);
+				if (x < PackedPosition.MIN_HORIZONTAL || x > PackedPosition.MAX_HORIZONTAL)
+					throw new IllegalArgumentException("Cannot store Blocks at x=" + x + " outside of the range of PackedPosition");
+				if (size[0] == blocks[0].length)
+					blocks[0] = Arrays.copyOf(blocks[0], blocks[0].length * 2);
+				// sorts by row, then by x
+				blocks[0][size[0]++] = (getRowKey(y, z) << PackedPosition.HORIZONTAL_BITS)
+						| ((x - PackedPosition.MIN_HORIZONTAL) & HORIZONTAL_MASK);
+			}
+		});
+		long[] sorted = blocks[0];
+		Arrays.sort(sorted, 0, size[0]);
+		int[] spans = new int[16];
+		int length = 0;
+		for (int i = 0; i < size[0]; i++) {
+			long row = sorted[i] >>> PackedPosition.HORIZONTAL_BITS;
+			int x = (int) (sorted[i] & HORIZONTAL_MASK) + PackedPosition.MIN_HORIZONTAL;
+			if (length > 0 && (long) x <= (long) spans[length - 1] + 1)
+				spans[length - 1] = Math.max(spans[length - 1], x);
+			else {
+				if (length == spans.length)
+					spans = Arrays.copyOf(spans, length * 2);
+				spans[length++] = x;
+				spans[length++] = x;
+			}
+			if (i + 1 == size[0] || (sorted[i + 1] >>> PackedPosition.HORIZONTAL_BITS) != row) {
+				result.rows.put(row, Arrays.copyOf(spans, length));
+				length = 0;
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * <p> Returns the index of the run containing the given x-coordinate. </p>
+	 * 
+	 * @return The index of the start of the run, or -1 if no run contains the coordinate
+	 */
+	protected static int find(int[] spans, int x) {
+		int low = 0, high = (spans.length >> 1) - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			if (spans[middle << 1] > x)
+				high = middle - 1;
+			else if (spans[(middle << 1) + 1] < x)
+				low = middle + 1;
+			else
+				return middle << 1;
+		}
+		return -1;
+	}
+	
+	/**
+	 * <p> Returns the amount of Blocks covered by the given runs. </p>
+	 */
+	protected static long length(int[] spans) {
+		long length = 0;
+		for (int i = 0; i < spans.length; i += 2)
+			length += (long) spans[i + 1] - spans[i] + 1;
+		return length;
+	}
+	
+	/**
+	 * <p> Merges two lists of runs into one covering the Blocks of both. </p>
+	 */
+	protected static int[] union(int[] a, int[] b) {
+		if (a.length == 0)
+			return b;
+		if (b.length == 0)
+			return a;
+		int[] result = new int[a.length + b.length];
+		int length = 0;
+		for (int i = 0, j = 0; i < a.length || j < b.length;) {
+			int start, end;
+			if (j >= b.length || (i < a.length && a[i] <= b[j])) {
+				start = a[i];
+				end = a[i + 1];
+				i += 2;
+			} else {
+				start = b[j];
+				end = b[j + 1];
+				j += 2;
+			}
+			if (length > 0 && (long) start <= (long) result[length - 1] + 1)
+				result[length - 1] = Math.max(result[length - 1], end);
+			else {
+				result[length++] = start;
+				result[length++] = end;
+			}
+		}
+		return length == result.length ? result : Arrays.copyOf(result, length);
+	}
+	
+	/**
+	 * <p> Intersects two lists of runs, covering the Blocks covered by both. </p>
+	 */
+	protected static int[] intersect(int[] a, int[] b) {
+		if (a.length == 0 || b.length == 0)
+			return EMPTY_ROW;
+		int[] result = new int[a.length + b.length];
+		int length = 0;
+		for (int i = 0, j = 0; i < a.length && j < b.length;) {
+			int start = Math.max(a[i], b[j]), end = Math.min(a[i + 1], b[j + 1]);
+			if (start <= end) {
+				result[length++] = start;
+				result[length++] = end;
+			}
+			if (a[i + 1] < b[j + 1])
+				i += 2;
+			else
+				j += 2;
+		}
+		return Arrays.copyOf(result, length);
+	}
+	
+	/**
+	 * <p> Removes the Blocks covered by the second list of runs from the first. </p>
+	 */
+	protected static int[] subtract(int[] a, int[] b) {
+		if (a.length == 0 || b.length == 0)
+			return a;
+		int[] result = new int[a.length + b.length];
+		int length = 0;
+		int j = 0;
+		for (int i = 0; i < a.length; i += 2) {
+			long current = a[i];
+			int end = a[i + 1];
+			while (j < b.length && b[j + 1] < current)
+				j += 2;
+			for (int k = j; k < b.length && b[k] <= end && current <= end; k += 2) {
+				if (b[k] > current) {
+					result[length++] = (int) current;
+					result[length++] = b[k] - 1;
+				}
+				current = Math.max(current, (long) b[k + 1] + 1);
+			}
+			if (current <= end) {
+				result[length++] = (int) current;
+				result[length++] = end;
+			}
+		}
+		return Arrays.copyOf(result, length);
+	}
+	
+	/**
+	 * <p> Lengthens (or shortens, if negative) every run by the given amount on both ends. </p>
+	 */
+	protected static int[] grow(int[] spans, int amount) {
+		int[] result = new int[spans.length];
+		int length = 0;
+		for (int i = 0; i < spans.length; i += 2) {
+			int start = spans[i] - amount, end = spans[i + 1] + amount;
+			if (start > end)
+				continue;
+			if (length > 0 && start <= result[length - 1] + 1)
+				result[length - 1] = end;
+			else {
+				result[length++] = start;
+				result[length++] = end;
+			}
+		}
+		return length == result.length ? result : Arrays.copyOf(result, length);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Blocks are returned row by row, sorted by their x-coordinate within each row. </p>
+	 */
+	@Override
+	public Iterator<Vector> iterator() {
+		Iterator<Map.Entry<Long, int[]>> rowiterator = this.rows.entrySet().iterator();
+		Iterator<Vector> iterator = new Iterator<Vector>() {
+			
+			private int[] spans = EMPTY_ROW;
+			private int y;
+			private int z;
+			private int index = 0;
+			private long x = 0;
+			
+			@Override
+			public boolean hasNext() {
+				if (this.index < this.spans.length)
+					return true;
+				if (!rowiterator.hasNext())
+					return false;
+				Map.Entry<Long, int[]> entry = rowiterator.next();
+				this.spans = entry.getValue();
+				this.y = PackedPosition.getY(entry.getKey());
+				this.z = PackedPosition.getZ(entry.getKey());
+				this.index = 0;
+				this.x = this.spans[0];
+				return true;
+			}
+			
+			@Override
+			public Vector next() {
+				if (!this.hasNext())
+					throw new NoSuchElementException();
+				Vector v = new Vector(this.x, this.y, this.z);
+				if (++this.x > this.spans[this.index + 1]) {
+					this.index += 2;
+					if (this.index < this.spans.length)
+						this.x = this.spans[this.index];
+				}
+				return v;
+			}
+		};
+		return iterator;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Spliterator<Vector> spliterator() {
+		return Spliterators.spliterator(this.iterator(), this.getBlockVolume(), Spliterator.DISTINCT | Spliterator.NONNULL);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void forEachBlock(IBlockVisitor visitor) {
+		for (Map.Entry<Long, int[]> entry : this.rows.entrySet()) {
+			int y = PackedPosition.getY(entry.getKey()), z = PackedPosition.getZ(entry.getKey());
+			int[] spans = entry.getValue();
+			for (int i = 0; i < spans.length; i += 2)
+				for (long x = spans[i]; x <= spans[i + 1]; x++)
+					visitor.visit((int) x, y, z);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<Location> getLocationIterator() {
+		Iterator<Vector> vectoriterator = this.iterator();
+		Iterator<Location> iterator = new Iterator<Location>() {
+			
+			@Override
+			public boolean hasNext() {
+				return vectoriterator.hasNext();
+			}
+			
+			@Override
+			public Location next() {
+				return vectoriterator.next().toLocation(getWorld());
+			}
+		};
+		return iterator;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<Vector> getVectors() {
+		ArrayList<Vector> vectors = new ArrayList<Vector>((int) this.getBlockVolume());
+		for (Iterator<Vector> iterator = this.iterator(); iterator.hasNext();)
+			vectors.add(iterator.next());
+		return vectors;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<Location> getLocations() {
+		ArrayList<Location> locations = new ArrayList<Location>((int) this.getBlockVolume());
+		for (Iterator<Location> iterator = this.getLocationIterator(); iterator.hasNext();)
+			locations.add(iterator.next());
+		return locations;
+	}
+
+}
@@ -0,0 +1,71 @@
+package de.impelon.geotools.region;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.util.Vector;
+
+/**
+ * <p> Implementation of IRegion for a spherical region. </p>
+ * 
+ * @see ScanlineRegion
+ * 
+ * @author Impelon
+ *
+ */
+public class SphereRegion extends EllipsoidRegion {
+	
+	/**
+	 * <p> Create a SphereRegion from its center-{@linkplain Location} and its radius. </p>
+	 * 
+	 * @param center the center of the SphereRegion
+	 * @param radius the radius
+	 * @throws IllegalArgumentException if the radius is not positive
+	 */
+	public SphereRegion(Location center, double radius) throws IllegalArgumentException {
+		this(center.toVector(), radius, center.getWorld());
+	}
+	
+	/**
+	 * <p> Create a SphereRegion from its center, its radius and a {@linkplain World}. </p>
+	 * 
+	 * @param center the center of the SphereRegion
+	 * @param radius the radius
+	 * @param world the {@linkplain World} this SphereRegion is in
+	 * @throws IllegalArgumentException if the radius is not positive
+	 */
+	public SphereRegion(Vector center, double radius, World world) throws IllegalArgumentException {
+		super(center, radius, radius, radius, world);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(double x, double y, double z) {
+		double dx = x - this.center.getX(), dy = y - this.center.getY(), dz = z - this.center.getZ();
+		return dx * dx + dy * dy + dz * dz <= this.radiusX * this.radiusX;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected boolean getSpan(int y, int z, int[] span) {
+		double dy = y - this.center.getY(), dz = z - this.center.getZ();
+		double remaining = this.radiusX * this.radiusX - dy * dy - dz * dz;
+		if (remaining < 0)
+			return false;
+		double half = Math.sqrt(remaining);
+		return this.fitSpan(y, z, this.center.getX() - half, this.center.getX() + half, span);
+	}
+	
+	/**
+	 * <p> Returns the radius of this SphereRegion. </p>
+	 * 
+	 * @return The radius
+	 */
+	public double getRadius() {
+		return this.radiusX;
+	}
+	
+}
@@ -0,0 +1,330 @@
+package de.impelon.geotools.region;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.util.Vector;
+
+import de.impelon.geotools.Axis;
+import de.impelon.geotools.BoundingBox;
+import de.impelon.geotools.RegionFormat;
+import de.impelon.geotools.RegionTransform;
+import de.impelon.geotools.area.IArea;
+
+/**
+ * <p> View of another Region moved, rotated or mirrored by a {@linkplain RegionTransform}, without copying its Positions. </p>
+ * <p> Overlap-checks map the checked Position through the inverse transform and ask the original Region;
+ * iteration transforms the Positions of the original Region lazily. Modifications of the original Region are visible. </p>
+ * <p> Use {@linkplain RegionTransform#transform(IRegion)} to create transformed Regions,
+ * which keeps CuboidRegions as CuboidRegions and combines nested transforms. </p>
+ * 
+ * @author Impelon
+ *
+ */
+public class TransformedRegion implements IVersionedRegion {
+	
+	protected final IRegion source;
+	protected final RegionTransform transform;
+	protected final RegionTransform inverse;
+	
+	/**
+	 * <p> Create a TransformedRegion from a Region and a transform. </p>
+	 * 
+	 * @see RegionTransform#transform(IRegion)
+	 * @param source the Region to transform
+	 * @param transform the transform to apply
+	 */
+	public TransformedRegion(IRegion source, RegionTransform transform) {
+		this.source = source;
+		this.transform = transform;
+		this.inverse = transform.inverse();
+	}
+	
+	/**
+	 * <p> Returns the Region that is transformed. </p>
+	 * 
+	 * @return The Region
+	 */
+	public IRegion getSource() {
+		return this.source;
+	}
+	
+	/**
+	 * <p> Returns the transform applied to the original Region. </p>
+	 * 
+	 * @return The RegionTransform
+	 */
+	public RegionTransform getTransform() {
+		return this.transform;
+	}
+	
+	/**
+	 * <p> Determines if the Blocks of the original Region can be transformed by their Block-Position. </p>
+	 * <p> This is not the case for Regions with Positions not aligned to Blocks,
+	 * because mirroring such a Position may move it into another Block. </p>
+	 * 
+	 * @see #isBlockAligned(IRegion)
+	 * @return Whether the original Region is aligned to Blocks
+	 */
+	protected boolean isBlockAligned() {
+		return isBlockAligned(this.source);
+	}
+	
+	/**
+	 * <p> Determines if the given Region is known to only contain Positions aligned to Blocks. </p>
+	 * <p> Shapes and Regions storing Block-Positions are aligned; Regions storing Vectors are asked,
+	 * and combined Regions are aligned if all of their Regions are. Other Regions are assumed not to be aligned. </p>
+	 * 
+	 * @param region the Region to check
+	 * @return Whether the Region is aligned to Blocks
+	 */
+	protected static boolean isBlockAligned(IRegion region) {
+		if (region instanceof PositionRegion)
+			return ((PositionRegion) region).isBlockAligned();
+		if (region instanceof FrozenRegion)
+			return ((FrozenRegion) region).isBlockAligned();
+		if (region instanceof CopyOnWriteRegion)
+			return ((CopyOnWriteRegion) region).snapshot().isBlockAligned();
+		if (region instanceof TransformedRegion)
+			return ((TransformedRegion) region).isBlockAligned();
+		if (region instanceof CompositeRegion) {
+			for (IRegion operand : ((CompositeRegion) region).getRegions())
+				if (!isBlockAligned(operand))
+					return false;
+			return true;
+		}
+		return region instanceof CuboidRegion || region instanceof CuboidOutlineRegion || region instanceof ScanlineRegion
+				|| region instanceof SpanRegion || region instanceof SectionedRegion || region instanceof ConcurrentPositionRegion;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> The modification count of the original Region, or 0 if it does not count its modifications. </p>
+	 */
+	@Override
+	public long getModificationCount() {
+		return this.source instanceof IVersionedRegion ? ((IVersionedRegion) this.source).getModificationCount() : 0;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public World getWorld() {
+		return this.source.getWorld();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getLength(Axis axis) {
+		return this.source.getLength(this.transform.getSourceAxis(axis));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getBlockLength(Axis axis) {
+		return this.source.getBlockLength(this.transform.getSourceAxis(axis));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Blocks along a mirrored axis end one further, since Blocks are transformed by their Block-Position. </p>
+	 */
+	@Override
+	public BoundingBox getBoundingBox() {
+		BoundingBox box = this.transform.transform(this.source.getBoundingBox());
+		if (box == null)
+			return null;
+		return new BoundingBox(box.getMinX(), box.getMinY(), box.getMinZ(), box.getMaxX() + (this.transform.isNegated(Axis.X) ? 1 : 0),
+				box.getMaxY() + (this.transform.isNegated(Axis.Y) ? 1 : 0), box.getMaxZ() + (this.transform.isNegated(Axis.Z) ? 1 : 0));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Rotations around the y-axis and mirroring do not change the surface area. </p>
+	 */
+	@Override
+	public double getSurfaceArea() {
+		return this.source.getSurfaceArea();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getBlockSurfaceArea() {
+		return this.source.getBlockSurfaceArea();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getVolume() {
+		return this.source.getVolume();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getBlockVolume() {
+		return this.source.getBlockVolume();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(Location pos) {
+		return pos.getWorld() == this.getWorld() && this.getOverlap(pos.toVector());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Checks the Position mapped through the inverse transform against the original Region.
+	 * If the original Region is aligned to Blocks, the Block containing the Position is mapped instead,
+	 * just like Blocks are mapped when iterating. </p>
+	 */
+	@Override
+	public boolean getOverlap(Vector pos) {
+		if (!this.isBlockAligned())
+			return this.source.getOverlap(this.inverse.transform(pos));
+		int x = pos.getBlockX(), y = pos.getBlockY(), z = pos.getBlockZ();
+		return this.source.getOverlap(new Vector(this.inverse.transformX(x, z), this.inverse.transformY(y), this.inverse.transformZ(x, z)));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(IArea area) {
+		if (area.getWorld() != this.getWorld())
+			return false;
+		BoundingBox box = area.getBoundingBox(), own = this.getBoundingBox();
+		if (box == null || own == null || !box.overlaps(own))
+			return false;
+		for (Iterator<Vector> iterator = this.iterator(); iterator.hasNext();)
+			if (area.getOverlap(iterator.next()))
+				return true;
+		return false;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getOverlap(IRegion region) {
+		return this.getOverlap((IArea) region);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> The modified original Region is transformed, since the modifications do not depend on the orientation.
+	 * Only floored Positions not aligned to Blocks are copied into a new packed PositionRegion. </p>
+	 */
+	@Override
+	public IRegion getModifiedRegion(RegionFormat format) {
+		if (format == RegionFormat.FLOORED && !this.isBlockAligned())
+			return new PositionRegion(this, true);
+		return this.transform.transform(this.source.getModifiedRegion(format));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Transforms the Positions of the original Region while iterating; removing removes them from the original Region. </p>
+	 */
+	@Override
+	public Iterator<Vector> iterator() {
+		final Iterator<Vector> sourceiterator = this.source.iterator();
+		Iterator<Vector> iterator = new Iterator<Vector>() {
+			
+			@Override
+			public boolean hasNext() {
+				return sourceiterator.hasNext();
+			}
+			
+			@Override
+			public Vector next() {
+				return transform.transform(sourceiterator.next());
+			}
+			
+			@Override
+			public void remove() {
+				sourceiterator.remove();
+			}
+		};
+		return iterator;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Transforms the Block-coordinates visited by the original Region. </p>
+	 */
+	@Override
+	public void forEachBlock(final IBlockVisitor visitor) {
+		if (!this.isBlockAligned()) {
+			for (Vector v : this)
+				visitor.visit(v.getBlockX(), v.getBlockY(), v.getBlockZ());
+			return;
+		}
+		this.source.forEachBlock(new IBlockVisitor() {
+			
+			@Override
+			public void visit(int x, int y, int z) {
+				visitor.visit(transform.transformX(x, z), transform.transformY(y), transform.transformZ(x, z));
+			}
+		});
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<Location> getLocationIterator() {
+		final Iterator<Vector> vectoriterator = this.iterator();
+		Iterator<Location> iterator = new Iterator<Location>() {
+			
+			@Override
+			public boolean hasNext() {
+				return vectoriterator.hasNext();
+			}
+			
+			@Override
+			public Location next() {
+				return vectoriterator.next().toLocation(getWorld());
+			}
+		};
+		return iterator;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<Vector> getVectors() {
+		ArrayList<Vector> vectors = new ArrayList<Vector>();
+		for (Iterator<Vector> iterator = this.iterator(); iterator.hasNext();)
+			vectors.add(iterator.next());
+		return vectors;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<Location> getLocations() {
+		ArrayList<Location> locations = new ArrayList<Location>();
+		for (Iterator<Location> iterator = this.getLocationIterator(); iterator.hasNext();)
+			locations.add(iterator.next());
+		return locations;
+	}
+
+}
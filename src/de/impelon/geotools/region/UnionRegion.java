@@ -0,0 +1,99 @@
+package de.impelon.geotools.region;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+import org.bukkit.util.Vector;
+
+import de.impelon.geotools.BoundingBox;
+
+/**
+ * <p> Implementation of IRegion for the union of other Regions. </p>
+ * <p> Contains every Position that is within at least one of the Regions. </p>
+ * 
+ * @author Impelon
+ *
+ */
+public class UnionRegion extends CompositeRegion {
+	
+	/**
+	 * <p> Create a UnionRegion of the given Regions. </p>
+	 * 
+	 * @param regions the Regions to unite
+	 * @throws IllegalArgumentException if no Regions are given or they are not in the same World
+	 */
+	public UnionRegion(IRegion... regions) throws IllegalArgumentException {
+		super(regions);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Unites the BoundingBoxes of all Regions. </p>
+	 */
+	@Override
+	protected BoundingBox calculateBoundingBox() {
+		BoundingBox box = null;
+		for (int i = 0; i < this.regions.length; i++) {
+			BoundingBox other = this.getBoundingBox(i);
+			if (other != null)
+				box = box == null ? other : box.union(other);
+		}
+		return box;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected boolean contains(Vector pos) {
+		for (int i = 0; i < this.regions.length; i++)
+			if (this.getOverlap(i, pos))
+				return true;
+		return false;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p> Iterates over every Region in turn, skipping the Positions already returned by a previous one. </p>
+	 */
+	@Override
+	public Iterator<Vector> iterator() {
+		Iterator<Vector> iterator = new Iterator<Vector>() {
+			
+			private int index = -1;
+			private Iterator<Vector> current = null;
+			
+			@Override
+			public boolean hasNext() {
+				while (this.current == null || !this.current.hasNext()) {
+					if (++this.index >= regions.length)
+						return false;
+					if (getBoundingBox(this.index) == null)
+						continue;
+					final int index = this.index;
+					this.current = filter(regions[index].iterator(), new Predicate<Vector>() {
+						
+						@Override
+						public boolean test(Vector v) {
+							for (int i = 0; i < index; i++)
+								if (getOverlap(i, v))
+									return false;
+							return true;
+						}
+					});
+				}
+				return true;
+			}
+			
+			@Override
+			public Vector next() {
+				if (!this.hasNext())
+					throw new NoSuchElementException();
+				return this.current.next();
+			}
+		};
+		return iterator;
+	}
+
+}
@@ -0,0 +1,109 @@
+package de.impelon.misc;
+
+import java.util.Arrays;
+
+/**
+ * <p> Blocked Bloom-filter over primitive longs. </p>
+ * <p> Every value sets 4 bits within a single block of 512 bits (8 longs, one cache-line),
+ * so a lookup reads one block and does not allocate. With the 12 bits per expected value reserved by this filter,
+ * about 1% of the values that were never added are reported as possibly contained. </p>
+ * <p> Values cannot be removed; filters have to be rebuilt instead. </p>
+ * 
+ * @author Impelon
+ *
+ */
+public class LongBloomFilter {
+	
+	protected static final int BITS_PER_VALUE = 12;
+	protected static final int MAX_BLOCKS = 1 << 24;
+	
+	protected final long[] bits;
+	protected final int mask;
+	protected final int capacity;
+	
+	/**
+	 * <p> Creates a new empty LongBloomFilter sized for the given amount of values. </p>
+	 * 
+	 * @param expected the expected amount of values
+	 */
+	public LongBloomFilter(int expected) {
+		long blocks = Math.max(1, ((long) Math.max(expected, 1) * BITS_PER_VALUE + 511) >> 9);
+		int size = blocks >= MAX_BLOCKS ? MAX_BLOCKS : Integer.highestOneBit((int) blocks - 1) << 1;
+		if (size == 0)
+			size = 1;
+		this.bits = new long[size << 3];
+		this.mask = size - 1;
+		this.capacity = Math.max(expected, 1);
+	}
+	
+	/**
+	 * <p> Adds the given value to this filter. </p>
+	 * 
+	 * @param value the value to add
+	 */
+	public void add(long value) {
+		long h = hash(value);
+		int block = ((int) (h >>> 40) & this.mask) << 3;
+		for (int i = 0; i < 36; i += 9) {
+			int bit = (int) (h >>> i) & 511;
+			this.bits[block + (bit >>> 6)] |= 1L << bit;
+		}
+	}
+	
+	/**
+	 * <p> Determines if the given value might have been added to this filter. </p>
+	 * 
+	 * @param value the value to check
+	 * @return False if the value was definitely not added, true if it might have been
+	 */
+	public boolean mightContain(long value) {
+		long h = hash(value);
+		int block = ((int) (h >>> 40) & this.mask) << 3;
+		for (int i = 0; i < 36; i += 9) {
+			int bit = (int) (h >>> i) & 511;
+			if ((this.bits[block + (bit >>> 6)] & (1L << bit)) == 0)
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * <p> Removes all values from this filter. </p>
+	 */
+	public void clear() {
+		Arrays.fill(this.bits, 0);
+	}
+	
+	/**
+	 * <p> Returns the amount of values this filter was sized for. </p>
+	 * 
+	 * @return The capacity
+	 */
+	public int getCapacity() {
+		return this.capacity;
+	}
+	
+	/**
+	 * <p> Returns the amount of bits of this filter. </p>
+	 * 
+	 * @return The amount of bits
+	 */
+	public long getBitCount() {
+		return (long) this.bits.length << 6;
+	}
+	
+	/**
+	 * <p> Mixes all bits of the given value (the finalizer of MurmurHash3). </p>
+	 * 
+	 * @param value the value
+	 * @return The hash
+	 */
+	protected static long hash(long value) {
+		value ^= value >>> 33;
+		value *= 0xFF51AFD7ED558CCDL;
+		value ^= value >>> 33;
+		value *= 0xC4CEB9FE1A85EC53L;
+		return value ^ (value >>> 33);
+	}
+
+}
@@ -0,0 +1,512 @@
+package de.impelon.misc;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+/**
+ * <p> Set of primitive longs using open addressing with linear probing. </p>
+ * <p> Does not box its elements and uses a single long per slot;
+ * removals use backward-shifting instead of tombstones, so the table never degrades. </p>
+ * 
+ * @author Impelon
+ *
+ */
+public class LongHashSet {
+	
+	protected static final int DEFAULT_CAPACITY = 16;
+	protected static final float LOAD_FACTOR = 0.75f;
+	protected static final long FREE = 0;
+	
+	protected long[] table;
+	protected int mask;
+	protected int size = 0;
+	protected int maxFill;
+	protected boolean containsFree = false;
+	
+	/**
+	 * <p> Creates a new empty LongHashSet. </p>
+	 */
+	public LongHashSet() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * <p> Creates a new empty LongHashSet able to hold the given amount of elements without resizing. </p>
+	 * 
+	 * @param expected the expected amount of elements
+	 */
+	public LongHashSet(int expected) {
+		this.allocate(tableSizeFor(expected));
+	}
+	
+	/**
+	 * <p> Creates a new LongHashSet containing the same elements as the given one. </p>
+	 * 
+	 * @param set the LongHashSet to copy
+	 */
+	public LongHashSet(LongHashSet set) {
+		this.table = set.table.clone();
+		this.mask = set.mask;
+		this.size = set.size;
+		this.maxFill = set.maxFill;
+		this.containsFree = set.containsFree;
+	}
+	
+	/**
+	 * <p> Adds the given value to this set. </p>
+	 * 
+	 * @param value the value to add
+	 * @return Whether this set changed as a result of the call
+	 */
+	public boolean add(long value) {
+		if (value == FREE) {
+			if (this.containsFree)
+				return false;
+			this.containsFree = true;
+			this.size++;
+			return true;
+		}
+		int pos = this.slot(value);
+		long current;
+		while ((current = this.table[pos]) != FREE) {
+			if (current == value)
+				return false;
+			pos = (pos + 1) & this.mask;
+		}
+		this.table[pos] = value;
+		if (++this.size >= this.maxFill)
+			this.allocate(this.table.length * 2);
+		return true;
+	}
+	
+	/**
+	 * <p> Determines if this set contains the given value. </p>
+	 * 
+	 * @param value the value to check
+	 * @return Whether this set contains the value
+	 */
+	public boolean contains(long value) {
+		if (value == FREE)
+			return this.containsFree;
+		int pos = this.slot(value);
+		long current;
+		while ((current = this.table[pos]) != FREE) {
+			if (current == value)
+				return true;
+			pos = (pos + 1) & this.mask;
+		}
+		return false;
+	}
+	
+	/**
+	 * <p> Removes the given value from this set. </p>
+	 * 
+	 * @param value the value to remove
+	 * @return Whether this set changed as a result of the call
+	 */
+	public boolean remove(long value) {
+		if (value == FREE) {
+			if (!this.containsFree)
+				return false;
+			this.containsFree = false;
+			this.size--;
+			return true;
+		}
+		int pos = this.slot(value);
+		long current;
+		while ((current = this.table[pos]) != FREE) {
+			if (current == value) {
+				this.size--;
+				this.shiftBack(pos);
+				return true;
+			}
+			pos = (pos + 1) & this.mask;
+		}
+		return false;
+	}
+	
+	/**
+	 * <p> Adds all values of the given set to this set. </p>
+	 * 
+	 * @param set the set containing the values to add
+	 * @return Whether this set changed as a result of the call
+	 */
+	public boolean addAll(LongHashSet set) {
+		boolean changed = false;
+		if (set.containsFree)
+			changed |= this.add(FREE);
+		for (long value : set.table)
+			if (value != FREE)
+				changed |= this.add(value);
+		return changed;
+	}
+	
+	/**
+	 * <p> Removes all values of the given set from this set. </p>
+	 * 
+	 * @param set the set containing the values to remove
+	 * @return Whether this set changed as a result of the call
+	 */
+	public boolean removeAll(LongHashSet set) {
+		if (set.size() < this.size()) {
+			boolean changed = false;
+			if (set.containsFree)
+				changed |= this.remove(FREE);
+			for (long value : set.table)
+				if (value != FREE)
+					changed |= this.remove(value);
+			return changed;
+		}
+		return this.removeIf(new LongPredicate() {
+			
+			@Override
+			public boolean test(long value) {
+				return set.contains(value);
+			}
+		});
+	}
+	
+	/**
+	 * <p> Only keeps those values that are contained in the given set. </p>
+	 * 
+	 * @param set the set containing the values to retain
+	 * @return Whether this set changed as a result of the call
+	 */
+	public boolean retainAll(LongHashSet set) {
+		return this.removeIf(new LongPredicate() {
+			
+			@Override
+			public boolean test(long value) {
+				return !set.contains(value);
+			}
+		});
+	}
+	
+	/**
+	 * <p> Removes all values that match the given filter. </p>
+	 * <p> The remaining values are re-inserted into a fresh table,
+	 * which is cheaper than shifting the table after every single removal. </p>
+	 * 
+	 * @param filter a predicate which returns true for values to be removed
+	 * @return Whether this set changed as a result of the call
+	 */
+	public boolean removeIf(LongPredicate filter) {
+		boolean keepFree = this.containsFree && !filter.test(FREE);
+		long[] kept = new long[this.size];
+		int amount = 0;
+		for (long value : this.table)
+			if (value != FREE && !filter.test(value))
+				kept[amount++] = value;
+		if (amount + (keepFree ? 1 : 0) == this.size)
+			return false;
+		this.table = null;
+		this.allocate(tableSizeFor(amount));
+		this.containsFree = keepFree;
+		this.size = keepFree ? 1 : 0;
+		for (int i = 0; i < amount; i++)
+			this.add(kept[i]);
+		return true;
+	}
+	
+	/**
+	 * <p> Removes all values from this set. </p>
+	 */
+	public void clear() {
+		Arrays.fill(this.table, FREE);
+		this.containsFree = false;
+		this.size = 0;
+	}
+	
+	/**
+	 * <p> Returns the amount of values in this set. </p>
+	 * 
+	 * @return The size
+	 */
+	public int size() {
+		return this.size;
+	}
+	
+	/**
+	 * <p> Determines if this set contains no values. </p>
+	 * 
+	 * @return Whether this set is empty
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+	
+	/**
+	 * <p> Performs the given action for each value in this set. </p>
+	 * 
+	 * @param action the action to perform
+	 */
+	public void forEach(LongConsumer action) {
+		if (this.containsFree)
+			action.accept(FREE);
+		for (long value : this.table)
+			if (value != FREE)
+				action.accept(value);
+	}
+	
+	/**
+	 * <p> Returns an array containing all values of this set in no particular order. </p>
+	 * 
+	 * @return The array
+	 */
+	public long[] toArray() {
+		long[] values = new long[this.size];
+		int i = 0;
+		if (this.containsFree)
+			values[i++] = FREE;
+		for (long value : this.table)
+			if (value != FREE)
+				values[i++] = value;
+		return values;
+	}
+	
+	/**
+	 * <p> Returns an Iterator over the values in this set. </p>
+	 * <p> The Iterator supports {@linkplain PrimitiveIterator.OfLong#remove()}. </p>
+	 * 
+	 * @return The PrimitiveIterator.OfLong
+	 */
+	public PrimitiveIterator.OfLong iterator() {
+		return new PrimitiveIterator.OfLong() {
+			
+			// The table is walked backwards, so shifted values only ever move into visited slots,
+			// except for those wrapping around the end of the table, which are remembered separately.
+			private int pos = table.length;
+			private int last = -1;
+			private boolean returnFree = containsFree;
+			private boolean returnedFree = false;
+			private LongHashSet wrapped = null;
+			private PrimitiveIterator.OfLong wrappedIterator = null;
+			private long lastWrapped;
+			
+			@Override
+			public boolean hasNext() {
+				if (this.returnFree)
+					return true;
+				if (this.wrappedIterator != null)
+					return this.wrappedIterator.hasNext();
+				while (--this.pos >= 0)
+					if (table[this.pos] != FREE) {
+						this.pos++;
+						return true;
+					}
+				this.pos = 0;
+				if (this.wrapped != null) {
+					this.wrappedIterator = this.wrapped.iterator();
+					return this.wrappedIterator.hasNext();
+				}
+				return false;
+			}
+			
+			@Override
+			public long nextLong() {
+				if (!this.hasNext())
+					throw new NoSuchElementException();
+				this.returnedFree = false;
+				if (this.returnFree) {
+					this.returnFree = false;
+					this.returnedFree = true;
+					return FREE;
+				}
+				if (this.wrappedIterator != null) {
+					this.last = -2;
+					this.lastWrapped = this.wrappedIterator.nextLong();
+					return this.lastWrapped;
+				}
+				this.last = --this.pos;
+				return table[this.last];
+			}
+			
+			@Override
+			public void remove() {
+				if (this.returnedFree) {
+					this.returnedFree = false;
+					containsFree = false;
+					size--;
+					return;
+				}
+				if (this.last == -2) {
+					LongHashSet.this.remove(this.lastWrapped);
+					this.last = -1;
+					return;
+				}
+				if (this.last < 0)
+					throw new IllegalStateException();
+				size--;
+				long moved = shiftBack(this.last);
+				if (moved != FREE) {
+					if (this.wrapped == null)
+						this.wrapped = new LongHashSet();
+					this.wrapped.add(moved);
+				}
+				this.last = -1;
+			}
+		};
+	}
+	
+	/**
+	 * <p> Returns a Spliterator over the values in this set. </p>
+	 * <p> The Spliterator splits the table into segments of slots, which allows processing the values in parallel. </p>
+	 * 
+	 * @return The Spliterator.OfLong
+	 */
+	public Spliterator.OfLong spliterator() {
+		return new TableSpliterator(0, this.table.length, this.containsFree, this.size, true);
+	}
+	
+	/**
+	 * <p> Returns the slot a value is initially hashed to. </p>
+	 * 
+	 * @param value the value
+	 * @return The index of the slot
+	 */
+	protected int slot(long value) {
+		long h = value * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32) ^ (h >>> 16)) & this.mask;
+	}
+	
+	/**
+	 * <p> Empties the given slot and moves following values of the probe-sequence back. </p>
+	 * 
+	 * @param pos the slot to empty
+	 * @return The last value that was moved from the start to the end of the table, or FREE if none was
+	 */
+	protected long shiftBack(int pos) {
+		long wrapped = FREE;
+		int last;
+		long current;
+		while (true) {
+			last = pos;
+			pos = (pos + 1) & this.mask;
+			while (true) {
+				if ((current = this.table[pos]) == FREE) {
+					this.table[last] = FREE;
+					return wrapped;
+				}
+				int slot = this.slot(current);
+				if (last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos)
+					break;
+				pos = (pos + 1) & this.mask;
+			}
+			if (pos < last)
+				wrapped = current;
+			this.table[last] = current;
+		}
+	}
+	
+	/**
+	 * <p> Replaces the table by a new one of the given capacity, re-inserting all values. </p>
+	 * 
+	 * @param capacity the new capacity (a power of two)
+	 */
+	protected void allocate(int capacity) {
+		long[] old = this.table;
+		this.table = new long[capacity];
+		this.mask = capacity - 1;
+		this.maxFill = Math.min(capacity - 1, (int) Math.ceil(capacity * LOAD_FACTOR));
+		if (old == null)
+			return;
+		for (long value : old)
+			if (value != FREE) {
+				int pos = this.slot(value);
+				while (this.table[pos] != FREE)
+					pos = (pos + 1) & this.mask;
+				this.table[pos] = value;
+			}
+	}
+	
+	/**
+	 * <p> Spliterator over a segment of slots of the table. </p>
+	 */
+	protected class TableSpliterator implements Spliterator.OfLong {
+		
+		protected static final int MIN_SEGMENT = 256;
+		
+		protected int pos;
+		protected final int end;
+		protected boolean free;
+		protected long estimate;
+		protected boolean exact;
+		
+		protected TableSpliterator(int pos, int end, boolean free, long estimate, boolean exact) {
+			this.pos = pos;
+			this.end = end;
+			this.free = free;
+			this.estimate = estimate;
+			this.exact = exact;
+		}
+		
+		@Override
+		public boolean tryAdvance(LongConsumer action) {
+			if (this.free) {
+				this.free = false;
+				action.accept(FREE);
+				return true;
+			}
+			while (this.pos < this.end) {
+				long value = table[this.pos++];
+				if (value != FREE) {
+					action.accept(value);
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		@Override
+		public void forEachRemaining(LongConsumer action) {
+			if (this.free) {
+				this.free = false;
+				action.accept(FREE);
+			}
+			long[] table = LongHashSet.this.table;
+			for (; this.pos < this.end; this.pos++)
+				if (table[this.pos] != FREE)
+					action.accept(table[this.pos]);
+		}
+		
+		@Override
+		public Spliterator.OfLong trySplit() {
+			if (this.end - this.pos < 2 * MIN_SEGMENT)
+				return null;
+			int middle = (this.pos + this.end) >>> 1;
+			TableSpliterator prefix = new TableSpliterator(this.pos, middle, this.free, this.estimate >>> 1, false);
+			this.pos = middle;
+			this.free = false;
+			this.estimate -= prefix.estimate;
+			this.exact = false;
+			return prefix;
+		}
+		
+		@Override
+		public long estimateSize() {
+			return this.estimate;
+		}
+		
+		@Override
+		public int characteristics() {
+			return Spliterator.DISTINCT | Spliterator.NONNULL | (this.exact ? Spliterator.SIZED : 0);
+		}
+	
+	}
+	
+	/**
+	 * <p> Returns the table size needed to hold the given amount of elements. </p>
+	 * 
+	 * @param expected the expected amount of elements
+	 * @return A power of two
+	 */
+	protected static int tableSizeFor(int expected) {
+		long needed = Math.max(DEFAULT_CAPACITY, (long) Math.ceil(expected / LOAD_FACTOR) + 1);
+		return (int) Math.min(1 << 30, Long.highestOneBit(needed - 1) << 1);
+	}
+
+}
@@ -0,0 +1,259 @@
+package de.impelon.misc;
+
+import java.util.Arrays;
+
+/**
+ * <p> Map from primitive longs to primitive ints using open addressing with linear probing. </p>
+ * <p> Does not box its keys or values, which makes it suitable for counting;
+ * removals use backward-shifting instead of tombstones, so the table never degrades. </p>
+ * 
+ * @see LongHashSet
+ * 
+ * @author Impelon
+ *
+ */
+public class LongIntHashMap {
+	
+	protected static final int DEFAULT_CAPACITY = 16;
+	protected static final float LOAD_FACTOR = 0.75f;
+	protected static final long FREE = 0;
+	
+	protected long[] keys;
+	protected int[] values;
+	protected int mask;
+	protected int size = 0;
+	protected int maxFill;
+	protected boolean containsFree = false;
+	protected int freeValue = 0;
+	
+	/**
+	 * <p> Creates a new empty LongIntHashMap. </p>
+	 */
+	public LongIntHashMap() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * <p> Creates a new empty LongIntHashMap able to hold the given amount of entries without resizing. </p>
+	 * 
+	 * @param expected the expected amount of entries
+	 */
+	public LongIntHashMap(int expected) {
+		this.allocate(LongHashSet.tableSizeFor(expected));
+	}
+	
+	/**
+	 * <p> Returns the value mapped to the given key. </p>
+	 * 
+	 * @param key the key
+	 * @return The value, or 0 if there is no value for the key
+	 */
+	public int get(long key) {
+		if (key == FREE)
+			return this.freeValue;
+		int pos = this.find(key);
+		return pos < 0 ? 0 : this.values[pos];
+	}
+	
+	/**
+	 * <p> Determines if this map contains a value for the given key. </p>
+	 * 
+	 * @param key the key
+	 * @return Whether this map contains the key
+	 */
+	public boolean containsKey(long key) {
+		if (key == FREE)
+			return this.containsFree;
+		return this.find(key) >= 0;
+	}
+	
+	/**
+	 * <p> Maps the given key to the given value. </p>
+	 * 
+	 * @param key the key
+	 * @param value the value
+	 * @return The previous value, or 0 if there was no value for the key
+	 */
+	public int put(long key, int value) {
+		int previous = this.get(key);
+		this.addTo(key, value - previous);
+		return previous;
+	}
+	
+	/**
+	 * <p> Adds the given amount to the value mapped to the given key, treating a missing value as 0. </p>
+	 * 
+	 * @param key the key
+	 * @param amount the amount to add
+	 * @return The new value
+	 */
+	public int addTo(long key, int amount) {
+		if (key == FREE) {
+			if (!this.containsFree) {
+				this.containsFree = true;
+				this.size++;
+			}
+			return this.freeValue += amount;
+		}
+		int pos = this.slot(key);
+		long current;
+		while ((current = this.keys[pos]) != FREE) {
+			if (current == key)
+				return this.values[pos] += amount;
+			pos = (pos + 1) & this.mask;
+		}
+		this.keys[pos] = key;
+		this.values[pos] = amount;
+		if (++this.size >= this.maxFill)
+			this.allocate(this.keys.length * 2);
+		return amount;
+	}
+	
+	/**
+	 * <p> Removes the value mapped to the given key. </p>
+	 * 
+	 * @param key the key
+	 * @return The removed value, or 0 if there was no value for the key
+	 */
+	public int remove(long key) {
+		if (key == FREE) {
+			if (!this.containsFree)
+				return 0;
+			int value = this.freeValue;
+			this.containsFree = false;
+			this.freeValue = 0;
+			this.size--;
+			return value;
+		}
+		int pos = this.find(key);
+		if (pos < 0)
+			return 0;
+		int value = this.values[pos];
+		this.size--;
+		this.shiftBack(pos);
+		return value;
+	}
+	
+	/**
+	 * <p> Removes all entries from this map. </p>
+	 */
+	public void clear() {
+		Arrays.fill(this.keys, FREE);
+		this.containsFree = false;
+		this.freeValue = 0;
+		this.size = 0;
+	}
+	
+	/**
+	 * <p> Returns the amount of entries in this map. </p>
+	 * 
+	 * @return The size
+	 */
+	public int size() {
+		return this.size;
+	}
+	
+	/**
+	 * <p> Determines if this map contains no entries. </p>
+	 * 
+	 * @return Whether this map is empty
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+	
+	/**
+	 * <p> Returns an array containing all keys of this map in no particular order. </p>
+	 * 
+	 * @return The array
+	 */
+	public long[] keys() {
+		long[] keys = new long[this.size];
+		int i = 0;
+		if (this.containsFree)
+			keys[i++] = FREE;
+		for (long key : this.keys)
+			if (key != FREE)
+				keys[i++] = key;
+		return keys;
+	}
+	
+	/**
+	 * <p> Returns the slot the given key is stored in. </p>
+	 * 
+	 * @param key the key (not FREE)
+	 * @return The index of the slot, or -1 if the key is not contained
+	 */
+	protected int find(long key) {
+		int pos = this.slot(key);
+		long current;
+		while ((current = this.keys[pos]) != FREE) {
+			if (current == key)
+				return pos;
+			pos = (pos + 1) & this.mask;
+		}
+		return -1;
+	}
+	
+	/**
+	 * <p> Returns the slot a key is initially hashed to. </p>
+	 * 
+	 * @param key the key
+	 * @return The index of the slot
+	 */
+	protected int slot(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32) ^ (h >>> 16)) & this.mask;
+	}
+	
+	/**
+	 * <p> Empties the given slot and moves following entries of the probe-sequence back. </p>
+	 * 
+	 * @param pos the slot to empty
+	 */
+	protected void shiftBack(int pos) {
+		int last;
+		long current;
+		while (true) {
+			last = pos;
+			pos = (pos + 1) & this.mask;
+			while (true) {
+				if ((current = this.keys[pos]) == FREE) {
+					this.keys[last] = FREE;
+					return;
+				}
+				int slot = this.slot(current);
+				if (last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos)
+					break;
+				pos = (pos + 1) & this.mask;
+			}
+			this.keys[last] = current;
+			this.values[last] = this.values[pos];
+		}
+	}
+	
+	/**
+	 * <p> Replaces the table by a new one of the given capacity, re-inserting all entries. </p>
+	 * 
+	 * @param capacity the new capacity (a power of two)
+	 */
+	protected void allocate(int capacity) {
+		long[] oldKeys = this.keys;
+		int[] oldValues = this.values;
+		this.keys = new long[capacity];
+		this.values = new int[capacity];
+		this.mask = capacity - 1;
+		this.maxFill = Math.min(capacity - 1, (int) Math.ceil(capacity * LOAD_FACTOR));
+		if (oldKeys == null)
+			return;
+		for (int i = 0; i < oldKeys.length; i++)
+			if (oldKeys[i] != FREE) {
+				int pos = this.slot(oldKeys[i]);
+				while (this.keys[pos] != FREE)
+					pos = (pos + 1) & this.mask;
+				this.keys[pos] = oldKeys[i];
+				this.values[pos] = oldValues[i];
+			}
+	}
+
+}
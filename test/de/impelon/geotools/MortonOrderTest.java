@@ -0,0 +1,73 @@
+package de.impelon.geotools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import org.bukkit.util.Vector;
+import org.junit.Test;
+
+import de.impelon.geotools.region.CuboidRegion;
+import de.impelon.geotools.region.PositionRegion;
+
+/**
+ * <p> Checks the encoding of MortonOrder and the locality of the order it produces. </p>
+ * 
+ * @author Impelon
+ *
+ */
+public class MortonOrderTest {
+	
+	/**
+	 * <p> Measures the locality of an order of Blocks by counting how often consecutive Blocks lie in different chunks. </p>
+	 * <p> Every change means another chunk-lookup for consumers accessing the World;
+	 * the lowest possible count is the amount of chunks minus one. </p>
+	 * 
+	 * @param iterator the Blocks in the order to measure
+	 * @return The amount of chunk-changes
+	 */
+	protected static long countChunkChanges(Iterator<Vector> iterator) {
+		long changes = 0;
+		boolean first = true;
+		int chunkX = 0, chunkZ = 0;
+		while (iterator.hasNext()) {
+			Vector v = iterator.next();
+			int x = v.getBlockX() >> 4, z = v.getBlockZ() >> 4;
+			if (!first && (x != chunkX || z != chunkZ))
+				changes++;
+			first = false;
+			chunkX = x;
+			chunkZ = z;
+		}
+		return changes;
+	}
+	
+	@Test
+	public void testEncodeRoundTrip() {
+		Random random = new Random(12);
+		for (int i = 0; i < 10000; i++) {
+			int x = random.nextInt(1 << 26) - (1 << 25), y = random.nextInt(4096) - 2048, z = random.nextInt(1 << 26) - (1 << 25);
+			long key = MortonOrder.encode(x, y, z);
+			assertEquals(x, MortonOrder.getX(key));
+			assertEquals(y, MortonOrder.getY(key));
+			assertEquals(z, MortonOrder.getZ(key));
+		}
+	}
+	
+	@Test
+	public void testSortedBlocksChangeChunksRarely() {
+		PositionRegion region = new PositionRegion(new CuboidRegion(new Vector(-32, 0, -32), new Vector(31, 15, 31), null));
+		long[] keys = MortonOrder.sort(region);
+		assertEquals(region.getBlockVolume(), keys.length);
+		// a 64x16x64 cuboid aligned to chunks covers 16 chunks, each of which is visited completely
+		long sorted = countChunkChanges(MortonOrder.iterator(keys));
+		assertEquals(15, sorted);
+		assertEquals(sorted, countChunkChanges(region.getMortonIterator()));
+		// the HashSet of a PositionRegion spreads consecutive Blocks over all chunks
+		long hashed = countChunkChanges(region.iterator());
+		assertTrue(hashed + " chunk-changes in hash-order", hashed > 100 * sorted);
+	}
+
+}
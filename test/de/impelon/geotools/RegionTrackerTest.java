@@ -0,0 +1,55 @@
+package de.impelon.geotools;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.junit.Test;
+
+import de.impelon.geotools.region.IRegion;
+import de.impelon.geotools.region.SpanRegion;
+
+/**
+ * <p> Checks which chunks the Areas of a RegionTracker are bucketed in. </p>
+ * 
+ * @author Impelon
+ *
+ */
+public class RegionTrackerTest {
+	
+	@Test
+	public void testBlockBoundingBoxes() {
+		assertArrayEquals(new int[] {0, 0, 0, 0}, RegionTracker.getChunkRange(BoundingBox.ofBlocks(0, 0, 0, 15, 255, 15)));
+		assertArrayEquals(new int[] {-1, -1, -1, -1}, RegionTracker.getChunkRange(BoundingBox.ofBlocks(-16, 0, -16, -1, 0, -1)));
+		assertArrayEquals(new int[] {0, 0, 1, 0}, RegionTracker.getChunkRange(BoundingBox.ofBlocks(0, 0, 0, 16, 0, 15)));
+		assertArrayEquals(new int[] {-1, 0, 0, 0}, RegionTracker.getChunkRange(BoundingBox.ofBlocks(-1, 0, 0, 0, 0, 0)));
+	}
+	
+	@Test
+	public void testRealBoundingBoxes() {
+		assertArrayEquals(new int[] {0, 0, 1, 0}, RegionTracker.getChunkRange(new BoundingBox(0.5, 0, 0.5, 16.5, 0, 15.5)));
+		assertArrayEquals(new int[] {1, 1, 1, 1}, RegionTracker.getChunkRange(new BoundingBox(16, 0, 16, 16, 0, 16)));
+		assertArrayEquals(new int[] {0, 0, 0, 0}, RegionTracker.getChunkRange(new BoundingBox(3.2, 0, 3.2, 3.7, 0, 3.7)));
+		assertNull(RegionTracker.getChunkRange(BoundingBox.INFINITE));
+	}
+	
+	@Test
+	public void testAreaIsBucketedInItsChunkOnly() {
+		RegionTracker<IRegion> tracker = new RegionTracker<IRegion>(new IAreaListener<IRegion>() {
+			
+			@Override
+			public void onEnter(Player player, IRegion area) {}
+			
+			@Override
+			public void onExit(Player player, IRegion area) {}
+		});
+		SpanRegion chunk = new SpanRegion((World) null);
+		chunk.fill(0, 0, 0, 15, 15, 15);
+		tracker.add(chunk);
+		assertEquals(BoundingBox.ofBlocks(0, 0, 0, 15, 15, 15).getMaxX(), chunk.getBoundingBox().getMaxX(), 0);
+		assertEquals(1, tracker.buckets.get(null).size());
+	}
+
+}
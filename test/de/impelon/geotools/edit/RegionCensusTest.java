@@ -0,0 +1,177 @@
+package de.impelon.geotools.edit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.util.Vector;
+import org.junit.Test;
+
+import de.impelon.geotools.region.CuboidRegion;
+import de.impelon.geotools.region.IBlockVisitor;
+import de.impelon.geotools.region.IRegion;
+import de.impelon.geotools.region.SpanRegion;
+
+/**
+ * <p> Checks RegionCensus against a stub World whose Blocks are computed from their coordinates. </p>
+ * 
+ * @author Impelon
+ *
+ */
+public class RegionCensusTest {
+	
+	protected static final int HEIGHT = 256;
+	protected static final Executor DIRECT = new Executor() {
+		
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+	};
+	
+	protected static Material getMaterial(int x, int y, int z) {
+		if (y == 0)
+			return Material.STONE;
+		if (y == 1 && Math.floorMod(x + z, 7) == 0)
+			return Material.DIAMOND_ORE;
+		if (y < 3)
+			return Material.DIRT;
+		return Material.AIR;
+	}
+	
+	protected static Object handleObjectMethod(Object proxy, Method method, Object[] args) {
+		if (method.getName().equals("equals"))
+			return proxy == args[0];
+		if (method.getName().equals("hashCode"))
+			return System.identityHashCode(proxy);
+		if (method.getName().equals("toString"))
+			return "Stub" + proxy.getClass().getInterfaces()[0].getSimpleName();
+		throw new UnsupportedOperationException(method.getName());
+	}
+	
+	protected static ChunkSnapshot createSnapshot(final int chunkX, final int chunkZ) {
+		return (ChunkSnapshot) Proxy.newProxyInstance(RegionCensusTest.class.getClassLoader(), new Class<?>[] {ChunkSnapshot.class},
+				new InvocationHandler() {
+					
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if (method.getName().equals("getBlockType")) {
+							int x = (Integer) args[0], y = (Integer) args[1], z = (Integer) args[2];
+							if (x < 0 || x > 15 || z < 0 || z > 15 || y < 0 || y >= HEIGHT)
+								throw new ArrayIndexOutOfBoundsException(x + ", " + y + ", " + z);
+							return getMaterial((chunkX << 4) + x, y, (chunkZ << 4) + z);
+						}
+						if (method.getName().equals("getX"))
+							return chunkX;
+						if (method.getName().equals("getZ"))
+							return chunkZ;
+						return handleObjectMethod(proxy, method, args);
+					}
+				});
+	}
+	
+	protected static World createWorld() {
+		return (World) Proxy.newProxyInstance(RegionCensusTest.class.getClassLoader(), new Class<?>[] {World.class}, new InvocationHandler() {
+			
+			@Override
+			public Object invoke(final Object world, Method method, Object[] args) {
+				if (method.getName().equals("getMaxHeight"))
+					return HEIGHT;
+				if (method.getName().equals("getChunkAt") && args.length == 2) {
+					final int chunkX = (Integer) args[0], chunkZ = (Integer) args[1];
+					return Proxy.newProxyInstance(RegionCensusTest.class.getClassLoader(), new Class<?>[] {Chunk.class}, new InvocationHandler() {
+						
+						@Override
+						public Object invoke(Object proxy, Method method, Object[] args) {
+							if (method.getName().equals("getChunkSnapshot"))
+								return createSnapshot(chunkX, chunkZ);
+							if (method.getName().equals("getWorld"))
+								return world;
+							return handleObjectMethod(proxy, method, args);
+						}
+					});
+				}
+				return handleObjectMethod(world, method, args);
+			}
+		});
+	}
+	
+	protected static Map<Material, Long> countDirectly(IRegion region) {
+		final Map<Material, Long> counts = new EnumMap<Material, Long>(Material.class);
+		region.forEachBlock(new IBlockVisitor() {
+			
+			@Override
+			public void visit(int x, int y, int z) {
+				if (y < 0 || y >= HEIGHT)
+					return;
+				Material material = getMaterial(x, y, z);
+				Long count = counts.get(material);
+				counts.put(material, count == null ? 1 : count + 1);
+			}
+		});
+		return counts;
+	}
+	
+	@Test
+	public void testCountsMatchBlocks() {
+		World world = createWorld();
+		IRegion region = new CuboidRegion(new Vector(-20, 0, -3), new Vector(25, 9, 30), world);
+		Map<Material, Long> expected = countDirectly(region);
+		for (int parallelism : new int[] {1, 3, 64}) {
+			RegionCensus census = RegionCensus.take(region, DIRECT, parallelism).join();
+			assertEquals(expected, census.getCounts());
+			assertEquals(region.getBlockVolume(), census.getTotal());
+			for (Material material : census.getMaterials())
+				assertEquals(expected.get(material).longValue(), census.getCount(material));
+		}
+		assertTrue(expected.get(Material.DIAMOND_ORE) > 0);
+		assertEquals(0, RegionCensus.take(region, DIRECT).join().getCount(Material.CHEST));
+	}
+	
+	@Test
+	public void testParallelCounting() {
+		World world = createWorld();
+		IRegion region = new CuboidRegion(new Vector(-70, 0, -70), new Vector(70, 4, 70), world);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			assertEquals(countDirectly(region), RegionCensus.take(region, executor, 8).join().getCounts());
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+	@Test
+	public void testBlocksOutsideOfHeightAreSkipped() {
+		World world = createWorld();
+		IRegion region = new CuboidRegion(new Vector(0, -10, 0), new Vector(3, 300, 3), world);
+		RegionCensus census = RegionCensus.take(region, DIRECT, 2).join();
+		assertEquals(16 * HEIGHT, census.getTotal());
+		assertEquals(countDirectly(region), census.getCounts());
+		assertEquals(0, RegionCensus.take(new CuboidRegion(new Vector(0, 260, 0), new Vector(40, 270, 40), world), DIRECT).join().getTotal());
+	}
+	
+	@Test
+	public void testEmptyRegion() {
+		RegionCensus census = RegionCensus.take(new SpanRegion(createWorld()), DIRECT).join();
+		assertEquals(0, census.getTotal());
+		assertTrue(census.getMaterials().isEmpty());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidParallelism() {
+		RegionCensus.take(new SpanRegion(createWorld()), DIRECT, 0);
+	}
+
+}
@@ -0,0 +1,251 @@
+package de.impelon.geotools.edit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.util.Vector;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.impelon.geotools.region.CuboidRegion;
+import de.impelon.geotools.region.IRegion;
+import de.impelon.geotools.region.SpanRegion;
+
+/**
+ * <p> Checks the chunk-order of RegionEditTask and runs it on a stub scheduler, one tick at a time. </p>
+ * 
+ * @author Impelon
+ *
+ */
+public class RegionEditTaskTest {
+	
+	protected static final LinkedHashMap<Integer, Runnable> tasks = new LinkedHashMap<Integer, Runnable>();
+	protected static int nextTaskId = 1;
+	protected static final Plugin PLUGIN = stub(Plugin.class, new InvocationHandler() {
+		
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			return handleObjectMethod(proxy, method, args);
+		}
+	});
+	
+	static {
+		final BukkitScheduler scheduler = stub(BukkitScheduler.class, new InvocationHandler() {
+			
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if (method.getName().equals("runTaskTimer")) {
+					final int id = nextTaskId++;
+					tasks.put(id, (Runnable) args[1]);
+					return stub(BukkitTask.class, new InvocationHandler() {
+						
+						@Override
+						public Object invoke(Object proxy, Method method, Object[] args) {
+							if (method.getName().equals("getTaskId"))
+								return id;
+							return handleObjectMethod(proxy, method, args);
+						}
+					});
+				}
+				if (method.getName().equals("cancelTask"))
+					return tasks.remove(args[0]);
+				if (method.getName().equals("isQueued"))
+					return tasks.containsKey(args[0]);
+				return handleObjectMethod(proxy, method, args);
+			}
+		});
+		Bukkit.setServer(stub(Server.class, new InvocationHandler() {
+			
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if (method.getName().equals("getScheduler"))
+					return scheduler;
+				if (method.getName().equals("getLogger"))
+					return Logger.getLogger("StubServer");
+				if (method.getReturnType() == String.class)
+					return "Stub";
+				return handleObjectMethod(proxy, method, args);
+			}
+		}));
+	}
+	
+	protected static <T> T stub(Class<T> type, InvocationHandler handler) {
+		return type.cast(Proxy.newProxyInstance(RegionEditTaskTest.class.getClassLoader(), new Class<?>[] {type}, handler));
+	}
+	
+	protected static Object handleObjectMethod(Object proxy, Method method, Object[] args) {
+		if (method.getName().equals("equals"))
+			return proxy == args[0];
+		if (method.getName().equals("hashCode"))
+			return System.identityHashCode(proxy);
+		if (method.getName().equals("toString"))
+			return "Stub" + proxy.getClass().getInterfaces()[0].getSimpleName();
+		throw new UnsupportedOperationException(method.getName());
+	}
+	
+	protected static World createWorld() {
+		return stub(World.class, new InvocationHandler() {
+			
+			@Override
+			public Object invoke(final Object world, Method method, final Object[] args) {
+				if (method.getName().equals("getBlockAt") && args.length == 3)
+					return stub(Block.class, new InvocationHandler() {
+						
+						@Override
+						public Object invoke(Object proxy, Method method, Object[] arguments) {
+							if (method.getName().equals("getX"))
+								return args[0];
+							if (method.getName().equals("getY"))
+								return args[1];
+							if (method.getName().equals("getZ"))
+								return args[2];
+							if (method.getName().equals("getWorld"))
+								return world;
+							return handleObjectMethod(proxy, method, arguments);
+						}
+					});
+				return handleObjectMethod(world, method, args);
+			}
+		});
+	}
+	
+	/**
+	 * <p> Runs all scheduled tasks once, like a server-tick. </p>
+	 */
+	protected static void tick() {
+		for (Runnable task : new ArrayList<Runnable>(tasks.values()))
+			task.run();
+	}
+	
+	@Before
+	public void clearTasks() {
+		tasks.clear();
+	}
+	
+	@Test
+	public void testChunkOrderRoundTrip() {
+		Random random = new Random(9);
+		int[] edges = {0, 1, 15, 16, 17, -1, -15, -16, -17, 30000000, -30000000};
+		for (int i = 0; i < 10000; i++) {
+			int x = i < edges.length ? edges[i] : random.nextInt(60000000) - 30000000;
+			int z = i < edges.length ? edges[edges.length - 1 - i] : random.nextInt(60000000) - 30000000;
+			int y = random.nextInt(4096) - 2048;
+			long block = RegionEditTask.toChunkOrder(x, y, z);
+			assertEquals(x, RegionEditTask.getX(block));
+			assertEquals(y, RegionEditTask.getY(block));
+			assertEquals(z, RegionEditTask.getZ(block));
+		}
+	}
+	
+	@Test
+	public void testBlocksOfAChunkAreConsecutive() {
+		IRegion region = new CuboidRegion(new Vector(-40, 3, -21), new Vector(37, 8, 50), null);
+		long[] blocks = RegionEditTask.collectChunkOrdered(region);
+		assertEquals(region.getBlockVolume(), blocks.length);
+		Set<Long> finished = new HashSet<Long>();
+		long chunk = 0;
+		for (int i = 0; i < blocks.length; i++) {
+			int x = RegionEditTask.getX(blocks[i]), z = RegionEditTask.getZ(blocks[i]);
+			long current = ((long) (x >> 4) << 32) | ((z >> 4) & 0xFFFFFFFFL);
+			if (i > 0 && current != chunk)
+				assertTrue("chunk visited twice", finished.add(chunk));
+			assertFalse("chunk visited twice", finished.contains(current));
+			chunk = current;
+		}
+	}
+	
+	@Test
+	public void testEditsEveryBlockOnce() throws InterruptedException, ExecutionException {
+		World world = createWorld();
+		IRegion region = new CuboidRegion(new Vector(-5, 0, -5), new Vector(20, 2, 6), world);
+		final List<Vector> edited = new ArrayList<Vector>();
+		RegionEditTask task = new RegionEditTask(region, new IBlockOperation() {
+			
+			@Override
+			public void apply(Block block) {
+				edited.add(new Vector(block.getX(), block.getY(), block.getZ()));
+			}
+		}, 1);
+		CompletableFuture<Long> future = task.start(PLUGIN);
+		assertEquals(1, tasks.size());
+		tick();
+		assertEquals(1, task.getEditedBlocks());
+		for (int i = 0; i < region.getBlockVolume() && !future.isDone(); i++)
+			tick();
+		assertTrue(future.isDone());
+		assertEquals(region.getBlockVolume(), future.get().longValue());
+		assertEquals(1, task.getProgress(), 0);
+		assertEquals(0, tasks.size());
+		assertEquals(region.getBlockVolume(), new HashSet<Vector>(edited).size());
+		for (Vector v : edited)
+			assertTrue(region.getOverlap(v));
+	}
+	
+	@Test
+	public void testCancelBeforeStart() {
+		RegionEditTask task = new RegionEditTask(new SpanRegion(createWorld()), new IBlockOperation() {
+			
+			@Override
+			public void apply(Block block) {
+			}
+		}, 1000);
+		task.cancel();
+		assertTrue(task.getFuture().isCancelled());
+		task.start(PLUGIN);
+		assertEquals(0, tasks.size());
+	}
+	
+	@Test
+	public void testCancelWhileRunning() {
+		RegionEditTask task = new RegionEditTask(new CuboidRegion(new Vector(0, 0, 0), new Vector(9, 9, 9), createWorld()), new IBlockOperation() {
+			
+			@Override
+			public void apply(Block block) {
+			}
+		}, 1);
+		CompletableFuture<Long> future = task.start(PLUGIN);
+		tick();
+		task.cancel();
+		assertTrue(future.isCancelled());
+		assertEquals(0, tasks.size());
+		assertEquals(1, task.getEditedBlocks());
+	}
+	
+	@Test
+	public void testFailingOperation() {
+		RegionEditTask task = new RegionEditTask(new CuboidRegion(new Vector(0, 0, 0), new Vector(3, 3, 3), createWorld()), new IBlockOperation() {
+			
+			@Override
+			public void apply(Block block) {
+				if (block.getY() == 2)
+					throw new IllegalStateException("Cannot edit this Block");
+			}
+		}, Long.MAX_VALUE);
+		CompletableFuture<Long> future = task.start(PLUGIN);
+		tick();
+		assertTrue(future.isCompletedExceptionally());
+		assertEquals(0, tasks.size());
+	}
+
+}
@@ -0,0 +1,122 @@
+package de.impelon.geotools.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.bukkit.World;
+import org.bukkit.util.Vector;
+import org.junit.Test;
+
+import de.impelon.geotools.PackedPosition;
+import de.impelon.geotools.region.CuboidRegion;
+import de.impelon.geotools.region.IRegion;
+import de.impelon.geotools.region.PositionRegion;
+
+/**
+ * <p> Writes Regions with the RegionSerializer and checks what is read back. </p>
+ * 
+ * @author Impelon
+ *
+ */
+public class RegionSerializerTest {
+	
+	protected static IRegion roundTrip(IRegion region) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		RegionSerializer.write(region, output);
+		return RegionSerializer.read(ByteBuffer.wrap(output.toByteArray()), null);
+	}
+	
+	protected static Set<Vector> toSet(IRegion region) {
+		Set<Vector> vectors = new HashSet<Vector>();
+		for (Vector v : region)
+			vectors.add(v);
+		return vectors;
+	}
+	
+	@Test
+	public void testBlocks() throws IOException {
+		PositionRegion region = new PositionRegion((World) null, new HashSet<Vector>(), true);
+		// a column ending at the top of the packed range, directly followed by the bottom of the next column
+		for (int y = PackedPosition.MAX_VERTICAL - 5; y <= PackedPosition.MAX_VERTICAL; y++)
+			region.add(new Vector(3, y, 7));
+		for (int y = PackedPosition.MIN_VERTICAL; y < PackedPosition.MIN_VERTICAL + 5; y++)
+			region.add(new Vector(3, y, 8));
+		// enough scattered Blocks to need several chunks of runs
+		Random random = new Random(10);
+		for (int i = 0; i < 1000; i++)
+			region.add(new Vector(random.nextInt(200) - 100, random.nextInt(64), random.nextInt(200) - 100));
+		IRegion read = roundTrip(region);
+		assertTrue(read instanceof MappedRegion);
+		MappedRegion mapped = (MappedRegion) read;
+		assertEquals(region.getBlockVolume(), mapped.getBlockVolume());
+		assertEquals(region.getBlockSurfaceArea(), mapped.getBlockSurfaceArea());
+		assertEquals(toSet(region), toSet(mapped));
+		for (Vector v : region)
+			assertTrue(v.toString(), mapped.contains(v.getBlockX(), v.getBlockY(), v.getBlockZ()));
+		assertFalse(mapped.contains(3, PackedPosition.MIN_VERTICAL, 7));
+		assertFalse(mapped.contains(3, PackedPosition.MAX_VERTICAL, 8));
+		for (int i = 0; i < 10000; i++) {
+			int x = random.nextInt(220) - 110, y = random.nextInt(70) - 3, z = random.nextInt(220) - 110;
+			assertEquals(region.getOverlap(new Vector(x, y, z)), mapped.contains(x, y, z));
+		}
+	}
+	
+	@Test
+	public void testLookupBeforeFirstBlock() throws IOException {
+		PositionRegion region = new PositionRegion((World) null, new HashSet<Vector>(), true);
+		region.add(new Vector(0, 5, 0));
+		region.add(new Vector(0, 0, 1));
+		region.add(new Vector(1, 0, 0));
+		MappedRegion mapped = (MappedRegion) roundTrip(region);
+		// within the bounds, but before the first Block of the index
+		assertFalse(mapped.contains(0, 0, 0));
+		assertFalse(mapped.contains(0, 4, 0));
+		assertTrue(mapped.contains(0, 5, 0));
+		assertTrue(mapped.contains(0, 0, 1));
+		assertTrue(mapped.contains(1, 0, 0));
+	}
+	
+	@Test
+	public void testEmptyRegion() throws IOException {
+		MappedRegion mapped = (MappedRegion) roundTrip(new PositionRegion((World) null, new HashSet<Vector>(), true));
+		assertEquals(0, mapped.getBlockVolume());
+		assertFalse(mapped.iterator().hasNext());
+		assertFalse(mapped.contains(0, 0, 0));
+	}
+	
+	@Test
+	public void testCuboid() throws IOException {
+		CuboidRegion cuboid = new CuboidRegion(new Vector(-1.5, 2, 3), new Vector(4, 5.25, 6), null);
+		IRegion read = roundTrip(cuboid);
+		assertTrue(read instanceof CuboidRegion);
+		assertEquals(cuboid.getStartPosition(), ((CuboidRegion) read).getStartPosition());
+		assertEquals(cuboid.getEndPosition(), ((CuboidRegion) read).getEndPosition());
+	}
+	
+	@Test
+	public void testVectorsAreCountedWhileWriting() throws IOException {
+		// the volume of this Region does not match the amount of its Positions
+		PositionRegion region = new PositionRegion((World) null, new HashSet<Vector>(), false) {
+			
+			@Override
+			public double getVolume() {
+				return super.getVolume() - 0.5;
+			}
+		};
+		region.add(new Vector(0.25, 0, 0));
+		region.add(new Vector(0.75, 0, 0));
+		region.add(new Vector(3.5, -1.5, 2));
+		IRegion read = roundTrip(region);
+		assertTrue(read instanceof PositionRegion);
+		assertEquals(toSet(region), toSet(read));
+	}
+
+}
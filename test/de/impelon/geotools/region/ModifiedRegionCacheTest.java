@@ -0,0 +1,87 @@
+package de.impelon.geotools.region;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+
+import org.bukkit.World;
+import org.bukkit.util.Vector;
+import org.junit.Test;
+
+import de.impelon.geotools.Axis;
+import de.impelon.geotools.RegionFormat;
+import de.impelon.geotools.RegionTransform;
+
+/**
+ * <p> Checks that ModifiedRegionCache reuses up-to-date results and does not keep its Regions alive. </p>
+ * 
+ * @author Impelon
+ *
+ */
+public class ModifiedRegionCacheTest {
+	
+	protected static final long BUDGET = 1 << 20;
+	
+	/**
+	 * <p> Runs the garbage-collector until the cache dropped all entries, or gives up after a while. </p>
+	 * 
+	 * @param cache the cache to empty
+	 * @return Whether the cache is empty
+	 */
+	protected static boolean awaitEmpty(ModifiedRegionCache cache) throws InterruptedException {
+		for (int i = 0; i < 100 && cache.size() > 0; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		return cache.size() == 0;
+	}
+	
+	protected static void fill(ModifiedRegionCache cache) {
+		CuboidRegion cuboid = new CuboidRegion(new Vector(0, 0, 0), new Vector(9, 9, 9), null);
+		assertTrue(cache.getModifiedRegion(cuboid, RegionFormat.HOLLOW) instanceof CuboidOutlineRegion);
+		assertTrue(cache.getModifiedRegion(new TransformedRegion(cuboid, RegionTransform.mirror(Axis.X)), RegionFormat.WIREFRAME) != null);
+		PositionRegion positions = new PositionRegion((World) null, new HashSet<Vector>(), true);
+		positions.add(new Vector(1, 2, 3));
+		cache.getModifiedRegion(positions, RegionFormat.SURROUNDING);
+		SpanRegion spans = new SpanRegion(new CuboidRegion(new Vector(0, 0, 0), new Vector(3, 3, 3), null));
+		cache.getModifiedRegion(spans, RegionFormat.HOLLOW);
+	}
+	
+	@Test
+	public void testEntriesOfUnreachableRegionsDisappear() throws InterruptedException {
+		ModifiedRegionCache cache = new ModifiedRegionCache(BUDGET);
+		fill(cache);
+		assertEquals(4, cache.size());
+		assertTrue(awaitEmpty(cache));
+		assertEquals(0, cache.getMemoryUsage());
+	}
+	
+	@Test
+	public void testResultsAreReused() {
+		ModifiedRegionCache cache = new ModifiedRegionCache(BUDGET);
+		CuboidRegion cuboid = new CuboidRegion(new Vector(0, 0, 0), new Vector(9, 9, 9), null);
+		IRegion outline = cache.getModifiedRegion(cuboid, RegionFormat.HOLLOW);
+		assertSame(outline, cache.getModifiedRegion(cuboid, RegionFormat.HOLLOW));
+		assertFalse(ModifiedRegionCache.references(outline, cuboid));
+		assertEquals(cuboid.getModifiedRegion(RegionFormat.HOLLOW).getBlockVolume(), outline.getBlockVolume());
+		assertEquals(1, cache.getHits());
+		PositionRegion positions = new PositionRegion((World) null, new HashSet<Vector>(), true);
+		positions.add(new Vector(1, 2, 3));
+		IRegion surrounding = cache.getModifiedRegion(positions, RegionFormat.SURROUNDING);
+		assertSame(surrounding, cache.getModifiedRegion(positions, RegionFormat.SURROUNDING));
+		positions.add(new Vector(7, 2, 3));
+		assertFalse(surrounding == cache.getModifiedRegion(positions, RegionFormat.SURROUNDING));
+	}
+	
+	@Test
+	public void testResultsReferencingTheirRegionAreNotCached() {
+		ModifiedRegionCache cache = new ModifiedRegionCache(BUDGET);
+		SphereRegion sphere = new SphereRegion(new Vector(0, 0, 0), 4, null);
+		assertSame(sphere, cache.getModifiedRegion(sphere, RegionFormat.FULL));
+		assertEquals(0, cache.size());
+	}
+
+}
@@ -0,0 +1,132 @@
+package de.impelon.geotools.region;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.bukkit.World;
+import org.bukkit.util.Vector;
+import org.junit.Test;
+
+import de.impelon.geotools.PackedPosition;
+
+/**
+ * <p> Checks the net changes returned by RegionJournal and applies them to copies of a PositionRegion. </p>
+ * 
+ * @author Impelon
+ *
+ */
+public class RegionJournalTest {
+	
+	protected static long[] sorted(long... packed) {
+		long[] copy = packed.clone();
+		Arrays.sort(copy);
+		return copy;
+	}
+	
+	protected static Set<Vector> toSet(IRegion region) {
+		Set<Vector> vectors = new HashSet<Vector>();
+		for (Vector v : region)
+			vectors.add(v);
+		return vectors;
+	}
+	
+	@Test
+	public void testChangesCancellingOutAreOmitted() {
+		RegionJournal journal = new RegionJournal(16);
+		journal.added(1, 2, 3);
+		journal.removed(1, 2, 3);
+		journal.removed(4, 5, 6);
+		journal.added(4, 5, 6);
+		journal.added(7, 8, 9);
+		journal.removed(7, 8, 9);
+		journal.added(7, 8, 9);
+		journal.removed(-1, 0, -1);
+		RegionDelta delta = journal.changesSince(0);
+		assertFalse(delta.isResyncRequired());
+		assertEquals(0, delta.getFromVersion());
+		assertEquals(8, delta.getToVersion());
+		assertArrayEquals(new long[] {PackedPosition.pack(7, 8, 9)}, delta.getAdded());
+		assertArrayEquals(new long[] {PackedPosition.pack(-1, 0, -1)}, delta.getRemoved());
+		// only the changes after the given version count
+		delta = journal.changesSince(2);
+		assertArrayEquals(sorted(PackedPosition.pack(7, 8, 9)), sorted(delta.getAdded()));
+		assertArrayEquals(sorted(PackedPosition.pack(-1, 0, -1)), sorted(delta.getRemoved()));
+		assertTrue(journal.changesSince(8).isEmpty());
+	}
+	
+	@Test
+	public void testAddingAndRemovingABlockLeavesNoDelta() {
+		PositionRegion region = new PositionRegion((World) null, new HashSet<Vector>(), true);
+		region.setJournal(new RegionJournal(16));
+		region.add(new Vector(0, 0, 0));
+		long version = region.getJournal().getVersion();
+		region.add(new Vector(1, 2, 3));
+		region.remove(new Vector(1, 2, 3));
+		RegionDelta delta = region.changesSince(version);
+		assertFalse(delta.isResyncRequired());
+		assertTrue(delta.isEmpty());
+		assertEquals(version + 2, delta.getToVersion());
+	}
+	
+	@Test
+	public void testOverflowRequiresResync() {
+		RegionJournal journal = new RegionJournal(4);
+		for (int x = 0; x < 6; x++)
+			journal.added(x, 0, 0);
+		assertEquals(6, journal.getVersion());
+		assertEquals(2, journal.getOldestVersion());
+		assertTrue(journal.changesSince(0).isResyncRequired());
+		assertTrue(journal.changesSince(1).isResyncRequired());
+		RegionDelta delta = journal.changesSince(2);
+		assertFalse(delta.isResyncRequired());
+		assertArrayEquals(sorted(PackedPosition.pack(2, 0, 0), PackedPosition.pack(3, 0, 0), PackedPosition.pack(4, 0, 0),
+				PackedPosition.pack(5, 0, 0)), sorted(delta.getAdded()));
+		journal.reset();
+		assertTrue(journal.changesSince(6).isResyncRequired());
+		assertTrue(journal.changesSince(journal.getVersion()).isEmpty());
+	}
+	
+	@Test
+	public void testDeltaAppliedToCopy() {
+		Random random = new Random(20);
+		PositionRegion region = new PositionRegion((World) null, new HashSet<Vector>(), true);
+		region.setJournal(new RegionJournal(256));
+		final PositionRegion copy = new PositionRegion(region, true);
+		long version = region.getJournal().getVersion();
+		for (int round = 0; round < 50; round++) {
+			for (int i = 0; i < 100; i++) {
+				Vector v = new Vector(random.nextInt(8), random.nextInt(8), random.nextInt(8));
+				if (random.nextBoolean())
+					region.add(v);
+				else
+					region.remove(v);
+			}
+			RegionDelta delta = region.changesSince(version);
+			assertFalse(delta.isResyncRequired());
+			delta.forEachAdded(new IBlockVisitor() {
+				
+				@Override
+				public void visit(int x, int y, int z) {
+					assertTrue(copy.add(new Vector(x, y, z)));
+				}
+			});
+			delta.forEachRemoved(new IBlockVisitor() {
+				
+				@Override
+				public void visit(int x, int y, int z) {
+					assertTrue(copy.remove(new Vector(x, y, z)));
+				}
+			});
+			assertEquals(toSet(region), toSet(copy));
+			version = delta.getToVersion();
+		}
+	}
+
+}
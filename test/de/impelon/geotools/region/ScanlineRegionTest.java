@@ -0,0 +1,81 @@
+package de.impelon.geotools.region;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bukkit.util.Vector;
+import org.junit.Test;
+
+import de.impelon.geotools.Axis;
+
+/**
+ * <p> Checks that the cached Block-statistics of ScanlineRegions are calculated once and can be shared between threads. </p>
+ * 
+ * @author Impelon
+ *
+ */
+public class ScanlineRegionTest {
+	
+	@Test
+	public void testEmptyShapeIsCalculatedOnce() {
+		final AtomicInteger rows = new AtomicInteger();
+		// too thin to contain the smallest corner of any Block
+		CylinderRegion cylinder = new CylinderRegion(new Vector(0.5, 0.5, 0.5), 0.2, 0.2, null) {
+			
+			@Override
+			protected boolean getSpan(int y, int z, int[] span) {
+				rows.incrementAndGet();
+				return super.getSpan(y, z, span);
+			}
+		};
+		assertNull(cylinder.getBounds());
+		int calculated = rows.get();
+		assertEquals(0, cylinder.getBlockLength(Axis.X));
+		assertNull(cylinder.getBounds());
+		assertEquals(calculated, rows.get());
+		assertEquals(0, cylinder.getBlockVolume());
+		assertEquals(0, cylinder.getBlockVolume());
+		assertEquals(0, cylinder.getBlockSurfaceArea());
+		assertEquals(0, cylinder.getBlockSurfaceArea());
+	}
+	
+	@Test
+	public void testStatisticsAreConsistentBetweenThreads() throws Exception {
+		EllipsoidRegion reference = new EllipsoidRegion(new Vector(0, 0, 0), 20, 12, 16, null);
+		final long volume = reference.getBlockVolume(), area = reference.getBlockSurfaceArea();
+		final long length = reference.getBlockLength(Axis.Y);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			for (int i = 0; i < 20; i++) {
+				final EllipsoidRegion shared = new EllipsoidRegion(new Vector(0, 0, 0), 20, 12, 16, null);
+				List<Future<long[]>> results = new ArrayList<Future<long[]>>();
+				for (int t = 0; t < 4; t++)
+					results.add(executor.submit(new Callable<long[]>() {
+						
+						@Override
+						public long[] call() {
+							return new long[] {shared.getBlockVolume(), shared.getBlockSurfaceArea(),
+									shared.getBlockLength(Axis.Y)};
+						}
+					}));
+				for (Future<long[]> result : results) {
+					long[] statistics = result.get();
+					assertEquals(volume, statistics[0]);
+					assertEquals(area, statistics[1]);
+					assertEquals(length, statistics[2]);
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,118 @@
+package de.impelon.geotools.region;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.bukkit.World;
+import org.bukkit.util.Vector;
+import org.junit.Test;
+
+import de.impelon.geotools.PackedPosition;
+import de.impelon.geotools.RegionFormat;
+
+/**
+ * <p> Checks the set-operations and modified Regions of SpanRegion against a PositionRegion. </p>
+ * 
+ * @author Impelon
+ *
+ */
+public class SpanRegionTest {
+	
+	protected static PositionRegion randomBlocks(Random random, int amount, int size) {
+		PositionRegion region = new PositionRegion((World) null, new HashSet<Vector>(), true);
+		for (int i = 0; i < amount; i++)
+			region.add(new Vector(random.nextInt(size), random.nextInt(size), random.nextInt(size)));
+		// some solid parts, so eroding does not remove everything
+		int x = random.nextInt(size), y = random.nextInt(size), z = random.nextInt(size);
+		region.add(new CuboidRegion(new Vector(x, y, z), new Vector(x + 4, y + 3, z + 5), null));
+		return region;
+	}
+	
+	protected static Set<Vector> toSet(IRegion region) {
+		Set<Vector> vectors = new HashSet<Vector>();
+		for (Vector v : region)
+			vectors.add(new Vector(v.getBlockX(), v.getBlockY(), v.getBlockZ()));
+		return vectors;
+	}
+	
+	protected static void assertSameBlocks(IRegion expected, SpanRegion actual) {
+		assertEquals(toSet(expected), toSet(actual));
+		assertEquals(expected.getBlockVolume(), actual.getBlockVolume());
+	}
+	
+	@Test
+	public void testSetOperations() {
+		Random random = new Random(11);
+		for (int i = 0; i < 20; i++) {
+			PositionRegion a = randomBlocks(random, 300, 16), b = randomBlocks(random, 300, 16);
+			
+			PositionRegion union = new PositionRegion(a, true);
+			union.add(b);
+			SpanRegion spans = new SpanRegion(a);
+			assertTrue(spans.add(b) || toSet(b).isEmpty());
+			assertSameBlocks(union, spans);
+			
+			PositionRegion intersection = new PositionRegion(a, true);
+			intersection.retainIntersecting(b);
+			spans = new SpanRegion(a);
+			spans.retainIntersecting(b);
+			assertSameBlocks(intersection, spans);
+			
+			PositionRegion difference = new PositionRegion(a, true);
+			difference.remove(b);
+			spans = new SpanRegion(a);
+			spans.remove(b);
+			assertSameBlocks(difference, spans);
+			
+			// SpanRegions as operands take the merging path
+			spans = new SpanRegion(a);
+			spans.remove(new SpanRegion(b));
+			assertSameBlocks(difference, spans);
+		}
+	}
+	
+	@Test
+	public void testGrowAndErode() {
+		Random random = new Random(12);
+		for (int i = 0; i < 20; i++) {
+			PositionRegion reference = randomBlocks(random, 500, 12);
+			SpanRegion spans = new SpanRegion(reference);
+			for (RegionFormat format : new RegionFormat[] {RegionFormat.SURROUNDING, RegionFormat.ENCLOSED, RegionFormat.HOLLOW})
+				assertEquals(format.toString(), toSet(reference.getModifiedRegion(format)), toSet(spans.getModifiedRegion(format)));
+		}
+	}
+	
+	@Test
+	public void testRowsOutsideOfPackedRange() {
+		SpanRegion spans = new SpanRegion((World) null);
+		int[][] outside = {{PackedPosition.MAX_VERTICAL + 1, 0}, {PackedPosition.MIN_VERTICAL - 1, 0},
+				{0, PackedPosition.MAX_HORIZONTAL + 1}, {0, PackedPosition.MIN_HORIZONTAL - 1}};
+		for (int[] row : outside) {
+			try {
+				spans.add(0, row[0], row[1]);
+				fail("added y=" + row[0] + ", z=" + row[1]);
+			} catch (IllegalArgumentException ex) {}
+			try {
+				spans.remove(0, row[0], row[1]);
+				fail("removed y=" + row[0] + ", z=" + row[1]);
+			} catch (IllegalArgumentException ex) {}
+			assertFalse(spans.contains(0, row[0], row[1]));
+		}
+		assertEquals(0, spans.getBlockVolume());
+		
+		// Blocks at the very edge of the range can be stored, but their neighbours are not wrapped around
+		spans.add(0, PackedPosition.MAX_VERTICAL, 0);
+		assertTrue(spans.contains(0, PackedPosition.MAX_VERTICAL, 0));
+		assertFalse(spans.contains(0, PackedPosition.MAX_VERTICAL + 1, 0));
+		IRegion surrounding = spans.getModifiedRegion(RegionFormat.SURROUNDING);
+		assertEquals(6, surrounding.getBlockVolume());
+		assertFalse(surrounding.getOverlap(new Vector(0, PackedPosition.MIN_VERTICAL, 0)));
+	}
+
+}
@@ -0,0 +1,119 @@
+package de.impelon.geotools.region;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.bukkit.World;
+import org.bukkit.util.Vector;
+import org.junit.Test;
+
+import de.impelon.geotools.Axis;
+import de.impelon.geotools.BoundingBox;
+import de.impelon.geotools.RegionTransform;
+
+/**
+ * <p> Checks that overlap-checks of TransformedRegions agree with the Blocks they iterate. </p>
+ * 
+ * @author Impelon
+ *
+ */
+public class TransformedRegionTest {
+	
+	protected static final RegionTransform[] TRANSFORMS = {RegionTransform.mirror(Axis.X), RegionTransform.mirror(Axis.Y),
+			RegionTransform.mirror(Axis.Z), RegionTransform.rotation(1), RegionTransform.rotation(2), RegionTransform.rotation(3),
+			RegionTransform.rotation(1).mirrored(Axis.X).translate(5, -3, 7)};
+	
+	protected static IRegion[] createSources() {
+		PositionRegion packed = new PositionRegion((World) null, new HashSet<Vector>(), true);
+		SectionedRegion sectioned = new SectionedRegion((World) null);
+		for (int x = 0; x <= 2; x++) {
+			packed.add(new Vector(x, 0, 0));
+			sectioned.add(x, 0, 0);
+		}
+		packed.add(new Vector(-4, 3, 17));
+		sectioned.add(-4, 3, 17);
+		return new IRegion[] {packed, sectioned};
+	}
+	
+	protected static Set<Vector> getBlocks(IRegion region) {
+		final Set<Vector> blocks = new HashSet<Vector>();
+		region.forEachBlock(new IBlockVisitor() {
+			
+			@Override
+			public void visit(int x, int y, int z) {
+				blocks.add(new Vector(x, y, z));
+			}
+		});
+		return blocks;
+	}
+	
+	@Test
+	public void testIteratedBlocksContainTheirCentres() {
+		for (IRegion source : createSources())
+			for (RegionTransform transform : TRANSFORMS) {
+				TransformedRegion region = new TransformedRegion(source, transform);
+				for (Vector block : region) {
+					assertTrue(block + " under " + transform, region.getOverlap(block.clone().add(new Vector(0.5, 0.5, 0.5))));
+					assertTrue(block + " under " + transform, region.getOverlap(block));
+				}
+			}
+	}
+	
+	@Test
+	public void testOverlapMatchesBlocks() {
+		for (IRegion source : createSources())
+			for (RegionTransform transform : TRANSFORMS) {
+				TransformedRegion region = new TransformedRegion(source, transform);
+				Set<Vector> blocks = getBlocks(region);
+				assertEquals(source.getBlockVolume(), blocks.size());
+				BoundingBox box = region.getBoundingBox();
+				int checked = 0;
+				for (int x = (int) box.getMinX() - 1; x <= box.getMaxX(); x++)
+					for (int y = (int) box.getMinY() - 1; y <= box.getMaxY(); y++)
+						for (int z = (int) box.getMinZ() - 1; z <= box.getMaxZ(); z++) {
+							Vector block = new Vector(x, y, z);
+							assertEquals(block + " under " + transform, blocks.contains(block), region.getOverlap(new Vector(x + 0.5, y + 0.5, z + 0.5)));
+							if (blocks.contains(block))
+								checked++;
+						}
+				assertEquals(blocks.size(), checked);
+			}
+	}
+	
+	@Test
+	public void testUnalignedSourcesContainTheirVectors() {
+		PositionRegion positions = new PositionRegion((World) null, new HashSet<Vector>(), false);
+		positions.add(new Vector(0.25, 0, 0));
+		positions.add(new Vector(1.5, 2.75, -3.5));
+		positions.add(new Vector(-4, 3, 17));
+		FrozenRegion frozen = positions.freeze();
+		assertFalse(frozen.isPacked());
+		IRegion[] sources = {frozen, new CopyOnWriteRegion(frozen), new UnionRegion(frozen, new CuboidRegion(new Vector(5, 5, 5), new Vector(6, 6, 6), null))};
+		for (IRegion source : sources)
+			for (RegionTransform transform : TRANSFORMS) {
+				TransformedRegion region = new TransformedRegion(source, transform);
+				Set<Vector> blocks = getBlocks(region);
+				for (Vector v : region) {
+					assertTrue(v + " under " + transform, region.getOverlap(v));
+					assertTrue(v + " under " + transform, blocks.contains(new Vector(v.getBlockX(), v.getBlockY(), v.getBlockZ())));
+				}
+			}
+	}
+	
+	@Test
+	public void testMirroredRow() {
+		PositionRegion source = new PositionRegion((World) null, new HashSet<Vector>(), true);
+		for (int x = 0; x <= 2; x++)
+			source.add(new Vector(x, 0, 0));
+		TransformedRegion region = new TransformedRegion(source, RegionTransform.mirror(Axis.X));
+		assertTrue(region.getOverlap(new Vector(0.5, 0.5, 0.5)));
+		assertTrue(region.getOverlap(new Vector(-1.5, 0.5, 0.5)));
+		assertFalse(region.getOverlap(new Vector(1.5, 0.5, 0.5)));
+		assertFalse(region.getOverlap(new Vector(-2.5, 0.5, 0.5)));
+	}
+
+}
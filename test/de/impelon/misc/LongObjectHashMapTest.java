@@ -0,0 +1,65 @@
+package de.impelon.misc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * <p> Compares LongObjectHashMap with a HashMap under random operations. </p>
+ * 
+ * @author Impelon
+ *
+ */
+public class LongObjectHashMapTest {
+	
+	@Test
+	public void testMatchesHashMap() {
+		Random random = new Random(24);
+		LongObjectHashMap<String> map = new LongObjectHashMap<String>(4);
+		HashMap<Long, String> expected = new HashMap<Long, String>();
+		for (int i = 0; i < 200000; i++) {
+			// few distinct keys (including 0) so that removals hit existing entries and probe-sequences overlap
+			long key = random.nextInt(3) == 0 ? random.nextInt(64) - 8 : random.nextLong() >> random.nextInt(64);
+			switch (random.nextInt(4)) {
+			case 0:
+			case 1:
+				String value = Integer.toString(i);
+				assertEquals(expected.put(key, value), map.put(key, value));
+				break;
+			case 2:
+				assertEquals(expected.remove(key), map.remove(key));
+				break;
+			default:
+				assertEquals(expected.get(key), map.get(key));
+				assertEquals(expected.containsKey(key), map.containsKey(key));
+			}
+			assertEquals(expected.size(), map.size());
+		}
+		long[] keys = map.keys();
+		Arrays.sort(keys);
+		long[] expectedKeys = new long[expected.size()];
+		int i = 0;
+		for (Map.Entry<Long, String> entry : expected.entrySet()) {
+			expectedKeys[i++] = entry.getKey();
+			assertEquals(entry.getValue(), map.get(entry.getKey()));
+		}
+		Arrays.sort(expectedKeys);
+		assertTrue(Arrays.equals(expectedKeys, keys));
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertNull(map.get(0));
+	}
+	
+	@Test(expected = NullPointerException.class)
+	public void testNullValue() {
+		new LongObjectHashMap<String>().put(1, null);
+	}
+
+}